@@ -10,16 +10,27 @@
  *******************************************************************************/
 package com.ibm.wala.core.tests.callGraph;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.ClassFileModule;
+import com.ibm.wala.classLoader.ClassLoaderImpl;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ShrikeClass;
 import com.ibm.wala.core.tests.demandpa.AbstractPtrTest;
 import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.core.tests.util.WalaTestCase;
@@ -30,24 +41,40 @@ import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.CallGraphStats;
+import com.ibm.wala.ipa.callgraph.Context;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.impl.AllApplicationEntrypoints;
+import com.ibm.wala.ipa.callgraph.impl.CompactCallGraph;
 import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.CallGraphStore;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.StoredCallGraph;
 import com.ibm.wala.ipa.cfg.BasicBlockInContext;
 import com.ibm.wala.ipa.cfg.InterproceduralCFG;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrikeBT.MethodEditor;
+import com.ibm.wala.shrikeBT.ReturnInstruction;
+import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
 import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.Graph;
@@ -276,8 +303,302 @@ public class CallGraphTest extends WalaTestCase {
     PointerKey keyToQuery = AbstractPtrTest.getParam(mainMethod, "testThisVar", pa.getHeapModel());
     OrdinalSet<InstanceKey> pointsToSet = pa.getPointsToSet(keyToQuery);
     Assert.assertEquals(1, pointsToSet.size());
-    
+
+  }
+
+  @Test
+  public void testCompactCallGraph() throws IOException, ClassHierarchyException, IllegalArgumentException, CancelException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, "Ldemandpa/TestHashMapGet");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    ExplicitCallGraph cg = (ExplicitCallGraph) CallGraphTestUtil.buildZeroOneCFA(options, new AnalysisCache(), cha, scope, false);
+    CompactCallGraph copy = CompactCallGraph.make(cg);
+    Assert.assertEquals(cg.getNumberOfNodes(), copy.getNumberOfNodes());
+    for (CGNode n : cg) {
+      Assert.assertEquals(n, copy.getNode(n.getMethod(), n.getContext()));
+      Assert.assertEquals(Iterator2Collection.toSet(cg.getSuccNodes(n)), Iterator2Collection.toSet(copy.getSuccNodes(n)));
+      Assert.assertEquals(Iterator2Collection.toSet(cg.getPredNodes(n)), Iterator2Collection.toSet(copy.getPredNodes(n)));
+      for (CallSiteReference site : Iterator2Iterable.make(n.iterateCallSites())) {
+        Assert.assertEquals(cg.getPossibleTargets(n, site), copy.getPossibleTargets(n, site));
+      }
+      for (CGNode t : Iterator2Iterable.make(cg.getSuccNodes(n))) {
+        Assert.assertEquals(Iterator2Collection.toSet(cg.getPossibleSites(n, t)), Iterator2Collection.toSet(copy.getPossibleSites(n, t)));
+      }
+    }
+
+    // once compacted, the explicit graph answers from the compact copy, and so do copies made from it
+    CompactCallGraph compact = cg.compact();
+    CompactCallGraph recopy = CompactCallGraph.make(cg);
+    for (CGNode n : cg) {
+      Assert.assertTrue(copy.getSuccNodeNumbers(n).sameValue(cg.getSuccNodeNumbers(n)));
+      Assert.assertTrue(copy.getPredNodeNumbers(n).sameValue(compact.getPredNodeNumbers(n)));
+      for (CallSiteReference site : Iterator2Iterable.make(n.iterateCallSites())) {
+        Assert.assertEquals(copy.getPossibleTargets(n, site), cg.getPossibleTargets(n, site));
+        Assert.assertEquals(copy.getPossibleTargets(n, site), recopy.getPossibleTargets(n, site));
+      }
+    }
+  }
+
+  @Test
+  public void testCallGraphStore() throws IOException, ClassHierarchyException, IllegalArgumentException, CancelException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, "Ldemandpa/TestHashMapGet");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+    File file = File.createTempFile("callgraph", ".bin");
+    try {
+      CallGraphStore.write(cg, pa, file);
+      StoredCallGraph stored = CallGraphStore.read(file, cha, builder.getCFAContextInterpreter(), options);
+      Assert.assertEquals(cg.getNumberOfNodes(), stored.getNumberOfNodes());
+      for (CGNode n : cg) {
+        CGNode s = stored.getNode(cg.getNumber(n));
+        Assert.assertEquals(n.getMethod().getReference(), s.getMethod().getReference());
+        Assert.assertEquals(n.getContext(), s.getContext());
+        for (CallSiteReference site : Iterator2Iterable.make(n.iterateCallSites())) {
+          Set<Integer> targets = HashSetFactory.make();
+          for (CGNode t : stored.getPossibleTargets(s, site)) {
+            targets.add(stored.getNumber(t));
+          }
+          for (CGNode t : cg.getPossibleTargets(n, site)) {
+            Assert.assertTrue(targets.remove(cg.getNumber(t)));
+          }
+          Assert.assertTrue(targets.isEmpty());
+        }
+        if (n.getIR() != null) {
+          for (int vn = 1; vn <= n.getIR().getSymbolTable().getMaxValueNumber(); vn++) {
+            Set<String> expected = HashSetFactory.make();
+            for (InstanceKey ik : pa.getPointsToSet(pa.getHeapModel().getPointerKeyForLocal(n, vn))) {
+              expected.add(ik.toString());
+            }
+            Set<String> actual = HashSetFactory.make();
+            for (InstanceKey ik : stored.getPointsToSet(stored.getHeapModel().getPointerKeyForLocal(s, vn))) {
+              actual.add(ik.toString());
+            }
+            Assert.assertEquals(expected, actual);
+          }
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testCallGraphStoreTruncated() throws IOException, ClassHierarchyException, IllegalArgumentException,
+      CancelException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, "Ldemandpa/TestHashMapGet");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    File dir = Files.createTempDirectory("callgraph").toFile();
+    File file = new File(dir, "callgraph.bin");
+    try {
+      CallGraphStore.write(cg, builder.getPointerAnalysis(), file);
+      // the file is written under a temporary name and renamed, which leaves nothing else behind
+      Assert.assertEquals(Arrays.asList("callgraph.bin"), Arrays.asList(dir.list()));
+      RandomAccessFile f = new RandomAccessFile(file, "rw");
+      try {
+        f.setLength(f.length() - 4);
+      } finally {
+        f.close();
+      }
+      try {
+        CallGraphStore.read(file, cha, builder.getCFAContextInterpreter(), options);
+        Assert.fail("read a truncated file");
+      } catch (IOException e) {
+        // expected
+      }
+    } finally {
+      file.delete();
+      dir.delete();
+    }
+  }
+
+  @Test
+  public void testIncrementalUpdate() throws IOException, ClassHierarchyException, IllegalArgumentException, CancelException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    final IClass changed = cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, "Ldemandpa/DummyHashMap"));
+    Assert.assertNotNull(changed);
+    // simulate an edit of DummyHashMap: put() has no body in the first build, and gets one before the update
+    final boolean[] hidden = new boolean[] { true };
+    AnalysisCache cache = new AnalysisCache(new DefaultIRFactory() {
+      @Override
+      public IR makeIR(IMethod method, Context c, SSAOptions options) {
+        if (hidden[0] && method.getDeclaringClass().equals(changed) && method.getName().toString().equals("put")) {
+          return null;
+        }
+        return super.makeIR(method, c, options);
+      }
+    });
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope,
+        Util.makeMainEntrypoints(scope, cha, "Ldemandpa/TestHashMapGet"));
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, cache, cha, scope);
+    builder.setIncremental(true);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    hidden[0] = false;
+    builder.updateCallGraph(Collections.singleton(changed), null);
+
+    assertSameAsFreshBuild(scope, cha, cg, builder.getPointerAnalysis());
+  }
+
+  @Test
+  public void testIncrementalUpdateOfEditedClass() throws IOException, ClassHierarchyException, IllegalArgumentException,
+      CancelException, InvalidClassFileException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    ShrikeClass old = (ShrikeClass) cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application,
+        "Ldemandpa/DummyHashMap"));
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope,
+        Util.makeMainEntrypoints(scope, cha, "Ldemandpa/TestHashMapGet"));
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    builder.setIncremental(true);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    CGNode hashCode = findMethod(cg, "java.lang.Object.hashCode()I");
+    Assert.assertNotNull(hashCode);
+    Assert.assertTrue(builder.haveAlreadyVisited(hashCode));
+
+    // edit DummyHashMap so that put() does nothing, and load the new version in place of the old one
+    ClassInstrumenter ci = new ClassInstrumenter("DummyHashMap", old.getReader(), null, false);
+    for (int i = 0; i < old.getReader().getMethodCount(); i++) {
+      if (old.getReader().getMethodName(i).equals("put")) {
+        MethodEditor me = new MethodEditor(ci.visitMethod(i));
+        me.beginPass();
+        me.replaceWith(0, new MethodEditor.Patch() {
+          @Override
+          public void emitTo(MethodEditor.Output w) {
+            w.emit(ReturnInstruction.make("V"));
+          }
+        });
+        for (int j = 1; j < me.getInstructions().length; j++) {
+          me.replaceWith(j, new MethodEditor.Patch() {
+            @Override
+            public void emitTo(MethodEditor.Output w) {
+            }
+          });
+        }
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    File file = File.createTempFile("DummyHashMap", ".class");
+    try {
+      FileOutputStream out = new FileOutputStream(file);
+      try {
+        out.write(ci.emitClass().makeBytes());
+      } finally {
+        out.close();
+      }
+      IClass edited = ((ClassLoaderImpl) old.getClassLoader()).reloadClass(new ClassFileModule(file, null));
+      Assert.assertSame(old, cha.replaceClass(edited));
+      Assert.assertSame(edited, cha.lookupClass(old.getReference()));
+    } finally {
+      file.delete();
+    }
+    builder.updateCallGraph(Collections.singleton(cha.lookupClass(old.getReference())), null);
+
+    Assert.assertNull(findMethod(cg, "java.lang.Object.hashCode()I"));
+    Assert.assertFalse(builder.haveAlreadyVisited(hashCode));
+    assertSameAsFreshBuild(scope, cha, cg, builder.getPointerAnalysis());
+  }
+
+  @Test
+  public void testDifferencePropagation() throws IOException, ClassHierarchyException, IllegalArgumentException, CancelException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, "Ldemandpa/TestHashMapGet");
+
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder delta = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg1 = delta.makeCallGraph(options, null);
+
+    options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setUseDifferencePropagation(false);
+    SSAPropagationCallGraphBuilder whole = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg2 = whole.makeCallGraph(options, null);
+
+    Assert.assertEquals(summarize(cg2, whole.getPointerAnalysis()), summarize(cg1, delta.getPointerAnalysis()));
+    Assert.assertEquals(summarize(whole.getPointerAnalysis()), summarize(delta.getPointerAnalysis()));
   }
+
+  /**
+   * describe the points-to set of every pointer key, including fields and array contents
+   */
+  private static Map<String, Set<String>> summarize(PointerAnalysis<InstanceKey> pa) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (PointerKey pk : pa.getPointerKeys()) {
+      Set<String> pts = HashSetFactory.make();
+      for (InstanceKey ik : pa.getPointsToSet(pk)) {
+        pts.add(ik.toString());
+      }
+      result.put(pk.toString(), pts);
+    }
+    return result;
+  }
+
+  private static CGNode findMethod(CallGraph cg, String signature) {
+    for (CGNode n : cg) {
+      if (n.getMethod().getSignature().equals(signature)) {
+        return n;
+      }
+    }
+    return null;
+  }
+
+  private static void assertSameAsFreshBuild(AnalysisScope scope, ClassHierarchy cha, CallGraph cg, PointerAnalysis<InstanceKey> pa)
+      throws IllegalArgumentException, CancelException {
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope,
+        Util.makeMainEntrypoints(scope, cha, "Ldemandpa/TestHashMapGet"));
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph fresh = builder.makeCallGraph(options, null);
+    Assert.assertEquals(fresh.getNumberOfNodes(), cg.getNumberOfNodes());
+    Assert.assertEquals(summarize(fresh, builder.getPointerAnalysis()), summarize(cg, pa));
+  }
+
+  /**
+   * describe the nodes and edges of a call graph and the points-to sets of its locals, independent of node numbering
+   */
+  private static Map<String, Set<String>> summarize(CallGraph cg, PointerAnalysis<InstanceKey> pa) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (CGNode n : cg) {
+      String name = n.getMethod().getSignature() + " " + n.getContext();
+      for (CallSiteReference site : Iterator2Iterable.make(n.iterateCallSites())) {
+        Set<String> targets = HashSetFactory.make();
+        for (CGNode t : cg.getPossibleTargets(n, site)) {
+          targets.add(t.getMethod().getSignature() + " " + t.getContext());
+        }
+        result.put(name + " " + site, targets);
+      }
+      Set<String> succs = HashSetFactory.make();
+      for (CGNode t : Iterator2Iterable.make(cg.getSuccNodes(n))) {
+        succs.add(t.getMethod().getSignature() + " " + t.getContext());
+      }
+      result.put(name, succs);
+      if (n.getIR() != null) {
+        for (int vn = 1; vn <= n.getIR().getSymbolTable().getMaxValueNumber(); vn++) {
+          Set<String> pts = HashSetFactory.make();
+          for (InstanceKey ik : pa.getPointsToSet(pa.getHeapModel().getPointerKeyForLocal(n, vn))) {
+            pts.add(ik.toString());
+          }
+          result.put(name + " v" + vn, pts);
+        }
+      }
+    }
+    return result;
+  }
+
   /**
    * make main entrypoints, even in the primordial loader.
    */
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCache;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.multithread.MultiThreadedCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.multithread.MultiThreadedPointerAnalysis;
+import com.ibm.wala.ipa.callgraph.multithread.analyses.HeapAbstractionFactory;
+import com.ibm.wala.ipa.callgraph.multithread.analyses.TypeSensitive;
+import com.ibm.wala.ipa.callgraph.multithread.engine.PointsToAnalysisSingleThreaded;
+import com.ibm.wala.ipa.callgraph.multithread.engine.TopologicalSchedulingPolicy;
+import com.ibm.wala.ipa.callgraph.multithread.graph.PointsToGraph;
+import com.ibm.wala.ipa.callgraph.multithread.graph.ReferenceVariableReplica;
+import com.ibm.wala.ipa.callgraph.multithread.registrar.StatementRegistrar;
+import com.ibm.wala.ipa.callgraph.multithread.registrar.StatementRegistrationPass;
+import com.ibm.wala.ipa.callgraph.multithread.statements.StatementFactory;
+import com.ibm.wala.ipa.callgraph.multithread.util.MultiThreadAnalysisUtil;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+
+/**
+ * Check that the options of the multithreaded points-to engine give the same call graph and points-to sets as the
+ * single-threaded engine.
+ */
+public class MultiThreadedCallGraphTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(MultiThreadedCallGraphTest.class);
+  }
+
+  private static final String MAIN = "Ldemandpa/TestArrayList";
+
+  private static final int THREADS = 4;
+
+  private AnalysisScope scope;
+
+  private ClassHierarchy cha;
+
+  private AnalysisOptions makeOptions() throws IOException, ClassHierarchyException {
+    if (scope == null) {
+      scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, "GUIExclusions.txt");
+      cha = ClassHierarchy.make(scope);
+    }
+    return CallGraphTestUtil.makeAnalysisOptions(scope, Util.makeMainEntrypoints(scope, cha, MAIN));
+  }
+
+  private static HeapAbstractionFactory makeHeapAbstraction() {
+    return new TypeSensitive(2, 1);
+  }
+
+  /**
+   * register the statements of the program, using a pool with the given number of threads
+   */
+  private StatementRegistrar register(int numThreads) throws IOException, ClassHierarchyException {
+    MultiThreadAnalysisUtil.initFromObjects(makeOptions(), new ConcurrentAnalysisCache(), cha, scope);
+    StatementRegistrationPass pass = new StatementRegistrationPass(new StatementFactory(), false, false, false, false, false);
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    try {
+      pass.run(pool);
+    } finally {
+      pool.shutdown();
+    }
+    return pass.getRegistrar();
+  }
+
+  /**
+   * the results of the single-threaded engine, with statements registered by a single thread
+   */
+  private List<String> solveSingleThreaded() throws IOException, ClassHierarchyException {
+    return solveSingleThreaded(register(1));
+  }
+
+  /**
+   * the results of the single-threaded engine for the given statements
+   */
+  private List<String> solveSingleThreaded(StatementRegistrar registrar) {
+    HeapAbstractionFactory haf = makeHeapAbstraction();
+    PointsToGraph g = new PointsToAnalysisSingleThreaded(haf).solve(registrar);
+    return summarize(g.getCallGraph(), new MultiThreadedPointerAnalysis(g, registrar, registrar.getAllLocals(), haf, cha));
+  }
+
+  /**
+   * the results of the multithreaded engine, as configured by the given builder
+   */
+  private static List<String> solve(MultiThreadedCallGraphBuilder builder, AnalysisOptions options)
+      throws IllegalArgumentException, CancelException {
+    CallGraph cg = builder.makeCallGraph(options, null);
+    return summarize(cg, builder.getPointerAnalysis());
+  }
+
+  private MultiThreadedCallGraphBuilder makeBuilder(AnalysisOptions options) {
+    return makeBuilder(options, THREADS);
+  }
+
+  private MultiThreadedCallGraphBuilder makeBuilder(AnalysisOptions options, int numThreads) {
+    return new MultiThreadedCallGraphBuilder(options, new ConcurrentAnalysisCache(), cha, scope, makeHeapAbstraction(), numThreads);
+  }
+
+  /**
+   * Registering methods concurrently should find the same methods and, once duplicate statements are removed, the same
+   * number of statements as registering them on a single thread, and so give the same results.
+   */
+  @Test
+  public void testParallelRegistration() throws IOException, ClassHierarchyException {
+    StatementRegistrar sequential = register(1);
+    Set<IMethod> methods = new HashSet<IMethod>(sequential.getRegisteredMethods());
+    int size = sequential.size();
+    List<String> expected = solveSingleThreaded(sequential);
+
+    StatementRegistrar parallel = register(THREADS);
+    Assert.assertEquals(methods, parallel.getRegisteredMethods());
+    Assert.assertEquals(size, parallel.size());
+    Assert.assertEquals(expected, solveSingleThreaded(parallel));
+  }
+
+  /**
+   * The engine coalesces the deltas of pending tasks for the same statement and forks the tasks of dependents in
+   * batches; neither should change the results.
+   */
+  @Test
+  public void testCoalescedDeltas() throws IOException, ClassHierarchyException, IllegalArgumentException, CancelException {
+    List<String> expected = solveSingleThreaded();
+    AnalysisOptions options = makeOptions();
+    Assert.assertEquals(expected, solve(makeBuilder(options), options));
+  }
+
+  /**
+   * Both engines record the dependencies of a points-to graph node as ints numbered by a StmtAndContextDictionary.
+   * With one worker thread the multithreaded engine looks up every (statement, context) pair from the same thread,
+   * with several it looks them up concurrently; neither should change the results.
+   */
+  @Test
+  public void testIntDependencies() throws IOException, ClassHierarchyException, IllegalArgumentException, CancelException {
+    List<String> expected = solveSingleThreaded();
+    AnalysisOptions options = makeOptions();
+    Assert.assertEquals(expected, solve(makeBuilder(options, 1), options));
+    Assert.assertEquals(expected, solve(makeBuilder(options), options));
+  }
+
+  /**
+   * Ordering the dependents of a changed node by their topological position in the subset graph changes the order in
+   * which statements are processed, but not the fixed point.
+   */
+  @Test
+  public void testTopologicalScheduling() throws IOException, ClassHierarchyException, IllegalArgumentException,
+      CancelException {
+    List<String> expected = solveSingleThreaded();
+    AnalysisOptions options = makeOptions();
+    MultiThreadedCallGraphBuilder builder = makeBuilder(options);
+    builder.setSchedulingPolicy(new TopologicalSchedulingPolicy());
+    Assert.assertEquals(expected, solve(builder, options));
+  }
+
+  /**
+   * Collapsing cycles of subset relations while the analysis runs merges nodes that must end up with the same points-to
+   * set, so every pointer key should still have the points-to set it has without collapsing.
+   */
+  @Test
+  public void testCollapseCyclesOnline() throws IOException, ClassHierarchyException, IllegalArgumentException,
+      CancelException {
+    List<String> expected = solveSingleThreaded();
+    AnalysisOptions options = makeOptions();
+    MultiThreadedCallGraphBuilder builder = makeBuilder(options);
+    builder.setCollapseCyclesOnline(true);
+    Assert.assertEquals(expected, solve(builder, options));
+  }
+
+  /**
+   * describe the edges of a call graph and the points-to set of every pointer key, independent of numbering. When
+   * duplicate removal merges two locals, which of their names is kept depends on the order the statements of the method
+   * were registered in, so locals are described without their value number; the result is sorted rather than a set, so
+   * that locals that now print the same are all still compared.
+   */
+  private static List<String> summarize(CallGraph cg, PointerAnalysis<InstanceKey> pa) {
+    List<String> result = new ArrayList<String>();
+    for (CGNode n : cg) {
+      for (CallSiteReference site : Iterator2Iterable.make(n.iterateCallSites())) {
+        Set<String> targets = new TreeSet<String>();
+        for (CGNode t : cg.getPossibleTargets(n, site)) {
+          targets.add(t.toString());
+        }
+        result.add(n + " " + site + " calls " + targets);
+      }
+    }
+    for (PointerKey pk : pa.getPointerKeys()) {
+      Set<String> pts = new TreeSet<String>();
+      for (InstanceKey ik : pa.getPointsToSet(pk)) {
+        pts.add(ik.toString());
+      }
+      String name = pk instanceof ReferenceVariableReplica ? pk.toString().replaceFirst("^v\\d+", "v") : pk.toString();
+      result.add(name + " points to " + pts);
+    }
+    Collections.sort(result);
+    return result;
+  }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+
+/**
+ * Check that solving the propagation system with several threads gives the same call graph and points-to sets as solving it
+ * sequentially.
+ */
+public class ParallelPropagationTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(ParallelPropagationTest.class);
+  }
+
+  @Test
+  public void testJLex() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.JLEX, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.JLEX_MAIN);
+
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder sequential = Util.makeZeroCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg1 = sequential.makeCallGraph(options, null);
+
+    options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setNumberOfSolverThreads(4);
+    SSAPropagationCallGraphBuilder parallel = Util.makeZeroCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg2 = parallel.makeCallGraph(options, null);
+
+    Assert.assertEquals(summarize(cg1), summarize(cg2));
+    Assert.assertEquals(summarize(sequential.getPointerAnalysis()), summarize(parallel.getPointerAnalysis()));
+  }
+
+  /**
+   * describe the targets of every call site of a call graph, independent of node numbering
+   */
+  private static Map<String, Set<String>> summarize(CallGraph cg) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (CGNode n : cg) {
+      String name = n.getMethod().getSignature() + " " + n.getContext();
+      for (CallSiteReference site : Iterator2Iterable.make(n.iterateCallSites())) {
+        Set<String> targets = HashSetFactory.make();
+        for (CGNode t : cg.getPossibleTargets(n, site)) {
+          targets.add(t.getMethod().getSignature() + " " + t.getContext());
+        }
+        result.put(name + " " + site, targets);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * describe the points-to set of every pointer key, including fields and array contents
+   */
+  private static Map<String, Set<String>> summarize(PointerAnalysis<InstanceKey> pa) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (PointerKey pk : pa.getPointerKeys()) {
+      Set<String> pts = HashSetFactory.make();
+      for (InstanceKey ik : pa.getPointsToSet(pk)) {
+        pts.add(ik.toString());
+      }
+      result.put(pk.toString(), pts);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleSnapshot;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Check that a {@link ClassHierarchy} rebuilt from saved module snapshots matches one built from the class files
+ */
+public class ClassHierarchySnapshotTest extends WalaTestCase {
+
+  private static final ClassLoader MY_CLASSLOADER = ClassHierarchySnapshotTest.class.getClassLoader();
+
+  public static void main(String[] args) {
+    justThisTest(ClassHierarchySnapshotTest.class);
+  }
+
+  @Test
+  public void testReload() throws Exception {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"), MY_CLASSLOADER);
+    File dir = makeTempDir();
+    try {
+      ClassHierarchy fromClassFiles = ClassHierarchy.make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
+      scope.setSnapshotDirectory(dir);
+      ClassHierarchy first = ClassHierarchy.make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
+      Assert.assertTrue("no snapshots saved", dir.list().length > 0);
+      ClassHierarchy reloaded = ClassHierarchy.make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
+
+      // loading a snapshot only indexes it, and building a hierarchy from it reads no class files
+      int snapshots = 0;
+      for (ClassLoaderReference loader : scope.getLoaders()) {
+        for (Module m : scope.getModules(loader)) {
+          String key = ModuleSnapshot.contentHash(m);
+          // modules with no classes to load have no snapshot
+          ModuleSnapshot snapshot = (key == null) ? null : ModuleSnapshot.load(dir, key);
+          if (snapshot != null) {
+            Assert.assertTrue(snapshot.size() > 0);
+            Assert.assertEquals(0, snapshot.getNumberOfDecodedHeaders());
+            snapshots++;
+          }
+        }
+      }
+      Assert.assertTrue("no snapshots loaded", snapshots > 0);
+      int restored = 0;
+      for (IClass klass : reloaded) {
+        if (klass instanceof ShrikeClass && !((ShrikeClass) klass).hasReadClassFile()) {
+          restored++;
+        }
+      }
+      Assert.assertEquals(fromClassFiles.getNumberOfClasses(), restored);
+
+      for (ClassHierarchy cha : new ClassHierarchy[] { first, reloaded }) {
+        Assert.assertEquals(fromClassFiles.getNumberOfClasses(), cha.getNumberOfClasses());
+        for (IClass klass : fromClassFiles) {
+          IClass other = cha.lookupClass(klass.getReference());
+          Assert.assertNotNull("missing " + klass, other);
+          Assert.assertEquals(klass.getModifiers(), other.getModifiers());
+          Assert.assertEquals(klass.getDirectInterfaces().size(), other.getDirectInterfaces().size());
+          Assert.assertEquals(klass.getDeclaredInstanceFields().size(), other.getDeclaredInstanceFields().size());
+          Assert.assertEquals(klass.getDeclaredStaticFields().size(), other.getDeclaredStaticFields().size());
+          Assert.assertEquals(klass.getDeclaredMethods().size(), other.getDeclaredMethods().size());
+          Assert.assertEquals(fromClassFiles.getNumberOfImmediateSubclasses(klass), cha.getNumberOfImmediateSubclasses(other));
+        }
+      }
+    } finally {
+      for (File f : dir.listFiles()) {
+        f.delete();
+      }
+      dir.delete();
+    }
+  }
+
+  private static File makeTempDir() throws IOException {
+    File dir = File.createTempFile("chaSnapshot", "");
+    dir.delete();
+    if (!dir.mkdir()) {
+      throw new IOException("could not create " + dir);
+    }
+    return dir;
+  }
+}
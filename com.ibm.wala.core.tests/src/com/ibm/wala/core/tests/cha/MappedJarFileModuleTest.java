@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.classLoader.JarEntryCache;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.MappedJarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+import com.ibm.wala.util.io.FileUtil;
+
+/**
+ * Check that a {@link MappedJarFileModule} sees the same entries and contents as a {@link JarFileModule}
+ */
+public class MappedJarFileModuleTest extends WalaTestCase {
+
+  private static final ClassLoader MY_CLASSLOADER = MappedJarFileModuleTest.class.getClassLoader();
+
+  public static void main(String[] args) {
+    justThisTest(MappedJarFileModuleTest.class);
+  }
+
+  @Test
+  public void testSameContents() throws Exception {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"), MY_CLASSLOADER);
+    AnalysisScope mappedScope = AnalysisScope.createJavaAnalysisScope();
+    mappedScope.setExclusions(scope.getExclusions());
+
+    // a small cache, to exercise eviction
+    JarEntryCache cache = new JarEntryCache(64 * 1024);
+    int jars = 0;
+    for (ClassLoaderReference loader : scope.getLoaders()) {
+      for (Module M : scope.getModules(loader)) {
+        if (M instanceof JarFileModule) {
+          jars++;
+          MappedJarFileModule mapped = new MappedJarFileModule(new File(((JarFileModule) M).getAbsolutePath()), cache);
+          Map<String, byte[]> expected = classFileContents(M);
+          Map<String, byte[]> actual = classFileContents(mapped);
+          Assert.assertEquals(expected.keySet(), actual.keySet());
+          for (String name : expected.keySet()) {
+            Assert.assertTrue(name, Arrays.equals(expected.get(name), actual.get(name)));
+          }
+          Assert.assertTrue(cache.getSize() <= cache.getCapacity());
+          mappedScope.addToScope(mappedScope.getLoader(loader.getName()), mapped);
+        } else {
+          mappedScope.addToScope(mappedScope.getLoader(loader.getName()), M);
+        }
+      }
+    }
+    Assert.assertTrue("no jar files in scope", jars > 0);
+
+    ClassHierarchy cha = ClassHierarchy.make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
+    ClassHierarchy mappedCha = ClassHierarchy.make(mappedScope, new ClassLoaderFactoryImpl(mappedScope.getExclusions()));
+    Assert.assertEquals(cha.getNumberOfClasses(), mappedCha.getNumberOfClasses());
+  }
+
+  @Test
+  public void testNestedJars() throws Exception {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"), MY_CLASSLOADER);
+    Map<String, byte[]> expected = null;
+    for (Module M : scope.getModules(scope.getApplicationLoader())) {
+      if (M instanceof JarFileModule) {
+        expected = classFileContents(M);
+        break;
+      }
+    }
+    Assert.assertNotNull("no application jar file in scope", expected);
+
+    // a jar holding the application classes, nested both stored and deflated in another jar
+    ByteArrayOutputStream inner = new ByteArrayOutputStream();
+    JarOutputStream innerJar = new JarOutputStream(inner);
+    for (Map.Entry<String, byte[]> e : expected.entrySet()) {
+      innerJar.putNextEntry(new JarEntry(e.getKey()));
+      innerJar.write(e.getValue());
+      innerJar.closeEntry();
+    }
+    innerJar.close();
+    byte[] innerBytes = inner.toByteArray();
+
+    File outer = File.createTempFile("outer", ".jar");
+    try {
+      JarOutputStream outerJar = new JarOutputStream(new FileOutputStream(outer));
+      JarEntry stored = new JarEntry("lib/stored.jar");
+      stored.setMethod(ZipEntry.STORED);
+      stored.setSize(innerBytes.length);
+      CRC32 crc = new CRC32();
+      crc.update(innerBytes);
+      stored.setCrc(crc.getValue());
+      outerJar.putNextEntry(stored);
+      outerJar.write(innerBytes);
+      outerJar.closeEntry();
+      outerJar.putNextEntry(new JarEntry("lib/deflated.jar"));
+      outerJar.write(innerBytes);
+      outerJar.closeEntry();
+      outerJar.close();
+
+      MappedJarFileModule mapped = new MappedJarFileModule(outer, new JarEntryCache(64 * 1024));
+      int nested = 0;
+      for (Iterator<ModuleEntry> it = mapped.getEntries(); it.hasNext();) {
+        ModuleEntry entry = it.next();
+        if (entry.isModuleFile()) {
+          nested++;
+          Module m = entry.asModule();
+          Assert.assertSame(m, entry.asModule());
+          Map<String, byte[]> actual = classFileContents(m);
+          Assert.assertEquals(expected.keySet(), actual.keySet());
+          for (String name : expected.keySet()) {
+            Assert.assertTrue(name, Arrays.equals(expected.get(name), actual.get(name)));
+          }
+        }
+      }
+      Assert.assertEquals(2, nested);
+    } finally {
+      outer.delete();
+    }
+  }
+
+  @Test
+  public void testPrefixedJar() throws Exception {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"), MY_CLASSLOADER);
+    File jar = null;
+    for (Module M : scope.getModules(scope.getApplicationLoader())) {
+      if (M instanceof JarFileModule) {
+        jar = new File(((JarFileModule) M).getAbsolutePath());
+        break;
+      }
+    }
+    Assert.assertNotNull("no application jar file in scope", jar);
+    Map<String, byte[]> expected = classFileContents(new JarFileModule(new JarFile(jar)));
+
+    // a launcher script in front of the jar, as in a self-executing jar
+    File prefixed = File.createTempFile("prefixed", ".jar");
+    try {
+      FileInputStream in = new FileInputStream(jar);
+      FileOutputStream out = new FileOutputStream(prefixed);
+      try {
+        out.write("#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes("UTF-8"));
+        out.write(FileUtil.readBytes(in));
+      } finally {
+        in.close();
+        out.close();
+      }
+
+      Map<String, byte[]> actual = classFileContents(new MappedJarFileModule(prefixed, new JarEntryCache(64 * 1024)));
+      Assert.assertEquals(expected.keySet(), actual.keySet());
+      for (String name : expected.keySet()) {
+        Assert.assertTrue(name, Arrays.equals(expected.get(name), actual.get(name)));
+      }
+    } finally {
+      prefixed.delete();
+    }
+  }
+
+  private static Map<String, byte[]> classFileContents(Module M) throws Exception {
+    Map<String, byte[]> result = HashMapFactory.make();
+    for (Iterator<? extends ModuleEntry> it = M.getEntries(); it.hasNext();) {
+      ModuleEntry entry = it.next();
+      if (entry.isClassFile()) {
+        result.put(entry.getName(), FileUtil.readBytes(entry.getInputStream()));
+      }
+    }
+    return result;
+  }
+}
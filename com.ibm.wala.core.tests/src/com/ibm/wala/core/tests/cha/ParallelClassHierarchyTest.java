@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Check that building a {@link ClassHierarchy} with several threads gives the same hierarchy as building it with one
+ */
+public class ParallelClassHierarchyTest extends WalaTestCase {
+
+  private static final ClassLoader MY_CLASSLOADER = ParallelClassHierarchyTest.class.getClassLoader();
+
+  public static void main(String[] args) {
+    justThisTest(ParallelClassHierarchyTest.class);
+  }
+
+  @Test
+  public void testSameHierarchy() throws Exception {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"), MY_CLASSLOADER);
+
+    ClassHierarchy serial = ClassHierarchy.make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
+    scope.setNumberOfLoaderThreads(4);
+    ClassHierarchy parallel = ClassHierarchy.make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
+
+    Assert.assertEquals(serial.getNumberOfClasses(), parallel.getNumberOfClasses());
+    for (IClass klass : serial) {
+      IClass other = parallel.lookupClass(klass.getReference());
+      Assert.assertNotNull("missing " + klass, other);
+      if (klass.getSuperclass() == null) {
+        Assert.assertNull(other.getSuperclass());
+      } else {
+        Assert.assertEquals(klass.getSuperclass().getReference(), other.getSuperclass().getReference());
+      }
+      Assert.assertEquals(serial.getNumberOfImmediateSubclasses(klass), parallel.getNumberOfImmediateSubclasses(other));
+      if (klass.isInterface()) {
+        Assert.assertEquals(references(serial.getImplementors(klass.getReference())),
+            references(parallel.getImplementors(other.getReference())));
+      }
+    }
+  }
+
+  private static Set<TypeReference> references(Set<IClass> classes) {
+    Set<TypeReference> result = HashSetFactory.make();
+    for (IClass klass : classes) {
+      result.add(klass.getReference());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,103 @@
+package com.ibm.wala.core.tests.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.multithread.util.intset.ConcurrentBitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * Tests {@link ConcurrentBitVectorIntSet} class.
+ */
+public final class ConcurrentBitVectorIntSetTest extends WalaTestCase {
+
+  public static void main(final String[] args) {
+    justThisTest(ConcurrentBitVectorIntSetTest.class);
+  }
+
+  private static ConcurrentBitVectorIntSet make(int... elements) {
+    ConcurrentBitVectorIntSet s = new ConcurrentBitVectorIntSet();
+    for (int i : elements) {
+      s.add(i);
+    }
+    return s;
+  }
+
+  @Test public void testAddAndContains() {
+    ConcurrentBitVectorIntSet s = new ConcurrentBitVectorIntSet();
+    Assert.assertTrue(s.isEmpty());
+    Assert.assertEquals(-1, s.max());
+    Assert.assertTrue(s.add(5));
+    Assert.assertFalse(s.add(5));
+    Assert.assertTrue(s.add(100000));
+    Assert.assertTrue(s.add(0));
+    Assert.assertEquals(3, s.size());
+    Assert.assertTrue(s.contains(0));
+    Assert.assertTrue(s.contains(5));
+    Assert.assertTrue(s.contains(100000));
+    Assert.assertFalse(s.contains(6));
+    Assert.assertFalse(s.contains(-1));
+    Assert.assertEquals(100000, s.max());
+
+    IntIterator iter = s.intIterator();
+    Assert.assertEquals(0, iter.next());
+    Assert.assertEquals(5, iter.next());
+    Assert.assertEquals(100000, iter.next());
+    Assert.assertFalse(iter.hasNext());
+  }
+
+  @Test public void testBulkOperations() {
+    ConcurrentBitVectorIntSet a = make(1, 2, 64, 65, 5000);
+    ConcurrentBitVectorIntSet b = make(2, 64, 70000);
+
+    IntSet diff = a.difference(b);
+    Assert.assertTrue(diff instanceof MutableSparseIntSet);
+    Assert.assertTrue(make(1, 65, 5000).sameValue(diff));
+
+    Assert.assertTrue(a.containsAny(b));
+    Assert.assertFalse(b.isSubset(a));
+    Assert.assertTrue(make(2, 64).isSubset(a));
+    MutableSparseIntSet sparse = MutableSparseIntSet.makeEmpty();
+    sparse.add(2);
+    sparse.add(64);
+    Assert.assertTrue(make(2, 64).isSubset(sparse));
+    Assert.assertFalse(make(2, 65).isSubset(sparse));
+
+    Assert.assertTrue(a.intersection(b).sameValue(make(2, 64)));
+    Assert.assertEquals(6, a.union(b).size());
+
+    Assert.assertTrue(a.addAll(b));
+    Assert.assertFalse(a.addAll(b));
+    Assert.assertEquals(6, a.size());
+    Assert.assertTrue(b.isSubset(a));
+  }
+
+  @Test public void testConcurrentAdds() throws InterruptedException {
+    final ConcurrentBitVectorIntSet s = new ConcurrentBitVectorIntSet();
+    final int numThreads = 4;
+    final int perThread = 20000;
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int offset = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < perThread; i++) {
+            s.add(i * numThreads + offset);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals(numThreads * perThread, s.size());
+    for (int i = 0; i < numThreads * perThread; i++) {
+      Assert.assertTrue(s.contains(i));
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.core.tests.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.Interner;
+import com.ibm.wala.util.functions.Function;
+
+/**
+ * Tests {@link Interner} and the dictionaries built on it.
+ */
+public class InternerTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(InternerTest.class);
+  }
+
+  private static Interner<String, StringBuilder> makeInterner() {
+    return new Interner<String, StringBuilder>(new Function<String, StringBuilder>() {
+      @Override
+      public StringBuilder apply(String key) {
+        return new StringBuilder(key);
+      }
+    });
+  }
+
+  @Test
+  public void testCanonical() {
+    Interner<String, StringBuilder> interner = makeInterner();
+    Assert.assertNull(interner.find("a"));
+    StringBuilder a = interner.findOrCreate("a");
+    Assert.assertSame(a, interner.findOrCreate(new String("a")));
+    Assert.assertSame(a, interner.find("a"));
+    Assert.assertNotSame(a, interner.findOrCreate("b"));
+    Assert.assertEquals(2, interner.size());
+  }
+
+  @Test
+  public void testConcurrentTypeReferences() throws Exception {
+    final int n = 5000;
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<Object>>> results = new ArrayList<Future<List<Object>>>();
+      for (int t = 0; t < 4; t++) {
+        results.add(pool.submit(new Callable<List<Object>>() {
+          @Override
+          public List<Object> call() {
+            List<Object> result = new ArrayList<Object>();
+            for (int i = 0; i < n; i++) {
+              TypeReference type = TypeReference.findOrCreate(ClassLoaderReference.Application, "Linterner/C" + i);
+              result.add(type);
+              result.add(MethodReference.findOrCreate(type, "m", "()V"));
+            }
+            return result;
+          }
+        }));
+      }
+      List<Object> first = results.get(0).get();
+      for (Future<List<Object>> f : results) {
+        List<Object> other = f.get();
+        for (int i = 0; i < first.size(); i++) {
+          Assert.assertSame(first.get(i), other.get(i));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testWeakValues() throws Exception {
+    Interner<String, StringBuilder> interner = makeInterner();
+    boolean weak = Interner.isWeakValues();
+    Interner.setWeakValues(true);
+    try {
+      StringBuilder live = interner.findOrCreate("live");
+      interner.findOrCreate("dead");
+      for (int i = 0; i < 10 && interner.find("dead") != null; i++) {
+        System.gc();
+        Thread.sleep(10);
+      }
+      Assert.assertNull(interner.find("dead"));
+      Assert.assertSame(live, interner.findOrCreate("live"));
+    } finally {
+      Interner.setWeakValues(weak);
+    }
+  }
+}
@@ -38,7 +38,10 @@
 package com.ibm.wala.core.tests.demandpa;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Ignore;
@@ -60,6 +63,9 @@ import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.Predicate;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.strings.Atom;
 
 public class ContextSensitiveTest extends AbstractPtrTest {
@@ -164,6 +170,28 @@ public class ContextSensitiveTest extends AbstractPtrTest {
     doPointsToSizeTest(TestInfo.TEST_LINKED_LIST, 1);
   }
 
+  @Test
+  public void testBatchQueries() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    final DemandRefinementPointsTo dmp = makeDemandPointerAnalysis(TestInfo.TEST_HASHMAP_GET);
+    CGNode mainMethod = AbstractPtrTest.findMainMethod(dmp.getBaseCallGraph());
+    List<PointerKey> pks = new ArrayList<PointerKey>();
+    for (int vn = 1; vn <= mainMethod.getIR().getSymbolTable().getMaxValueNumber(); vn++) {
+      pks.add(dmp.getHeapModel().getPointerKeyForLocal(mainMethod, vn));
+    }
+    Map<PointerKey, Collection<InstanceKey>> expected = HashMapFactory.make();
+    for (PointerKey pk : pks) {
+      expected.put(pk, dmp.getPointsTo(pk, Predicate.<InstanceKey> falsePred()).snd);
+    }
+    // answer the queries again, on two threads, sharing points-to sets between them
+    dmp.setMaxCachedPointsToSets(1000);
+    Map<PointerKey, DemandRefinementPointsTo.QueryResult> batch = dmp.getPointsTo(pks, Predicate.<InstanceKey> falsePred(), 2);
+    for (PointerKey pk : pks) {
+      Assert.assertEquals(HashSetFactory.make(expected.get(pk)), HashSetFactory.make(batch.get(pk).getPointsTo()));
+    }
+    PointerKey keyToQuery = AbstractPtrTest.getParam(mainMethod, "testThisVar", dmp.getHeapModel());
+    Assert.assertEquals(1, batch.get(keyToQuery).getPointsTo().size());
+  }
+
   @Test
   public void testFlowsToArraySetIter() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
     doFlowsToSizeTest(TestInfo.FLOWSTO_TEST_ARRAYSET_ITER, 7);
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.core.tests.ir;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCache;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSACache;
+import com.ibm.wala.types.TypeReference;
+
+/**
+ * Test that a {@link ConcurrentAnalysisCache} hands out a single IR per method when asked by several threads at once.
+ */
+public class ConcurrentSSACacheTest extends WalaTestCase {
+
+  private static final int NUM_THREADS = 4;
+
+  private final IClassHierarchy cha;
+
+  private final AnalysisOptions options = new AnalysisOptions();
+
+  public ConcurrentSSACacheTest() throws ClassHierarchyException, IOException {
+    this.cha = WalaTestCase.makeCHA();
+  }
+
+  public static void main(String[] args) {
+    justThisTest(ConcurrentSSACacheTest.class);
+  }
+
+  @Test
+  public void testSameIRFromAllThreads() throws InterruptedException, ExecutionException {
+    IClass klass = cha.lookupClass(TypeReference.JavaLangString);
+    Assert.assertNotNull("String not found", klass);
+    final List<IMethod> methods = new ArrayList<IMethod>();
+    for (IMethod m : klass.getDeclaredMethods()) {
+      if (!m.isAbstract() && !m.isNative()) {
+        methods.add(m);
+      }
+    }
+
+    final SSACache cache = new ConcurrentAnalysisCache().getSSACache();
+    ExecutorService pool = Executors.newFixedThreadPool(NUM_THREADS);
+    try {
+      List<Future<IR[]>> results = new ArrayList<Future<IR[]>>();
+      for (int t = 0; t < NUM_THREADS; t++) {
+        results.add(pool.submit(new Callable<IR[]>() {
+          @Override
+          public IR[] call() {
+            IR[] irs = new IR[methods.size()];
+            for (int i = 0; i < irs.length; i++) {
+              irs[i] = cache.findOrCreateIR(methods.get(i), Everywhere.EVERYWHERE, options.getSSAOptions());
+              DefUse du = cache.findOrCreateDU(methods.get(i), Everywhere.EVERYWHERE, options.getSSAOptions());
+              Assert.assertNotNull(du);
+            }
+            return irs;
+          }
+        }));
+      }
+
+      IR[] first = results.get(0).get();
+      for (Future<IR[]> f : results) {
+        IR[] irs = f.get();
+        for (int i = 0; i < irs.length; i++) {
+          Assert.assertNotNull(irs[i]);
+          Assert.assertSame("different IRs for " + methods.get(i), first[i], irs[i]);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
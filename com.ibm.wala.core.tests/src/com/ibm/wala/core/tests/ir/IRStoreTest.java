@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.core.tests.ir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.IRStore;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.TypeReference;
+
+/**
+ * Test that IRs read back from an {@link IRStore} match the IRs built from bytecode.
+ */
+public class IRStoreTest extends WalaTestCase {
+
+  private final IClassHierarchy cha;
+
+  private final SSAOptions options = new AnalysisOptions().getSSAOptions();
+
+  private File directory;
+
+  public IRStoreTest() throws ClassHierarchyException, IOException {
+    this.cha = WalaTestCase.makeCHA();
+  }
+
+  public static void main(String[] args) {
+    justThisTest(IRStoreTest.class);
+  }
+
+  @Before
+  public void makeDirectory() throws IOException {
+    directory = File.createTempFile("irstore", "");
+    Assert.assertTrue(directory.delete());
+  }
+
+  @After
+  public void deleteDirectory() {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        f.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  private List<IMethod> getMethods() {
+    return getMethods(TypeReference.JavaLangString);
+  }
+
+  private List<IMethod> getMethods(TypeReference type) {
+    IClass klass = cha.lookupClass(type);
+    Assert.assertNotNull(type + " not found", klass);
+    List<IMethod> methods = new ArrayList<IMethod>();
+    for (IMethod m : klass.getDeclaredMethods()) {
+      if (!m.isAbstract() && !m.isNative()) {
+        methods.add(m);
+      }
+    }
+    return methods;
+  }
+
+  @Test
+  public void testStoredIRs() throws IOException {
+    List<IMethod> methods = getMethods();
+
+    AnalysisCache cache = new AnalysisCache();
+    IRStore store = new IRStore(directory);
+    cache.getSSACache().setIRStore(store);
+    for (IMethod m : methods) {
+      cache.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+    }
+    Assert.assertEquals(0, store.getHits());
+    store.flush();
+
+    AnalysisCache storedCache = new AnalysisCache();
+    IRStore stored = new IRStore(directory);
+    storedCache.getSSACache().setIRStore(stored);
+    AnalysisCache freshCache = new AnalysisCache();
+    for (IMethod m : methods) {
+      IR ir = storedCache.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+      IR fresh = freshCache.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+      Assert.assertEquals(fresh.toString(), ir.toString());
+      for (int i = 0; i < fresh.getInstructions().length; i++) {
+        for (int vn = 1; vn <= fresh.getSymbolTable().getMaxValueNumber(); vn++) {
+          Assert.assertTrue(Arrays.equals(fresh.getLocalNames(i, vn), ir.getLocalNames(i, vn)));
+        }
+      }
+    }
+    Assert.assertTrue(stored.getHits() > 0);
+  }
+
+  /**
+   * A store that keeps one class open at a time writes out the IRs of a class when it drops it for the next one
+   */
+  @Test
+  public void testEviction() throws IOException {
+    AnalysisCache cache = new AnalysisCache();
+    IRStore store = new IRStore(directory, 1);
+    List<IMethod> added = new ArrayList<IMethod>();
+    for (TypeReference type : new TypeReference[] { TypeReference.JavaLangString, TypeReference.JavaLangInteger }) {
+      for (IMethod m : getMethods(type)) {
+        if (store.add(cache.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options))) {
+          added.add(m);
+        }
+      }
+    }
+    // only the class still open has IRs left to write
+    Assert.assertEquals(1, directory.list().length);
+    store.flush();
+    Assert.assertEquals(2, directory.list().length);
+
+    IRStore stored = new IRStore(directory, 1);
+    for (IMethod m : added) {
+      Assert.assertNotNull("no IR for " + m, stored.find(m, options));
+    }
+    Assert.assertEquals(0, stored.getMisses());
+  }
+}
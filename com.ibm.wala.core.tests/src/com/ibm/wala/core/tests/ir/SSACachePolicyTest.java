@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.core.tests.ir;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCache;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.CacheStatistics;
+import com.ibm.wala.ssa.ConcurrentSSACache;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSACache;
+import com.ibm.wala.ssa.SSACachePolicy;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.TypeReference;
+
+/**
+ * Test that an {@link AnalysisCache} with a bounded {@link SSACachePolicy} stays within its capacity and counts its hits, misses
+ * and evictions.
+ */
+public class SSACachePolicyTest extends WalaTestCase {
+
+  private static final long CAPACITY = 500;
+
+  private final IClassHierarchy cha;
+
+  private final SSAOptions options = new AnalysisOptions().getSSAOptions();
+
+  public SSACachePolicyTest() throws ClassHierarchyException, IOException {
+    this.cha = WalaTestCase.makeCHA();
+  }
+
+  public static void main(String[] args) {
+    justThisTest(SSACachePolicyTest.class);
+  }
+
+  private List<IMethod> getMethods() {
+    IClass klass = cha.lookupClass(TypeReference.JavaLangString);
+    Assert.assertNotNull("String not found", klass);
+    List<IMethod> methods = new ArrayList<IMethod>();
+    for (IMethod m : klass.getDeclaredMethods()) {
+      if (!m.isAbstract() && !m.isNative()) {
+        methods.add(m);
+      }
+    }
+    return methods;
+  }
+
+  private void checkBounded(AnalysisCache cache) {
+    List<IMethod> methods = getMethods();
+    long total = 0;
+    IMethod smallest = null;
+    int smallestWeight = Integer.MAX_VALUE;
+    for (IMethod m : methods) {
+      IR ir = cache.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+      int weight = cache.getSSACache().getPolicy().weigh(ir);
+      total += weight;
+      if (weight < smallestWeight) {
+        smallest = m;
+        smallestWeight = weight;
+      }
+      CacheStatistics stats = cache.getIRStatistics();
+      Assert.assertTrue(stats.toString(), stats.getWeight() <= CAPACITY);
+    }
+    Assert.assertTrue("methods of String too small to test eviction", total > CAPACITY);
+
+    CacheStatistics stats = cache.getIRStatistics();
+    Assert.assertEquals(0, stats.getHits());
+    Assert.assertEquals(methods.size(), stats.getMisses());
+    Assert.assertTrue(stats.toString(), stats.getEvictions() > 0);
+
+    // the most recently used IR is still cached
+    IR ir = cache.getSSACache().findOrCreateIR(smallest, Everywhere.EVERYWHERE, options);
+    Assert.assertSame(ir, cache.getSSACache().findOrCreateIR(smallest, Everywhere.EVERYWHERE, options));
+    Assert.assertTrue(cache.getIRStatistics().getHits() > 0);
+
+    long size = cache.getIRStatistics().getSize();
+    cache.invalidate(smallest, Everywhere.EVERYWHERE);
+    Assert.assertEquals(size - 1, cache.getIRStatistics().getSize());
+  }
+
+  @Test
+  public void testBoundedCache() {
+    checkBounded(new AnalysisCache(new DefaultIRFactory(), new SSACachePolicy(CAPACITY)));
+  }
+
+  @Test
+  public void testBoundedConcurrentCache() {
+    checkBounded(new ConcurrentAnalysisCache(new DefaultIRFactory(), new SSACachePolicy(CAPACITY)));
+  }
+
+  /**
+   * The stripes of a {@link ConcurrentSSACache} share the capacity, so an IR that only fits in the whole capacity is still cached
+   */
+  @Test
+  public void testLargeIRInConcurrentCache() {
+    AnalysisCache unbounded = new AnalysisCache();
+    IMethod heaviest = null;
+    int heaviestWeight = 0;
+    for (IMethod m : getMethods()) {
+      int weight = unbounded.getSSACache().getPolicy().weigh(unbounded.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options));
+      if (weight > heaviestWeight) {
+        heaviest = m;
+        heaviestWeight = weight;
+      }
+    }
+
+    SSACache cache = new ConcurrentSSACache(new DefaultIRFactory(), 4, new SSACachePolicy(heaviestWeight));
+    IR ir = cache.findOrCreateIR(heaviest, Everywhere.EVERYWHERE, options);
+    Assert.assertSame(ir, cache.findOrCreateIR(heaviest, Everywhere.EVERYWHERE, options));
+    CacheStatistics stats = cache.getIRStatistics();
+    Assert.assertEquals(stats.toString(), 1, stats.getHits());
+    Assert.assertEquals(stats.toString(), heaviestWeight, stats.getWeight());
+
+    // anything else pushes the heaviest IR out, wherever it is cached
+    for (IMethod m : getMethods()) {
+      cache.findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+      stats = cache.getIRStatistics();
+      Assert.assertTrue(stats.toString(), stats.getWeight() <= heaviestWeight);
+    }
+  }
+}
@@ -284,8 +284,14 @@ public class ContextSensitiveReachingDefs {
    * perform the tabulation analysis and return the {@link TabulationResult}
    */
   public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> analyze() {
-    PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> solver = PartiallyBalancedTabulationSolver
-        .createPartiallyBalancedTabulationSolver(new ReachingDefsProblem(), null);
+    return analyze(1);
+  }
+
+  /**
+   * perform the tabulation analysis with the given number of threads and return the {@link TabulationResult}
+   */
+  public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> analyze(int threads) {
+    PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> solver = makeSolver(threads);
     TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> result = null;
     try {
       result = solver.solve();
@@ -297,6 +303,13 @@ public class ContextSensitiveReachingDefs {
 
   }
 
+  /**
+   * @return a solver for the analysis that uses the given number of threads, for callers that want to configure it further
+   */
+  public PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> makeSolver(int threads) {
+    return PartiallyBalancedTabulationSolver.createPartiallyBalancedTabulationSolver(new ReachingDefsProblem(), null, threads);
+  }
+
   public ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> getSupergraph() {
     return supergraph;
   }
@@ -25,6 +25,7 @@ import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
 import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.core.tests.util.WalaTestCase;
 import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationSolver;
 import com.ibm.wala.dataflow.IFDS.TabulationResult;
 import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
@@ -49,6 +50,7 @@ import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.config.AnalysisScopeReader;
 import com.ibm.wala.util.config.FileOfClasses;
@@ -208,4 +210,65 @@ public class DataflowTest extends WalaTestCase {
       }
     }
   }
+
+  /**
+   * context-sensitive reaching definitions over a 0-1-CFA call graph of dataflow.StaticDataflow, for comparing the results of
+   * different tabulation solver settings
+   */
+  private static ContextSensitiveReachingDefs makeContextSensitiveReachingDefs() throws IllegalArgumentException,
+      CallGraphBuilderCancelException {
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    AnalysisCache cache = new AnalysisCache();
+    return new ContextSensitiveReachingDefs(cg, cache);
+  }
+
+  private static void assertSameResults(ContextSensitiveReachingDefs reachingDefs,
+      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> expected,
+      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> actual) {
+    for (BasicBlockInContext<IExplodedBasicBlock> bb : reachingDefs.getSupergraph()) {
+      Assert.assertTrue(bb.toString(), expected.getResult(bb).sameValue(actual.getResult(bb)));
+    }
+  }
+
+  @Test
+  public void testContextSensitiveParallel() throws IllegalArgumentException, CancelException {
+    ContextSensitiveReachingDefs reachingDefs = makeContextSensitiveReachingDefs();
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> result = reachingDefs.analyze();
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> parallelResult = reachingDefs
+        .analyze(4);
+    assertSameResults(reachingDefs, result, parallelResult);
+  }
+
+  @Test
+  public void testContextSensitiveCompacted() throws IllegalArgumentException, CancelException {
+    ContextSensitiveReachingDefs reachingDefs = makeContextSensitiveReachingDefs();
+    PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> solver = reachingDefs
+        .makeSolver(1);
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> result = solver.solve();
+    PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> compactSolver = reachingDefs
+        .makeSolver(1);
+    compactSolver.setMaxHotPathEdges(2);
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> compactResult = compactSolver.solve();
+    assertSameResults(reachingDefs, result, compactResult);
+    Assert.assertFalse(solver.getPathEdgeCounts().isEmpty());
+    Assert.assertEquals(solver.getPathEdgeCounts(), compactSolver.getPathEdgeCounts());
+  }
+
+  @Test
+  public void testContextSensitiveSparse() throws IllegalArgumentException, CancelException {
+    ContextSensitiveReachingDefs reachingDefs = makeContextSensitiveReachingDefs();
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> result = reachingDefs.analyze();
+    PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> sparseSolver = reachingDefs
+        .makeSolver(1);
+    sparseSolver.setSparse(true);
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> sparseResult = sparseSolver.solve();
+    assertSameResults(reachingDefs, result, sparseResult);
+    Assert.assertEquals(HashSetFactory.make(result.getSupergraphNodesReached()),
+        HashSetFactory.make(sparseResult.getSupergraphNodesReached()));
+  }
 }
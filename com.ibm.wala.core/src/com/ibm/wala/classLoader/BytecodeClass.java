@@ -99,12 +99,12 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
   /**
    * Compute the superclass lazily.
    */
-  protected boolean superclassComputed = false;
+  protected volatile boolean superclassComputed = false;
 
   /**
    * The IClasses that represent all interfaces this class implements (if it's a class) or extends (it it's an interface)
    */
-  protected Collection<IClass> allInterfaces = null;
+  protected volatile Collection<IClass> allInterfaces = null;
 
   /**
    * The instance fields declared in this class.
@@ -277,16 +277,15 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
   }
 
   private void computeSuperclass() {
-    superclassComputed = true;
-
+    // publish superClass before the flag, so that a thread that sees the flag also sees the superclass
     if (superName == null) {
       if (!getReference().equals(loader.getLanguage().getRootType())) {
         superClass = loader.lookupClass(loader.getLanguage().getRootType().getName());
       }
-      return;
+    } else {
+      superClass = loader.lookupClass(TypeName.findOrCreate(superName));
     }
-
-    superClass = loader.lookupClass(TypeName.findOrCreate(superName));
+    superclassComputed = true;
   }
 
   @Override
@@ -330,6 +329,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
    */
   @Override
   public Collection<IField> getDeclaredInstanceFields() {
+    computeFieldsIfNeeded();
     if (instanceFields == null) {
       return Collections.emptySet();
     } else {
@@ -342,6 +342,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
    */
   @Override
   public Collection<IField> getDeclaredStaticFields() {
+    computeFieldsIfNeeded();
     return Collections.unmodifiableList(Arrays.asList(staticFields));
   }
 
@@ -438,11 +439,9 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     if (result != null) {
       return result;
     }
-    if (inheritCache != null) {
-      result = inheritCache.get(selector);
-      if (result != null) {
-        return result;
-      }
+    result = getInheritedFromCache(selector);
+    if (result != null) {
+      return result;
     }
 
     // check parent, caching if found
@@ -451,10 +450,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
       if (superclass != null) {
         IMethod inherit = superclass.getMethod(selector);
         if (inherit != null) {
-          if (inheritCache == null) {
-            inheritCache = new BimodalMap<Selector, IMethod>(5);
-          }
-          inheritCache.put(selector, inherit);
+          cacheInherited(selector, inherit);
           return inherit;
         }
       }
@@ -465,10 +461,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     for(IClass iface : getAllImplementedInterfaces()) {
       for(IMethod m : iface.getDeclaredMethods()) {
         if (!m.isAbstract() && m.getSelector().equals(selector)) {          
-          if (inheritCache == null) {
-            inheritCache = new BimodalMap<Selector, IMethod>(5);
-          }
-          inheritCache.put(selector, m);
+          cacheInherited(selector, m);
 
           return m;
         }
@@ -476,11 +469,35 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     }
     
     // no method found
+    cacheInherited(selector, null);
+    return null;
+  }
+
+  /**
+   * Look up a method inherited by this class in the cache. The cache is guarded by the lock on this class, since
+   * several threads may resolve methods of the same class.
+   */
+  private synchronized IMethod getInheritedFromCache(Selector selector) {
+    return inheritCache == null ? null : inheritCache.get(selector);
+  }
+
+  private synchronized void cacheInherited(Selector selector, IMethod m) {
     if (inheritCache == null) {
       inheritCache = new BimodalMap<Selector, IMethod>(5);
     }
-    inheritCache.put(selector, null);
-    return null;
+    inheritCache.put(selector, m);
+  }
+
+  /**
+   * Forget the superclass, interfaces, inherited methods and fields looked up so far, for when one of the supertypes of this class
+   * has been replaced by a new version in the class hierarchy.
+   */
+  public synchronized void clearSupertypeCaches() {
+    superClass = null;
+    superclassComputed = false;
+    allInterfaces = null;
+    inheritCache = null;
+    fieldMap.clear();
   }
 
   protected void populateFieldArrayFromList(List<FieldImpl> L, IField[] A) {
@@ -545,7 +562,8 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
   }
 
   protected List<IField> findDeclaredField(Atom name) {
-    
+    computeFieldsIfNeeded();
+
     List<IField> result = new ArrayList<IField>(1);
     
     if (instanceFields != null) {
@@ -567,6 +585,12 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     return result;
   }
 
+  /**
+   * Set up {@link #instanceFields} and {@link #staticFields}, for subclasses that do not do so on construction
+   */
+  protected void computeFieldsIfNeeded() {
+  }
+
   protected void addFieldToList(List<FieldImpl> L, Atom name, ImmutableByteArray fieldType, int accessFlags,
       Collection<Annotation> annotations, TypeSignature sig) {
     TypeName T = null;
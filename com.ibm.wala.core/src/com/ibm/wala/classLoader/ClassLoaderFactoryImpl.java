@@ -112,7 +112,12 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
           cl = new ClassLoaderImpl(classLoaderReference, scope.getArrayClassLoader(), parent, exclusions, cha);
         }
       }
-    cl.init(scope.getModules(classLoaderReference));
+    if (cl instanceof ClassLoaderImpl) {
+      ((ClassLoaderImpl) cl).init(scope.getModules(classLoaderReference), scope.getNumberOfLoaderThreads(),
+          scope.getSnapshotDirectory());
+    } else {
+      cl.init(scope.getModules(classLoaderReference));
+    }
     return cl;
   }
 
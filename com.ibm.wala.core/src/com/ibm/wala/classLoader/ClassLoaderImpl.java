@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -26,9 +27,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.shrikeCT.ClassReader;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
@@ -56,6 +61,16 @@ public class ClassLoaderImpl implements IClassLoader {
 
   private static final boolean OPTIMIZE_JAR_FILE_IO = true;
 
+  /**
+   * Modules with fewer class files than this are parsed on the calling thread, even when loading with several threads
+   */
+  private static final int MIN_PARALLEL_CLASS_FILES = 64;
+
+  /**
+   * When loading with several threads, the number of class files parsed by a single task
+   */
+  private static final int CLASS_FILES_PER_TASK = 32;
+
   /**
    * classes to ignore
    */
@@ -245,8 +260,15 @@ public class ClassLoaderImpl implements IClassLoader {
 
   /**
    * Set up the set of classes loaded by this object.
+   * 
+   * @param pool if not null, parse the class files on this pool before adding them, in order, to {@link #loadedClasses}
+   * @param snapshot if not null, class headers saved for archive; classes found in it are not read from their class files, and
+   *          classes read from archive are added to it
    */
-  private void loadAllClasses(Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents) {
+  private void loadAllClasses(Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents, ForkJoinPool pool,
+      Module archive, ModuleSnapshot snapshot) {
+    List<ModuleEntry> entries = new ArrayList<ModuleEntry>(moduleEntries.size());
+    List<TypeName> names = new ArrayList<TypeName>(moduleEntries.size());
     for (Iterator<ModuleEntry> it = moduleEntries.iterator(); it.hasNext();) {
       ModuleEntry entry = it.next();
       if (!entry.isClassFile()) {
@@ -265,34 +287,53 @@ public class ClassLoaderImpl implements IClassLoader {
         }
         continue;
       }
+      entries.add(entry);
+      names.add(TypeName.string2TypeName("L" + className));
+    }
+
+    ModuleSnapshot.ClassHeader[] headers = new ModuleSnapshot.ClassHeader[entries.size()];
+    if (snapshot != null) {
+      for (int i = 0; i < headers.length; i++) {
+        ModuleEntry entry = entries.get(i);
+        // entries of nested jars are not covered by the snapshot's key
+        if (entry.getContainer() == archive) {
+          headers[i] = snapshot.get(entry.getName());
+        }
+      }
+    }
 
-      ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+    Object[] parsed = null;
+    if (pool != null && entries.size() >= MIN_PARALLEL_CLASS_FILES) {
+      parsed = new Object[entries.size()];
+      pool.invoke(new ParseAction(entries, names, headers, fileContents, parsed, 0, parsed.length));
+    }
 
-      className = "L" + className;
+    for (int i = 0; i < entries.size(); i++) {
+      ModuleEntry entry = entries.get(i);
+      TypeName T = names.get(i);
+      String className = T.toString();
       if (DEBUG_LEVEL > 0) {
         System.err.println("Load class " + className);
       }
       try {
-        TypeName T = TypeName.string2TypeName(className);
         if (loadedClasses.get(T) != null) {
           Warnings.add(MultipleImplementationsWarning.create(className));
         } else if (parent != null && parent.lookupClass(T) != null) {
           Warnings.add(MultipleImplementationsWarning.create(className));
         } else {
-          // try to read from memory
-          ShrikeClassReaderHandle reader = entryReader;
-          if (fileContents != null) {
-            final Object contents = fileContents.get(entry.getName());
-            if (contents != null) {
-              // reader that uses the in-memory bytes
-              reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
-            }
+          ShrikeClass klass;
+          if (parsed == null) {
+            klass = parseClass(entry, T, headers[i], fileContents);
+          } else if (parsed[i] instanceof InvalidClassFileException) {
+            throw (InvalidClassFileException) parsed[i];
+          } else {
+            klass = (ShrikeClass) parsed[i];
           }
-          ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
-          if (tmpKlass.getReference().getName().equals(T)) {
-            // always used the reader based on the entry after this point,
-            // so we can null out and re-read class file contents
-            loadedClasses.put(T, new ShrikeClass(entryReader, this, cha));
+          if (klass != null) {
+            loadedClasses.put(T, klass);
+            if (snapshot != null && entry.getContainer() == archive) {
+              snapshot.add(entry.getName(), klass);
+            }
             if (DEBUG_LEVEL > 1) {
               System.err.println("put " + T + " ");
             }
@@ -309,6 +350,92 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * Read the class in a class file
+   * 
+   * @param header if not null, the saved header of the class, which is used instead of reading the class file
+   * @return the class, or null if the class file does not hold the class T
+   */
+  private ShrikeClass parseClass(ModuleEntry entry, TypeName T, ModuleSnapshot.ClassHeader header, Map<String, Object> fileContents)
+      throws InvalidClassFileException {
+    ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+    if (header != null && TypeName.findOrCreate(header.name).equals(T)) {
+      return new ShrikeClass(entryReader, this, cha, header);
+    }
+    // try to read from memory
+    ShrikeClassReaderHandle reader = entryReader;
+    if (fileContents != null) {
+      final Object contents = fileContents.get(entry.getName());
+      if (contents != null) {
+        // reader that uses the in-memory bytes
+        reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
+      }
+    }
+    ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
+    if (!tmpKlass.getReference().getName().equals(T)) {
+      return null;
+    }
+    if (reader == entryReader) {
+      return tmpKlass;
+    }
+    // always used the reader based on the entry after this point,
+    // so we can null out and re-read class file contents
+    return new ShrikeClass(entryReader, this, cha);
+  }
+
+  /**
+   * Parses a range of class files, leaving the class, null, or the {@link InvalidClassFileException} for each one in parsed. Class
+   * files for names this loader already has are skipped.
+   */
+  @SuppressWarnings("serial")
+  private final class ParseAction extends RecursiveAction {
+    private final List<ModuleEntry> entries;
+
+    private final List<TypeName> names;
+
+    private final ModuleSnapshot.ClassHeader[] headers;
+
+    private final Map<String, Object> fileContents;
+
+    private final Object[] parsed;
+
+    private final int start;
+
+    private final int end;
+
+    ParseAction(List<ModuleEntry> entries, List<TypeName> names, ModuleSnapshot.ClassHeader[] headers,
+        Map<String, Object> fileContents, Object[] parsed, int start, int end) {
+      this.entries = entries;
+      this.names = names;
+      this.headers = headers;
+      this.fileContents = fileContents;
+      this.parsed = parsed;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= CLASS_FILES_PER_TASK) {
+        for (int i = start; i < end; i++) {
+          TypeName T = names.get(i);
+          if (loadedClasses.get(T) != null) {
+            continue;
+          }
+          try {
+            parsed[i] = parseClass(entries.get(i), T, headers[i], fileContents);
+          } catch (InvalidClassFileException e) {
+            parsed[i] = e;
+          }
+        }
+      } else {
+        int mid = (start + end) >>> 1;
+        invokeAll(new ParseAction(entries, names, headers, fileContents, parsed, start, mid), new ParseAction(entries, names,
+            headers, fileContents, parsed, mid, end));
+      }
+    }
+  }
+
   @SuppressWarnings("unused")
   private Map<String, Object> getAllClassAndSourceFileContents(byte[] jarFileContents, String fileName,
       Map<String, Map<String, Long>> entrySizes) {
@@ -411,6 +538,28 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * A warning when we fail to save the {@link ModuleSnapshot} for a module
+   */
+  private static class SnapshotWarning extends Warning {
+
+    final String message;
+
+    SnapshotWarning(String message) {
+      super(Warning.MILD);
+      this.message = message;
+    }
+
+    @Override
+    public String getMsg() {
+      return getClass().toString() + " : " + message;
+    }
+
+    public static SnapshotWarning create(Module archive, IOException e) {
+      return new SnapshotWarning(archive + " " + e.getMessage());
+    }
+  }
+
   /**
    * Set up mapping from type name to Module Entry
    */
@@ -484,56 +633,100 @@ public class ClassLoaderImpl implements IClassLoader {
    */
   @Override
   public void init(List<Module> modules) throws IOException {
+    init(modules, 1, null);
+  }
+
+  /**
+   * Initialize internal data structures
+   * 
+   * @param numberOfThreads number of threads used to parse class files
+   * @param snapshotDirectory if not null, directory where the class headers of each jar file are saved, so that later loaders
+   *          over the same jar file need not read its class files
+   * @throws IllegalArgumentException if modules is null
+   * @see AnalysisScope#setNumberOfLoaderThreads(int)
+   * @see AnalysisScope#setSnapshotDirectory(File)
+   */
+  public void init(List<Module> modules, int numberOfThreads, File snapshotDirectory) throws IOException {
 
     if (modules == null) {
       throw new IllegalArgumentException("modules is null");
     }
+    if (numberOfThreads < 1) {
+      throw new IllegalArgumentException("numberOfThreads must be positive: " + numberOfThreads);
+    }
 
     // module are loaded according to the given order (same as in Java VM)
     Set<ModuleEntry> classModuleEntries = HashSetFactory.make();
     Set<ModuleEntry> sourceModuleEntries = HashSetFactory.make();
-    for (Iterator<Module> it = modules.iterator(); it.hasNext();) {
-      Module archive = it.next();
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("add archive: " + archive);
-      }
-      // byte[] jarFileContents = null;
-      if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule) {
-        // if we have a jar file, we read the whole thing into memory and operate on that; enables more
-        // efficient sequential I/O
-        // this is work in progress; for now, we read the file into memory and throw away the contents, which
-        // still gives a speedup for large jar files since it reads sequentially and warms up the FS cache. we get a small slowdown
-        // for smaller jar files or for jar files already in the FS cache. eventually, we should
-        // actually use the bytes read and eliminate the slowdown
-        // 11/22/10: I can't figure out a way to actually use the bytes without hurting performance.  Apparently,
-        // extracting files from a jar stored in memory via a JarInputStream is really slow compared to using
-        // a JarFile.  Will leave this as is for now.  --MS
-        // jarFileContents = archive instanceof JarFileModule ? getJarFileContents((JarFileModule) archive) : null;
-        getJarFileContents((JarFileModule) archive);
-      }
-      Set<ModuleEntry> classFiles = getClassFiles(archive);
-      removeClassFiles(classFiles, classModuleEntries);
-      Set<ModuleEntry> sourceFiles = getSourceFiles(archive);
-      Map<String, Object> allClassAndSourceFileContents = null;
-      if (OPTIMIZE_JAR_FILE_IO) {
-        // work in progress --MS
-        // if (archive instanceof JarFileModule) {
-        // final JarFileModule jfModule = (JarFileModule) archive;
-        // final String name = jfModule.getJarFile().getName();
-        // Map<String, Map<String, Long>> entrySizes = getEntrySizes(jfModule, name);
-        // allClassAndSourceFileContents = getAllClassAndSourceFileContents(jarFileContents, name, entrySizes);
-        // }
-        // jarFileContents = null;
-      }
-      loadAllClasses(classFiles, allClassAndSourceFileContents);
-      loadAllSources(sourceFiles);
-      for (Iterator<ModuleEntry> it2 = classFiles.iterator(); it2.hasNext();) {
-        ModuleEntry file = it2.next();
-        classModuleEntries.add(file);
+    ForkJoinPool pool = (numberOfThreads > 1) ? new ForkJoinPool(numberOfThreads) : null;
+    try {
+      for (Iterator<Module> it = modules.iterator(); it.hasNext();) {
+        Module archive = it.next();
+        if (DEBUG_LEVEL > 0) {
+          System.err.println("add archive: " + archive);
+        }
+        ModuleSnapshot snapshot = null;
+        boolean snapshotLoaded = false;
+        if (snapshotDirectory != null) {
+          String key = ModuleSnapshot.contentHash(archive);
+          if (key != null) {
+            snapshot = ModuleSnapshot.load(snapshotDirectory, key);
+            snapshotLoaded = snapshot != null;
+            if (snapshot == null) {
+              snapshot = new ModuleSnapshot(key);
+            }
+          }
+        }
+        // byte[] jarFileContents = null;
+        // with a snapshot, class files are read one at a time on demand, so there is nothing to gain from reading the jar up front
+        if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule && !snapshotLoaded) {
+          // if we have a jar file, we read the whole thing into memory and operate on that; enables more
+          // efficient sequential I/O
+          // this is work in progress; for now, we read the file into memory and throw away the contents, which
+          // still gives a speedup for large jar files since it reads sequentially and warms up the FS cache. we get a small slowdown
+          // for smaller jar files or for jar files already in the FS cache. eventually, we should
+          // actually use the bytes read and eliminate the slowdown
+          // 11/22/10: I can't figure out a way to actually use the bytes without hurting performance.  Apparently,
+          // extracting files from a jar stored in memory via a JarInputStream is really slow compared to using
+          // a JarFile.  Will leave this as is for now.  --MS
+          // jarFileContents = archive instanceof JarFileModule ? getJarFileContents((JarFileModule) archive) : null;
+          getJarFileContents((JarFileModule) archive);
+        }
+        Set<ModuleEntry> classFiles = getClassFiles(archive);
+        removeClassFiles(classFiles, classModuleEntries);
+        Set<ModuleEntry> sourceFiles = getSourceFiles(archive);
+        Map<String, Object> allClassAndSourceFileContents = null;
+        if (OPTIMIZE_JAR_FILE_IO) {
+          // work in progress --MS
+          // if (archive instanceof JarFileModule) {
+          // final JarFileModule jfModule = (JarFileModule) archive;
+          // final String name = jfModule.getJarFile().getName();
+          // Map<String, Map<String, Long>> entrySizes = getEntrySizes(jfModule, name);
+          // allClassAndSourceFileContents = getAllClassAndSourceFileContents(jarFileContents, name, entrySizes);
+          // }
+          // jarFileContents = null;
+        }
+        loadAllClasses(classFiles, allClassAndSourceFileContents, pool, archive, snapshot);
+        if (snapshot != null && snapshot.isDirty()) {
+          try {
+            snapshot.save(snapshotDirectory);
+          } catch (IOException e) {
+            Warnings.add(SnapshotWarning.create(archive, e));
+          }
+        }
+        loadAllSources(sourceFiles);
+        for (Iterator<ModuleEntry> it2 = classFiles.iterator(); it2.hasNext();) {
+          ModuleEntry file = it2.next();
+          classModuleEntries.add(file);
+        }
+        for (Iterator<ModuleEntry> it2 = sourceFiles.iterator(); it2.hasNext();) {
+          ModuleEntry file = it2.next();
+          sourceModuleEntries.add(file);
+        }
       }
-      for (Iterator<ModuleEntry> it2 = sourceFiles.iterator(); it2.hasNext();) {
-        ModuleEntry file = it2.next();
-        sourceModuleEntries.add(file);
+    } finally {
+      if (pool != null) {
+        pool.shutdown();
       }
     }
   }
@@ -696,6 +889,33 @@ public class ClassLoaderImpl implements IClassLoader {
     return e == null ? null : new InputStreamReader(e.getInputStream());
   }
 
+  /**
+   * Read a class again from a class file that has been edited since this loader was initialized, and use the new version in place
+   * of the class of the same name that this loader loaded before. The class hierarchy must then be told of the new version; see
+   * {@link ClassHierarchy#replaceClass(IClass)}.
+   * 
+   * @return the new version of the class
+   * @throws IllegalArgumentException if entry is not a class file, or this loader has no class of that name
+   */
+  public IClass reloadClass(ModuleEntry entry) throws InvalidClassFileException {
+    if (entry == null) {
+      throw new IllegalArgumentException("entry is null");
+    }
+    if (!entry.isClassFile()) {
+      throw new IllegalArgumentException("not a class file: " + entry);
+    }
+    TypeName T = TypeName.string2TypeName("L" + entry.getClassName().replace('.', '/'));
+    if (loadedClasses.get(T) == null) {
+      throw new IllegalArgumentException("no class " + T + " to replace in " + this);
+    }
+    ShrikeClass klass = parseClass(entry, T, null, null);
+    if (klass == null) {
+      throw new IllegalArgumentException(entry + " does not hold " + T);
+    }
+    loadedClasses.put(T, klass);
+    return klass;
+  }
+
   /*
    * @see com.ibm.wala.classLoader.IClassLoader#removeAll(java.util.Collection)
    */
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.classLoader;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the inflated contents of jar file entries, evicting the least recently used entries once the total number of
+ * cached bytes exceeds its capacity. One cache is normally shared by all the {@link MappedJarFileModule}s of all loaders, so that
+ * the memory held for entry contents does not grow with the size or number of jar files in a scope.
+ */
+public final class JarEntryCache {
+
+  /**
+   * Capacity of the shared cache, in bytes
+   */
+  public static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+
+  private static final JarEntryCache shared = new JarEntryCache(DEFAULT_CAPACITY);
+
+  /**
+   * @return the cache used by {@link MappedJarFileModule}s unless they are given another one
+   */
+  public static JarEntryCache getShared() {
+    return shared;
+  }
+
+  /**
+   * maximum number of cached bytes
+   */
+  private final long capacity;
+
+  /**
+   * number of bytes currently cached
+   */
+  private long size = 0;
+
+  /**
+   * cached contents, in access order
+   */
+  private final LinkedHashMap<Object, byte[]> map = new LinkedHashMap<Object, byte[]>(16, 0.75f, true);
+
+  /**
+   * @param capacity maximum number of bytes to cache
+   */
+  public JarEntryCache(long capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("negative capacity " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return the cached contents for key, or null if they are not cached
+   */
+  synchronized byte[] get(Object key) {
+    return map.get(key);
+  }
+
+  /**
+   * Cache contents for key, evicting least recently used contents to stay within the capacity. Contents larger than the whole
+   * capacity are not cached.
+   */
+  synchronized void put(Object key, byte[] contents) {
+    if (contents.length > capacity) {
+      return;
+    }
+    byte[] old = map.put(key, contents);
+    if (old != null) {
+      size -= old.length;
+    }
+    size += contents.length;
+    for (Iterator<Map.Entry<Object, byte[]>> it = map.entrySet().iterator(); size > capacity && it.hasNext();) {
+      size -= it.next().getValue().length;
+      it.remove();
+    }
+  }
+
+  /**
+   * Drop all cached contents
+   */
+  public synchronized void clear() {
+    map.clear();
+    size = 0;
+  }
+
+  /**
+   * @return the number of bytes currently cached
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+}
@@ -0,0 +1,599 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.classLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.MapIterator;
+import com.ibm.wala.util.functions.Function;
+import com.ibm.wala.util.io.FileSuffixes;
+import com.ibm.wala.util.warnings.Warning;
+import com.ibm.wala.util.warnings.Warnings;
+
+/**
+ * A module for a jar file that memory-maps the file and reads its central directory itself, instead of going through
+ * {@link java.util.jar.JarFile}. Entries are inflated only when their contents are asked for, and the inflated bytes are kept in a
+ * bounded {@link JarEntryCache}, so the heap used does not grow with the size of the jar. Nested jars that are stored
+ * uncompressed, as in most fat jars, are read in place from the enclosing mapping; compressed nested jars are inflated once into
+ * a temporary file, which is mapped in turn.
+ *
+ * Unlike {@link JarFileModule}, this module does not hold a {@link java.util.jar.JarFile}, so manifest and signature information
+ * is not available.
+ */
+public class MappedJarFileModule implements Module {
+
+  private static final int LOCAL_HEADER = 0x04034b50;
+
+  private static final int CENTRAL_HEADER = 0x02014b50;
+
+  private static final int END_HEADER = 0x06054b50;
+
+  private static final int ZIP64_END_HEADER = 0x06064b50;
+
+  private static final int ZIP64_LOCATOR = 0x07064b50;
+
+  private static final int STORED = 0;
+
+  private static final int DEFLATED = 8;
+
+  /**
+   * largest region of a file mapped by one buffer
+   */
+  private static final int MAPPED_CHUNK_SIZE = 1 << 30;
+
+  /**
+   * size of the buffers used to inflate a nested jar into a file
+   */
+  private static final int INFLATE_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * What the central directory says about one entry
+   */
+  static final class Record {
+    final String name;
+
+    final int method;
+
+    final long crc;
+
+    final long compressedSize;
+
+    final long size;
+
+    final long localHeaderOffset;
+
+    Record(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+      this.name = name;
+      this.method = method;
+      this.crc = crc;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+  }
+
+  /**
+   * path of the jar file, followed by the names of the entries holding it for nested jars
+   */
+  private final String name;
+
+  /**
+   * the contents of the file holding this jar; chunk i holds the bytes starting at i * chunkSize
+   */
+  private final ByteBuffer[] chunks;
+
+  private final int chunkSize;
+
+  /**
+   * position of this jar in chunks
+   */
+  private final long base;
+
+  /**
+   * length of this jar
+   */
+  private final long length;
+
+  /**
+   * central directory records, by entry name, in the order of the central directory
+   */
+  private final Map<String, Record> records;
+
+  private final JarEntryCache cache;
+
+  /**
+   * modules for the nested jars asked for so far, so that each is read (and, if compressed, inflated) only once
+   */
+  private final Map<Record, Module> nested = HashMapFactory.make();
+
+  /**
+   * Map a jar file, caching inflated entries in the {@link JarEntryCache#getShared() shared cache}
+   */
+  public MappedJarFileModule(File file) throws IOException {
+    this(file, JarEntryCache.getShared());
+  }
+
+  public MappedJarFileModule(File file, JarEntryCache cache) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    if (cache == null) {
+      throw new IllegalArgumentException("null cache");
+    }
+    this.name = file.getAbsolutePath();
+    this.chunkSize = MAPPED_CHUNK_SIZE;
+    this.chunks = map(file);
+    this.base = 0;
+    this.length = file.length();
+    this.cache = cache;
+    this.records = readCentralDirectory();
+  }
+
+  /**
+   * a jar held in a region of the contents of another one
+   */
+  private MappedJarFileModule(String name, ByteBuffer[] chunks, int chunkSize, long base, long length, JarEntryCache cache)
+      throws IOException {
+    this.name = name;
+    this.chunks = chunks;
+    this.chunkSize = chunkSize;
+    this.base = base;
+    this.length = length;
+    this.cache = cache;
+    this.records = readCentralDirectory();
+  }
+
+  private static ByteBuffer[] map(File file) throws IOException {
+    RandomAccessFile f = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = f.getChannel();
+      long size = channel.size();
+      ByteBuffer[] result = new ByteBuffer[(int) ((size + MAPPED_CHUNK_SIZE - 1) / MAPPED_CHUNK_SIZE)];
+      for (int i = 0; i < result.length; i++) {
+        long start = (long) i * MAPPED_CHUNK_SIZE;
+        result[i] = channel.map(MapMode.READ_ONLY, start, Math.min(MAPPED_CHUNK_SIZE, size - start));
+      }
+      // the mappings stay valid after the channel is closed
+      return result;
+    } finally {
+      f.close();
+    }
+  }
+
+  /**
+   * Copy bytes of this jar, starting at position pos, into dst
+   */
+  private void read(long pos, byte[] dst, int off, int len) throws IOException {
+    if (pos < 0 || pos + len > length) {
+      throw new IOException("read past the end of " + name);
+    }
+    long p = base + pos;
+    while (len > 0) {
+      ByteBuffer chunk = chunks[(int) (p / chunkSize)].duplicate();
+      int within = (int) (p % chunkSize);
+      int n = Math.min(len, chunk.limit() - within);
+      chunk.position(within);
+      chunk.get(dst, off, n);
+      p += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  private ByteBuffer readLittleEndian(long pos, int len) throws IOException {
+    byte[] b = new byte[len];
+    read(pos, b, 0, len);
+    return ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private Map<String, Record> readCentralDirectory() throws IOException {
+    // the end of central directory record is followed by a comment of at most 65535 bytes
+    int tailLength = (int) Math.min(length, 22 + 0xffff);
+    ByteBuffer tail = readLittleEndian(length - tailLength, tailLength);
+    int end = -1;
+    for (int i = tailLength - 22; i >= 0; i--) {
+      if (tail.getInt(i) == END_HEADER) {
+        end = i;
+        break;
+      }
+    }
+    if (end == -1) {
+      throw new IOException("no central directory in " + name);
+    }
+    // the central directory ends where the end record starts
+    long directoryEnd = length - tailLength + end;
+    long count = tail.getShort(end + 10) & 0xffff;
+    long directorySize = tail.getInt(end + 12) & 0xffffffffL;
+    long directoryOffset = tail.getInt(end + 16) & 0xffffffffL;
+    if (count == 0xffff || directorySize == 0xffffffffL || directoryOffset == 0xffffffffL) {
+      long locator = directoryEnd - 20;
+      ByteBuffer l = readLittleEndian(locator, 20);
+      if (l.getInt(0) != ZIP64_LOCATOR) {
+        throw new IOException("no zip64 central directory in " + name);
+      }
+      // the zip64 end record usually sits just before its locator; its recorded offset is wrong if the jar has a prefix
+      directoryEnd = locator - 56;
+      ByteBuffer e = readLittleEndian(directoryEnd, 56);
+      if (e.getInt(0) != ZIP64_END_HEADER) {
+        directoryEnd = l.getLong(8);
+        e = readLittleEndian(directoryEnd, 56);
+      }
+      if (e.getInt(0) != ZIP64_END_HEADER) {
+        throw new IOException("bad zip64 central directory in " + name);
+      }
+      count = e.getLong(32);
+      directorySize = e.getLong(40);
+      directoryOffset = e.getLong(48);
+    }
+    if (directorySize > Integer.MAX_VALUE) {
+      throw new IOException("central directory too large in " + name);
+    }
+    // the recorded offsets are relative to the start of the zip data, which is not the start of the file when something,
+    // such as a launcher script, is prepended to the jar
+    long delta = directoryEnd - directorySize - directoryOffset;
+    if (delta < 0) {
+      throw new IOException("bad central directory offset in " + name);
+    }
+
+    ByteBuffer dir = readLittleEndian(directoryOffset + delta, (int) directorySize);
+    Map<String, Record> result = HashMapFactory.make((int) Math.min(count, Integer.MAX_VALUE / 2));
+    int p = 0;
+    for (long i = 0; i < count; i++) {
+      if (dir.getInt(p) != CENTRAL_HEADER) {
+        throw new IOException("bad central directory entry in " + name);
+      }
+      int method = dir.getShort(p + 10) & 0xffff;
+      long crc = dir.getInt(p + 16) & 0xffffffffL;
+      long compressedSize = dir.getInt(p + 20) & 0xffffffffL;
+      long size = dir.getInt(p + 24) & 0xffffffffL;
+      int nameLength = dir.getShort(p + 28) & 0xffff;
+      int extraLength = dir.getShort(p + 30) & 0xffff;
+      int commentLength = dir.getShort(p + 32) & 0xffff;
+      long offset = dir.getInt(p + 42) & 0xffffffffL;
+      String entryName = decode(dir.array(), p + 46, nameLength);
+
+      // zip64 extended information holds, in this order, those of the sizes and offset that did not fit
+      int extra = p + 46 + nameLength;
+      int extraEnd = extra + extraLength;
+      while (extra + 4 <= extraEnd) {
+        int id = dir.getShort(extra) & 0xffff;
+        int dataSize = dir.getShort(extra + 2) & 0xffff;
+        if (id == 1) {
+          int q = extra + 4;
+          if (size == 0xffffffffL) {
+            size = dir.getLong(q);
+            q += 8;
+          }
+          if (compressedSize == 0xffffffffL) {
+            compressedSize = dir.getLong(q);
+            q += 8;
+          }
+          if (offset == 0xffffffffL) {
+            offset = dir.getLong(q);
+          }
+        }
+        extra += 4 + dataSize;
+      }
+      result.put(entryName, new Record(entryName, method, crc, compressedSize, size, offset + delta));
+      p = extraEnd + commentLength;
+    }
+    return result;
+  }
+
+  private static String decode(byte[] b, int offset, int length) {
+    try {
+      return new String(b, offset, length, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the position in this jar of the data of the entry r
+   */
+  private long dataOffset(Record r) throws IOException {
+    ByteBuffer header = readLittleEndian(r.localHeaderOffset, 30);
+    if (header.getInt(0) != LOCAL_HEADER) {
+      throw new IOException("bad local header for " + r.name + " in " + name);
+    }
+    return r.localHeaderOffset + 30 + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+  }
+
+  /**
+   * @return the uncompressed contents of entry r
+   */
+  private byte[] inflate(Record r) throws IOException {
+    if (r.size > Integer.MAX_VALUE || r.compressedSize > Integer.MAX_VALUE - 1) {
+      throw new IOException("entry " + r.name + " too large in " + name);
+    }
+    long data = dataOffset(r);
+    switch (r.method) {
+    case STORED: {
+      byte[] result = new byte[(int) r.size];
+      read(data, result, 0, result.length);
+      return result;
+    }
+    case DEFLATED: {
+      // the inflater needs an extra dummy byte at the end of its input when the zlib header is missing
+      byte[] input = new byte[(int) r.compressedSize + 1];
+      read(data, input, 0, (int) r.compressedSize);
+      byte[] result = new byte[(int) r.size];
+      Inflater inflater = new Inflater(true);
+      try {
+        inflater.setInput(input);
+        int n = 0;
+        while (n < result.length && !inflater.finished()) {
+          int k = inflater.inflate(result, n, result.length - n);
+          if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            throw new IOException("truncated entry " + r.name + " in " + name);
+          }
+          n += k;
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("bad entry " + r.name + " in " + name + ": " + e.getMessage());
+      } finally {
+        inflater.end();
+      }
+      return result;
+    }
+    default:
+      throw new IOException("unsupported compression method " + r.method + " for " + r.name + " in " + name);
+    }
+  }
+
+  /**
+   * Inflate entry r into the file target, a buffer at a time, so that its contents are never all on the heap
+   */
+  private void inflateTo(Record r, File target) throws IOException {
+    if (r.method != DEFLATED) {
+      throw new IOException("unsupported compression method " + r.method + " for " + r.name + " in " + name);
+    }
+    long pos = dataOffset(r);
+    long remaining = r.compressedSize;
+    long written = 0;
+    byte[] input = new byte[INFLATE_BUFFER_SIZE];
+    byte[] output = new byte[INFLATE_BUFFER_SIZE];
+    boolean padded = false;
+    OutputStream out = new FileOutputStream(target);
+    Inflater inflater = new Inflater(true);
+    try {
+      while (!inflater.finished()) {
+        if (inflater.needsInput()) {
+          if (remaining > 0) {
+            int n = (int) Math.min(input.length, remaining);
+            read(pos, input, 0, n);
+            pos += n;
+            remaining -= n;
+            inflater.setInput(input, 0, n);
+          } else if (!padded) {
+            // the inflater needs an extra dummy byte at the end of its input when the zlib header is missing
+            padded = true;
+            inflater.setInput(new byte[1]);
+          } else {
+            throw new IOException("truncated entry " + r.name + " in " + name);
+          }
+        }
+        int k = inflater.inflate(output);
+        if (k == 0 && inflater.needsDictionary()) {
+          throw new IOException("bad entry " + r.name + " in " + name);
+        }
+        out.write(output, 0, k);
+        written += k;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("bad entry " + r.name + " in " + name + ": " + e.getMessage());
+    } finally {
+      inflater.end();
+      out.close();
+    }
+    if (written != r.size) {
+      throw new IOException("entry " + r.name + " in " + name + " has " + written + " bytes, expected " + r.size);
+    }
+  }
+
+  /**
+   * @return the uncompressed contents of entry r, from the cache if possible
+   */
+  byte[] getContents(Record r) throws IOException {
+    byte[] result = cache.get(r);
+    if (result == null) {
+      result = inflate(r);
+      cache.put(r, result);
+    }
+    return result;
+  }
+
+  /**
+   * @return the central directory records of this jar, in directory order
+   */
+  Collection<Record> getRecords() {
+    return Collections.unmodifiableCollection(records.values());
+  }
+
+  /**
+   * @return the module for a jar nested in entry r
+   */
+  private Module nestedModule(Record r) {
+    synchronized (nested) {
+      Module result = nested.get(r);
+      if (result == null) {
+        result = makeNestedModule(r);
+        nested.put(r, result);
+      }
+      return result;
+    }
+  }
+
+  private Module makeNestedModule(Record r) {
+    String nestedName = name + "!/" + r.name;
+    try {
+      if (r.method == STORED) {
+        // read it where it is
+        return new MappedJarFileModule(nestedName, chunks, chunkSize, base + dataOffset(r), r.size, cache);
+      } else {
+        File tmp = File.createTempFile("nested", ".jar");
+        try {
+          inflateTo(r, tmp);
+          return new MappedJarFileModule(nestedName, map(tmp), MAPPED_CHUNK_SIZE, 0, r.size, cache);
+        } finally {
+          // the mapping outlives the file where the platform allows it; elsewhere, clean up at exit
+          if (!tmp.delete()) {
+            tmp.deleteOnExit();
+          }
+        }
+      }
+    } catch (final IOException e) {
+      // just go with what we have
+      Warnings.add(new Warning() {
+        @Override
+        public String getMsg() {
+          return "could not read nested jar file " + e.getMessage();
+        }
+      });
+      return new Module() {
+        @Override
+        public Iterator<ModuleEntry> getEntries() {
+          return Collections.<ModuleEntry> emptySet().iterator();
+        }
+      };
+    }
+  }
+
+  public String getAbsolutePath() {
+    return name;
+  }
+
+  @Override
+  public Iterator<ModuleEntry> getEntries() {
+    return new MapIterator<Record, ModuleEntry>(records.values().iterator(), new Function<Record, ModuleEntry>() {
+      @Override
+      public ModuleEntry apply(Record r) {
+        return new Entry(r);
+      }
+    });
+  }
+
+  @Override
+  public String toString() {
+    return "MappedJarFileModule:" + name;
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    return name.equals(((MappedJarFileModule) obj).name);
+  }
+
+  /**
+   * An entry in a mapped jar file
+   */
+  private class Entry implements ModuleEntry {
+
+    private final Record record;
+
+    Entry(Record record) {
+      this.record = record;
+    }
+
+    @Override
+    public String getName() {
+      return record.name;
+    }
+
+    public long getSize() {
+      return record.size;
+    }
+
+    @Override
+    public boolean isClassFile() {
+      return FileSuffixes.isClassFile(getName());
+    }
+
+    @Override
+    public boolean isSourceFile() {
+      return FileSuffixes.isSourceFile(getName());
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      try {
+        return new ByteArrayInputStream(getContents(record));
+      } catch (IOException e) {
+        throw new IllegalStateException(e.getMessage(), e);
+      }
+    }
+
+    @Override
+    public boolean isModuleFile() {
+      return FileSuffixes.isJarFile(getName()) || FileSuffixes.isWarFile(getName());
+    }
+
+    @Override
+    public Module asModule() {
+      return nestedModule(record);
+    }
+
+    @Override
+    public String getClassName() {
+      return FileSuffixes.stripSuffix(getName());
+    }
+
+    @Override
+    public Module getContainer() {
+      return MappedJarFileModule.this;
+    }
+
+    @Override
+    public String toString() {
+      return name + ":" + getName();
+    }
+
+    @Override
+    public int hashCode() {
+      return record.name.hashCode() * 5059 + MappedJarFileModule.this.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (obj == null || getClass() != obj.getClass())
+        return false;
+      Entry other = (Entry) obj;
+      return record == other.record;
+    }
+  }
+}
@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.classLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.strings.ImmutableByteArray;
+
+/**
+ * The class file headers (name, modifiers, superclass and interfaces) of the classes in one {@link Module}, saved on disk and keyed
+ * by a hash of the module's contents. When a snapshot for an unchanged module is found, {@link ClassLoaderImpl} builds its
+ * {@link ShrikeClass}es from the headers, without reading the class files; fields and methods are read from the class file only
+ * when they are asked for.
+ * 
+ * A loaded snapshot keeps its file mapped and only indexes the position of each header; a header is decoded when its class is
+ * loaded, and the names of its supertypes when the class is first asked for them.
+ */
+public final class ModuleSnapshot {
+
+  private static final int MAGIC = 0x57434853;
+
+  private static final int VERSION = 1;
+
+  private static final String SUFFIX = ".snapshot";
+
+  /**
+   * What a {@link ShrikeClass} needs to take its place in a class hierarchy
+   */
+  static final class ClassHeader {
+    final ImmutableByteArray name;
+
+    final int modifiers;
+
+    /**
+     * null for the root class; for a header read from a snapshot file, not decoded until asked for
+     */
+    private ImmutableByteArray superName;
+
+    private ImmutableByteArray[] interfaceNames;
+
+    /**
+     * the mapped snapshot file and the position of the superclass name in it, or null once the supertypes are decoded
+     */
+    private ByteBuffer buffer;
+
+    private final int supertypes;
+
+    ClassHeader(ImmutableByteArray name, int modifiers, ImmutableByteArray superName, ImmutableByteArray[] interfaceNames) {
+      this.name = name;
+      this.modifiers = modifiers;
+      this.superName = superName;
+      this.interfaceNames = interfaceNames;
+      this.supertypes = -1;
+    }
+
+    private ClassHeader(ImmutableByteArray name, int modifiers, ByteBuffer buffer, int supertypes) {
+      this.name = name;
+      this.modifiers = modifiers;
+      this.buffer = buffer;
+      this.supertypes = supertypes;
+    }
+
+    /**
+     * @return the name of the superclass, or null for the root class
+     */
+    synchronized ImmutableByteArray getSuperName() {
+      decodeSupertypesIfNeeded();
+      return superName;
+    }
+
+    synchronized ImmutableByteArray[] getInterfaceNames() {
+      decodeSupertypesIfNeeded();
+      return interfaceNames;
+    }
+
+    private void decodeSupertypesIfNeeded() {
+      if (buffer != null) {
+        ByteBuffer buf = buffer.duplicate();
+        buf.position(supertypes);
+        byte[] s = getBytes(buf);
+        superName = (s == null) ? null : new ImmutableByteArray(s);
+        interfaceNames = new ImmutableByteArray[buf.getInt()];
+        for (int j = 0; j < interfaceNames.length; j++) {
+          interfaceNames[j] = new ImmutableByteArray(getBytes(buf));
+        }
+        buffer = null;
+      }
+    }
+  }
+
+  /**
+   * hash of the module contents
+   */
+  private final String key;
+
+  /**
+   * Mapping from module entry name to the header of the class in that entry, for classes added since the snapshot was created or
+   * loaded
+   */
+  private final Map<String, ClassHeader> headers = HashMapFactory.make();
+
+  /**
+   * The mapped snapshot file this snapshot was loaded from, or null
+   */
+  private ByteBuffer buffer;
+
+  /**
+   * Mapping from module entry name to the position in {@link #buffer} of the header of the class in that entry
+   */
+  private final Map<String, Integer> positions = HashMapFactory.make();
+
+  /**
+   * Number of headers decoded from {@link #buffer} so far
+   */
+  private int decoded = 0;
+
+  /**
+   * Were headers added since this snapshot was created or loaded?
+   */
+  private boolean dirty = false;
+
+  /**
+   * Create an empty snapshot for a module
+   *
+   * @param key hash of the module contents, from {@link #contentHash(Module)}
+   */
+  public ModuleSnapshot(String key) {
+    if (key == null) {
+      throw new IllegalArgumentException("null key");
+    }
+    this.key = key;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @return the number of classes in this snapshot
+   */
+  public int size() {
+    return headers.size() + positions.size();
+  }
+
+  /**
+   * @return the number of headers read from the snapshot file so far; loading a snapshot reads none
+   */
+  public int getNumberOfDecodedHeaders() {
+    return decoded;
+  }
+
+  /**
+   * Have classes been added since the snapshot was created or loaded?
+   */
+  public boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * @return the header for the class in the module entry with the given name, or null if none is known
+   */
+  ClassHeader get(String entryName) {
+    Integer position = positions.get(entryName);
+    if (position != null) {
+      decoded++;
+      return decode(position);
+    }
+    return headers.get(entryName);
+  }
+
+  /**
+   * Read the name and modifiers of the header at a position in {@link #buffer}, leaving the supertypes to be decoded later
+   */
+  private ClassHeader decode(int position) {
+    ByteBuffer buf = buffer.duplicate();
+    buf.position(position);
+    ImmutableByteArray name = new ImmutableByteArray(getBytes(buf));
+    int modifiers = buf.getInt();
+    return new ClassHeader(name, modifiers, buffer, buf.position());
+  }
+
+  /**
+   * Record the header of a class read from the module entry with the given name
+   */
+  void add(String entryName, ShrikeClass klass) {
+    if (!positions.containsKey(entryName) && !headers.containsKey(entryName)) {
+      headers.put(entryName, new ClassHeader(ImmutableByteArray.make(klass.getName().toString()), klass.getModifiers(),
+          klass.superName, klass.interfaceNames));
+      dirty = true;
+    }
+  }
+
+  /**
+   * Compute a key for the contents of a module. For a jar file, this hashes the name, size and CRC of every entry, which the jar
+   * already records, so no entry has to be inflated.
+   *
+   * @return the key, or null if the contents of this kind of module cannot be hashed cheaply
+   */
+  public static String contentHash(Module M) throws IOException {
+    if (!(M instanceof JarFileModule) && !(M instanceof MappedJarFileModule)) {
+      return null;
+    }
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      return null;
+    }
+    byte[] buf = new byte[16];
+    if (M instanceof JarFileModule) {
+      JarFile jar = ((JarFileModule) M).getJarFile();
+      for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();) {
+        JarEntry entry = e.nextElement();
+        digestEntry(digest, buf, entry.getName(), entry.getSize(), entry.getCrc());
+      }
+    } else {
+      for (MappedJarFileModule.Record r : ((MappedJarFileModule) M).getRecords()) {
+        digestEntry(digest, buf, r.name, r.size, r.crc);
+      }
+    }
+    StringBuilder result = new StringBuilder();
+    for (byte b : digest.digest()) {
+      result.append(Character.forDigit((b >> 4) & 0xf, 16));
+      result.append(Character.forDigit(b & 0xf, 16));
+    }
+    return result.toString();
+  }
+
+  private static void digestEntry(MessageDigest digest, byte[] buf, String name, long size, long crc) throws IOException {
+    digest.update(name.getBytes("UTF-8"));
+    putLong(buf, 0, size);
+    putLong(buf, 8, crc);
+    digest.update(buf);
+  }
+
+  private static void putLong(byte[] buf, int offset, long v) {
+    for (int i = 0; i < 8; i++) {
+      buf[offset + i] = (byte) (v >>> (56 - 8 * i));
+    }
+  }
+
+  /**
+   * Read the snapshot with the given key from a directory. The file is memory-mapped rather than read through a stream, and only
+   * the entry names are read from it; the headers stay in the mapped file until {@link ClassLoaderImpl} asks for them.
+   *
+   * @return the snapshot, or null if the directory holds no usable snapshot for key
+   */
+  public static ModuleSnapshot load(File directory, String key) {
+    if (directory == null) {
+      throw new IllegalArgumentException("null directory");
+    }
+    File f = new File(directory, key + SUFFIX);
+    if (!f.isFile()) {
+      return null;
+    }
+    RandomAccessFile file = null;
+    try {
+      file = new RandomAccessFile(f, "r");
+      ByteBuffer buf = file.getChannel().map(MapMode.READ_ONLY, 0, file.length());
+      if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+        return null;
+      }
+      ModuleSnapshot result = new ModuleSnapshot(key);
+      result.buffer = buf.duplicate();
+      int count = buf.getInt();
+      for (int i = 0; i < count; i++) {
+        String entryName = new String(getBytes(buf), "UTF-8");
+        result.positions.put(entryName, buf.position());
+        skipBytes(buf);
+        buf.getInt();
+        skipBytes(buf);
+        for (int j = buf.getInt(); j > 0; j--) {
+          skipBytes(buf);
+        }
+      }
+      return result;
+    } catch (IOException e) {
+      return null;
+    } catch (RuntimeException e) {
+      // truncated or corrupt file
+      return null;
+    } finally {
+      if (file != null) {
+        try {
+          file.close();
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+  }
+
+  private static byte[] getBytes(ByteBuffer buf) {
+    int length = buf.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] result = new byte[length];
+    buf.get(result);
+    return result;
+  }
+
+  private static void skipBytes(ByteBuffer buf) {
+    int length = buf.getInt();
+    if (length > 0) {
+      buf.position(buf.position() + length);
+    }
+  }
+
+  /**
+   * Write this snapshot to a directory, replacing any earlier snapshot with the same key
+   */
+  public void save(File directory) throws IOException {
+    if (directory == null) {
+      throw new IllegalArgumentException("null directory");
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("could not create " + directory);
+    }
+    // write to a temporary file first, so that a concurrent reader never sees a partial snapshot
+    File tmp = File.createTempFile(key, ".tmp", directory);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(size());
+      for (Map.Entry<String, Integer> e : positions.entrySet()) {
+        putHeader(out, e.getKey(), decode(e.getValue()));
+      }
+      for (Map.Entry<String, ClassHeader> e : headers.entrySet()) {
+        putHeader(out, e.getKey(), e.getValue());
+      }
+    } finally {
+      out.close();
+    }
+    try {
+      Files.move(tmp.toPath(), new File(directory, key + SUFFIX).toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      tmp.delete();
+      throw e;
+    }
+    dirty = false;
+  }
+
+  private static void putHeader(DataOutputStream out, String entryName, ClassHeader h) throws IOException {
+    putBytes(out, entryName.getBytes("UTF-8"));
+    putBytes(out, h.name);
+    out.writeInt(h.modifiers);
+    putBytes(out, h.getSuperName());
+    ImmutableByteArray[] interfaceNames = h.getInterfaceNames();
+    out.writeInt(interfaceNames.length);
+    for (ImmutableByteArray i : interfaceNames) {
+      putBytes(out, i);
+    }
+  }
+
+  private static void putBytes(DataOutputStream out, ImmutableByteArray b) throws IOException {
+    putBytes(out, b == null ? null : b.substring(0, b.length()));
+  }
+
+  private static void putBytes(DataOutputStream out, byte[] b) throws IOException {
+    if (b == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(b.length);
+      out.write(b);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ModuleSnapshot " + key + ": " + size() + " classes";
+  }
+}
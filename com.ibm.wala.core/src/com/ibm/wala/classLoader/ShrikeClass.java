@@ -48,6 +48,17 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
    */
   private final ShrikeClassReaderHandle reader;
 
+  /**
+   * Have the fields been read from the class file?
+   */
+  private volatile boolean fieldsComputed;
+
+  /**
+   * For a class created from a {@link ModuleSnapshot}, the header whose supertype names have not yet been copied into this class;
+   * null once they have, and for a class read from its class file
+   */
+  private volatile ModuleSnapshot.ClassHeader header;
+
   /**
    * @throws IllegalArgumentException
    *           if reader is null
@@ -66,6 +77,72 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     computeModifiers();
     computeInterfaceNames();
     computeFields();
+    fieldsComputed = true;
+  }
+
+  /**
+   * Create a class from a header saved in a {@link ModuleSnapshot}, without reading the class file. The names of the supertypes are
+   * decoded from the header, and the fields read from the class file, the first time they are needed.
+   */
+  ShrikeClass(ShrikeClassReaderHandle reader, IClassLoader loader, IClassHierarchy cha, ModuleSnapshot.ClassHeader header) {
+    super(loader, cha);
+    if (reader == null) {
+      throw new IllegalArgumentException("reader is null");
+    }
+    this.reader = reader;
+    this.typeReference = TypeReference.findOrCreate(loader.getReference(), TypeName.findOrCreate(header.name));
+    this.hashCode = 2161 * getReference().hashCode();
+    this.modifiers = header.modifiers;
+    this.header = header;
+  }
+
+  private void computeSupertypeNamesIfNeeded() {
+    if (header != null) {
+      synchronized (this) {
+        if (header != null) {
+          superName = header.getSuperName();
+          interfaceNames = header.getInterfaceNames();
+          header = null;
+        }
+      }
+    }
+  }
+
+  @Override
+  public IClass getSuperclass() {
+    computeSupertypeNamesIfNeeded();
+    return super.getSuperclass();
+  }
+
+  @Override
+  public Collection<? extends IClass> getDirectInterfaces() {
+    computeSupertypeNamesIfNeeded();
+    return super.getDirectInterfaces();
+  }
+
+  /**
+   * @return true if this class has read its class file, which a class created from a {@link ModuleSnapshot} does only once its
+   *         fields, methods or attributes are asked for
+   */
+  public boolean hasReadClassFile() {
+    return reader.getHydrateCount() > 0;
+  }
+
+  @Override
+  protected void computeFieldsIfNeeded() {
+    if (!fieldsComputed) {
+      synchronized (this) {
+        if (!fieldsComputed) {
+          try {
+            computeFields();
+          } catch (InvalidClassFileException e) {
+            e.printStackTrace();
+            Assertions.UNREACHABLE();
+          }
+          fieldsComputed = true;
+        }
+      }
+    }
   }
 
   /**
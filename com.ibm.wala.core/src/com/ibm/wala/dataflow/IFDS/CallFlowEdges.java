@@ -156,4 +156,25 @@ public class CallFlowEdges {
     return result;
   }
 
-}
\ No newline at end of file
+  /**
+   * @return an empty set of call flow edges that may be used by several threads at once. The sets it returns are copies.
+   */
+  static CallFlowEdges makeSynchronized() {
+    return new CallFlowEdges() {
+      @Override
+      public synchronized void addCallEdge(int c, int d1, int d2) {
+        super.addCallEdge(c, d1, d2);
+      }
+
+      @Override
+      public synchronized IntSet getCallFlowSources(int c, int d2) {
+        return LocalPathEdges.copy(super.getCallFlowSources(c, d2));
+      }
+
+      @Override
+      public synchronized IntSet getCallFlowSourceNodes(int d2) {
+        return LocalPathEdges.copy(super.getCallFlowSourceNodes(d2));
+      }
+    };
+  }
+}
@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.dataflow.IFDS;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.ibm.wala.util.intset.BasicNaturalRelation;
+import com.ibm.wala.util.intset.IBinaryNaturalRelation;
+import com.ibm.wala.util.intset.IntPair;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
+
+/**
+ * An immutable {@link IBinaryNaturalRelation} held as one bit vector per y, over the x's related to it. For the relations that hold
+ * path edges, where the x's are basic block numbers that are dense and the y's are dataflow facts that are sparse, this takes a
+ * fraction of the space of a {@link BasicNaturalRelation}, at the price of slower lookups of all the y's related to an x.
+ */
+final class CompactNaturalRelation implements IBinaryNaturalRelation {
+
+  /**
+   * the y's s.t. R(x,y) for some x, in increasing order
+   */
+  private final int[] ys;
+
+  /**
+   * the bits for the x's related to ys[i] are words[start[i]] .. words[start[i+1]-1], where the first of them holds the bits for
+   * x's 32*first[i] .. 32*first[i]+31
+   */
+  private final int[] first;
+
+  private final int[] start;
+
+  private final int[] words;
+
+  private final int size;
+
+  private final int maxX;
+
+  private CompactNaturalRelation(int[] ys, int[] first, int[] start, int[] words, int size, int maxX) {
+    this.ys = ys;
+    this.first = first;
+    this.start = start;
+    this.words = words;
+    this.size = size;
+    this.maxX = maxX;
+  }
+
+  /**
+   * @return an immutable copy of R
+   */
+  static CompactNaturalRelation make(IBinaryNaturalRelation R) {
+    if (R == null) {
+      throw new IllegalArgumentException("R is null");
+    }
+    int size = 0;
+    for (int x = 0; x <= R.maxKeyValue(); x++) {
+      size += R.getRelatedCount(x);
+    }
+    // sort the pairs by y, then x
+    long[] pairs = new long[size];
+    int p = 0;
+    for (IntPair pair : R) {
+      pairs[p++] = ((long) pair.getY() << 32) | pair.getX();
+    }
+    Arrays.sort(pairs);
+
+    int nYs = 0;
+    int nWords = 0;
+    for (int i = 0; i < size; i++) {
+      if (i == 0 || y(pairs[i]) != y(pairs[i - 1])) {
+        nYs++;
+        nWords++;
+      } else {
+        nWords += (x(pairs[i]) >> 5) - (x(pairs[i - 1]) >> 5);
+      }
+    }
+    int[] ys = new int[nYs];
+    int[] first = new int[nYs];
+    int[] start = new int[nYs + 1];
+    int[] words = new int[nWords];
+    int k = -1;
+    int w = 0;
+    int maxX = -1;
+    for (int i = 0; i < size; i++) {
+      int x = x(pairs[i]);
+      maxX = Math.max(maxX, x);
+      if (i == 0 || y(pairs[i]) != y(pairs[i - 1])) {
+        k++;
+        ys[k] = y(pairs[i]);
+        first[k] = x >> 5;
+        start[k] = w;
+        w++;
+      } else {
+        w += (x >> 5) - (x(pairs[i - 1]) >> 5);
+      }
+      words[w - 1] |= 1 << (x & 31);
+    }
+    start[nYs] = w;
+    return new CompactNaturalRelation(ys, first, start, words, size, maxX);
+  }
+
+  private static int x(long pair) {
+    return (int) pair;
+  }
+
+  private static int y(long pair) {
+    return (int) (pair >>> 32);
+  }
+
+  /**
+   * @return true iff R(x,ys[k])
+   */
+  private boolean get(int k, int x) {
+    int w = (x >> 5) - first[k];
+    if (w < 0 || start[k] + w >= start[k + 1]) {
+      return false;
+    }
+    return (words[start[k] + w] & (1 << (x & 31))) != 0;
+  }
+
+  /**
+   * @return a mutable copy of this relation, with the representation {@link LocalPathEdges} uses
+   */
+  IBinaryNaturalRelation thaw() {
+    IBinaryNaturalRelation result = new BasicNaturalRelation(new byte[] { BasicNaturalRelation.SIMPLE_SPACE_STINGY },
+        BasicNaturalRelation.TWO_LEVEL);
+    for (IntPair p : this) {
+      result.add(p.getX(), p.getY());
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of pairs in this relation
+   */
+  int size() {
+    return size;
+  }
+
+  @Override
+  public boolean contains(int x, int y) {
+    int k = Arrays.binarySearch(ys, y);
+    return k >= 0 && get(k, x);
+  }
+
+  @Override
+  public IntSet getRelated(int x) {
+    int count = getRelatedCount(x);
+    if (count == 0) {
+      return null;
+    }
+    int[] result = new int[count];
+    int i = 0;
+    for (int k = 0; k < ys.length; k++) {
+      if (get(k, x)) {
+        result[i++] = ys[k];
+      }
+    }
+    return new Related(result);
+  }
+
+  @Override
+  public int getRelatedCount(int x) {
+    int result = 0;
+    for (int k = 0; k < ys.length; k++) {
+      if (get(k, x)) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean anyRelated(int x) {
+    for (int k = 0; k < ys.length; k++) {
+      if (get(k, x)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int maxKeyValue() {
+    return maxX;
+  }
+
+  @Override
+  public Iterator<IntPair> iterator() {
+    return new Iterator<IntPair>() {
+      /**
+       * index in ys of the next pair, or ys.length if there is none
+       */
+      private int k = 0;
+
+      /**
+       * the bit of the next pair in words
+       */
+      private int bit = -1;
+
+      {
+        advance();
+      }
+
+      private void advance() {
+        for (bit++; k < ys.length; k++, bit = start[k] * 32) {
+          for (; bit < start[k + 1] * 32; bit++) {
+            if ((words[bit >> 5] & (1 << (bit & 31))) != 0) {
+              return;
+            }
+          }
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        return k < ys.length;
+      }
+
+      @Override
+      public IntPair next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        IntPair result = new IntPair(32 * first[k] + bit - 32 * start[k], ys[k]);
+        advance();
+        return result;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public boolean add(int x, int y) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void remove(int x, int y) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeAll(int x) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void performVerboseAction() {
+    System.err.println(getClass() + " stats: " + ys.length + " y's, " + size + " pairs, " + words.length + " words");
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer();
+    for (int i = 0; i <= maxX; i++) {
+      IntSet related = getRelated(i);
+      if (related != null) {
+        result.append(i).append(":");
+        result.append(related);
+        result.append("\n");
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * the y's related to one x
+   */
+  @SuppressWarnings("serial")
+  private static final class Related extends SparseIntSet {
+    Related(int[] elements) {
+      super(elements);
+    }
+  }
+}
@@ -84,6 +84,11 @@ public class LocalPathEdges {
    */
   private final SparseVector<IntSet> zeroPaths = new SparseVector<IntSet>(1, 1.1f);
 
+  /**
+   * the number of path edges recorded
+   */
+  private int size = 0;
+
   /**
    * @param fastMerge if true, the representation uses extra space in order to support faster merge operations
    */
@@ -107,22 +112,13 @@ public class LocalPathEdges {
       if (i == j) {
         addIdentityPathEdge(i, n);
       } else {
-        IBinaryNaturalRelation R = paths.get(j);
-        if (R == null) {
-          // we expect the first dimension of R to be dense, the second sparse
-          R = new BasicNaturalRelation(new byte[] { BasicNaturalRelation.SIMPLE_SPACE_STINGY }, BasicNaturalRelation.TWO_LEVEL);
-          paths.set(j, R);
+        IBinaryNaturalRelation R = findOrCreateRelation(paths, j);
+        if (R.add(n, i)) {
+          size++;
         }
-        R.add(n, i);
 
         if (altPaths != null) {
-          IBinaryNaturalRelation R2 = altPaths.get(i);
-          if (R2 == null) {
-            // we expect the first dimension of R to be dense, the second sparse
-            R2 = new BasicNaturalRelation(new byte[] { BasicNaturalRelation.SIMPLE_SPACE_STINGY }, BasicNaturalRelation.TWO_LEVEL);
-            altPaths.set(i, R2);
-          }
-          R2.add(n, j);
+          findOrCreateRelation(altPaths, i).add(n, j);
         }
 
         if (TabulationSolver.DEBUG_LEVEL > 1) {
@@ -138,21 +134,13 @@ public class LocalPathEdges {
    * @param n local block number of the basic block n
    */
   private void addIdentityPathEdge(int i, int n) {
-    BitVectorIntSet s = (BitVectorIntSet) identityPaths.get(i);
-    if (s == null) {
-      s = new BitVectorIntSet();
-      identityPaths.set(i, s);
+    BitVectorIntSet s = findOrCreateSet(identityPaths, i);
+    if (s.add(n)) {
+      size++;
     }
-    s.add(n);
 
     if (altPaths != null) {
-      IBinaryNaturalRelation R2 = altPaths.get(i);
-      if (R2 == null) {
-        // we expect the first dimension of R to be dense, the second sparse
-        R2 = new BasicNaturalRelation(new byte[] { BasicNaturalRelation.SIMPLE_SPACE_STINGY }, BasicNaturalRelation.TWO_LEVEL);
-        altPaths.set(i, R2);
-      }
-      R2.add(n, i);
+      findOrCreateRelation(altPaths, i).add(n, i);
     }
 
     if (TabulationSolver.DEBUG_LEVEL > 1) {
@@ -169,26 +157,47 @@ public class LocalPathEdges {
    */
   private void addZeroPathEdge(int n, int j) {
 
-    BitVectorIntSet z = (BitVectorIntSet) zeroPaths.get(j);
-    if (z == null) {
-      z = new BitVectorIntSet();
-      zeroPaths.set(j, z);
+    BitVectorIntSet z = findOrCreateSet(zeroPaths, j);
+    if (z.add(n)) {
+      size++;
     }
-    z.add(n);
     if (altPaths != null) {
-      IBinaryNaturalRelation R = altPaths.get(0);
-      if (R == null) {
-        // we expect the first dimension of R to be dense, the second sparse
-        R = new BasicNaturalRelation(new byte[] { BasicNaturalRelation.SIMPLE_SPACE_STINGY }, BasicNaturalRelation.TWO_LEVEL);
-        altPaths.set(0, R);
-      }
-      R.add(n, j);
+      findOrCreateRelation(altPaths, 0).add(n, j);
     }
     if (TabulationSolver.DEBUG_LEVEL > 1) {
       System.err.println("recording 0-path edge, now d2= " + j + " reached at " + z);
     }
   }
 
+  /**
+   * @return the mutable relation at index i of v, which is created, or thawed if it was compacted, as needed
+   */
+  private static IBinaryNaturalRelation findOrCreateRelation(SparseVector<IBinaryNaturalRelation> v, int i) {
+    IBinaryNaturalRelation R = v.get(i);
+    if (R == null) {
+      // we expect the first dimension of R to be dense, the second sparse
+      R = new BasicNaturalRelation(new byte[] { BasicNaturalRelation.SIMPLE_SPACE_STINGY }, BasicNaturalRelation.TWO_LEVEL);
+      v.set(i, R);
+    } else if (R instanceof CompactNaturalRelation) {
+      R = ((CompactNaturalRelation) R).thaw();
+      v.set(i, R);
+    }
+    return R;
+  }
+
+  /**
+   * @return the mutable set at index i of v, which is created, or thawed if it was compacted, as needed
+   */
+  private static BitVectorIntSet findOrCreateSet(SparseVector<IntSet> v, int i) {
+    IntSet s = v.get(i);
+    if (s instanceof BitVectorIntSet) {
+      return (BitVectorIntSet) s;
+    }
+    BitVectorIntSet result = (s == null) ? new BitVectorIntSet() : new BitVectorIntSet(s);
+    v.set(i, result);
+    return result;
+  }
+
   /**
    * N.B: If we're using the ZERO_PATH_SHORT_CIRCUIT, then we may have <s_p, d1> -> <n, d2> implicitly represented since we also
    * have <s_p, 0> -> <n,d2>. However, getInverse() <b> will NOT </b> return these implicit d1 bits in the result. This translates
@@ -203,8 +212,8 @@ public class LocalPathEdges {
    */
   public IntSet getInverse(int n, int d2) {
     IBinaryNaturalRelation R = paths.get(d2);
-    BitVectorIntSet s = (BitVectorIntSet) identityPaths.get(d2);
-    BitVectorIntSet z = (BitVectorIntSet) zeroPaths.get(d2);
+    IntSet s = identityPaths.get(d2);
+    IntSet z = zeroPaths.get(d2);
     if (R == null) {
       if (s == null) {
         if (z == null) {
@@ -284,7 +293,7 @@ public class LocalPathEdges {
       throw new IllegalArgumentException("invalid n: " + n);
     }
     if (i == 0) {
-      BitVectorIntSet z = (BitVectorIntSet) zeroPaths.get(j);
+      IntSet z = zeroPaths.get(j);
       if (z != null && z.contains(n)) {
         return true;
       } else {
@@ -292,7 +301,7 @@ public class LocalPathEdges {
       }
     } else {
       if (i == j) {
-        BitVectorIntSet s = (BitVectorIntSet) identityPaths.get(i);
+        IntSet s = identityPaths.get(i);
         if (s != null && s.contains(n)) {
           return true;
         } else {
@@ -341,7 +350,7 @@ public class LocalPathEdges {
       }
     }
     if (identityPaths.size() > 0) {
-      BitVectorIntSet s = (BitVectorIntSet) identityPaths.get(d1);
+      IntSet s = identityPaths.get(d1);
       if (s != null && s.contains(n)) {
         result.add(d1);
       }
@@ -353,7 +362,7 @@ public class LocalPathEdges {
       Iterator contents = zeroPaths.iterator();
       for (IntIterator it = zeroPaths.iterateIndices(); it.hasNext();) {
         int d2 = it.next();
-        BitVectorIntSet s = (BitVectorIntSet) contents.next();
+        IntSet s = (IntSet) contents.next();
         if (s != null && s.contains(n)) {
           result.add(d2);
         }
@@ -402,7 +411,7 @@ public class LocalPathEdges {
       Iterator contents = identityPaths.iterator();
       for (IntIterator it = identityPaths.iterateIndices(); it.hasNext();) {
         int d1 = it.next();
-        BitVectorIntSet s = (BitVectorIntSet) contents.next();
+        IntSet s = (IntSet) contents.next();
         if (s != null && s.contains(n)) {
           result.add(d1);
         }
@@ -415,7 +424,7 @@ public class LocalPathEdges {
       Iterator contents = zeroPaths.iterator();
       for (IntIterator it = zeroPaths.iterateIndices(); it.hasNext();) {
         int d2 = it.next();
-        BitVectorIntSet s = (BitVectorIntSet) contents.next();
+        IntSet s = (IntSet) contents.next();
         if (s != null && s.contains(n)) {
           result.add(d2);
         }
@@ -450,4 +459,99 @@ public class LocalPathEdges {
     }
     return result;
   }
-}
\ No newline at end of file
+
+  /**
+   * @return the number of path edges recorded
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Move the path edges recorded so far into a representation that takes less space but is slower to query. Path edges may still
+   * be added afterwards; the part of the representation they go into is moved back into the faster form first.
+   */
+  public void compact() {
+    compactRelations(paths);
+    if (altPaths != null) {
+      compactRelations(altPaths);
+    }
+    compactSets(identityPaths);
+    compactSets(zeroPaths);
+  }
+
+  private static void compactRelations(SparseVector<IBinaryNaturalRelation> v) {
+    for (IntIterator it = v.iterateIndices(); it.hasNext();) {
+      int i = it.next();
+      IBinaryNaturalRelation R = v.get(i);
+      if (R instanceof BasicNaturalRelation) {
+        v.set(i, CompactNaturalRelation.make(R));
+      }
+    }
+  }
+
+  private static void compactSets(SparseVector<IntSet> v) {
+    for (IntIterator it = v.iterateIndices(); it.hasNext();) {
+      int i = it.next();
+      IntSet s = v.get(i);
+      // a sparse set takes 32 bits per element, a bit vector one bit per possible element
+      if (s instanceof BitVectorIntSet && 32L * s.size() < s.max()) {
+        v.set(i, new SparseIntSet(s));
+      }
+    }
+  }
+
+  /**
+   * @return an empty set of path edges that may be used by several threads at once. The sets it returns are copies.
+   */
+  static LocalPathEdges makeSynchronized(boolean fastMerge) {
+    return new LocalPathEdges(fastMerge) {
+      @Override
+      public synchronized void addPathEdge(int i, int n, int j) {
+        super.addPathEdge(i, n, j);
+      }
+
+      @Override
+      public synchronized boolean contains(int i, int n, int j) {
+        return super.contains(i, n, j);
+      }
+
+      @Override
+      public synchronized IntSet getInverse(int n, int d2) {
+        return copy(super.getInverse(n, d2));
+      }
+
+      @Override
+      public synchronized IntSet getReachable(int n, int d1) {
+        return copy(super.getReachable(n, d1));
+      }
+
+      @Override
+      public synchronized IntSet getReachable(int n) {
+        return copy(super.getReachable(n));
+      }
+
+      @Override
+      public synchronized IntSet getReachedNodeNumbers() {
+        return super.getReachedNodeNumbers();
+      }
+
+      @Override
+      public synchronized int size() {
+        return super.size();
+      }
+
+      @Override
+      public synchronized void compact() {
+        super.compact();
+      }
+    };
+  }
+
+  /**
+   * @return a copy of s, or null if s is null
+   */
+  static IntSet copy(IntSet s) {
+    return s == null ? null : MutableSparseIntSet.make(s);
+  }
+}
@@ -156,4 +156,30 @@ public class LocalSummaryEdges {
     return result;
   }
 
-}
\ No newline at end of file
+  /**
+   * @return an empty set of summary edges that may be used by several threads at once. The sets it returns are copies.
+   */
+  static LocalSummaryEdges makeSynchronized() {
+    return new LocalSummaryEdges() {
+      @Override
+      public synchronized void insertSummaryEdge(int s_p, int x, int d1, int d2) {
+        super.insertSummaryEdge(s_p, x, d1, d2);
+      }
+
+      @Override
+      public synchronized boolean contains(int s_p, int x, int d1, int d2) {
+        return super.contains(s_p, x, d1, d2);
+      }
+
+      @Override
+      public synchronized IntSet getSummaryEdges(int s_p, int x, int d1) {
+        return LocalPathEdges.copy(super.getSummaryEdges(s_p, x, d1));
+      }
+
+      @Override
+      public synchronized IntSet getInvertedSummaryEdgesForTarget(int s_p, int x, int d2) {
+        return super.getInvertedSummaryEdgesForTarget(s_p, x, d2);
+      }
+    };
+  }
+}
@@ -11,7 +11,9 @@
 package com.ibm.wala.dataflow.IFDS;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashSetFactory;
@@ -34,10 +36,29 @@ public class PartiallyBalancedTabulationSolver<T, P, F> extends TabulationSolver
     return new PartiallyBalancedTabulationSolver<T, P, F>(p, monitor);
   }
 
-  private final Collection<Pair<T,Integer>> unbalancedSeeds = HashSetFactory.make();
+  /**
+   * @param p a description of the dataflow problem to solve; its flow functions and domain must be safe to use from several threads
+   *          at once
+   * @param threads the number of threads that process path edges
+   */
+  public static <T, P, F> PartiallyBalancedTabulationSolver<T, P, F> createPartiallyBalancedTabulationSolver(
+      PartiallyBalancedTabulationProblem<T, P, F> p, IProgressMonitor monitor, int threads) {
+    return new PartiallyBalancedTabulationSolver<T, P, F>(p, monitor, threads);
+  }
+
+  private final Collection<Pair<T,Integer>> unbalancedSeeds;
 
   protected PartiallyBalancedTabulationSolver(PartiallyBalancedTabulationProblem<T, P, F> p, IProgressMonitor monitor) {
-    super(p, monitor);
+    this(p, monitor, 1);
+  }
+
+  protected PartiallyBalancedTabulationSolver(PartiallyBalancedTabulationProblem<T, P, F> p, IProgressMonitor monitor, int threads) {
+    super(p, monitor, threads);
+    if (threads == 1) {
+      unbalancedSeeds = HashSetFactory.make();
+    } else {
+      unbalancedSeeds = Collections.newSetFromMap(new ConcurrentHashMap<Pair<T, Integer>, Boolean>());
+    }
   }
 
   @Override
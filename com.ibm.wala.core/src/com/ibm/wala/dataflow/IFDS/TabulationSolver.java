@@ -10,16 +10,26 @@
  *******************************************************************************/
 package com.ibm.wala.dataflow.IFDS;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.ibm.wala.cfg.IBasicBlock;
 import com.ibm.wala.util.CancelException;
@@ -30,8 +40,8 @@ import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Heap;
 import com.ibm.wala.util.collections.Iterator2Collection;
-import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.collections.ToStringComparator;
+import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.heapTrace.HeapTracer;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
@@ -52,6 +62,12 @@ import com.ibm.wala.util.ref.ReferenceCleanser;
  * <li>it stores summary edges at each callee instead of at each call site.
  * </ul>
  * <p>
+ * A solver made with more than one thread processes path edges in parallel, on a work-stealing {@link ForkJoinPool}. Path edges
+ * are then not processed in the order given by the {@link TabulationDomain}, and the flow functions and domain of the problem must
+ * be safe to use from several threads at once. The result is the same as that of the sequential solver, unless the problem has a
+ * merge function whose result depends on the order in which facts arrive. The supergraph must be safe to read from several threads
+ * once all its nodes have been built.
+ * <p>
  *
  * @param <T> type of node in the supergraph
  * @param <P> type of a procedure (like a box in an RSM)
@@ -115,7 +131,7 @@ public class TabulationSolver<T, P, F> {
    * Logically, this represents a set of edges (s_p,d_i) -> (n, d_j). The data structure is chosen to attempt to save space over
    * representing each edge explicitly.
    */
-  final private Map<T, LocalPathEdges> pathEdges = HashMapFactory.make();
+  final private Map<T, LocalPathEdges> pathEdges;
 
   /**
    * A map from Object (entry node in supergraph) -> CallFlowEdges.
@@ -123,60 +139,182 @@ public class TabulationSolver<T, P, F> {
    * Logically, this represents a set of edges (c,d_i) -> (s_p, d_j). The data structure is chosen to attempt to save space over
    * representing each edge explicitly.
    */
-  final private Map<T, CallFlowEdges> callFlowEdges = HashMapFactory.make();
+  final private Map<T, CallFlowEdges> callFlowEdges;
 
   /**
    * A map from Object (procedure) -> LocalSummaryEdges.
    *
    */
-  final protected Map<P, LocalSummaryEdges> summaryEdges = HashMapFactory.make();
+  final protected Map<P, LocalSummaryEdges> summaryEdges;
 
   /**
-   * the set of all {@link PathEdge}s that were used as seeds during the tabulation, grouped by procedure.
+   * A map from each procedure that has seeds to its entries together with the entries of its seeds, which need not be entries of
+   * the procedure. The collections are concurrent sets, so that a seed added while propagating, perhaps by another thread, can add
+   * its entry while the set is being iterated.
    */
-  private final Map<P, Set<PathEdge<T>>> seeds = HashMapFactory.make();
+  private final Map<P, Collection<T>> seedEntries;
 
   /**
    * All seeds, stored redundantly for quick access.
    */
-  private final Set<PathEdge<T>> allSeeds = HashSetFactory.make();
+  private final Set<PathEdge<T>> allSeeds;
+
+  /**
+   * The entries whose path edges were added to most recently, least recent first, or null if path edges are not compacted. When an
+   * entry falls out of this map its path edges are {@link LocalPathEdges#compact() compacted}.
+   */
+  private Map<T, LocalPathEdges> hotPathEdges;
+
+  /**
+   * If true, flow jumps over the nodes that pass their facts on unchanged, instead of recording path edges at them
+   */
+  private boolean sparse = false;
+
+  /**
+   * A map from a node to whether flow may jump over it, when tabulating sparsely
+   */
+  private final Map<T, Boolean> skippable;
+
+  /**
+   * A map from a node that flow may jump over to the {@link Jump} from it, when tabulating sparsely
+   */
+  private final Map<T, Jump> jumps;
+
+  /**
+   * The nodes from which flow has jumped, when tabulating sparsely
+   */
+  private final Set<T> jumpedFrom;
 
   /**
    * The worklist
    */
   private ITabulationWorklist<T> worklist;
 
+  /**
+   * The number of threads that process path edges
+   */
+  private final int threads;
+
+  /**
+   * The path edges being processed in parallel, or null if no parallel tabulation is running
+   */
+  private volatile ParallelWorklist parallelWorklist;
+
   /**
    * A progress monitor. can be null.
    */
   protected final IProgressMonitor progressMonitor;
 
   /**
-   * the path edge currently being processed in the main loop of {@link #forwardTabulateSLRPs()}; <code>null</code> if
-   * {@link #forwardTabulateSLRPs()} is not currently running. Note that if we are applying a summary edge in
-   * {@link #processExit(PathEdge)}, curPathEdge is modified to be the path edge terminating at the call node in the caller, to
-   * match the behavior in {@link #processCall(PathEdge)}.
+   * The edges being processed by one thread
+   */
+  private final class CurrentEdges {
+    /**
+     * the path edge currently being processed in the main loop of {@link #forwardTabulateSLRPs()}; <code>null</code> if
+     * {@link #forwardTabulateSLRPs()} is not currently running. Note that if we are applying a summary edge in
+     * {@link #processExit(PathEdge)}, pathEdge is modified to be the path edge terminating at the call node in the caller, to
+     * match the behavior in {@link #processCall(PathEdge)}.
+     */
+    PathEdge<T> pathEdge;
+
+    /**
+     * the summary edge currently being applied in {@link #processCall(PathEdge)} or {@link #processExit(PathEdge)}, or
+     * <code>null</code> if summary edges are not currently being processed.
+     */
+    PathEdge<T> summaryEdge;
+  }
+
+  /**
+   * The nodes reached from a node that flow may jump over, by following only such nodes
+   */
+  private final class Jump {
+    /**
+     * the nodes jumped over, including the one the jump starts from
+     */
+    final Set<T> skipped = HashSetFactory.make();
+
+    /**
+     * the nodes at which the jump ends, which flow may not jump over
+     */
+    final Set<T> targets = HashSetFactory.make();
+
+    Jump(T start) {
+      ArrayList<T> todo = new ArrayList<T>();
+      skipped.add(start);
+      todo.add(start);
+      while (!todo.isEmpty()) {
+        T n = todo.remove(todo.size() - 1);
+        for (Iterator<? extends T> it = supergraph.getSuccNodes(n); it.hasNext();) {
+          T m = it.next();
+          if (!isSkippable(m)) {
+            targets.add(m);
+          } else if (skipped.add(m)) {
+            todo.add(m);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * the edges being processed, when tabulating with one thread
    */
-  private PathEdge<T> curPathEdge;
+  private final CurrentEdges currentEdges = new CurrentEdges();
 
   /**
-   * the summary edge currently being applied in {@link #processCall(PathEdge)} or {@link #processExit(PathEdge)}, or
-   * <code>null</code> if summary edges are not currently being processed.
+   * the edges being processed by each thread, when tabulating in parallel
    */
-  private PathEdge<T> curSummaryEdge;
+  private final ThreadLocal<CurrentEdges> threadCurrentEdges = new ThreadLocal<CurrentEdges>() {
+    @Override
+    protected CurrentEdges initialValue() {
+      return new CurrentEdges();
+    }
+  };
 
   /**
    * @param p a description of the dataflow problem to solve
    * @throws IllegalArgumentException if p is null
    */
   protected TabulationSolver(TabulationProblem<T, P, F> p, IProgressMonitor monitor) {
+    this(p, monitor, 1);
+  }
+
+  /**
+   * @param p a description of the dataflow problem to solve
+   * @param threads the number of threads that process path edges
+   * @throws IllegalArgumentException if p is null
+   */
+  protected TabulationSolver(TabulationProblem<T, P, F> p, IProgressMonitor monitor, int threads) {
     if (p == null) {
       throw new IllegalArgumentException("p is null");
     }
+    if (threads <= 0) {
+      throw new IllegalArgumentException("threads must be positive: " + threads);
+    }
     this.supergraph = p.getSupergraph();
     this.flowFunctionMap = p.getFunctionMap();
     this.problem = p;
     this.progressMonitor = monitor;
+    this.threads = threads;
+    if (threads == 1) {
+      this.pathEdges = HashMapFactory.make();
+      this.callFlowEdges = HashMapFactory.make();
+      this.summaryEdges = HashMapFactory.make();
+      this.allSeeds = HashSetFactory.make();
+      this.seedEntries = HashMapFactory.make();
+      this.skippable = HashMapFactory.make();
+      this.jumps = HashMapFactory.make();
+      this.jumpedFrom = HashSetFactory.make();
+    } else {
+      this.pathEdges = new ConcurrentHashMap<T, LocalPathEdges>();
+      this.callFlowEdges = new ConcurrentHashMap<T, CallFlowEdges>();
+      this.summaryEdges = new ConcurrentHashMap<P, LocalSummaryEdges>();
+      this.allSeeds = Collections.newSetFromMap(new ConcurrentHashMap<PathEdge<T>, Boolean>());
+      this.seedEntries = new ConcurrentHashMap<P, Collection<T>>();
+      this.skippable = new ConcurrentHashMap<T, Boolean>();
+      this.jumps = new ConcurrentHashMap<T, Jump>();
+      this.jumpedFrom = Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
+    }
   }
 
   /**
@@ -194,6 +332,135 @@ public class TabulationSolver<T, P, F> {
     return new TabulationSolver<T, P, F>(p, null);
   }
 
+  /**
+   * @param p a description of the dataflow problem to solve; its flow functions and domain must be safe to use from several threads
+   *          at once
+   * @param threads the number of threads that process path edges
+   * @throws IllegalArgumentException if p is null
+   */
+  public static <T, P, F> TabulationSolver<T, P, F> make(TabulationProblem<T, P, F> p, IProgressMonitor monitor, int threads) {
+    return new TabulationSolver<T, P, F>(p, monitor, threads);
+  }
+
+  /**
+   * @return the number of threads that process path edges
+   */
+  public int getNumberOfThreads() {
+    return threads;
+  }
+
+  /**
+   * Save space on large problems by compacting the path edges of procedure entries that have not been added to recently. The path
+   * edges of all entries are compacted when tabulation finishes. Call this before {@link #solve()}.
+   *
+   * @param max the number of entries whose path edges are kept in the faster, uncompacted form
+   */
+  public void setMaxHotPathEdges(final int max) {
+    if (max <= 0) {
+      throw new IllegalArgumentException("max must be positive: " + max);
+    }
+    hotPathEdges = new LinkedHashMap<T, LocalPathEdges>(max, 0.75f, true) {
+      private static final long serialVersionUID = -2958446206787745117L;
+
+      @Override
+      protected boolean removeEldestEntry(Entry<T, LocalPathEdges> eldest) {
+        if (size() > max) {
+          eldest.getValue().compact();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Tabulate sparsely: flow jumps over the nodes that pass their facts on unchanged, which are the nodes other than calls, returns,
+   * entries and exits whose normal flow functions to all their successors are {@link #isIdentity(IUnaryFlowFunction) identities},
+   * so no path edges are recorded or processed at them. The results at such a node are computed from those at its predecessors
+   * when they are asked for. This can be much faster for problems where few nodes change the facts that flow through them. Call
+   * this before {@link #solve()}.
+   *
+   * With a merge function, facts are only merged at the nodes that are not jumped over.
+   */
+  public void setSparse(boolean sparse) {
+    this.sparse = sparse;
+  }
+
+  /**
+   * @return true iff flow jumps over the nodes that pass their facts on unchanged
+   */
+  public boolean isSparse() {
+    return sparse;
+  }
+
+  /**
+   * Sparse tabulation jumps over nodes whose flow functions this returns true for. By default these are the
+   * {@link IdentityFlowFunction}s; subclasses may recognize other flow functions that map every fact to itself.
+   *
+   * @return true iff f maps every fact to itself
+   */
+  protected boolean isIdentity(IUnaryFlowFunction f) {
+    return f instanceof IdentityFlowFunction;
+  }
+
+  /**
+   * @return true iff flow may jump over n when tabulating sparsely
+   */
+  private boolean isSkippable(T n) {
+    Boolean result = skippable.get(n);
+    if (result == null) {
+      result = computeSkippable(n);
+      skippable.put(n, result);
+    }
+    return result;
+  }
+
+  private boolean computeSkippable(T n) {
+    if (supergraph.isCall(n) || supergraph.isReturn(n) || supergraph.isEntry(n) || supergraph.isExit(n)) {
+      return false;
+    }
+    P proc = supergraph.getProcOf(n);
+    for (Iterator<? extends T> it = supergraph.getPredNodes(n); it.hasNext();) {
+      T p = it.next();
+      if (supergraph.isCall(p) || !proc.equals(supergraph.getProcOf(p))) {
+        return false;
+      }
+    }
+    for (Iterator<? extends T> it = supergraph.getSuccNodes(n); it.hasNext();) {
+      T m = it.next();
+      if (!proc.equals(supergraph.getProcOf(m)) || !isIdentity(flowFunctionMap.getNormalFlowFunction(n, m))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Jump findOrCreateJump(T n) {
+    Jump result = jumps.get(n);
+    if (result == null) {
+      result = putIfAbsent(jumps, n, new Jump(n));
+    }
+    return result;
+  }
+
+  /**
+   * @return a mapping from each procedure to the number of path edges from its entries; useful for finding the procedures that
+   *         dominate the space a problem takes
+   */
+  public Map<P, Integer> getPathEdgeCounts() {
+    Map<P, Integer> result = HashMapFactory.make();
+    for (Entry<T, LocalPathEdges> e : pathEdges.entrySet()) {
+      P proc = supergraph.getProcOf(e.getKey());
+      Integer count = result.get(proc);
+      result.put(proc, (count == null ? 0 : count) + e.getValue().size());
+    }
+    return result;
+  }
+
+  private CurrentEdges current() {
+    return threads == 1 ? currentEdges : threadCurrentEdges.get();
+  }
+
   /**
    * Solve the dataflow problem.
    *
@@ -204,6 +471,7 @@ public class TabulationSolver<T, P, F> {
     try {
       initialize();
       forwardTabulateSLRPs();
+      compactPathEdges();
       Result r = new Result();
       return r;
     } catch (CancelException e) {
@@ -217,6 +485,21 @@ public class TabulationSolver<T, P, F> {
     }
   }
 
+  /**
+   * Compact the path edges of the entries that are still hot, if path edges are compacted at all
+   */
+  private void compactPathEdges() {
+    Map<T, LocalPathEdges> hot = hotPathEdges;
+    if (hot != null) {
+      synchronized (hot) {
+        for (LocalPathEdges lp : hot.values()) {
+          lp.compact();
+        }
+        hot.clear();
+      }
+    }
+  }
+
   /**
    * Start tabulation with the initial seeds.
    */
@@ -230,9 +513,20 @@ public class TabulationSolver<T, P, F> {
    * Restart tabulation from a particular path edge. Use with care.
    */
   public void addSeed(PathEdge<T> seed) {
-    Set<PathEdge<T>> s = MapUtil.findOrCreateSet(seeds, supergraph.getProcOf(seed.entry));
-    s.add(seed);
     allSeeds.add(seed);
+    P proc = supergraph.getProcOf(seed.entry);
+    Collection<T> entries = seedEntries.get(proc);
+    if (entries == null) {
+      synchronized (seedEntries) {
+        entries = seedEntries.get(proc);
+        if (entries == null) {
+          entries = Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
+          entries.addAll(Arrays.asList(supergraph.getEntriesForProcedure(proc)));
+          seedEntries.put(proc, entries);
+        }
+      }
+    }
+    entries.add(seed.entry);
     propagate(seed.entry, seed.d1, seed.target, seed.d2);
   }
 
@@ -242,10 +536,14 @@ public class TabulationSolver<T, P, F> {
    * @throws CancelException
    */
   private void forwardTabulateSLRPs() throws CancelException {
-    assert curPathEdge == null : "curPathEdge should not be non-null here";
+    assert current().pathEdge == null : "curPathEdge should not be non-null here";
     if (worklist == null) {
       worklist = makeWorklist();
     }
+    if (threads > 1) {
+      forwardTabulateInParallel();
+      return;
+    }
     while (worklist.size() > 0) {
       MonitorUtil.throwExceptionIfCanceled(progressMonitor);
       if (verbose) {
@@ -255,39 +553,74 @@ public class TabulationSolver<T, P, F> {
         tendToSoftCaches();
       }
 
-      final PathEdge<T> edge = popFromWorkList();
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("TABULATE " + edge);
-      }
-      curPathEdge = edge;
-      int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
-      if (j == -1 && DEBUG_LEVEL > 0) {
-        System.err.println("merge -1: DROPPING");
+      tabulate(popFromWorkList());
+    }
+    currentEdges.pathEdge = null;
+  }
+
+  /**
+   * Called before tabulating with several threads, which then read the supergraph concurrently. Supergraphs commonly build their
+   * nodes and edges lazily, which is not safe with several threads, so this must build whatever the supergraph would otherwise
+   * build on demand. The default implementation relies on {@link ISupergraph#getNumberOfNodes()}, which makes the
+   * {@link ICFGSupergraph} and a {@link BackwardsSupergraph} over one construct their full interprocedural CFG. Subclasses whose
+   * supergraph builds itself lazily in some other way should override this.
+   */
+  protected void buildSupergraphForParallelTabulation() {
+    supergraph.getNumberOfNodes();
+  }
+
+  /**
+   * Process the path edges in the worklist, and those they give rise to, with several threads
+   */
+  private void forwardTabulateInParallel() throws CancelException {
+    buildSupergraphForParallelTabulation();
+    ParallelWorklist work = new ParallelWorklist();
+    parallelWorklist = work;
+    try {
+      while (worklist.size() > 0) {
+        work.insert(worklist.take());
       }
-      if (j != -1) {
-        if (j != edge.d2) {
-          // this means that we don't want to push the edge. instead,
-          // we'll push the merged fact. a little tricky, but i think should
-          // work.
-          if (DEBUG_LEVEL > 0) {
-            System.err.println("propagating merged fact " + j);
-          }
-          propagate(edge.entry, edge.d1, edge.target, j);
+      work.release();
+      work.await();
+    } finally {
+      parallelWorklist = null;
+    }
+  }
+
+  /**
+   * Process one path edge taken from the worklist
+   */
+  private void tabulate(final PathEdge<T> edge) {
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("TABULATE " + edge);
+    }
+    current().pathEdge = edge;
+    int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
+    if (j == -1 && DEBUG_LEVEL > 0) {
+      System.err.println("merge -1: DROPPING");
+    }
+    if (j != -1) {
+      if (j != edge.d2) {
+        // this means that we don't want to push the edge. instead,
+        // we'll push the merged fact. a little tricky, but i think should
+        // work.
+        if (DEBUG_LEVEL > 0) {
+          System.err.println("propagating merged fact " + j);
+        }
+        propagate(edge.entry, edge.d1, edge.target, j);
+      } else {
+        if (supergraph.isCall(edge.target)) {
+          // [13]
+          processCall(edge);
+        } else if (supergraph.isExit(edge.target)) {
+          // [21]
+          processExit(edge);
         } else {
-          if (supergraph.isCall(edge.target)) {
-            // [13]
-            processCall(edge);
-          } else if (supergraph.isExit(edge.target)) {
-            // [21]
-            processExit(edge);
-          } else {
-            // [33]
-            processNormal(edge);
-          }
+          // [33]
+          processNormal(edge);
         }
       }
     }
-    curPathEdge = null;
   }
 
   /**
@@ -341,11 +674,22 @@ public class TabulationSolver<T, P, F> {
         System.err.println(" reached: " + D3);
       }
       if (D3 != null) {
+        final Collection<T> targets;
+        if (sparse && isSkippable(m)) {
+          targets = findOrCreateJump(m).targets;
+          if (!D3.isEmpty()) {
+            jumpedFrom.add(m);
+          }
+        } else {
+          targets = Collections.singleton(m);
+        }
         D3.foreach(new IntSetAction() {
           @Override
           public void act(int d3) {
             newNormalExplodedEdge(edge, m, d3);
-            propagate(edge.entry, edge.d1, m, d3);
+            for (T t : targets) {
+              propagate(edge.entry, edge.d1, t, d3);
+            }
           }
         });
       }
@@ -369,8 +713,9 @@ public class TabulationSolver<T, P, F> {
     if (!summaries.contains(s_p_n, x, edge.d1, edge.d2)) {
       summaries.insertSummaryEdge(s_p_n, x, edge.d1, edge.d2);
     }
-    assert curSummaryEdge == null : "curSummaryEdge should be null here";
-    curSummaryEdge = edge;
+    final CurrentEdges cur = current();
+    assert cur.summaryEdge == null : "curSummaryEdge should be null here";
+    cur.summaryEdge = edge;
 
     final CallFlowEdges callFlow = findOrCreateCallFlowEdges(edge.entry);
 
@@ -386,7 +731,7 @@ public class TabulationSolver<T, P, F> {
         propagateToReturnSites(edge, supergraph.getNode(globalC), D4);
       }
     }
-    curSummaryEdge = null;
+    cur.summaryEdge = null;
   }
 
   /**
@@ -400,8 +745,7 @@ public class TabulationSolver<T, P, F> {
    * @param D4 set of d1 s.t. <c, d1> -> <edge.s_p, edge.d2> was recorded as call flow
    */
   private void propagateToReturnSites(final PathEdge<T> edge, final T c, final IntSet D4) {
-    P proc = supergraph.getProcOf(c);
-    final T[] entries = supergraph.getEntriesForProcedure(proc);
+    final Collection<T> entries = getEntries(supergraph.getProcOf(c));
 
     // we iterate over each potential return site;
     // we might have multiple return sites due to exceptions
@@ -456,8 +800,8 @@ public class TabulationSolver<T, P, F> {
    * @param retSite the return site being propagated to
    * @param retf the flow function
    */
-  private void propagateToReturnSiteWithBinaryFlowFunction(final PathEdge<T> edge, final T c, final IntSet D4, final T[] entries,
-      final T retSite, final IFlowFunction retf) {
+  private void propagateToReturnSiteWithBinaryFlowFunction(final PathEdge<T> edge, final T c, final IntSet D4,
+      final Collection<T> entries, final T retSite, final IFlowFunction retf) {
     D4.foreach(new IntSetAction() {
       @Override
       public void act(final int d4) {
@@ -479,7 +823,7 @@ public class TabulationSolver<T, P, F> {
    * @param D5 facts to propagate to return site
    * @param edge the path edge ending at the exit site of the callee
    */
-  private void propToReturnSite(final T c, final T[] entries, final T retSite, final int d4, final IntSet D5, final PathEdge<T> edge) {
+  private void propToReturnSite(final T c, final Collection<T> entries, final T retSite, final int d4, final IntSet D5, final PathEdge<T> edge) {
     if (D5 != null) {
       D5.foreach(new IntSetAction() {
         @Override
@@ -492,8 +836,7 @@ public class TabulationSolver<T, P, F> {
           // with respect to one s_profOf(c), we have to propagate
           // for each
           // potential entry node s_p /in s_procof(c)
-          for (int i = 0; i < entries.length; i++) {
-            final T s_p = entries[i];
+          for (final T s_p : entries) {
             if (DEBUG_LEVEL > 1) {
               System.err.println(" do entry " + s_p);
             }
@@ -506,8 +849,9 @@ public class TabulationSolver<T, P, F> {
                 @Override
                 public void act(int d3) {
                   // set curPathEdge to be consistent with its setting in processCall() when applying a summary edge
-                  curPathEdge = PathEdge.createPathEdge(s_p, d3, c, d4);
-                  newSummaryEdge(curPathEdge, edge, retSite, d5);
+                  CurrentEdges cur = current();
+                  cur.pathEdge = PathEdge.createPathEdge(s_p, d3, c, d4);
+                  newSummaryEdge(cur.pathEdge, edge, retSite, d5);
                   propagate(s_p, d3, retSite, d5);
                 }
               });
@@ -646,9 +990,12 @@ public class TabulationSolver<T, P, F> {
       System.err.println(" reached: " + reached);
     }
     if (reached != null) {
-      final LocalSummaryEdges summaries = summaryEdges.get(supergraph.getProcOf(calleeEntry));
+      // the summaries are made here rather than looked up, so that with several threads, either this thread sees a summary edge
+      // inserted by processExit, or processExit sees the call flow edge recorded below
+      final LocalSummaryEdges summaries = findOrCreateLocalSummaryEdges(supergraph.getProcOf(calleeEntry));
       final CallFlowEdges callFlow = findOrCreateCallFlowEdges(calleeEntry);
       final int s_p_num = supergraph.getLocalBlockNumber(calleeEntry);
+      final CurrentEdges cur = current();
 
       reached.foreach(new IntSetAction() {
         @Override
@@ -684,15 +1031,15 @@ public class TabulationSolver<T, P, F> {
                     reachedBySummary.foreach(new IntSetAction() {
                       @Override
                       public void act(final int d2) {
-                        assert curSummaryEdge == null : "curSummaryEdge should be null here";
-                        curSummaryEdge = PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
+                        assert cur.summaryEdge == null : "curSummaryEdge should be null here";
+                        cur.summaryEdge = PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
                         if (retf instanceof IBinaryReturnFlowFunction) {
                           final IntSet D5 = computeBinaryFlow(edge.d2, d2, (IBinaryReturnFlowFunction) retf);
                           if (D5 != null) {
                             D5.foreach(new IntSetAction() {
                               @Override
                               public void act(int d5) {
-                                newSummaryEdge(edge, curSummaryEdge, returnSite, d5);
+                                newSummaryEdge(edge, cur.summaryEdge, returnSite, d5);
                                 propagate(edge.entry, edge.d1, returnSite, d5);
                               }
                             });
@@ -703,13 +1050,13 @@ public class TabulationSolver<T, P, F> {
                             D5.foreach(new IntSetAction() {
                               @Override
                               public void act(int d5) {
-                                newSummaryEdge(edge, curSummaryEdge, returnSite, d5);
+                                newSummaryEdge(edge, cur.summaryEdge, returnSite, d5);
                                 propagate(edge.entry, edge.d1, returnSite, d5);
                               }
                             });
                           }
                         }
-                        curSummaryEdge = null;
+                        cur.summaryEdge = null;
                       }
                     });
                   }
@@ -803,15 +1150,25 @@ public class TabulationSolver<T, P, F> {
 
     assert j >= 0;
 
-    if (!pLocal.contains(i, number, j)) {
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("propagate " + s_p + "  " + i + " " + number + " " + j);
+    // with several threads, only one of them may add a given path edge to the worklist
+    synchronized (pLocal) {
+      if (pLocal.contains(i, number, j)) {
+        return false;
       }
       pLocal.addPathEdge(i, number, j);
-      addToWorkList(s_p, i, n, j);
-      return true;
     }
-    return false;
+    Map<T, LocalPathEdges> hot = hotPathEdges;
+    if (hot != null) {
+      // not while holding the lock on pLocal: this may compact the path edges of another entry
+      synchronized (hot) {
+        hot.put(s_p, pLocal);
+      }
+    }
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("propagate " + s_p + "  " + i + " " + number + " " + j);
+    }
+    addToWorkList(s_p, i, n, j);
+    return true;
   }
 
   public LocalPathEdges getLocalPathEdges(T s_p) {
@@ -849,6 +1206,11 @@ public class TabulationSolver<T, P, F> {
   }
 
   protected void addToWorkList(T s_p, int i, T n, int j) {
+    ParallelWorklist work = parallelWorklist;
+    if (work != null) {
+      work.insert(PathEdge.createPathEdge(s_p, i, n, j));
+      return;
+    }
     if (worklist == null) {
       worklist = makeWorklist();
     }
@@ -861,21 +1223,20 @@ public class TabulationSolver<T, P, F> {
   protected LocalPathEdges findOrCreateLocalPathEdges(T s_p) {
     LocalPathEdges result = pathEdges.get(s_p);
     if (result == null) {
-      result = makeLocalPathEdges();
-      pathEdges.put(s_p, result);
+      result = putIfAbsent(pathEdges, s_p, makeLocalPathEdges());
     }
     return result;
   }
 
   private LocalPathEdges makeLocalPathEdges() {
-    return problem.getMergeFunction() == null ? new LocalPathEdges(false) : new LocalPathEdges(true);
+    boolean fastMerge = problem.getMergeFunction() != null;
+    return threads == 1 ? new LocalPathEdges(fastMerge) : LocalPathEdges.makeSynchronized(fastMerge);
   }
 
   protected LocalSummaryEdges findOrCreateLocalSummaryEdges(P proc) {
     LocalSummaryEdges result = summaryEdges.get(proc);
     if (result == null) {
-      result = new LocalSummaryEdges();
-      summaryEdges.put(proc, result);
+      result = putIfAbsent(summaryEdges, proc, threads == 1 ? new LocalSummaryEdges() : LocalSummaryEdges.makeSynchronized());
     }
     return result;
   }
@@ -883,32 +1244,80 @@ public class TabulationSolver<T, P, F> {
   protected CallFlowEdges findOrCreateCallFlowEdges(T s_p) {
     CallFlowEdges result = callFlowEdges.get(s_p);
     if (result == null) {
-      result = new CallFlowEdges();
-      callFlowEdges.put(s_p, result);
+      result = putIfAbsent(callFlowEdges, s_p, threads == 1 ? new CallFlowEdges() : CallFlowEdges.makeSynchronized());
     }
     return result;
   }
 
+  /**
+   * @return the value for key in map, after putting value there if there was none
+   */
+  private static <K, V> V putIfAbsent(Map<K, V> map, K key, V value) {
+    if (map instanceof ConcurrentMap) {
+      V old = ((ConcurrentMap<K, V>) map).putIfAbsent(key, value);
+      return old == null ? value : old;
+    } else {
+      map.put(key, value);
+      return value;
+    }
+  }
+
   /**
    * get the bitvector of facts that hold at the entry to a given node
    *
    * @return IntSet representing the bitvector
    */
   public IntSet getResult(T node) {
+    MutableIntSet result = getRecordedResult(node);
+    if (sparse && isSkippable(node)) {
+      // the facts at node are those that flow into the nodes jumped over on the way to it
+      Set<T> skipped = HashSetFactory.make();
+      ArrayList<T> todo = new ArrayList<T>();
+      skipped.add(node);
+      todo.add(node);
+      while (!todo.isEmpty()) {
+        T n = todo.remove(todo.size() - 1);
+        if (n != node) {
+          result.addAll(getRecordedResult(n));
+        }
+        for (Iterator<? extends T> it = supergraph.getPredNodes(n); it.hasNext();) {
+          T p = it.next();
+          if (isSkippable(p)) {
+            if (skipped.add(p)) {
+              todo.add(p);
+            }
+          } else if (!supergraph.isExit(p)) {
+            IUnaryFlowFunction f = flowFunctionMap.getNormalFlowFunction(p, n);
+            for (IntIterator facts = getRecordedResult(p).intIterator(); facts.hasNext();) {
+              IntSet D = computeFlow(facts.next(), f);
+              if (D != null) {
+                result.addAll(D);
+              }
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the entries of proc, and the entries of the seeds in proc, which need not be entries of proc
+   */
+  private Collection<T> getEntries(P proc) {
+    Collection<T> result = seedEntries.get(proc);
+    return result != null ? result : Arrays.asList(supergraph.getEntriesForProcedure(proc));
+  }
+
+  /**
+   * @return the facts recorded by path edges to node
+   */
+  private MutableIntSet getRecordedResult(T node) {
     P proc = supergraph.getProcOf(node);
     int n = supergraph.getLocalBlockNumber(node);
-    T[] entries = supergraph.getEntriesForProcedure(proc);
     MutableIntSet result = MutableSparseIntSet.makeEmpty();
 
-    Set<T> allEntries = HashSetFactory.make(Arrays.asList(entries));
-    Set<PathEdge<T>> pSeeds = seeds.get(proc);
-    if (pSeeds != null) {
-    	for (PathEdge<T> seed : pSeeds) {
-    		allEntries.add(seed.entry);
-    	}
-    }
-
-    for (T entry : allEntries){
+    for (T entry : getEntries(proc)){
     	LocalPathEdges lp = pathEdges.get(entry);
     	if (lp != null) {
     		result.addAll(lp.getReachable(n));
@@ -992,6 +1401,9 @@ public class TabulationSolver<T, P, F> {
           result.add(supergraph.getLocalBlock(proc, ii.next()));
         }
       }
+      for (T n : jumpedFrom) {
+        result.addAll(findOrCreateJump(n).skipped);
+      }
 
       return result;
     }
@@ -1039,6 +1451,93 @@ public class TabulationSolver<T, P, F> {
 
   }
 
+  /**
+   * The path edges waiting to be processed by a parallel tabulation. Each path edge is a task on a {@link ForkJoinPool}; a path
+   * edge found while processing another goes on the deque of the thread that found it, from which idle threads steal.
+   */
+  private final class ParallelWorklist {
+    private final ForkJoinPool pool = new ForkJoinPool(threads);
+
+    /**
+     * the number of path edges inserted but not yet processed, plus one until the initial path edges have all been inserted
+     */
+    private final AtomicLong pending = new AtomicLong(1);
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    /**
+     * the first exception thrown while processing a path edge; the remaining path edges are then dropped
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    @SuppressWarnings("serial")
+    void insert(final PathEdge<T> edge) {
+      pending.incrementAndGet();
+      RecursiveAction task = new RecursiveAction() {
+        @Override
+        protected void compute() {
+          try {
+            if (failure.get() == null) {
+              MonitorUtil.throwExceptionIfCanceled(progressMonitor);
+              tabulate(edge);
+            }
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            current().pathEdge = null;
+            release();
+          }
+        }
+      };
+      Thread t = Thread.currentThread();
+      if (t instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) t).getPool() == pool) {
+        task.fork();
+      } else {
+        pool.execute(task);
+      }
+    }
+
+    void release() {
+      if (pending.decrementAndGet() == 0) {
+        finished.countDown();
+      }
+    }
+
+    /**
+     * wait until all path edges have been processed
+     */
+    void await() throws CancelException {
+      boolean interrupted = false;
+      try {
+        while (true) {
+          try {
+            finished.await();
+            break;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      } finally {
+        pool.shutdown();
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      Throwable e = failure.get();
+      if (e == null) {
+        return;
+      } else if (e instanceof CancelException) {
+        throw (CancelException) e;
+      } else if (e instanceof RuntimeException) {
+        throw (RuntimeException) e;
+      } else if (e instanceof Error) {
+        throw (Error) e;
+      } else {
+        Assertions.UNREACHABLE(e);
+      }
+    }
+  }
+
   /**
    * @return set of d1 s.t. (n1,d1) -> (n2,d2) is recorded as a summary edge, or null if none found
    * @throws UnsupportedOperationException unconditionally
@@ -1067,11 +1566,11 @@ public class TabulationSolver<T, P, F> {
   }
 
   protected PathEdge<T> getCurPathEdge() {
-    return curPathEdge;
+    return current().pathEdge;
   }
 
   protected PathEdge<T> getCurSummaryEdge() {
-    return curSummaryEdge;
+    return current().summaryEdge;
   }
 
   /**
@@ -41,10 +41,14 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.ibm.wala.analysis.reflection.InstanceKeyWithNode;
 import com.ibm.wala.classLoader.CallSiteReference;
@@ -163,6 +167,25 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
 
   private RefinementPolicyFactory refinementPolicyFactory;
 
+  /**
+   * points-to sets computed by earlier queries, or <code>null</code> if they are not kept. maps a pointer key in the start state of
+   * the state machine to the refinement pass in which its points-to set was computed, and the points-to set. shared with the
+   * analyses answering a batch of queries in parallel
+   *
+   * @see #setMaxCachedPointsToSets(int)
+   */
+  private PointsToSetCache p2SetCache;
+
+  /**
+   * the refinement pass the current query is in
+   */
+  private int curPassNum;
+
+  /**
+   * the number of nodes traversed by the current query, over all its passes
+   */
+  private int queryNodesTraversed;
+
   public RefinementPolicy getRefinementPolicy() {
     return refinementPolicy;
   }
@@ -176,6 +199,38 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     sanityCheckCG();
   }
 
+  /**
+   * make an analysis that answers queries independently of <code>other</code>, sharing its flow graph, factories and cached
+   * points-to sets
+   */
+  private DemandRefinementPointsTo(DemandRefinementPointsTo other) {
+    super(other.cg, other.heapModel, other.mam, other.cha, other.options);
+    this.stateMachineFactory = other.stateMachineFactory;
+    this.g = other.g;
+    this.refinementPolicyFactory = other.refinementPolicyFactory;
+    this.p2SetCache = other.p2SetCache;
+  }
+
+  /**
+   * Keep the points-to sets computed by queries, so later queries (and the other queries of a batch) reuse them rather than
+   * traversing the flow graph again. Only the points-to sets of pointer keys in the start state of the state machine, computed in a
+   * refinement pass that completed within its budget, are kept; a query in refinement pass <em>n</em> reuses a set computed in pass
+   * <em>n</em> or later. Under a refinement policy that adapts to what earlier passes of a query encountered, a reused set may be
+   * less precise than the one the query would compute, though it is still sound.
+   *
+   * @param max the maximum number of points-to sets to keep, roughly the least recently used being dropped first; 0 to keep none
+   */
+  public void setMaxCachedPointsToSets(int max) {
+    if (max < 0) {
+      throw new IllegalArgumentException("max < 0: " + max);
+    }
+    if (max == 0) {
+      p2SetCache = null;
+      return;
+    }
+    p2SetCache = new PointsToSetCache(max, Runtime.getRuntime().availableProcessors());
+  }
+
   private void sanityCheckCG() {
     if (PARANOID) {
       for (CGNode callee : cg) {
@@ -239,6 +294,14 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     refinementPolicy = refinementPolicyFactory.make();
     // re-init the state machine
     stateMachine = stateMachineFactory.make();
+    queryNodesTraversed = 0;
+  }
+
+  /**
+   * @return the number of nodes traversed by the last query, over all its refinement passes
+   */
+  public int getLastQueryNodesTraversed() {
+    return queryNodesTraversed;
   }
 
   /**
@@ -322,6 +385,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     for (; passNum < numPasses; passNum++) {
       setNumNodesTraversed(0);
       setTraversalBudget(refinementPolicy.getBudgetForPass(passNum));
+      curPassNum = passNum;
       Collection<InstanceKeyAndState> curP2Set = null;
       PointsToComputer computer = null;
       boolean completedPassInBudget = false;
@@ -346,6 +410,10 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
         }
       } catch (BudgetExceededException e) {
 
+      }
+      queryNodesTraversed += getNumNodesTraversed();
+      if (completedPassInBudget) {
+        computer.cacheComputedP2Sets();
       }
       if (curP2Set != null) {
         if (lastP2Set == null) {
@@ -428,6 +496,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     for (; passNum < numPasses; passNum++) {
       setNumNodesTraversed(0);
       setTraversalBudget(refinementPolicy.getBudgetForPass(passNum));
+      curPassNum = passNum;
       boolean completedPassInBudget = false;
       boolean passed = false;
       long initialMemory = 0;
@@ -469,6 +538,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
       } catch (BudgetExceededException e) {
 
       }
+      queryNodesTraversed += getNumNodesTraversed();
       if (completedPassInBudget) {
         if (passed) {
           succeeded = true;
@@ -528,6 +598,140 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     return getPointsToWithStates(pk, Predicate.<InstanceKey> falsePred()).snd;
   }
 
+  /**
+   * The answer to one query of a batch
+   *
+   * @see DemandRefinementPointsTo#getPointsTo(Collection, Predicate, int)
+   */
+  public static final class QueryResult {
+
+    private final PointsToResult result;
+
+    private final Collection<InstanceKey> pointsTo;
+
+    private final int nodesTraversed;
+
+    private QueryResult(PointsToResult result, Collection<InstanceKey> pointsTo, int nodesTraversed) {
+      this.result = result;
+      this.pointsTo = pointsTo;
+      this.nodesTraversed = nodesTraversed;
+    }
+
+    /**
+     * @return whether a points-to set satisfying the predicate was computed
+     */
+    public PointsToResult getResult() {
+      return result;
+    }
+
+    /**
+     * @return the last computed points-to set, as returned by {@link DemandRefinementPointsTo#getPointsTo(PointerKey, Predicate)}
+     */
+    public Collection<InstanceKey> getPointsTo() {
+      return pointsTo;
+    }
+
+    /**
+     * @return the number of nodes the query traversed, over all its refinement passes
+     */
+    public int getNodesTraversed() {
+      return nodesTraversed;
+    }
+
+    @Override
+    public String toString() {
+      return result + " " + pointsTo + " (" + nodesTraversed + " nodes)";
+    }
+  }
+
+  /**
+   * compute points-to sets for many pointer keys, answering the queries on several threads. Each query is answered as by
+   * {@link #getPointsTo(PointerKey, Predicate)}, with its own refinement policy, state machine and budget. The queries share the flow
+   * graph, which is built for the whole call graph first, and the points-to sets kept if {@link #setMaxCachedPointsToSets(int)} was
+   * called.
+   *
+   * @param pks the pointer keys
+   * @param ikeyPred the desired predicate that each instance key in each points-to set should ideally satisfy
+   * @param threads the number of threads to answer the queries on
+   * @return a mapping from each pointer key in pks to the answer to its query
+   * @throws IllegalArgumentException if some pointer key in pks is not a {@link LocalPointerKey}; to eventually be fixed
+   */
+  public Map<PointerKey, QueryResult> getPointsTo(Collection<? extends PointerKey> pks, final Predicate<InstanceKey> ikeyPred,
+      int threads) throws IllegalArgumentException {
+    if (pks == null) {
+      throw new IllegalArgumentException("pks == null");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads < 1: " + threads);
+    }
+    for (PointerKey pk : pks) {
+      if (!(pk instanceof LocalPointerKey)) {
+        throw new IllegalArgumentException("only locals for now");
+      }
+    }
+    final PointerKey[] queries = pks.toArray(new PointerKey[pks.size()]);
+    final Map<PointerKey, QueryResult> result = new ConcurrentHashMap<PointerKey, QueryResult>();
+    if (threads == 1 || queries.length <= 1) {
+      for (PointerKey pk : queries) {
+        result.put(pk, answer(pk, ikeyPred));
+      }
+      return result;
+    }
+    // the flow graph is built lazily, which is not safe with several threads; build all of it first, so the queries only read it
+    for (CGNode node : cg) {
+      if (!hasNullIR(node)) {
+        g.addSubgraphForNode(node);
+      }
+    }
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    Thread[] workers = new Thread[Math.min(threads, queries.length)];
+    for (int i = 0; i < workers.length; i++) {
+      final DemandRefinementPointsTo worker = new DemandRefinementPointsTo(this);
+      workers[i] = new Thread("demand points-to " + i) {
+        @Override
+        public void run() {
+          try {
+            for (int q = next.getAndIncrement(); q < queries.length && failure.get() == null; q = next.getAndIncrement()) {
+              result.put(queries[q], worker.answer(queries[q], ikeyPred));
+            }
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          }
+        }
+      };
+      workers[i].start();
+    }
+    boolean interrupted = false;
+    for (Thread worker : workers) {
+      while (true) {
+        try {
+          worker.join();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    Throwable e = failure.get();
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    } else if (e != null) {
+      Assertions.UNREACHABLE(e);
+    }
+    return result;
+  }
+
+  private QueryResult answer(PointerKey pk, Predicate<InstanceKey> ikeyPred) {
+    Pair<PointsToResult, Collection<InstanceKey>> p = getPointsTo(pk, ikeyPred);
+    return new QueryResult(p.fst, p.snd, queryNodesTraversed);
+  }
+
   /**
    * get all the pointer keys that some instance key can flow to
    * 
@@ -571,6 +775,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     for (; passNum < numPasses; passNum++) {
       setNumNodesTraversed(0);
       setTraversalBudget(refinementPolicy.getBudgetForPass(passNum));
+      curPassNum = passNum;
       Collection<PointerKeyAndState> curFlowsToSet = null;
       FlowsToComputer computer = null;
       try {
@@ -594,6 +799,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
       } catch (BudgetExceededException e) {
 
       }
+      queryNodesTraversed += getNumNodesTraversed();
       if (curFlowsToSet != null) {
         if (lastFlowsToSet == null) {
           lastFlowsToSet = curFlowsToSet;
@@ -649,6 +855,76 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     abstract void handle(PointerKeyAndState src, PointerKey dst, IFlowLabel label);
   }
 
+  /**
+   * The points-to sets kept by {@link #setMaxCachedPointsToSets(int)}, shared by the analyses answering a batch of queries. The
+   * sets are spread over several access-ordered maps, each with its own lock and an equal share of the capacity, chosen by the
+   * pointer key, so queries answered in parallel rarely wait for each other. Each map drops its own least recently used set when
+   * it is full, which only approximates dropping the least recently used set overall.
+   */
+  private static final class PointsToSetCache {
+
+    private static final class Stripe extends LinkedHashMap<PointerKeyAndState, Pair<Integer, Collection<InstanceKeyAndState>>> {
+      private static final long serialVersionUID = 1L;
+
+      private final int capacity;
+
+      Stripe(int capacity) {
+        super(16, 0.75f, true);
+        this.capacity = capacity;
+      }
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<PointerKeyAndState, Pair<Integer, Collection<InstanceKeyAndState>>> eldest) {
+        return size() > capacity;
+      }
+    }
+
+    private final Stripe[] stripes;
+
+    PointsToSetCache(int max, int concurrencyLevel) {
+      int n = 1;
+      while (n < 4 * concurrencyLevel && 2 * n <= max) {
+        n <<= 1;
+      }
+      stripes = new Stripe[n];
+      for (int i = 0; i < n; i++) {
+        stripes[i] = new Stripe(max / n + (i < max % n ? 1 : 0));
+      }
+    }
+
+    private Stripe stripe(PointerKeyAndState pkAndState) {
+      int h = pkAndState.hashCode();
+      h ^= (h >>> 16);
+      return stripes[h & (stripes.length - 1)];
+    }
+
+    /**
+     * @return the points-to set kept for pkAndState if it was computed in refinement pass <code>passNum</code> or later;
+     *         <code>null</code> otherwise
+     */
+    Collection<InstanceKeyAndState> get(PointerKeyAndState pkAndState, int passNum) {
+      Stripe stripe = stripe(pkAndState);
+      synchronized (stripe) {
+        Pair<Integer, Collection<InstanceKeyAndState>> cached = stripe.get(pkAndState);
+        return cached != null && cached.fst >= passNum ? cached.snd : null;
+      }
+    }
+
+    /**
+     * keep the points-to set of pkAndState computed in refinement pass <code>passNum</code>, unless one computed in a later pass is
+     * already kept
+     */
+    void put(PointerKeyAndState pkAndState, int passNum, Collection<InstanceKeyAndState> p2Set) {
+      Stripe stripe = stripe(pkAndState);
+      synchronized (stripe) {
+        Pair<Integer, Collection<InstanceKeyAndState>> cached = stripe.get(pkAndState);
+        if (cached == null || cached.fst < passNum) {
+          stripe.put(pkAndState, Pair.make(passNum, p2Set));
+        }
+      }
+    }
+  }
+
   /**
    * Representation of a statement storing a value into a field.
    * 
@@ -876,6 +1152,36 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
       // }));
     }
 
+    /**
+     * keep the points-to sets of the pointer keys queried in the start state, for later queries. should only be called once
+     * {@link #compute()} has completed, so the sets are complete.
+     */
+    void cacheComputedP2Sets() {
+      if (p2SetCache == null) {
+        return;
+      }
+      State startState = stateMachine.getStartState();
+      for (PointerKey pk : pointsToQueried.keySet()) {
+        if (pointsToQueried.get(pk).contains(startState)) {
+          PointerKeyAndState pkAndState = new PointerKeyAndState(pk, startState);
+          if (p2SetCache.get(pkAndState, curPassNum) == null) {
+            p2SetCache.put(pkAndState, curPassNum, getComputedP2Set(pkAndState));
+          }
+        }
+      }
+    }
+
+    /**
+     * @return the points-to set of pkAndState kept by an earlier query, if it can be used in the current pass; <code>null</code>
+     *         otherwise
+     */
+    private Collection<InstanceKeyAndState> getCachedP2Set(PointerKeyAndState pkAndState) {
+      if (p2SetCache == null || !pkAndState.getState().equals(stateMachine.getStartState())) {
+        return null;
+      }
+      return p2SetCache.get(pkAndState, curPassNum);
+    }
+
     protected boolean addAllToP2Set(Map<PointerKeyAndState, MutableIntSet> p2setMap, PointerKeyAndState pkAndState, IntSet vals,
         IFlowLabel label) {
       final PointerKey pk = pkAndState.getPointerKey();
@@ -1121,7 +1427,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
       OrdinalSet<InstanceKeyAndState> p2set = makeOrdinalSet(find(pkToP2Set, receiverAndState));
       for (InstanceKeyAndState ikAndState : p2set) {
         InstanceKey ik = ikAndState.getInstanceKey();
-        IMethod targetMethod = options.getMethodTargetSelector().getCalleeTarget(caller, call, ik.getConcreteType());
+        IMethod targetMethod = getCalleeTarget(caller, call, ik.getConcreteType());
         if (targetMethod == null) {
           // NOTE: target method can be null because we don't
           // always have type filters
@@ -1231,6 +1537,16 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
         if (curPk instanceof LocalPointerKey) {
           assert g.hasSubgraphForNode(((LocalPointerKey) curPk).getNode());
         }
+        Collection<InstanceKeyAndState> cachedP2Set = getCachedP2Set(curPkAndState);
+        if (cachedP2Set != null) {
+          // an earlier query computed the whole points-to set, so no need to traverse the predecessors
+          MutableIntSet p2Set = findOrCreate(pkToP2Set, curPkAndState);
+          for (InstanceKeyAndState ikAndState : cachedP2Set) {
+            p2Set.add(ikAndStates.add(ikAndState));
+          }
+          addToPToWorklist(curPkAndState);
+          continue;
+        }
         // if (curPk instanceof LocalPointerKey) {
         // Collection<InstanceKey> constantVals =
         // getConstantVals((LocalPointerKey) curPk);
@@ -1999,6 +2315,16 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     }
   }
 
+  /**
+   * resolving a call fills caches in the class hierarchy, which is not safe with several threads; so the analyses answering a batch
+   * of queries in parallel resolve calls one at a time
+   */
+  private IMethod getCalleeTarget(CGNode caller, CallSiteReference site, IClass receiver) {
+    synchronized (cha) {
+      return options.getMethodTargetSelector().getCalleeTarget(caller, site, receiver);
+    }
+  }
+
   private SSAAbstractInvokeInstruction[] getCallInstrs(CGNode node, CallSiteReference site) {
     return node.getIR().getCalls(site);
   }
@@ -2085,7 +2411,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
           OrdinalSet<InstanceKeyAndState> thisPToSet = getPToSetFromComputer(ptoComputer, thisArgAndState);
           for (InstanceKeyAndState ikAndState : thisPToSet) {
             InstanceKey ik = ikAndState.getInstanceKey();
-            IMethod targetMethod = options.getMethodTargetSelector().getCalleeTarget(caller, call, ik.getConcreteType());
+            IMethod targetMethod = getCalleeTarget(caller, call, ik.getConcreteType());
             if (targetMethod == null) {
               // NOTE: target method can be null because we don't
               // always have type filters
@@ -42,6 +42,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.wala.cfg.ControlFlowGraph;
 import com.ibm.wala.cfg.IBasicBlock;
@@ -64,7 +65,6 @@ import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSAInvokeInstruction;
 import com.ibm.wala.ssa.SSAPhiInstruction;
 import com.ibm.wala.util.collections.EmptyIterator;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.ref.ReferenceCleanser;
@@ -93,12 +93,13 @@ public abstract class AbstractDemandFlowGraph extends AbstractFlowGraph {
     if (node == null) {
       throw new IllegalArgumentException("node == null");
     }
-    IR ir = node.getIR();
-    if (ir == null) {
-      throw new IllegalArgumentException("no ir for node " + node);
-    }
     int n = cg.getNumber(node);
+    // check for the node first, so a graph built for every node is only read, and can be shared by threads
     if (!cgNodesVisited.contains(n)) {
+      IR ir = node.getIR();
+      if (ir == null) {
+        throw new IllegalArgumentException("no ir for node " + node);
+      }
       cgNodesVisited.add(n);
       unconditionallyAddConstraintsFromNode(node, ir);
       addNodesForInvocations(node, ir);
@@ -352,7 +353,10 @@ public abstract class AbstractDemandFlowGraph extends AbstractFlowGraph {
     }
   }
 
-  final Map<CGNode, Set<CallerSiteContext>> callerCache = HashMapFactory.make();
+  /**
+   * concurrent, since callers are found lazily, even once the graph has been built for every node
+   */
+  final Map<CGNode, Set<CallerSiteContext>> callerCache = new ConcurrentHashMap<CGNode, Set<CallerSiteContext>>();
 
   @Override
   public Set<CallerSiteContext> getPotentialCallers(PointerKey formalPk) {
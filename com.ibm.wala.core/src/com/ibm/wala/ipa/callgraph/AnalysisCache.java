@@ -12,11 +12,13 @@ package com.ibm.wala.ipa.callgraph;
 
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ssa.CacheStatistics;
 import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.DefaultIRFactory;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.IRFactory;
 import com.ibm.wala.ssa.SSACache;
+import com.ibm.wala.ssa.SSACachePolicy;
 import com.ibm.wala.ssa.SSAOptions;
 import com.ibm.wala.util.ref.ReferenceCleanser;
 
@@ -31,9 +33,25 @@ public class AnalysisCache {
   private final SSACache ssaCache;
 
   public AnalysisCache(IRFactory<IMethod> irFactory) {
+    this(irFactory, new SSACache(irFactory));
+  }
+
+  /**
+   * @param irFactory factory used to build IRs
+   * @param policy governs how IRs and DefUse information are held
+   */
+  public AnalysisCache(IRFactory<IMethod> irFactory, SSACachePolicy policy) {
+    this(irFactory, new SSACache(irFactory, policy));
+  }
+
+  /**
+   * @param irFactory factory used to build IRs
+   * @param ssaCache cache of IRs and DefUse information built by irFactory
+   */
+  protected AnalysisCache(IRFactory<IMethod> irFactory, SSACache ssaCache) {
     super();
     this.irFactory = irFactory;
-    this.ssaCache = new SSACache(irFactory);
+    this.ssaCache = ssaCache;
     ReferenceCleanser.registerCache(this);
   }
 
@@ -53,6 +71,20 @@ public class AnalysisCache {
     return irFactory;
   }
 
+  /**
+   * @return a snapshot of the hit, miss and eviction counters of the IR cache
+   */
+  public CacheStatistics getIRStatistics() {
+    return ssaCache.getIRStatistics();
+  }
+
+  /**
+   * @return a snapshot of the hit, miss and eviction counters of the DefUse cache
+   */
+  public CacheStatistics getDUStatistics() {
+    return ssaCache.getDUStatistics();
+  }
+
   /**
    * Find or create an IR for the method using the {@link Everywhere} context and default {@link SSAOptions}
    */
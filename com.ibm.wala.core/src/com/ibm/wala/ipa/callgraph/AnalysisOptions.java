@@ -13,6 +13,7 @@ package com.ibm.wala.ipa.callgraph;
 import com.ibm.wala.analysis.reflection.ReflectionContextInterpreter;
 import com.ibm.wala.analysis.reflection.ReflectionContextSelector;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
 import com.ibm.wala.ipa.callgraph.propagation.ReflectionHandler;
 import com.ibm.wala.ssa.SSAOptions;
 
@@ -191,6 +192,19 @@ public class AnalysisOptions {
    */
   private long maxNumberOfNodes = -1;
 
+  /**
+   * How many threads should the {@link PropagationSystem} use to evaluate constraints? By default, <code>1</code>, in which case
+   * constraints are solved sequentially. With more threads, assignment and cast constraints are evaluated concurrently, while
+   * constraints that add to the call graph or the constraint system still run on the solving thread.
+   */
+  private int numberOfSolverThreads = 1;
+
+  /**
+   * Should the {@link PropagationSystem} propagate only what was added to the right-hand side of assignments and filters since
+   * they last ran, rather than their whole right-hand side? By default, <code>true</code>.
+   */
+  private boolean useDifferencePropagation = true;
+
   // SJF: I'm not sure these factories and caches belong here.
   // TODO: figure out how to clean this up.
 
@@ -229,6 +243,29 @@ public class AnalysisOptions {
     this.maxNumberOfNodes = maxNumberOfNodes;
   }
 
+  public int getNumberOfSolverThreads() {
+    return numberOfSolverThreads;
+  }
+
+  /**
+   * @param numberOfSolverThreads how many threads the {@link PropagationSystem} uses to evaluate constraints; <code>1</code>
+   *          solves sequentially
+   */
+  public void setNumberOfSolverThreads(int numberOfSolverThreads) {
+    if (numberOfSolverThreads < 1) {
+      throw new IllegalArgumentException("numberOfSolverThreads must be positive: " + numberOfSolverThreads);
+    }
+    this.numberOfSolverThreads = numberOfSolverThreads;
+  }
+
+  public boolean getUseDifferencePropagation() {
+    return useDifferencePropagation;
+  }
+
+  public void setUseDifferencePropagation(boolean useDifferencePropagation) {
+    this.useDifferencePropagation = useDifferencePropagation;
+  }
+
 
   /**
    * @return Policy that determines methods called at call sites.
@@ -30,6 +30,7 @@ import com.ibm.wala.classLoader.BinaryDirectoryTreeModule;
 import com.ibm.wala.classLoader.ClassFileModule;
 import com.ibm.wala.classLoader.IClassLoader;
 import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.MappedJarFileModule;
 import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.classLoader.Module;
 import com.ibm.wala.classLoader.SourceDirectoryTreeModule;
@@ -117,6 +118,17 @@ public class AnalysisScope {
    */
   private SetOfClasses exclusions;
 
+  /**
+   * Number of threads class loaders and class hierarchies use to parse class files and resolve superclasses and interfaces
+   */
+  private int numberOfLoaderThreads = 1;
+
+  /**
+   * Directory holding {@link com.ibm.wala.classLoader.ModuleSnapshot}s of the modules in this scope, or null to always read
+   * every class file
+   */
+  private File snapshotDirectory;
+
   final protected LinkedHashMap<Atom, ClassLoaderReference> loadersByName = new LinkedHashMap<Atom, ClassLoaderReference>();
 
   /**
@@ -317,6 +329,45 @@ public class AnalysisScope {
     exclusions = classes;
   }
 
+  /**
+   * @return number of threads used to load the classes of this scope and resolve their superclasses and interfaces
+   */
+  public int getNumberOfLoaderThreads() {
+    return numberOfLoaderThreads;
+  }
+
+  /**
+   * Load the classes of this scope with several threads. Classes are still added to a class hierarchy one at a time, in loader
+   * order, so the resulting hierarchy does not depend on this number.
+   * 
+   * @param numberOfThreads number of threads to use, at least 1
+   */
+  public void setNumberOfLoaderThreads(int numberOfThreads) {
+    if (numberOfThreads < 1) {
+      throw new IllegalArgumentException("numberOfThreads must be positive: " + numberOfThreads);
+    }
+    numberOfLoaderThreads = numberOfThreads;
+  }
+
+  /**
+   * @return directory holding the snapshots of the modules in this scope, or null if none was set
+   */
+  public File getSnapshotDirectory() {
+    return snapshotDirectory;
+  }
+
+  /**
+   * Reuse the class headers saved in snapshotDirectory for jar files whose contents have not changed, and save the headers of
+   * the others. Classes restored from a snapshot read their class files only when their fields or methods are needed, so
+   * building a class hierarchy over an unchanged primordial scope reads no class files.
+   * 
+   * @param snapshotDirectory directory holding the snapshots, created if needed; null to read every class file
+   * @see com.ibm.wala.classLoader.ModuleSnapshot
+   */
+  public void setSnapshotDirectory(File snapshotDirectory) {
+    this.snapshotDirectory = snapshotDirectory;
+  }
+
   @Override
   public String toString() {
     StringBuffer result = new StringBuffer();
@@ -458,6 +509,9 @@ public class AnalysisScope {
         if (m instanceof JarFileModule) {
           moduleType = "jarFile";
           modulePath = ((JarFileModule) m).getAbsolutePath();
+        } else if (m instanceof MappedJarFileModule) {
+          moduleType = "mappedJarFile";
+          modulePath = ((MappedJarFileModule) m).getAbsolutePath();
         } else if (m instanceof BinaryDirectoryTreeModule) {
           moduleType = "binaryDir";
           modulePath = ((BinaryDirectoryTreeModule) m).getPath();
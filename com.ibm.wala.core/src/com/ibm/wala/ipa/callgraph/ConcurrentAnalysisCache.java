@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ssa.ConcurrentSSACache;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.SSACachePolicy;
+
+/**
+ * An {@link AnalysisCache} whose IRs and DefUse information may be requested by several threads at once, see
+ * {@link ConcurrentSSACache}.
+ */
+public class ConcurrentAnalysisCache extends AnalysisCache {
+
+  public ConcurrentAnalysisCache(IRFactory<IMethod> irFactory) {
+    super(irFactory, new ConcurrentSSACache(irFactory));
+  }
+
+  /**
+   * @param irFactory factory used to build IRs
+   * @param policy governs how IRs and DefUse information are held
+   */
+  public ConcurrentAnalysisCache(IRFactory<IMethod> irFactory, SSACachePolicy policy) {
+    super(irFactory, new ConcurrentSSACache(irFactory, policy));
+  }
+
+  public ConcurrentAnalysisCache() {
+    this(new DefaultIRFactory());
+  }
+}
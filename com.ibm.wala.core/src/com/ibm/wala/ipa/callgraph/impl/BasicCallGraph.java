@@ -127,6 +127,23 @@ public abstract class BasicCallGraph<T> extends AbstractNumberedGraph<CGNode> im
     }
   }
 
+  /**
+   * Forget a node registered with {@link #registerNode(Key, CGNode)}; its number is not reused. Subclasses must take care of its
+   * edges.
+   */
+  protected void unregisterNode(CGNode N) {
+    nodes.remove(new Key(N.getMethod(), N.getContext()));
+    getNodeManager().removeNode(N);
+    Set<CGNode> s = mr2Nodes.get(N.getMethod().getReference());
+    if (s != null) {
+      s.remove(N);
+      if (s.isEmpty()) {
+        mr2Nodes.remove(N.getMethod().getReference());
+      }
+    }
+    entrypointNodes.remove(N);
+  }
+
   private Set<CGNode> findOrCreateMr2Nodes(IMethod method) {
     Set<CGNode> result = mr2Nodes.get(method.getReference());
     if (result == null) {
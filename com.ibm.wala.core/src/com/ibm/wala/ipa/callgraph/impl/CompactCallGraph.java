@@ -0,0 +1,677 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.impl;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.SparseVector;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.graph.impl.NumberedNodeIterator;
+import com.ibm.wala.util.intset.EmptyIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
+
+/**
+ * An immutable call graph that holds its edges in arrays indexed by node number, for keeping a large call graph once it is built.
+ *
+ * The successors of node n are succs[succStart[n]] .. succs[succStart[n+1]-1], in increasing order, and likewise for the
+ * predecessors. The program counters of the call sites of n that have targets are sitePCs[siteStart[n]] ..
+ * sitePCs[siteStart[n+1]-1], in increasing order, and the targets of call site s are targets[targetStart[s]] ..
+ * targets[targetStart[s+1]-1], in increasing order. Call sites are identified by their program counter only, so the
+ * {@link CallSiteReference}s of a node are only asked of the node, which may build its IR, by {@link #getPossibleSites(CGNode, CGNode)}
+ * and {@link #toString()}.
+ *
+ * The nodes are those of the call graph this one was made from, with the same numbers, so pointer keys and other structures that
+ * refer to the nodes of that call graph can be used with this one. The nodes of an {@link ExplicitCallGraph} refer to it, so this
+ * call graph does not let that one, and what it refers to, be collected.
+ */
+public class CompactCallGraph extends AbstractNumberedGraph<CGNode> implements CallGraph {
+
+  private final IClassHierarchy cha;
+
+  private final CGNode fakeRoot;
+
+  private final CGNode fakeWorldClinit;
+
+  private final Collection<CGNode> entrypointNodes;
+
+  /**
+   * the node numbered n, or null if there is none
+   */
+  private final CGNode[] nodes;
+
+  private final int numberOfNodes;
+
+  /**
+   * Mapping from a method to the numbers of its nodes, in increasing order
+   */
+  private final Map<MethodReference, int[]> mr2Nodes;
+
+  private final int[] succStart;
+
+  private final int[] succs;
+
+  private final int[] predStart;
+
+  private final int[] preds;
+
+  private final int[] siteStart;
+
+  private final int[] sitePCs;
+
+  private final int[] targetStart;
+
+  private final int[] targets;
+
+  private final NumberedNodeManager<CGNode> nodeManager = new CompactNodeManager();
+
+  private final NumberedEdgeManager<CGNode> edgeManager = new CompactEdgeManager();
+
+  private CompactCallGraph(IClassHierarchy cha, CGNode fakeRoot, CGNode fakeWorldClinit, Collection<CGNode> entrypointNodes,
+      CGNode[] nodes, int numberOfNodes, Map<MethodReference, int[]> mr2Nodes, int[] succStart, int[] succs, int[] predStart,
+      int[] preds, int[] siteStart, int[] sitePCs, int[] targetStart, int[] targets) {
+    this.cha = cha;
+    this.fakeRoot = fakeRoot;
+    this.fakeWorldClinit = fakeWorldClinit;
+    this.entrypointNodes = entrypointNodes;
+    this.nodes = nodes;
+    this.numberOfNodes = numberOfNodes;
+    this.mr2Nodes = mr2Nodes;
+    this.succStart = succStart;
+    this.succs = succs;
+    this.predStart = predStart;
+    this.preds = preds;
+    this.siteStart = siteStart;
+    this.sitePCs = sitePCs;
+    this.targetStart = targetStart;
+    this.targets = targets;
+  }
+
+  /**
+   * @return an immutable copy of cg, with the same nodes and node numbers
+   */
+  public static CompactCallGraph make(CallGraph cg) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    int max = cg.getMaxNumber();
+    CGNode[] nodes = new CGNode[max + 1];
+    int numberOfNodes = 0;
+    Map<MethodReference, int[]> mr2Nodes = HashMapFactory.make();
+    for (CGNode n : cg) {
+      int x = cg.getNumber(n);
+      nodes[x] = n;
+      numberOfNodes++;
+    }
+
+    // successors, and the predecessors from them
+    int[] succStart = new int[max + 2];
+    int[] predStart = new int[max + 2];
+    for (int x = 0; x <= max; x++) {
+      succStart[x + 1] = succStart[x];
+      if (nodes[x] != null) {
+        IntSet s = cg.getSuccNodeNumbers(nodes[x]);
+        if (s != null) {
+          succStart[x + 1] += s.size();
+          for (IntIterator it = s.intIterator(); it.hasNext();) {
+            predStart[it.next() + 1]++;
+          }
+        }
+      }
+    }
+    int[] succs = new int[succStart[max + 1]];
+    for (int x = 0; x <= max; x++) {
+      if (nodes[x] != null) {
+        IntSet s = cg.getSuccNodeNumbers(nodes[x]);
+        if (s != null) {
+          int i = succStart[x];
+          for (IntIterator it = s.intIterator(); it.hasNext();) {
+            succs[i++] = it.next();
+          }
+          Arrays.sort(succs, succStart[x], succStart[x + 1]);
+        }
+      }
+    }
+    for (int y = 0; y <= max; y++) {
+      predStart[y + 1] += predStart[y];
+    }
+    int[] preds = new int[succs.length];
+    int[] nextPred = Arrays.copyOf(predStart, max + 1);
+    for (int x = 0; x <= max; x++) {
+      for (int i = succStart[x]; i < succStart[x + 1]; i++) {
+        preds[nextPred[succs[i]]++] = x;
+      }
+    }
+
+    // call sites and their targets
+    int[] siteStart = new int[max + 2];
+    int[] sitePCs = new int[16];
+    int[] targetStart = new int[17];
+    int[] targets = new int[16];
+    int nSites = 0;
+    for (int x = 0; x <= max; x++) {
+      CGNode n = nodes[x];
+      if (n != null) {
+        mr2Nodes.put(n.getMethod().getReference(), append(mr2Nodes.get(n.getMethod().getReference()), x));
+        if (succStart[x] < succStart[x + 1]) {
+          for (Map.Entry<Integer, IntSet> site : getTargetNumbers(cg, n).entrySet()) {
+            IntSet siteTargets = site.getValue();
+            if (nSites == sitePCs.length) {
+              sitePCs = Arrays.copyOf(sitePCs, 2 * nSites);
+              targetStart = Arrays.copyOf(targetStart, 2 * nSites + 1);
+            }
+            int t = targetStart[nSites];
+            if (t + siteTargets.size() > targets.length) {
+              targets = Arrays.copyOf(targets, Math.max(2 * targets.length, t + siteTargets.size()));
+            }
+            for (IntIterator it = siteTargets.intIterator(); it.hasNext();) {
+              targets[t++] = it.next();
+            }
+            Arrays.sort(targets, targetStart[nSites], t);
+            sitePCs[nSites] = site.getKey();
+            targetStart[++nSites] = t;
+          }
+        }
+      }
+      siteStart[x + 1] = nSites;
+    }
+    sitePCs = Arrays.copyOf(sitePCs, nSites);
+    targets = Arrays.copyOf(targets, targetStart[nSites]);
+    targetStart = Arrays.copyOf(targetStart, nSites + 1);
+
+    Collection<CGNode> entrypointNodes = Collections.unmodifiableList(new ArrayList<CGNode>(cg.getEntrypointNodes()));
+    return new CompactCallGraph(cg.getClassHierarchy(), cg.getFakeRootNode(), cg.getFakeWorldClinitNode(), entrypointNodes, nodes,
+        numberOfNodes, mr2Nodes, succStart, succs, predStart, preds, siteStart, sitePCs, targetStart, targets);
+  }
+
+  /**
+   * @return mapping from the program counter of each call site of n that has targets in cg to the numbers of those targets, in
+   *         increasing order of program counter
+   */
+  private static SortedMap<Integer, IntSet> getTargetNumbers(CallGraph cg, CGNode n) {
+    SortedMap<Integer, IntSet> result = getRecordedTargetNumbers(cg, n);
+    if (result == null) {
+      result = new TreeMap<Integer, IntSet>();
+      for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext();) {
+        CallSiteReference site = it.next();
+        if (!result.containsKey(site.getProgramCounter())) {
+          // targets are recorded per program counter
+          MutableSparseIntSet numbers = MutableSparseIntSet.makeEmpty();
+          for (CGNode target : cg.getPossibleTargets(n, site)) {
+            numbers.add(cg.getNumber(target));
+          }
+          if (!numbers.isEmpty()) {
+            result.put(site.getProgramCounter(), numbers);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Read the call sites of a node of an {@link ExplicitCallGraph} from the targets it records, keyed by program counter, rather than
+   * asking its context interpreter for them, which may build its IR.
+   * 
+   * @return mapping from the program counter of each call site of n that has targets to the numbers of those targets, or null if n
+   *         does not record them all itself
+   */
+  private static SortedMap<Integer, IntSet> getRecordedTargetNumbers(CallGraph cg, CGNode n) {
+    if (!(n instanceof ExplicitCallGraph.ExplicitNode) || ((ExplicitCallGraph.ExplicitNode) n).getCallGraph() != cg
+        || ((ExplicitCallGraph) cg).isCompacted()) {
+      return null;
+    }
+    SortedMap<Integer, IntSet> result = new TreeMap<Integer, IntSet>();
+    SparseVector<Object> nodeTargets = ((ExplicitCallGraph.ExplicitNode) n).targets;
+    for (IntIterator it = nodeTargets.iterateIndices(); it.hasNext();) {
+      int pc = it.next();
+      Object t = nodeTargets.get(pc);
+      if (t instanceof CGNode) {
+        result.put(pc, SparseIntSet.singleton(cg.getNumber((CGNode) t)));
+      } else if (t instanceof IntSet) {
+        result.put(pc, (IntSet) t);
+      } else {
+        // e.g. a call site whose targets are delegated to another node, see DelegatingExplicitCallGraph
+        return null;
+      }
+    }
+    return result;
+  }
+
+  private static int[] append(int[] a, int x) {
+    if (a == null) {
+      return new int[] { x };
+    }
+    int[] result = Arrays.copyOf(a, a.length + 1);
+    result[a.length] = x;
+    return result;
+  }
+
+  /**
+   * @return the number of node, or -1 if it is not in this call graph
+   */
+  private int numberOf(CGNode node) {
+    int x = node.getGraphNodeId();
+    return x >= 0 && x < nodes.length && nodes[x] == node ? x : -1;
+  }
+
+  private int checkedNumberOf(CGNode node) {
+    if (node == null) {
+      throw new IllegalArgumentException("node is null");
+    }
+    int x = numberOf(node);
+    if (x == -1) {
+      throw new IllegalArgumentException("node not in callgraph " + node);
+    }
+    return x;
+  }
+
+  /**
+   * @return the index in {@link #sitePCs} of the call site of node x with program counter pc, or -1 if it has no targets
+   */
+  private int findSite(int x, int pc) {
+    int s = Arrays.binarySearch(sitePCs, siteStart[x], siteStart[x + 1], pc);
+    return s < 0 ? -1 : s;
+  }
+
+  @Override
+  protected NumberedNodeManager<CGNode> getNodeManager() {
+    return nodeManager;
+  }
+
+  @Override
+  protected NumberedEdgeManager<CGNode> getEdgeManager() {
+    return edgeManager;
+  }
+
+  @Override
+  public CGNode getFakeRootNode() {
+    return fakeRoot;
+  }
+
+  @Override
+  public CGNode getFakeWorldClinitNode() {
+    return fakeWorldClinit;
+  }
+
+  @Override
+  public Collection<CGNode> getEntrypointNodes() {
+    return entrypointNodes;
+  }
+
+  /**
+   * @return the node, or null if none found
+   */
+  @Override
+  public CGNode getNode(IMethod method, Context C) {
+    if (method == null) {
+      throw new IllegalArgumentException("method is null");
+    }
+    int[] ns = mr2Nodes.get(method.getReference());
+    if (ns != null) {
+      for (int x : ns) {
+        if (nodes[x].getMethod().equals(method) && nodes[x].getContext().equals(C)) {
+          return nodes[x];
+        }
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Set<CGNode> getNodes(MethodReference m) {
+    IMethod im = getClassHierarchy().resolveMethod(m);
+    if (im == null) {
+      return Collections.emptySet();
+    }
+    int[] ns = mr2Nodes.get(im.getReference());
+    if (ns == null) {
+      return Collections.emptySet();
+    }
+    return new NodeSet(ns, 0, ns.length);
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  @Override
+  public Set<CGNode> getPossibleTargets(CGNode node, CallSiteReference site) {
+    if (site == null) {
+      throw new IllegalArgumentException("site is null");
+    }
+    int s = findSite(checkedNumberOf(node), site.getProgramCounter());
+    if (s == -1) {
+      return Collections.emptySet();
+    }
+    return new NodeSet(targets, targetStart[s], targetStart[s + 1]);
+  }
+
+  /**
+   * @return the numbers of the possible targets of site in node, or null if it has none
+   */
+  public IntSet getPossibleTargetNumbers(CGNode node, CallSiteReference site) {
+    if (site == null) {
+      throw new IllegalArgumentException("site is null");
+    }
+    int s = findSite(checkedNumberOf(node), site.getProgramCounter());
+    if (s == -1) {
+      return null;
+    }
+    return new Numbers(Arrays.copyOfRange(targets, targetStart[s], targetStart[s + 1]));
+  }
+
+  @Override
+  public int getNumberOfTargets(CGNode node, CallSiteReference site) {
+    if (site == null) {
+      throw new IllegalArgumentException("site is null");
+    }
+    int s = findSite(checkedNumberOf(node), site.getProgramCounter());
+    return s == -1 ? 0 : targetStart[s + 1] - targetStart[s];
+  }
+
+  @Override
+  public Iterator<CallSiteReference> getPossibleSites(CGNode src, CGNode target) {
+    int x = checkedNumberOf(src);
+    int y = checkedNumberOf(target);
+    MutableSparseIntSet pcs = MutableSparseIntSet.makeEmpty();
+    for (int s = siteStart[x]; s < siteStart[x + 1]; s++) {
+      if (Arrays.binarySearch(targets, targetStart[s], targetStart[s + 1], y) >= 0) {
+        pcs.add(sitePCs[s]);
+      }
+    }
+    if (pcs.isEmpty()) {
+      return EmptyIterator.instance();
+    }
+    ArrayList<CallSiteReference> result = new ArrayList<CallSiteReference>();
+    for (Iterator<CallSiteReference> it = src.iterateCallSites(); it.hasNext();) {
+      CallSiteReference site = it.next();
+      if (pcs.contains(site.getProgramCounter())) {
+        result.add(site);
+      }
+    }
+    return result.iterator();
+  }
+
+  @Override
+  public void removeNodeAndEdges(CGNode N) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer();
+    for (CGNode n : this) {
+      result.append(n).append("\n");
+      int x = numberOf(n);
+      if (siteStart[x] < siteStart[x + 1]) {
+        for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext();) {
+          CallSiteReference site = it.next();
+          int s = findSite(x, site.getProgramCounter());
+          if (s != -1) {
+            result.append(" - ").append(site).append("\n");
+            for (int t = targetStart[s]; t < targetStart[s + 1]; t++) {
+              result.append("     -> ").append(nodes[targets[t]]).append("\n");
+            }
+          }
+        }
+      }
+    }
+    return result.toString();
+  }
+
+  private final class CompactNodeManager implements NumberedNodeManager<CGNode> {
+
+    @Override
+    public Iterator<CGNode> iterator() {
+      return new Iterator<CGNode>() {
+        private int next = advance(0);
+
+        private int advance(int x) {
+          while (x < nodes.length && nodes[x] == null) {
+            x++;
+          }
+          return x;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next < nodes.length;
+        }
+
+        @Override
+        public CGNode next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          CGNode result = nodes[next];
+          next = advance(next + 1);
+          return result;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      return numberOfNodes;
+    }
+
+    @Override
+    public void addNode(CGNode n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeNode(CGNode n) throws UnsupportedOperationException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsNode(CGNode n) {
+      if (n == null) {
+        throw new IllegalArgumentException("n is null");
+      }
+      return numberOf(n) != -1;
+    }
+
+    @Override
+    public int getNumber(CGNode N) {
+      return numberOf(N);
+    }
+
+    @Override
+    public CGNode getNode(int number) {
+      return number >= 0 && number < nodes.length ? nodes[number] : null;
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return nodes.length - 1;
+    }
+
+    @Override
+    public Iterator<CGNode> iterateNodes(IntSet s) {
+      return new NumberedNodeIterator<CGNode>(s, this);
+    }
+  }
+
+  private final class CompactEdgeManager implements NumberedEdgeManager<CGNode> {
+
+    @Override
+    public Iterator<CGNode> getPredNodes(CGNode n) {
+      int y = checkedNumberOf(n);
+      return new NodeSet(preds, predStart[y], predStart[y + 1]).iterator();
+    }
+
+    @Override
+    public int getPredNodeCount(CGNode n) {
+      int y = checkedNumberOf(n);
+      return predStart[y + 1] - predStart[y];
+    }
+
+    @Override
+    public Iterator<CGNode> getSuccNodes(CGNode n) {
+      int x = checkedNumberOf(n);
+      return new NodeSet(succs, succStart[x], succStart[x + 1]).iterator();
+    }
+
+    @Override
+    public int getSuccNodeCount(CGNode N) {
+      int x = checkedNumberOf(N);
+      return succStart[x + 1] - succStart[x];
+    }
+
+    @Override
+    public IntSet getSuccNodeNumbers(CGNode node) {
+      int x = checkedNumberOf(node);
+      if (succStart[x] == succStart[x + 1]) {
+        return EmptyIntSet.instance;
+      }
+      return new Numbers(Arrays.copyOfRange(succs, succStart[x], succStart[x + 1]));
+    }
+
+    @Override
+    public IntSet getPredNodeNumbers(CGNode node) {
+      int y = checkedNumberOf(node);
+      if (predStart[y] == predStart[y + 1]) {
+        return EmptyIntSet.instance;
+      }
+      return new Numbers(Arrays.copyOfRange(preds, predStart[y], predStart[y + 1]));
+    }
+
+    @Override
+    public boolean hasEdge(CGNode src, CGNode dst) {
+      int x = numberOf(src);
+      int y = numberOf(dst);
+      return x != -1 && y != -1 && Arrays.binarySearch(succs, succStart[x], succStart[x + 1], y) >= 0;
+    }
+
+    @Override
+    public void addEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeEdge(CGNode src, CGNode dst) throws UnsupportedOperationException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAllIncidentEdges(CGNode node) throws UnsupportedOperationException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeIncomingEdges(CGNode node) throws UnsupportedOperationException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeOutgoingEdges(CGNode node) throws UnsupportedOperationException {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * the nodes numbered numbers[from] .. numbers[to-1], which are in increasing order
+   */
+  private final class NodeSet extends AbstractSet<CGNode> {
+    private final int[] numbers;
+
+    private final int from;
+
+    private final int to;
+
+    NodeSet(int[] numbers, int from, int to) {
+      this.numbers = numbers;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public Iterator<CGNode> iterator() {
+      if (from == to) {
+        return EmptyIterator.instance();
+      }
+      return new Iterator<CGNode>() {
+        private int i = from;
+
+        @Override
+        public boolean hasNext() {
+          return i < to;
+        }
+
+        @Override
+        public CGNode next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return nodes[numbers[i++]];
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof CGNode)) {
+        return false;
+      }
+      int x = numberOf((CGNode) o);
+      return x != -1 && Arrays.binarySearch(numbers, from, to, x) >= 0;
+    }
+  }
+
+  /**
+   * node numbers, in increasing order
+   */
+  @SuppressWarnings("serial")
+  private static final class Numbers extends SparseIntSet {
+    Numbers(int[] elements) {
+      super(elements);
+    }
+  }
+}
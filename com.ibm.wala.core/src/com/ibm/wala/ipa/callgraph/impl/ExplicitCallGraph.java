@@ -14,6 +14,7 @@ import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import com.ibm.wala.cfg.ControlFlowGraph;
@@ -35,8 +36,10 @@ import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.collections.EmptyIterator;
 import com.ibm.wala.util.Predicate;
 import com.ibm.wala.util.collections.FilterIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.IntMapIterator;
+import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.SparseVector;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.functions.IntFunction;
@@ -63,9 +66,19 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
   private final long maxNumberOfNodes;
 
   /**
-   * special object to track call graph edges
+   * the contexts of the nodes, so that nodes with equal contexts share one context object
    */
-  private final ExplicitEdgeManager edgeManager = makeEdgeManger();
+  private final Map<Context, Context> contexts = HashMapFactory.make();
+
+  /**
+   * special object to track call graph edges; null once the call graph is compacted
+   */
+  private ExplicitEdgeManager edgeManager = makeEdgeManger();
+
+  /**
+   * the edges of this call graph, once it is compacted
+   */
+  private CompactCallGraph compacted;
 
   public ExplicitCallGraph(IClassHierarchy cha, AnalysisOptions options, AnalysisCache cache) {
     super();
@@ -123,8 +136,13 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
     NodeImpl result = getNode(k);
     if (result == null) {
       if (maxNumberOfNodes == -1 || getNumberOfNodes() < maxNumberOfNodes) {
-        result = makeNode(method, context);
-        registerNode(k, result);
+        Context c = contexts.get(context);
+        if (c == null) {
+          contexts.put(context, context);
+          c = context;
+        }
+        result = makeNode(method, c);
+        registerNode(new Key(method, c), result);
       } else {
         throw CancelException.make("Too many nodes");
       }
@@ -132,6 +150,31 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
     return result;
   }
 
+  /**
+   * Remove a node and the calls to and from it. The fake root node cannot be removed.
+   * 
+   * @throws IllegalArgumentException if node is the fake root node
+   */
+  @Override
+  public void removeNodeAndEdges(CGNode node) {
+    if (node == null) {
+      throw new IllegalArgumentException("node is null");
+    }
+    if (node.equals(getFakeRootNode())) {
+      throw new IllegalArgumentException("cannot remove the fake root node");
+    }
+    if (compacted != null) {
+      throw new UnsupportedOperationException("call graph has been compacted");
+    }
+    for (CGNode p : Iterator2Collection.toSet(getPredNodes(node))) {
+      ((ExplicitNode) p).removeTarget(node);
+    }
+    for (CGNode t : Iterator2Collection.toSet(getSuccNodes(node))) {
+      ((ExplicitNode) node).removeTarget(t);
+    }
+    unregisterNode(node);
+  }
+
   public class ExplicitNode extends NodeImpl {
 
     /**
@@ -213,6 +256,9 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
     }
 
     protected boolean addTarget(int pc, CGNode tNode) {
+      if (compacted != null) {
+        throw new UnsupportedOperationException("call graph has been compacted");
+      }
       allTargets.add(getCallGraph().getNumber(tNode));
       Object S = targets.get(pc);
       if (S == null) {
@@ -250,7 +296,14 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
      * @see com.ibm.wala.ipa.callgraph.impl.BasicCallGraph.NodeImpl#removeTarget(com.ibm.wala.ipa.callgraph.CGNode)
      */
     public void removeTarget(CGNode target) {
+      if (compacted != null) {
+        throw new UnsupportedOperationException("call graph has been compacted");
+      }
+      if (!allTargets.contains(getCallGraph().getNumber(target))) {
+        return;
+      }
       allTargets.remove(getCallGraph().getNumber(target));
+      getCallGraph().removeEdge(this, target);
       for (IntIterator it = targets.safeIterateIndices(); it.hasNext();) {
         int pc = it.next();
         Object value = targets.get(pc);
@@ -292,6 +345,14 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
       return allTargets;
     }
 
+    /**
+     * Forget the IR and DefUse cached for this node, so that they are asked of the context interpreter again
+     */
+    public void invalidateIR() {
+      ir = new WeakReference<IR>(null);
+      du = new WeakReference<DefUse>(null);
+    }
+
     public void clearAllTargets() {
       targets.clear();
       allTargets.clear();
@@ -466,7 +527,32 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
    */
   @Override
   public NumberedEdgeManager<CGNode> getEdgeManager() {
-    return edgeManager;
+    return compacted != null ? compacted.getEdgeManager() : edgeManager;
+  }
+
+  /**
+   * Move the edges of this call graph, once it is built, into a {@link CompactCallGraph}, releasing the structures that held them
+   * here. The compact call graph has the same nodes, with the same numbers, so it can be used with the pointer analysis that built
+   * this call graph. Afterwards, this call graph answers queries about its edges from the compact one, and can no longer be changed.
+   * 
+   * @return the compact call graph
+   */
+  public CompactCallGraph compact() {
+    if (compacted == null) {
+      compacted = CompactCallGraph.make(this);
+      for (CGNode n : this) {
+        ((ExplicitNode) n).clearAllTargets();
+      }
+      edgeManager = null;
+    }
+    return compacted;
+  }
+
+  /**
+   * @return true iff {@link #compact()} has moved the edges of this call graph out of its nodes
+   */
+  boolean isCompacted() {
+    return compacted != null;
   }
 
   protected ExplicitEdgeManager makeEdgeManger() {
@@ -478,6 +564,9 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
     if (!containsNode(node)) {
       throw new IllegalArgumentException("node not in callgraph " + node);
     }
+    if (compacted != null) {
+      return compacted.getNumberOfTargets(node, site);
+    }
     assert (node instanceof ExplicitNode);
     ExplicitNode n = (ExplicitNode) node;
     return n.getNumberOfTargets(site);
@@ -491,6 +580,9 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
     if (!containsNode(target)) {
       throw new IllegalArgumentException("node not in callgraph " + target);
     }
+    if (compacted != null) {
+      return compacted.getPossibleSites(src, target);
+    }
     assert (src instanceof ExplicitNode);
     ExplicitNode n = (ExplicitNode) src;
     return n.getPossibleSites(target);
@@ -501,6 +593,9 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
     if (!containsNode(node)) {
       throw new IllegalArgumentException("node not in callgraph " + node);
     }
+    if (compacted != null) {
+      return compacted.getPossibleTargets(node, site);
+    }
     assert (node instanceof ExplicitNode);
     ExplicitNode n = (ExplicitNode) node;
     return n.getPossibleTargets(site);
@@ -510,6 +605,9 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
     if (!containsNode(node)) {
       throw new IllegalArgumentException("node not in callgraph " + node + " Site: " + site);
     }
+    if (compacted != null) {
+      return compacted.getPossibleTargetNumbers(node, site);
+    }
     assert (node instanceof ExplicitNode);
     ExplicitNode n = (ExplicitNode) node;
     return n.getPossibleTargetNumbers(site);
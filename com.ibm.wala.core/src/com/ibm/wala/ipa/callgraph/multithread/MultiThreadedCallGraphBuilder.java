@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.ibm.wala.ipa.callgraph.multithread;
 
+import java.util.concurrent.ForkJoinPool;
+
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
@@ -21,15 +23,20 @@ import com.ibm.wala.ipa.callgraph.multithread.analyses.HeapAbstractionFactory;
 import com.ibm.wala.ipa.callgraph.multithread.engine.PointsToAnalysis;
 import com.ibm.wala.ipa.callgraph.multithread.engine.PointsToAnalysisMultiThreaded;
 import com.ibm.wala.ipa.callgraph.multithread.engine.PointsToAnalysisSingleThreaded;
+import com.ibm.wala.ipa.callgraph.multithread.engine.SchedulingPolicy;
+import com.ibm.wala.ipa.callgraph.multithread.engine.TopologicalSchedulingPolicy;
 import com.ibm.wala.ipa.callgraph.multithread.graph.PointsToGraph;
 import com.ibm.wala.ipa.callgraph.multithread.registrar.StatementRegistrar;
 import com.ibm.wala.ipa.callgraph.multithread.registrar.StatementRegistrationPass;
 import com.ibm.wala.ipa.callgraph.multithread.statements.PointsToStatement;
 import com.ibm.wala.ipa.callgraph.multithread.statements.StatementFactory;
 import com.ibm.wala.ipa.callgraph.multithread.util.MultiThreadAnalysisUtil;
+import com.ibm.wala.ipa.callgraph.multithread.util.intset.ConcurrentIntSetFactory;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 
 public class MultiThreadedCallGraphBuilder implements CallGraphBuilder {
@@ -51,40 +58,139 @@ public class MultiThreadedCallGraphBuilder implements CallGraphBuilder {
   private boolean useSingleAllocForImmutableWrappers = false;
   private MultiThreadedPointerAnalysis pta;
 
+  /**
+   * number of worker threads used by the points-to engine if {@link #pool} is null
+   */
+  private final int numThreads;
+
+  /**
+   * pool supplied by the client for the points-to engine, or null to create a pool for each call graph
+   */
+  private final ForkJoinPool pool;
+
+  /**
+   * policy used by the points-to engine to order work, or null to use fork/join order
+   */
+  private SchedulingPolicy schedulingPolicy = null;
+
+  /**
+   * should the points-to engine collapse cycles of subset relations while it runs?
+   */
+  private boolean collapseCyclesOnline = false;
+
+  /**
+   * factory for the points-to sets of the points-to graph, or null to let the heap abstraction factory choose
+   */
+  private ConcurrentIntSetFactory pointsToSetFactory = null;
+
+  /**
+   * Create a builder that uses one worker thread per available processor
+   */
   public MultiThreadedCallGraphBuilder(AnalysisOptions options, AnalysisCache cache, IClassHierarchy cha, AnalysisScope scope,
       HeapAbstractionFactory haf) {
+    this(options, cache, cha, scope, haf, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create a builder whose points-to engine runs in its own pool of <code>numThreads</code> worker threads
+   */
+  public MultiThreadedCallGraphBuilder(AnalysisOptions options, AnalysisCache cache, IClassHierarchy cha, AnalysisScope scope,
+      HeapAbstractionFactory haf, int numThreads) {
+    this(options, cache, cha, scope, haf, numThreads, null);
+  }
+
+  /**
+   * Create a builder whose points-to engine runs in an existing pool. The pool is not shut down by the builder.
+   */
+  public MultiThreadedCallGraphBuilder(AnalysisOptions options, AnalysisCache cache, IClassHierarchy cha, AnalysisScope scope,
+      HeapAbstractionFactory haf, ForkJoinPool pool) {
+    this(options, cache, cha, scope, haf, pool.getParallelism(), pool);
+  }
+
+  private MultiThreadedCallGraphBuilder(AnalysisOptions options, AnalysisCache cache, IClassHierarchy cha, AnalysisScope scope,
+      HeapAbstractionFactory haf, int numThreads, ForkJoinPool pool) {
+    if (numThreads <= 0) {
+      throw new IllegalArgumentException("Need at least one thread, got " + numThreads);
+    }
+    this.numThreads = numThreads;
+    this.pool = pool;
+    MultiThreadAnalysisUtil.numThreads = numThreads;
     MultiThreadAnalysisUtil.initFromObjects(options, cache, cha, scope);
     this.haf = haf;
   }
 
+  /**
+   * Set the policy used by the points-to engine to order the statements that depend on a changed points-to set, e.g.,
+   * {@link TopologicalSchedulingPolicy}
+   *
+   * @param schedulingPolicy policy to use, or null to use fork/join order
+   */
+  public void setSchedulingPolicy(SchedulingPolicy schedulingPolicy) {
+    this.schedulingPolicy = schedulingPolicy;
+  }
+
+  /**
+   * Set whether the points-to engine should periodically pause to find and collapse cycles of subset relations
+   *
+   * @param collapseCyclesOnline if true then collapse cycles while the analysis runs
+   */
+  public void setCollapseCyclesOnline(boolean collapseCyclesOnline) {
+    this.collapseCyclesOnline = collapseCyclesOnline;
+  }
+
+  /**
+   * Set the representation of the points-to sets, e.g., {@link ConcurrentIntSetFactory#BIT_VECTOR} for densely
+   * numbered instance keys
+   *
+   * @param pointsToSetFactory factory to use, or null to let the heap abstraction factory choose
+   */
+  public void setPointsToSetFactory(ConcurrentIntSetFactory pointsToSetFactory) {
+    this.pointsToSetFactory = pointsToSetFactory;
+  }
+
   @Override
   public CallGraph makeCallGraph(AnalysisOptions options, IProgressMonitor monitor) throws IllegalArgumentException,
       CallGraphBuilderCancelException {
-    PointsToAnalysis analysis = new PointsToAnalysisMultiThreaded(haf);
+    PointsToAnalysisMultiThreaded analysis = pool == null ? new PointsToAnalysisMultiThreaded(haf, numThreads)
+        : new PointsToAnalysisMultiThreaded(haf, pool);
+    analysis.setSchedulingPolicy(schedulingPolicy);
+    analysis.setCollapseCyclesOnline(collapseCyclesOnline);
+    analysis.setPointsToSetFactory(pointsToSetFactory);
     PointsToAnalysis.outputLevel = OUTPUT_LEVEL;
     PointsToGraph g;
     StatementRegistrar registrar;
     StatementFactory factory = new StatementFactory();
-    if (REGISTER_STMTS_LAZILY) {
-        registrar = new StatementRegistrar(factory,
-                                           useSingleAllocForGenEx,
-                                           useSingleAllocForThrowable,
-                                           useSingleAllocForPrimitiveArrays,
-                                           useSingleAllocForStrings,
-                                           useSingleAllocForImmutableWrappers);
-        g = analysis.solveAndRegister(registrar);
-    }
-    else {
-        StatementRegistrationPass pass = new StatementRegistrationPass(factory,
-                                                                       useSingleAllocForGenEx,
-                                                                       useSingleAllocForThrowable,
-                                                                       useSingleAllocForPrimitiveArrays,
-                                                                       useSingleAllocForStrings,
-                                                                       useSingleAllocForImmutableWrappers);
-        pass.run();
-        registrar = pass.getRegistrar();
-        PointsToAnalysis.outputLevel = OUTPUT_LEVEL;
-        g = analysis.solve(registrar);
+    try {
+      if (REGISTER_STMTS_LAZILY) {
+          registrar = new StatementRegistrar(factory,
+                                             useSingleAllocForGenEx,
+                                             useSingleAllocForThrowable,
+                                             useSingleAllocForPrimitiveArrays,
+                                             useSingleAllocForStrings,
+                                             useSingleAllocForImmutableWrappers);
+          g = analysis.solveAndRegister(registrar, monitor);
+      }
+      else {
+          StatementRegistrationPass pass = new StatementRegistrationPass(factory,
+                                                                         useSingleAllocForGenEx,
+                                                                         useSingleAllocForThrowable,
+                                                                         useSingleAllocForPrimitiveArrays,
+                                                                         useSingleAllocForStrings,
+                                                                         useSingleAllocForImmutableWrappers);
+          if (pool == null) {
+            pass.run();
+          }
+          else {
+            pass.run(pool);
+          }
+          MonitorUtil.throwExceptionIfCanceled(monitor);
+          registrar = pass.getRegistrar();
+          PointsToAnalysis.outputLevel = OUTPUT_LEVEL;
+          g = analysis.solve(registrar, monitor);
+      }
+    } catch (CancelException e) {
+      // the points-to graph is not in a consistent state, so there are no partial results to report
+      throw CallGraphBuilderCancelException.createCallGraphBuilderCancelException(e, null, null);
     }
 
     if (OUTPUT_LEVEL >= 1) {
@@ -7,6 +7,7 @@ import com.ibm.wala.ipa.callgraph.Context;
 import com.ibm.wala.ipa.callgraph.multithread.statements.AllocSiteNodeFactory.AllocSiteNode;
 import com.ibm.wala.ipa.callgraph.multithread.statements.CallSiteLabel;
 import com.ibm.wala.ipa.callgraph.multithread.util.MultiThreadAnalysisUtil;
+import com.ibm.wala.ipa.callgraph.multithread.util.intset.ConcurrentIntSetFactory;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 
 /**
@@ -54,6 +55,16 @@ public abstract class HeapAbstractionFactory {
      */
     public abstract Context initialContext();
 
+    /**
+     * Return the factory for the points-to sets of the points-to graph. The default is a concurrent hash set, subclasses
+     * that create many densely numbered instance keys may be better served by {@link ConcurrentIntSetFactory#BIT_VECTOR}.
+     *
+     * @return factory for points-to sets
+     */
+    public ConcurrentIntSetFactory getPointsToSetFactory() {
+        return ConcurrentIntSetFactory.HASH_SET;
+    }
+
     @Override
     public abstract String toString();
 
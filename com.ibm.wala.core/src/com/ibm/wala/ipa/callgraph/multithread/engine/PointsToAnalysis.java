@@ -7,6 +7,9 @@ import com.ibm.wala.ipa.callgraph.multithread.analyses.HeapAbstractionFactory;
 import com.ibm.wala.ipa.callgraph.multithread.graph.PointsToGraph;
 import com.ibm.wala.ipa.callgraph.multithread.registrar.StatementRegistrar;
 import com.ibm.wala.ipa.callgraph.multithread.statements.PointsToStatement;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 
 /**
  * Points-to analysis engine
@@ -51,6 +54,24 @@ public abstract class PointsToAnalysis {
      */
     public abstract PointsToGraph solve(StatementRegistrar registrar);
 
+    /**
+     * Perform the analysis using the constraints from the points-to statement registrar, checking the progress monitor
+     * for cancellation. Engines that cannot be interrupted only check the monitor before they start.
+     *
+     * @param registrar
+     *            points-to statements
+     * @param monitor
+     *            progress monitor used to cancel the analysis, may be null
+     *
+     * @return points-to graph consistent with the statements in the registrar
+     * @throws CancelException
+     *             if the monitor was canceled or the analysis failed before reaching a fixed point
+     */
+    public PointsToGraph solve(StatementRegistrar registrar, IProgressMonitor monitor) throws CancelException {
+        MonitorUtil.throwExceptionIfCanceled(monitor);
+        return solve(registrar);
+    }
+
     /**
      * Points-to statement together with a code context
      */
@@ -125,4 +146,23 @@ public abstract class PointsToAnalysis {
     }
 
     abstract public PointsToGraph solveAndRegister(StatementRegistrar registrar);
+
+    /**
+     * Perform the analysis, registering points-to statements for newly reachable methods as they are discovered, and
+     * checking the progress monitor for cancellation. Engines that cannot be interrupted only check the monitor before
+     * they start.
+     *
+     * @param registrar
+     *            registrar to add points-to statements to
+     * @param monitor
+     *            progress monitor used to cancel the analysis, may be null
+     *
+     * @return points-to graph consistent with the statements in the registrar
+     * @throws CancelException
+     *             if the monitor was canceled or the analysis failed before reaching a fixed point
+     */
+    public PointsToGraph solveAndRegister(StatementRegistrar registrar, IProgressMonitor monitor) throws CancelException {
+        MonitorUtil.throwExceptionIfCanceled(monitor);
+        return solveAndRegister(registrar);
+    }
 }
@@ -1,11 +1,15 @@
 package com.ibm.wala.ipa.callgraph.multithread.engine;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Set;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
@@ -16,10 +20,18 @@ import com.ibm.wala.ipa.callgraph.multithread.registrar.StatementRegistrar;
 import com.ibm.wala.ipa.callgraph.multithread.registrar.StatementRegistrar.StatementListener;
 import com.ibm.wala.ipa.callgraph.multithread.statements.PointsToStatement;
 import com.ibm.wala.ipa.callgraph.multithread.util.MultiThreadAnalysisUtil;
+import com.ibm.wala.ipa.callgraph.multithread.util.StripedCounter;
+import com.ibm.wala.ipa.callgraph.multithread.util.StripedReadWriteLock;
 import com.ibm.wala.ipa.callgraph.multithread.util.intmap.ConcurrentIntMap;
 import com.ibm.wala.ipa.callgraph.multithread.util.intmap.ConcurrentMonotonicIntHashMap;
+import com.ibm.wala.ipa.callgraph.multithread.util.intset.ConcurrentIntSetFactory;
 import com.ibm.wala.ipa.callgraph.multithread.util.intset.ConcurrentMonotonicIntHashSet;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.intset.EmptyIntSet;
 import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableIntSet;
 
 public class PointsToAnalysisMultiThreaded extends PointsToAnalysis {
@@ -28,41 +40,194 @@ public class PointsToAnalysisMultiThreaded extends PointsToAnalysis {
     /**
      * An interesting dependency from node n to StmtAndContext sac exists when a modification to the pointstoset of n
      * (i.e., if n changes to point to more things) requires reevaluation of sac. Many dependencies are just copy
-     * dependencies (which are not interesting dependencies).
+     * dependencies (which are not interesting dependencies). StmtAndContexts are recorded using their int from
+     * {@link #sacDictionary}.
      */
-    private ConcurrentIntMap<Set<StmtAndContext>> interestingDepedencies = PointsToAnalysisMultiThreaded.makeConcurrentIntMap();
+    private ConcurrentIntMap<MutableIntSet> interestingDepedencies = PointsToAnalysisMultiThreaded.makeConcurrentIntMap();
+    /**
+     * Dictionary for the ints used in {@link #interestingDepedencies}
+     */
+    private final StmtAndContextDictionary sacDictionary = new StmtAndContextDictionary();
     /**
      * If true then the analysis will reprocess all points-to statements after reaching a fixed point to make sure there
      * are no changes.
      */
     private static boolean paranoidMode = false;
 
+    /**
+     * Longest time (in milliseconds) the solving thread sleeps between two checks for quiescence or cancellation
+     */
+    private static final long MAX_POLL_INTERVAL = 50;
+    /**
+     * Maximum number of dependent (statement, context) pairs that are grouped into a single fork/join task when a
+     * processed statement changes the graph
+     */
+    private static final int BATCH_SIZE = 32;
+    /**
+     * Number of worker threads to use if no pool was given
+     */
+    private final int numThreads;
+    /**
+     * Pool supplied by the client, or null if the analysis creates (and shuts down) its own pool
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Policy used to order the statements that depend on a changed node, or null to schedule them in the order they
+     * are found
+     */
+    private SchedulingPolicy schedulingPolicy = null;
+    /**
+     * If true then cycles of subset relations are periodically found and collapsed while the analysis runs
+     */
+    private boolean collapseCyclesOnline = false;
+    /**
+     * Factory for the points-to sets of the graph, or null to use the one chosen by the heap abstraction factory
+     */
+    private ConcurrentIntSetFactory pointsToSetFactory = null;
+    /**
+     * Look for cycles once the graph has this many times as many nodes as when cycles were last collapsed
+     */
+    private static final double CYCLE_DETECTION_GROWTH_FACTOR = 1.5;
+    /**
+     * Don't bother looking for cycles in graphs smaller than this
+     */
+    private static final int CYCLE_DETECTION_MIN_NODES = 1000;
+
     int numThreads() {
-        //return 1;
-        return Runtime.getRuntime().availableProcessors();
+        return this.pool == null ? this.numThreads : this.pool.getParallelism();
     }
 
+    /**
+     * New multi-threaded pointer analysis using one worker thread per available processor
+     *
+     * @param haf Abstraction factory for this points-to analysis
+     */
     public PointsToAnalysisMultiThreaded(HeapAbstractionFactory haf) {
+        this(haf, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * New multi-threaded pointer analysis that runs in its own pool with the given number of worker threads
+     *
+     * @param haf Abstraction factory for this points-to analysis
+     * @param numThreads number of worker threads, must be positive
+     */
+    public PointsToAnalysisMultiThreaded(HeapAbstractionFactory haf, int numThreads) {
+        super(haf);
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("Need at least one thread, got " + numThreads);
+        }
+        this.numThreads = numThreads;
+        this.pool = null;
+    }
+
+    /**
+     * New multi-threaded pointer analysis that runs in an existing pool. The pool is not shut down when the analysis
+     * finishes.
+     *
+     * @param haf Abstraction factory for this points-to analysis
+     * @param pool pool to run the points-to tasks in
+     */
+    public PointsToAnalysisMultiThreaded(HeapAbstractionFactory haf, ForkJoinPool pool) {
         super(haf);
+        if (pool == null) {
+            throw new IllegalArgumentException("null pool");
+        }
+        this.numThreads = pool.getParallelism();
+        this.pool = pool;
+    }
+
+    /**
+     * Set the policy used to order the statements that depend on a changed node
+     *
+     * @param schedulingPolicy policy to use, or null to schedule statements in the order they are found
+     */
+    public void setSchedulingPolicy(SchedulingPolicy schedulingPolicy) {
+        this.schedulingPolicy = schedulingPolicy;
+    }
+
+    /**
+     * Set whether cycles of (unfiltered) subset relations should be collapsed while the analysis runs. Worker threads
+     * then hold a shared lock while processing a statement, and the solving thread periodically pauses them to find and
+     * collapse cycles in the graph.
+     * <p>
+     * This is a periodic stop-the-world pass rather than incremental cycle detection: nodes on a cycle only have equal
+     * points-to sets once no propagation along the cycle is in flight, which cannot be known while workers keep adding
+     * edges and propagating. The cost when no pass is running is one uncontended read lock per statement processed, on
+     * a stripe chosen by thread. Each pass stops every worker for one strongly connected component search over the
+     * subset graph; a pass only starts once the graph has 1000 nodes and has grown by half since the last pass, so there
+     * are logarithmically many of them. The number of passes and the time workers were stopped are reported with the
+     * other statistics.
+     *
+     * @param collapseCyclesOnline if true then collapse cycles while the analysis runs
+     */
+    public void setCollapseCyclesOnline(boolean collapseCyclesOnline) {
+        this.collapseCyclesOnline = collapseCyclesOnline;
+    }
+
+    /**
+     * Set the factory for the points-to sets of the graph, overriding {@link HeapAbstractionFactory#getPointsToSetFactory()}
+     *
+     * @param pointsToSetFactory factory to use, or null to use the one chosen by the heap abstraction factory
+     */
+    public void setPointsToSetFactory(ConcurrentIntSetFactory pointsToSetFactory) {
+        this.pointsToSetFactory = pointsToSetFactory;
     }
 
     @Override
     public PointsToGraph solve(StatementRegistrar registrar) {
-        return this.solveConcurrently(registrar, false);
+        try {
+            return this.solveConcurrently(registrar, false, null);
+        }
+        catch (CancelException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
     public PointsToGraph solveAndRegister(StatementRegistrar onlineRegistrar) {
+        try {
+            return this.solveAndRegister(onlineRegistrar, null);
+        }
+        catch (CancelException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public PointsToGraph solve(StatementRegistrar registrar, IProgressMonitor monitor) throws CancelException {
+        return this.solveConcurrently(registrar, false, monitor);
+    }
+
+    @Override
+    public PointsToGraph solveAndRegister(StatementRegistrar onlineRegistrar, IProgressMonitor monitor)
+            throws CancelException {
         onlineRegistrar.registerMethod(MultiThreadAnalysisUtil.getFakeRoot());
-        return this.solveConcurrently(onlineRegistrar, true);
+        return this.solveConcurrently(onlineRegistrar, true, monitor);
     }
 
-    public PointsToGraph solveConcurrently(final StatementRegistrar registrar, final boolean registerOnline) {
+    /**
+     * Compute the fixed point of the points-to statements using a pool of worker threads
+     *
+     * @param registrar points-to statement registrar
+     * @param registerOnline Whether to generate points-to statements during the points-to analysis, otherwise the
+     *            registrar will already be populated
+     * @param monitor progress monitor used to cancel the analysis, may be null
+     * @return Points-to graph
+     * @throws CancelException if the monitor was canceled, or a points-to task threw an exception
+     */
+    public PointsToGraph solveConcurrently(final StatementRegistrar registrar, final boolean registerOnline,
+                                           IProgressMonitor monitor) throws CancelException {
         System.err.println("Starting points to engine using " + this.haf);
         long startTime = System.currentTimeMillis();
 
-
-        final ExecutorServiceCounter execService = new ExecutorServiceCounter(new ForkJoinPool(this.numThreads()));
+        final ExecutorServiceCounter execService;
+        if (this.pool == null) {
+            execService = new ExecutorServiceCounter(new ForkJoinPool(this.numThreads()), true);
+        }
+        else {
+            execService = new ExecutorServiceCounter(this.pool, false);
+        }
 
         DependencyRecorder depRecorder = new DependencyRecorder() {
 
@@ -74,18 +239,16 @@ public class PointsToAnalysisMultiThreaded extends PointsToAnalysis {
             @Override
             public void startCollapseNode(int n, int rep) {
                 // add the new dependencies.
-                Set<StmtAndContext> deps = interestingDepedencies.get(n);
+                MutableIntSet deps = interestingDepedencies.get(n);
                 if (deps != null) {
-                    for (StmtAndContext depSac : deps) {
-                        addInterestingDependency(rep, depSac);
-                    }
+                    getOrCreateDependencySet(rep).addAll(deps);
                 }
             }
 
             @Override
             public void finishCollapseNode(int n, int rep) {
                 // remove the old dependency.
-                Set<StmtAndContext> deps = interestingDepedencies.get(n);
+                MutableIntSet deps = interestingDepedencies.get(n);
                 if (deps != null) {
                     interestingDepedencies.remove(n);
                 }
@@ -105,7 +268,9 @@ public class PointsToAnalysisMultiThreaded extends PointsToAnalysis {
             }
         };
 
-        PointsToGraph g = new PointsToGraph(registrar, this.haf, depRecorder);
+        PointsToGraph g = new PointsToGraph(registrar, this.haf, depRecorder,
+                                            this.pointsToSetFactory == null ? this.haf.getPointsToSetFactory()
+                                                    : this.pointsToSetFactory);
         execService.setGraphAndRegistrar(g, registrar);
 
         // Add initial contexts
@@ -136,19 +301,28 @@ public class PointsToAnalysisMultiThreaded extends PointsToAnalysis {
 
 
         // start up...
-
-        while (execService.containsPending()) {
-            execService.waitUntilAllFinished();
+        try {
+            execService.waitUntilAllFinished(monitor);
+        }
+        finally {
+            // all the tasks are done (or have been abandoned).
+            // Shut down the executer service
+            execService.shutdownAndAwaitTermination();
         }
-        // all the tasks are done.
-        // Shut down the executer service
-        execService.shutdownAndAwaitTermination();
 
         long endTime = System.currentTimeMillis();
         long totalTime = endTime - startTime;
         System.err.println("\n\n  ***************************** \n\n");
         System.err.println("   Total time             : " + totalTime / 1000.0 + "s.");
         System.err.println("   Number of threads used : " + this.numThreads());
+        System.err.println("   Tasks (no delta/delta) : " + execService.totalTasksNoDelta.sum() + "/"
+                + execService.totalTasksWithDelta.sum());
+        System.err.println("   Coalesced submissions  : " + execService.totalCoalesced.sum());
+        if (this.collapseCyclesOnline) {
+            System.err.println("   Nodes in cycles removed: " + execService.nodesCollapsed);
+            System.err.println("   Cycle detection pauses : " + execService.cycleDetectionPauses + " ("
+                    + execService.cycleDetectionPauseTime / 1000.0 + "s)");
+        }
         System.err.println("   Num graph source nodes : " + g.numPointsToGraphNodes());
         if (paranoidMode) {
             // check that nothing went wrong, and that we have indeed reached a fixed point.
@@ -168,38 +342,153 @@ public class PointsToAnalysisMultiThreaded extends PointsToAnalysis {
         if (changes.isEmpty()) {
             return;
         }
+        if (this.schedulingPolicy != null) {
+            this.scheduleDependenciesInOrder(changes, execService);
+            return;
+        }
+        List<ExecutorServiceCounter.RunnableStmtAndContext> batch = new ArrayList<>();
         IntIterator iter = changes.domainIterator();
         while (iter.hasNext()) {
             int n = iter.next();
-            for (StmtAndContext depSaC : this.getInterestingDependencies(n)) {
-                execService.submitTask(depSaC, changes);
+            IntIterator deps = this.getInterestingDependencies(n).intIterator();
+            while (deps.hasNext()) {
+                StmtAndContext depSaC = this.sacDictionary.get(deps.next());
+                ExecutorServiceCounter.RunnableStmtAndContext task = execService.enqueue(depSaC, changes);
+                if (task != null) {
+                    // depSaC was not already waiting to be processed
+                    batch.add(task);
+                    if (batch.size() == BATCH_SIZE) {
+                        execService.schedule(batch);
+                        batch = new ArrayList<>();
+                    }
+                }
             }
         }
+        execService.schedule(batch);
+    }
 
+    /**
+     * Schedule the statements that depend on the nodes in changes, ordered by the {@link #schedulingPolicy}. Work is
+     * forked in decreasing order of priority, so that the lowest priority values are at the top of this worker's
+     * (LIFO) deque and run first.
+     *
+     * @param changes changes to the graph
+     * @param execService service to submit the new tasks to
+     */
+    private void scheduleDependenciesInOrder(GraphDelta changes, ExecutorServiceCounter execService) {
+        List<ExecutorServiceCounter.RunnableStmtAndContext> tasks = new ArrayList<>();
+        IntIterator iter = changes.domainIterator();
+        while (iter.hasNext()) {
+            int n = iter.next();
+            IntSet deps = this.getInterestingDependencies(n);
+            if (deps.isEmpty()) {
+                continue;
+            }
+            int priority = this.schedulingPolicy.priority(execService.g, n);
+            IntIterator depIter = deps.intIterator();
+            while (depIter.hasNext()) {
+                StmtAndContext depSaC = this.sacDictionary.get(depIter.next());
+                ExecutorServiceCounter.RunnableStmtAndContext task = execService.enqueue(depSaC, changes);
+                if (task != null) {
+                    // depSaC was not already waiting to be processed
+                    task.priority = priority;
+                    tasks.add(task);
+                }
+            }
+        }
+        Collections.sort(tasks, PRIORITY_ORDER);
+        int end = tasks.size();
+        while (end > 0) {
+            int start = Math.max(0, end - BATCH_SIZE);
+            execService.schedule(tasks.subList(start, end));
+            end = start;
+        }
     }
 
+    /**
+     * Orders tasks by increasing priority
+     */
+    static final Comparator<ExecutorServiceCounter.RunnableStmtAndContext> PRIORITY_ORDER = new Comparator<ExecutorServiceCounter.RunnableStmtAndContext>() {
+        @Override
+        public int compare(ExecutorServiceCounter.RunnableStmtAndContext t1,
+                           ExecutorServiceCounter.RunnableStmtAndContext t2) {
+            return t1.priority < t2.priority ? -1 : t1.priority == t2.priority ? 0 : 1;
+        }
+    };
+
 
     class ExecutorServiceCounter {
         public PointsToGraph g;
         public StatementRegistrar registrar;
-        private ForkJoinPool exec;
+        private final ForkJoinPool exec;
+        /**
+         * Whether the pool was created for this analysis and should be shut down when it finishes
+         */
+        private final boolean ownsPool;
 
         /**
-         * The number of tasks currently to be executed
+         * The number of tasks submitted so far. Together with {@link #completedTasks} this is used to detect
+         * quiescence without every task contending on a single counter.
          */
-        private AtomicLong numTasks;
+        private final StripedCounter submittedTasks;
+        /**
+         * The number of tasks that have finished (or been skipped after cancellation)
+         */
+        private final StripedCounter completedTasks;
+        /**
+         * Set once the analysis has been canceled, remaining tasks are then drained without being processed
+         */
+        private volatile boolean canceled = false;
+        /**
+         * First exception or error thrown by a task, if any
+         */
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        /**
+         * Lock held (shared) by tasks while they process a statement, and exclusively while collapsing cycles, null if
+         * cycles are not collapsed while the analysis runs
+         */
+        private final StripedReadWriteLock graphLock;
+        /**
+         * Number of points-to graph nodes the last time cycles were collapsed
+         */
+        private int nodesAtLastCycleDetection = 0;
+        /**
+         * Number of nodes collapsed while the analysis was running
+         */
+        private int nodesCollapsed = 0;
+        /**
+         * Number of times the worker threads were paused to collapse cycles
+         */
+        private int cycleDetectionPauses = 0;
+        /**
+         * Total time, in milliseconds, the worker threads were paused to collapse cycles
+         */
+        private long cycleDetectionPauseTime = 0;
+
+        /**
+         * Tasks that have been submitted but have not started running yet. Work for a (statement, context) pair that
+         * is already in this map is merged into the waiting task rather than creating a new one.
+         */
+        private final ConcurrentMap<StmtAndContext, RunnableStmtAndContext> pending = MultiThreadAnalysisUtil.createConcurrentHashMap();
 
         /*
          * The following fields are for statistics purposes
          */
-        private AtomicLong totalTasksNoDelta;
-        private AtomicLong totalTasksWithDelta;
+        private final StripedCounter totalTasksNoDelta;
+        private final StripedCounter totalTasksWithDelta;
+        private final StripedCounter totalCoalesced;
 
-        public ExecutorServiceCounter(ForkJoinPool exec) {
+        public ExecutorServiceCounter(ForkJoinPool exec, boolean ownsPool) {
             this.exec = exec;
-            this.numTasks = new AtomicLong(0);
-            this.totalTasksNoDelta = new AtomicLong(0);
-            this.totalTasksWithDelta = new AtomicLong(0);
+            this.ownsPool = ownsPool;
+            int stripes = exec.getParallelism() + 1;
+            this.submittedTasks = new StripedCounter(stripes);
+            this.completedTasks = new StripedCounter(stripes);
+            this.totalTasksNoDelta = new StripedCounter(stripes);
+            this.totalTasksWithDelta = new StripedCounter(stripes);
+            this.totalCoalesced = new StripedCounter(stripes);
+            this.graphLock = collapseCyclesOnline ? new StripedReadWriteLock(stripes) : null;
         }
 
         public void setGraphAndRegistrar(PointsToGraph g, StatementRegistrar registrar) {
@@ -209,6 +498,10 @@ public class PointsToAnalysisMultiThreaded extends PointsToAnalysis {
         }
 
         public void shutdownAndAwaitTermination() {
+            if (!this.ownsPool) {
+                // someone else is responsible for the pool
+                return;
+            }
             exec.shutdown();
             boolean finished = false;
             // keep waiting until we successfully finish all the outstanding tasks
@@ -228,62 +521,241 @@ public class PointsToAnalysisMultiThreaded extends PointsToAnalysis {
         }
 
         public void submitTask(StmtAndContext sac, GraphDelta delta) {
-            this.numTasks.incrementAndGet();
+            RunnableStmtAndContext sactask = enqueue(sac, delta);
+            if (sactask != null) {
+                schedule(sactask);
+            }
+        }
+
+        /**
+         * Record that sac needs to be processed with the given delta. If sac is already waiting to be processed, then
+         * the delta is merged into the waiting task, otherwise a new task is created which the caller must
+         * {@link #schedule(RunnableStmtAndContext)}.
+         *
+         * @param sac statement and context to process
+         * @param delta changes to process, null if the statement must be processed against the whole graph
+         * @return new task to schedule, or null if the work was merged into a waiting task
+         */
+        RunnableStmtAndContext enqueue(StmtAndContext sac, GraphDelta delta) {
+            if (this.canceled) {
+                return null;
+            }
+            RunnableStmtAndContext sactask = null;
+            while (true) {
+                RunnableStmtAndContext existing = this.pending.get(sac);
+                if (existing != null && existing.merge(delta)) {
+                    this.totalCoalesced.increment();
+                    return null;
+                }
+                if (sactask == null) {
+                    sactask = new RunnableStmtAndContext(sac, delta);
+                }
+                if (existing == null) {
+                    if (this.pending.putIfAbsent(sac, sactask) == null) {
+                        break;
+                    }
+                }
+                else if (this.pending.replace(sac, existing, sactask)) {
+                    // existing already started running
+                    break;
+                }
+            }
+            this.submittedTasks.increment();
             if (delta == null) {
-                this.totalTasksNoDelta.incrementAndGet();
+                this.totalTasksNoDelta.increment();
             }
             else {
-                this.totalTasksWithDelta.incrementAndGet();
+                this.totalTasksWithDelta.increment();
             }
-            RunnableStmtAndContext sactask = new RunnableStmtAndContext(sac, delta);
-            if (ForkJoinTask.inForkJoinPool()) {
-                sactask.fork();
+            return sactask;
+        }
+
+        /**
+         * Schedule a task returned by {@link #enqueue(StmtAndContext, GraphDelta)}
+         */
+        void schedule(ForkJoinTask<?> task) {
+            if (ForkJoinTask.getPool() == exec) {
+                task.fork();
             }
             else {
-                exec.execute(sactask);
+                exec.execute(task);
             }
         }
 
-        public void finishedTask() {
-            if (this.numTasks.decrementAndGet() == 0) {
-                // Notify anyone that was waiting.
-                synchronized (this) {
-                    this.notifyAll();
-                }
+        /**
+         * Schedule tasks returned by {@link #enqueue(StmtAndContext, GraphDelta)}, as a single fork/join task if
+         * there is more than one
+         */
+        void schedule(List<RunnableStmtAndContext> tasks) {
+            if (tasks.size() == 1) {
+                schedule(tasks.get(0));
+            }
+            else if (!tasks.isEmpty()) {
+                schedule(new TaskBatch(tasks));
             }
         }
 
+        public void finishedTask() {
+            this.completedTasks.increment();
+        }
+
+        /**
+         * Check whether there are tasks that have been submitted but not finished. The completed count is read
+         * before the submitted count: a task is always counted as submitted before it (or its parent) is counted as
+         * completed, so if the two sums agree then no task was outstanding when the completed count was read.
+         *
+         * @return true if some task may still be running or waiting to run
+         */
         public boolean containsPending() {
-            return numTasks.get() > 0;
+            long completed = completedTasks.sum();
+            return submittedTasks.sum() != completed;
         }
 
         public long numRemainingTasks() {
-            return numTasks.get();
+            long completed = completedTasks.sum();
+            return submittedTasks.sum() - completed;
         }
 
-        public void waitUntilAllFinished() {
-            if (this.containsPending()) {
-                synchronized (this) {
-                    try {
-                        // XXX could add timeout stuff here
-                        this.wait();
-                    }
-                    catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
+        /**
+         * Stop processing tasks, any tasks still in the pool are drained without being processed.
+         */
+        public void cancel() {
+            this.canceled = true;
+        }
+
+        /**
+         * Record a failure in a task, and cancel the remaining work
+         *
+         * @param t exception or error thrown by the task
+         */
+        void fail(Throwable t) {
+            this.failure.compareAndSet(null, t);
+            cancel();
+        }
+
+        /**
+         * Block until all submitted tasks have finished, the monitor is canceled, or a task fails
+         *
+         * @param monitor progress monitor to check for cancellation, may be null
+         * @throws CancelException if the monitor was canceled or a task threw an exception
+         */
+        public void waitUntilAllFinished(IProgressMonitor monitor) throws CancelException {
+            long sleep = 1;
+            boolean interrupted = false;
+            while (this.containsPending()) {
+                if (!this.canceled && MonitorUtil.isCanceled(monitor)) {
+                    cancel();
                 }
+                if (!this.canceled && this.graphLock != null) {
+                    this.maybeCollapseCycles();
+                }
+                if (!this.canceled && schedulingPolicy != null) {
+                    // refresh priorities on this (otherwise idle) thread
+                    schedulingPolicy.update(this.g);
+                }
+                try {
+                    Thread.sleep(sleep);
+                }
+                catch (InterruptedException e) {
+                    // treat interruption of the solving thread like a cancellation
+                    cancel();
+                    interrupted = true;
+                }
+                sleep = Math.min(2 * sleep, MAX_POLL_INTERVAL);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            Throwable t = this.failure.get();
+            if (t instanceof Error) {
+                throw (Error) t;
             }
+            if (t != null) {
+                throw new CancelException((Exception) t);
+            }
+            if (this.canceled) {
+                MonitorUtil.throwExceptionIfCanceled(monitor);
+                throw CancelException.make("points-to analysis canceled");
+            }
+        }
+
+        /**
+         * Pause the worker threads and collapse cycles in the points-to graph, if it has grown enough since the last
+         * time this was done
+         */
+        private void maybeCollapseCycles() {
+            int numNodes = this.g.numPointsToGraphNodes();
+            if (numNodes < CYCLE_DETECTION_MIN_NODES
+                    || numNodes < this.nodesAtLastCycleDetection * CYCLE_DETECTION_GROWTH_FACTOR) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            this.graphLock.lockExclusive();
+            try {
+                // no statement is being processed, so every propagation has finished
+                this.nodesCollapsed += this.g.findCycles();
+            }
+            finally {
+                this.graphLock.unlockExclusive();
+            }
+            this.cycleDetectionPauses++;
+            this.cycleDetectionPauseTime += System.currentTimeMillis() - start;
+            this.nodesAtLastCycleDetection = this.g.numPointsToGraphNodes();
         }
 
         public class RunnableStmtAndContext extends ForkJoinTask<Void> {
             private final StmtAndContext sac;
-            private final GraphDelta delta;
+            /**
+             * Changes to process, null if the statement must be processed against the whole graph. Guarded by this.
+             */
+            private GraphDelta delta;
+            /**
+             * Whether delta is a private copy that can be modified (deltas produced by statements are shared by all
+             * their dependents). Guarded by this.
+             */
+            private boolean ownsDelta = false;
+            /**
+             * Whether this task has started running, after which it can no longer absorb new work. Guarded by this.
+             */
+            private boolean started = false;
+            /**
+             * Priority assigned by the {@link SchedulingPolicy} when the task was created, lower runs first
+             */
+            int priority = 0;
 
             public RunnableStmtAndContext(StmtAndContext stmtAndContext, GraphDelta delta) {
                 this.sac = stmtAndContext;
                 this.delta = delta;
             }
 
+            /**
+             * Add the given changes to the work this task will do, if it has not started running yet
+             *
+             * @param d changes to add, null if the statement must be processed against the whole graph
+             * @return true if the changes will be processed by this task
+             */
+            synchronized boolean merge(GraphDelta d) {
+                if (this.started) {
+                    return false;
+                }
+                if (this.delta == null || this.delta == d) {
+                    // already going to process everything, or these exact changes
+                    return true;
+                }
+                if (d == null) {
+                    this.delta = null;
+                    this.ownsDelta = false;
+                    return true;
+                }
+                if (!this.ownsDelta) {
+                    this.delta = new GraphDelta(ExecutorServiceCounter.this.g).combine(this.delta);
+                    this.ownsDelta = true;
+                }
+                this.delta.combine(d);
+                return true;
+            }
+
             @Override
             public Void getRawResult() {
                 return null;
@@ -295,18 +767,66 @@ public class PointsToAnalysisMultiThreaded extends PointsToAnalysis {
 
             @Override
             public boolean exec() {
+                GraphDelta d;
+                synchronized (this) {
+                    this.started = true;
+                    d = this.delta;
+                }
+                ExecutorServiceCounter.this.pending.remove(sac, this);
                 try {
-                    processSaC(sac, delta, ExecutorServiceCounter.this);
-                    ExecutorServiceCounter.this.finishedTask();
-                    return true;
+                    if (!ExecutorServiceCounter.this.canceled) {
+                        if (graphLock == null) {
+                            processSaC(sac, d, ExecutorServiceCounter.this);
+                        }
+                        else {
+                            Lock l = graphLock.sharedLock();
+                            l.lock();
+                            try {
+                                processSaC(sac, d, ExecutorServiceCounter.this);
+                            }
+                            finally {
+                                l.unlock();
+                            }
+                        }
+                    }
                 }
                 catch (Throwable e) {
-                    e.printStackTrace();
-                    System.exit(0);
-                    // No seriously DIE!
-                    Runtime.getRuntime().halt(0);
-                    return false;
+                    ExecutorServiceCounter.this.fail(e);
                 }
+                finally {
+                    ExecutorServiceCounter.this.finishedTask();
+                }
+                return true;
+            }
+        }
+
+        /**
+         * Group of tasks run one after the other by a single worker, to reduce the number of fork/join tasks when a
+         * change has many dependents
+         */
+        @SuppressWarnings("serial")
+        public class TaskBatch extends ForkJoinTask<Void> {
+            private final List<RunnableStmtAndContext> tasks;
+
+            public TaskBatch(List<RunnableStmtAndContext> tasks) {
+                this.tasks = tasks;
+            }
+
+            @Override
+            public Void getRawResult() {
+                return null;
+            }
+
+            @Override
+            protected void setRawResult(Void value) {
+            }
+
+            @Override
+            public boolean exec() {
+                for (RunnableStmtAndContext t : this.tasks) {
+                    t.exec();
+                }
+                return true;
             }
         }
 
@@ -350,12 +870,12 @@ public class PointsToAnalysisMultiThreaded extends PointsToAnalysis {
      * Get any (statement,context) pairs that depend on the given points-to graph node
      *
      * @param n node to get the dependencies for
-     * @return set of dependencies
+     * @return set of ints (from {@link #sacDictionary}) for the dependencies
      */
-    private Set<StmtAndContext> getInterestingDependencies(/*PointsToGraphNode*/int n) {
-        Set<StmtAndContext> sacs = this.interestingDepedencies.get(n);
+    private IntSet getInterestingDependencies(/*PointsToGraphNode*/int n) {
+        IntSet sacs = this.interestingDepedencies.get(n);
         if (sacs == null) {
-            return Collections.emptySet();
+            return EmptyIntSet.instance;
         }
         return sacs;
     }
@@ -370,17 +890,26 @@ public class PointsToAnalysisMultiThreaded extends PointsToAnalysis {
      * @return true if the dependency did not already exist
      */
     boolean addInterestingDependency(/*PointsToGraphNode*/int n, StmtAndContext sac) {
-        // use double checked approach...
+        return getOrCreateDependencySet(n).add(this.sacDictionary.lookup(sac));
+    }
 
-        Set<StmtAndContext> s = this.interestingDepedencies.get(n);
+    /**
+     * Get the set of dependencies for n, creating it if necessary
+     *
+     * @param n points-to graph node
+     * @return mutable set of ints for the (statement, context) pairs that depend on n
+     */
+    MutableIntSet getOrCreateDependencySet(/*PointsToGraphNode*/int n) {
+        // use double checked approach...
+        MutableIntSet s = this.interestingDepedencies.get(n);
         if (s == null) {
-            s = MultiThreadAnalysisUtil.createConcurrentSet();
-            Set<StmtAndContext> existing = this.interestingDepedencies.putIfAbsent(n, s);
+            s = makeConcurrentIntSet();
+            MutableIntSet existing = this.interestingDepedencies.putIfAbsent(n, s);
             if (existing != null) {
                 s = existing;
             }
         }
-        return s.add(sac);
+        return s;
     }
 
     public static MutableIntSet makeConcurrentIntSet() {
@@ -44,7 +44,11 @@ import com.ibm.wala.ipa.callgraph.multithread.util.intmap.IntMap;
 import com.ibm.wala.ipa.callgraph.multithread.util.intmap.SparseIntMap;
 import com.ibm.wala.shrikeBT.IInstruction;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.intset.EmptyIntSet;
 import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
 
 /**
  * Single-threaded implementation of a points-to graph solver. Given a set of
@@ -56,9 +60,14 @@ public class PointsToAnalysisSingleThreaded extends PointsToAnalysis {
      * An interesting dependency from node n to StmtAndContext sac exists when a
      * modification to the pointstoset of n (i.e., if n changes to point to more
      * things) requires reevaluation of sac. Many dependencies are just copy
-     * dependencies (which are not interesting dependencies).
+     * dependencies (which are not interesting dependencies). StmtAndContexts
+     * are recorded using their int from {@link #sacDictionary}.
      */
-    private IntMap<Set<StmtAndContext>> interestingDepedencies = new SparseIntMap<>();
+    private IntMap<MutableIntSet> interestingDepedencies = new SparseIntMap<>();
+    /**
+     * Dictionary for the ints used in {@link #interestingDepedencies}
+     */
+    private final StmtAndContextDictionary sacDictionary = new StmtAndContextDictionary();
 
     /**
      * New pointer analysis engine
@@ -141,18 +150,16 @@ public class PointsToAnalysisSingleThreaded extends PointsToAnalysis {
             @Override
             public void startCollapseNode(int n, int rep) {
                 // add the new dependencies.
-                Set<StmtAndContext> deps = PointsToAnalysisSingleThreaded.this.interestingDepedencies.get(n);
+                MutableIntSet deps = PointsToAnalysisSingleThreaded.this.interestingDepedencies.get(n);
                 if (deps != null) {
-                    for (StmtAndContext depSac : deps) {
-                        PointsToAnalysisSingleThreaded.this.addInterestingDependency(rep, depSac);
-                    }
+                    PointsToAnalysisSingleThreaded.this.getOrCreateDependencySet(rep).addAll(deps);
                 }
             }
 
             @Override
             public void finishCollapseNode(int n, int rep) {
                 // remove the old dependency.
-                Set<StmtAndContext> deps = PointsToAnalysisSingleThreaded.this.interestingDepedencies.get(n);
+                MutableIntSet deps = PointsToAnalysisSingleThreaded.this.interestingDepedencies.get(n);
                 if (deps != null) {
                     PointsToAnalysisSingleThreaded.this.interestingDepedencies.remove(n);
                 }
@@ -404,7 +411,9 @@ public class PointsToAnalysisSingleThreaded extends PointsToAnalysis {
         IntIterator iter = changes.domainIterator();
         while (iter.hasNext()) {
             int n = iter.next();
-            for (StmtAndContext sac : this.getInterestingDependencies(n)) {
+            IntIterator deps = this.getInterestingDependencies(n).intIterator();
+            while (deps.hasNext()) {
+                StmtAndContext sac = this.sacDictionary.get(deps.next());
                 queue.add(new OrderedPair<>(sac, changes));
             }
         }
@@ -453,12 +462,12 @@ public class PointsToAnalysisSingleThreaded extends PointsToAnalysis {
      * graph node
      *
      * @param n node to get the dependencies for
-     * @return set of dependencies
+     * @return set of ints (from {@link #sacDictionary}) for the dependencies
      */
-    private Set<StmtAndContext> getInterestingDependencies(/*PointsToGraphNode*/int n) {
-        Set<StmtAndContext> sacs = this.interestingDepedencies.get(n);
+    private IntSet getInterestingDependencies(/*PointsToGraphNode*/int n) {
+        IntSet sacs = this.interestingDepedencies.get(n);
         if (sacs == null) {
-            return Collections.emptySet();
+            return EmptyIntSet.instance;
         }
         return sacs;
     }
@@ -474,12 +483,23 @@ public class PointsToAnalysisSingleThreaded extends PointsToAnalysis {
      */
     boolean addInterestingDependency(/*PointsToGraphNode*/int n,
                                              StmtAndContext sac) {
-        Set<StmtAndContext> s = this.interestingDepedencies.get(n);
+        return getOrCreateDependencySet(n).add(this.sacDictionary.lookup(sac));
+    }
+
+    /**
+     * Get the set of dependencies for n, creating it if necessary
+     *
+     * @param n points-to graph node
+     * @return mutable set of ints for the (statement, context) pairs that
+     *         depend on n
+     */
+    MutableIntSet getOrCreateDependencySet(/*PointsToGraphNode*/int n) {
+        MutableIntSet s = this.interestingDepedencies.get(n);
         if (s == null) {
-            s = new HashSet<>();
+            s = MutableSparseIntSet.makeEmpty();
             this.interestingDepedencies.put(n, s);
         }
-        return s.add(sac);
+        return s;
     }
 
 
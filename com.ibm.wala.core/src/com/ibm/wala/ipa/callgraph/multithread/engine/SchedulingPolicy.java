@@ -0,0 +1,29 @@
+package com.ibm.wala.ipa.callgraph.multithread.engine;
+
+import com.ibm.wala.ipa.callgraph.multithread.graph.PointsToGraph;
+
+/**
+ * Policy for ordering the (statement, context) pairs that the multi-threaded points-to engine processes after the
+ * points-to set of a node changes. Statements with a lower priority are scheduled to run before statements with a
+ * higher priority.
+ */
+public interface SchedulingPolicy {
+
+    /**
+     * Refresh any information the policy uses to compute priorities. This is called periodically by the thread waiting
+     * for the analysis to finish, while worker threads are modifying the graph.
+     *
+     * @param g points-to graph being computed
+     */
+    void update(PointsToGraph g);
+
+    /**
+     * Priority of the work triggered by a change to the points-to set of node n. This is called concurrently by worker
+     * threads and should be cheap.
+     *
+     * @param g points-to graph being computed
+     * @param n points-to graph node that changed
+     * @return priority, lower values are scheduled first
+     */
+    int priority(PointsToGraph g, /*PointsToGraphNode*/int n);
+}
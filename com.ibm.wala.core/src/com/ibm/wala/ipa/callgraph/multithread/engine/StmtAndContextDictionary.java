@@ -0,0 +1,71 @@
+package com.ibm.wala.ipa.callgraph.multithread.engine;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.wala.ipa.callgraph.multithread.engine.PointsToAnalysis.StmtAndContext;
+import com.ibm.wala.ipa.callgraph.multithread.util.MultiThreadAnalysisUtil;
+import com.ibm.wala.ipa.callgraph.multithread.util.intmap.ConcurrentIntMap;
+
+/**
+ * Thread-safe mapping between (statement, context) pairs and ints, so that engines can record dependencies on
+ * {@link StmtAndContext}s in int sets rather than sets of objects.
+ */
+public class StmtAndContextDictionary {
+
+    /**
+     * Counter for unique integers for StmtAndContexts
+     */
+    private final AtomicInteger counter = new AtomicInteger(0);
+    /**
+     * Dictionary for mapping ints to StmtAndContexts
+     */
+    private final ConcurrentIntMap<StmtAndContext> dictionary = PointsToAnalysisMultiThreaded.makeConcurrentIntMap();
+    /**
+     * Dictionary for mapping StmtAndContexts to ints
+     */
+    private final ConcurrentMap<StmtAndContext, Integer> reverseDictionary = MultiThreadAnalysisUtil.createConcurrentHashMap();
+
+    /**
+     * Get the int for the given (statement, context) pair, allocating a new one if it has not been seen before
+     *
+     * @param sac statement and context
+     * @return unique int for sac
+     */
+    public int lookup(StmtAndContext sac) {
+        Integer n = this.reverseDictionary.get(sac);
+        if (n == null) {
+            // not in the dictionary yet
+            n = this.counter.getAndIncrement();
+            // Put the mapping into the dictionary before putting it into reverseDictionary, so that no one can get int
+            // n from reverseDictionary and then find nothing in dictionary.
+            this.dictionary.put(n, sac);
+            Integer existing = this.reverseDictionary.putIfAbsent(sac, n);
+            if (existing != null) {
+                // someone beat us. n will never be used.
+                this.dictionary.remove(n);
+                n = existing;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Get the (statement, context) pair for an int returned by {@link #lookup(StmtAndContext)}
+     *
+     * @param n int for the pair
+     * @return the canonical (statement, context) pair for n
+     */
+    public StmtAndContext get(int n) {
+        StmtAndContext sac = this.dictionary.get(n);
+        assert sac != null : "No StmtAndContext for " + n;
+        return sac;
+    }
+
+    /**
+     * @return number of (statement, context) pairs in the dictionary
+     */
+    public int size() {
+        return this.reverseDictionary.size();
+    }
+}
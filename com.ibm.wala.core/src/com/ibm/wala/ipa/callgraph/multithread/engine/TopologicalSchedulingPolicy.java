@@ -0,0 +1,84 @@
+package com.ibm.wala.ipa.callgraph.multithread.engine;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import com.ibm.wala.ipa.callgraph.multithread.graph.PointsToGraph;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+
+/**
+ * Schedule work in approximate topological order of the subset relations of the points-to graph, so that the
+ * points-to sets of source nodes settle before the nodes they flow into are reprocessed. Nodes in the same strongly
+ * connected component have the same priority.
+ * <p>
+ * The ranks are recomputed from a snapshot of the subset graph whenever the number of points-to graph nodes has grown
+ * by {@link #GROWTH_FACTOR} since they were last computed. Nodes created since then are scheduled after all ranked
+ * nodes.
+ */
+public class TopologicalSchedulingPolicy implements SchedulingPolicy {
+
+    /**
+     * Recompute ranks once the graph has this many times as many nodes as when they were last computed
+     */
+    private static final double GROWTH_FACTOR = 1.5;
+    /**
+     * Don't bother ranking graphs smaller than this
+     */
+    private static final int MIN_NODES = 1000;
+
+    /**
+     * Rank of each points-to graph node, indexed by node
+     */
+    private volatile int[] ranks = new int[0];
+    /**
+     * Rank for nodes that are not in {@link #ranks}
+     */
+    private volatile int unranked = 0;
+    /**
+     * Number of points-to graph nodes when ranks were last computed
+     */
+    private int lastNumNodes = 0;
+
+    @Override
+    public void update(PointsToGraph g) {
+        int numNodes = g.numPointsToGraphNodes();
+        if (numNodes < MIN_NODES || numNodes < this.lastNumNodes * GROWTH_FACTOR) {
+            return;
+        }
+        this.lastNumNodes = numNodes;
+
+        NumberedGraph<Integer> subsetGraph = g.copySubsetGraph();
+        int max = -1;
+        for (Integer n : subsetGraph) {
+            max = Math.max(max, n);
+        }
+        // SCCs are produced in topological order, so a source SCC gets the lowest rank
+        int rank = 0;
+        int[] newRanks = new int[max + 1];
+        Arrays.fill(newRanks, Integer.MAX_VALUE);
+        SCCIterator<Integer> sccs = new SCCIterator<>(subsetGraph);
+        while (sccs.hasNext()) {
+            Set<Integer> scc = sccs.next();
+            for (Integer n : scc) {
+                newRanks[n] = rank;
+            }
+            rank++;
+        }
+        for (int i = 0; i < newRanks.length; i++) {
+            if (newRanks[i] == Integer.MAX_VALUE) {
+                // node with no subset edges
+                newRanks[i] = rank;
+            }
+        }
+        this.unranked = rank;
+        this.ranks = newRanks;
+    }
+
+    @Override
+    public int priority(PointsToGraph g, int n) {
+        int[] r = this.ranks;
+        n = g.getRepresentative(n);
+        return n < r.length ? r[n] : this.unranked;
+    }
+}
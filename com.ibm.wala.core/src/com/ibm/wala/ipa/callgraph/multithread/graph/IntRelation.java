@@ -77,8 +77,7 @@ public class IntRelation {
             if (rep != b) {
                 this.add(rep, b);
             }
-            MutableIntSet bBackward = this.getOrCreateSet(b, false);
-            bBackward.remove(n);
+            this.removeFromSet(b, n, false);
         }
         forwardReln.remove(n);
 
@@ -90,12 +89,33 @@ public class IntRelation {
             if (rep != a) {
                 this.add(a, rep);
             }
-            MutableIntSet aForward = this.getOrCreateSet(a, true);
-            aForward.remove(n);
+            this.removeFromSet(a, n, true);
         }
         backReln.remove(n);
     }
 
+    /**
+     * Remove x from the set for n. The concurrent sets do not support removal, so the set is replaced by a copy without
+     * x. This is only safe while no other thread is using the relation, which is the case while nodes are collapsed.
+     */
+    private void removeFromSet(int n, int x, boolean forward) {
+        ConcurrentIntMap<MutableIntSet> m = forward ? this.forwardReln : this.backReln;
+
+        MutableIntSet s = m.get(n);
+        if (s == null || !s.contains(x)) {
+            return;
+        }
+        MutableIntSet copy = PointsToAnalysisMultiThreaded.makeConcurrentIntSet();
+        IntIterator iter = s.intIterator();
+        while (iter.hasNext()) {
+            int y = iter.next();
+            if (y != x) {
+                copy.add(y);
+            }
+        }
+        m.put(n, copy);
+    }
+
     /**
      * Return the domain, i.e., the set {a | (a,b) \in R }
      */
@@ -1,5 +1,6 @@
 package com.ibm.wala.ipa.callgraph.multithread.graph;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -32,11 +33,15 @@ import com.ibm.wala.ipa.callgraph.multithread.util.intmap.DenseIntMap;
 import com.ibm.wala.ipa.callgraph.multithread.util.intmap.IntMap;
 import com.ibm.wala.ipa.callgraph.multithread.util.intmap.ReadOnlyConcurrentIntMap;
 import com.ibm.wala.ipa.callgraph.multithread.util.intmap.SparseIntMap;
+import com.ibm.wala.ipa.callgraph.multithread.util.intset.ConcurrentBitVectorIntSet;
+import com.ibm.wala.ipa.callgraph.multithread.util.intset.ConcurrentIntSetFactory;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.collections.EmptyIntIterator;
 import com.ibm.wala.util.collections.IntStack;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
 import com.ibm.wala.util.intset.EmptyIntSet;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
@@ -130,6 +135,11 @@ public class PointsToGraph {
      */
     private final ConcurrentIntMap<Integer> representative = PointsToAnalysisMultiThreaded.makeConcurrentIntMap();
 
+    /**
+     * Factory used to create the points-to sets in pointsTo
+     */
+    private final ConcurrentIntSetFactory pointsToSetFactory;
+
 
     /* ***************************************************************************
     *
@@ -181,9 +191,23 @@ public class PointsToGraph {
     public static boolean DEBUG = false;
 
     public PointsToGraph(StatementRegistrar registrar, HeapAbstractionFactory haf, DependencyRecorder depRecorder) {
+        this(registrar, haf, depRecorder, haf.getPointsToSetFactory());
+    }
+
+    /**
+     * Create a points-to graph whose points-to sets are created by the given factory
+     *
+     * @param registrar registrar containing the initial methods
+     * @param haf heap abstraction factory
+     * @param depRecorder recorder to notify of reads and writes of the graph
+     * @param pointsToSetFactory factory for the (concurrent) points-to sets
+     */
+    public PointsToGraph(StatementRegistrar registrar, HeapAbstractionFactory haf, DependencyRecorder depRecorder,
+                         ConcurrentIntSetFactory pointsToSetFactory) {
         this.depRecorder = depRecorder;
 
         this.haf = haf;
+        this.pointsToSetFactory = pointsToSetFactory;
 
         this.populateInitialContexts(registrar.getInitialContextMethods());
     }
@@ -1129,6 +1153,11 @@ public class PointsToGraph {
         IntSet s = this.pointsToSetMutable(source);
         IntIterator srcIter;
         if (filter == null) {
+            IntSet targetSet = this.pointsToSetMutable(this.getRepresentative(target));
+            if (s instanceof ConcurrentBitVectorIntSet && targetSet instanceof ConcurrentBitVectorIntSet) {
+                // compare a word at a time rather than an element at a time
+                return ((ConcurrentBitVectorIntSet) s).difference((ConcurrentBitVectorIntSet) targetSet);
+            }
             srcIter = s.intIterator();
         }
         else {
@@ -1190,7 +1219,7 @@ public class PointsToGraph {
       MutableIntSet s = this.pointsTo.get(n);
       assert (!graphFinished);
       if (s == null) {
-        s = PointsToAnalysisMultiThreaded.makeConcurrentIntSet();
+        s = this.pointsToSetFactory.makeSet();
         MutableIntSet ex = this.pointsTo.putIfAbsent(n, s);
         if (ex != null) {
           // someone beat us to it!
@@ -1210,7 +1239,7 @@ public class PointsToGraph {
     private IntSet pointsToSet(/*PointsToGraphNode*/int n) {
         IntSet s = this.pointsTo.get(n);
         if (s == null && !graphFinished) {
-          MutableIntSet ms = PointsToAnalysisMultiThreaded.makeConcurrentIntSet();
+          MutableIntSet ms = this.pointsToSetFactory.makeSet();
           s = ms;
           MutableIntSet ex = this.pointsTo.putIfAbsent(n, ms);
           if (ex != null) {
@@ -1228,84 +1257,163 @@ public class PointsToGraph {
         return this.representative.size();
     }
 
-    public void findCycles() {
-        IntMap<MutableIntSet> toCollapse = new SparseIntMap<>();
+    /**
+     * Find cycles of unfiltered subset relations and collapse the nodes in each cycle into a single representative.
+     * <p>
+     * This may be called while the graph is being constructed, but not concurrently with any other modification of the
+     * graph: all the nodes in an unfiltered cycle have the same points-to set only once every in-progress propagation
+     * has finished.
+     *
+     * @return number of nodes that were collapsed
+     */
+    public int findCycles() {
+        assert !this.graphFinished;
+        int collapsed = 0;
+        for (IntSet scc : this.findUnfilteredSCCs()) {
+            IntIterator iter = scc.intIterator();
+            int rep = iter.next();
+            while (iter.hasNext()) {
+                int n = iter.next();
+                assert containsAll(this.pointsToSet(rep), this.pointsToSet(n)) : "Nodes in a cycle should have the same points-to sets";
+                this.collapseNodes(n, rep);
+                collapsed++;
+            }
+        }
+        return collapsed;
+    }
 
-        MutableIntSet visited = MutableSparseIntSet.makeEmpty();
-        IntIterator iter = this.isUnfilteredSubsetOf.domain();
+    /**
+     * Check whether every element of t is in s. The concurrent points-to sets do not implement
+     * {@link IntSet#isSubset(IntSet)}.
+     */
+    private static boolean containsAll(IntSet s, IntSet t) {
+        IntIterator iter = t.intIterator();
         while (iter.hasNext()) {
-            int n = iter.next();
-            this.findCycles(n, visited, MutableSparseIntSet.makeEmpty(), new IntStack(), toCollapse);
+            if (!s.contains(iter.next())) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        MutableIntSet collapsed = MutableSparseIntSet.makeEmpty();
-        IntIterator repIter = toCollapse.keyIterator();
-        while (repIter.hasNext()) {
-            int rep = repIter.next();
-            rep = this.getRepresentative(rep); // it is possible that rep was already collapsed to something else. So we get the representative of it to shortcut things.
-            IntIterator nIter = toCollapse.get(rep).intIterator();
-            while (nIter.hasNext()) {
-                int n = nIter.next();
-                if (collapsed.contains(n)) {
-                    // we have already collapsed n with something. let's skip it.
+    /**
+     * Compute the non-trivial strongly connected components of the unfiltered subset relation, using an iterative
+     * version of Tarjan's algorithm so that long subset chains do not overflow the stack.
+     *
+     * @return strongly connected components with more than one node
+     */
+    private List<IntSet> findUnfilteredSCCs() {
+        int numNodes = this.graphNodeCounter.get();
+        // index[n] is the (1-based) DFS discovery index of n, or 0 if n has not been visited
+        int[] index = new int[numNodes];
+        int[] lowlink = new int[numNodes];
+        boolean[] onStack = new boolean[numNodes];
+        int nextIndex = 1;
+
+        IntStack sccStack = new IntStack();
+        IntStack dfsStack = new IntStack();
+        Stack<IntIterator> childIterators = new Stack<>();
+        List<IntSet> sccs = new ArrayList<>();
+
+        IntIterator roots = this.isUnfilteredSubsetOf.domain();
+        while (roots.hasNext()) {
+            int root = roots.next();
+            if (root >= numNodes || index[root] != 0 || this.representative.containsKey(root)) {
+                continue;
+            }
+            index[root] = lowlink[root] = nextIndex++;
+            sccStack.push(root);
+            onStack[root] = true;
+            dfsStack.push(root);
+            childIterators.push(this.isUnfilteredSubsetOf.forward(root).intIterator());
+
+            while (!dfsStack.isEmpty()) {
+                int v = dfsStack.peek();
+                IntIterator children = childIterators.peek();
+                if (children.hasNext()) {
+                    int w = children.next();
+                    if (w >= numNodes || w == v) {
+                        continue;
+                    }
+                    if (index[w] == 0) {
+                        // "recurse" on w
+                        index[w] = lowlink[w] = nextIndex++;
+                        sccStack.push(w);
+                        onStack[w] = true;
+                        dfsStack.push(w);
+                        childIterators.push(this.isUnfilteredSubsetOf.forward(w).intIterator());
+                    }
+                    else if (onStack[w]) {
+                        lowlink[v] = Math.min(lowlink[v], index[w]);
+                    }
                     continue;
                 }
-                collapsed.add(n);
-                this.collapseNodes(n, rep);
+
+                // finished all the children of v
+                dfsStack.pop();
+                childIterators.pop();
+                if (!dfsStack.isEmpty()) {
+                    int parent = dfsStack.peek();
+                    lowlink[parent] = Math.min(lowlink[parent], lowlink[v]);
+                }
+                if (lowlink[v] == index[v]) {
+                    // v is the root of an SCC
+                    MutableIntSet scc = MutableSparseIntSet.makeEmpty();
+                    int w;
+                    do {
+                        w = sccStack.pop();
+                        onStack[w] = false;
+                        scc.add(w);
+                    } while (w != v);
+                    if (scc.size() > 1) {
+                        sccs.add(scc);
+                    }
+                }
             }
         }
-
+        return sccs;
     }
 
-    private void findCycles(/*PointsToGraphNode*/int n, MutableIntSet visited, MutableIntSet currentlyVisiting,
-                            IntStack currentlyVisitingStack, IntMap<MutableIntSet> toCollapse) {
-        if (currentlyVisiting.contains(n)) {
-            // we detected a cycle!
-            int foundAt = -1;
-            for (int i = 0; i < currentlyVisiting.size(); i++) {
-                if (foundAt < 0 && currentlyVisitingStack.get(i) == n) {
-                    foundAt = i;
-                    break;
-                }
-            }
-            // we can collapse some nodes together!
-            MutableIntSet toCollapseSet = toCollapse.get(n);
-            if (toCollapseSet == null) {
-                toCollapseSet = MutableSparseIntSet.makeEmpty();
-                toCollapse.put(n, toCollapseSet);
-            }
-            for (int i = foundAt + 1; i < currentlyVisitingStack.size(); i++) {
-                toCollapseSet.add(currentlyVisitingStack.get(i));
-            }
-            return;
+    /**
+     * Copy the subset relations (both filtered and unfiltered) into a graph where there is an edge from a to b if a is
+     * a subset of b. Nodes that have been collapsed into a representative are not included. This may be called while
+     * the graph is being modified, in which case edges added concurrently may or may not be included.
+     *
+     * @return snapshot of the subset graph
+     */
+    public NumberedGraph<Integer> copySubsetGraph() {
+        assert !this.graphFinished;
+        NumberedGraph<Integer> subsetGraph = SlowSparseNumberedGraph.make();
+        IntIterator iter = this.isUnfilteredSubsetOf.domain();
+        while (iter.hasNext()) {
+            int n = iter.next();
+            addSubsetEdges(subsetGraph, n, this.isUnfilteredSubsetOf.forward(n).intIterator());
         }
+        iter = this.isFilteredSubsetOf.domain();
+        while (iter.hasNext()) {
+            int n = iter.next();
+            addSubsetEdges(subsetGraph, n, this.isFilteredSubsetOf.forward(n).keyIterator());
+        }
+        return subsetGraph;
+    }
 
-        if (visited.contains(n)) {
-            // already recursed or recursing on the children of n
+    private void addSubsetEdges(NumberedGraph<Integer> subsetGraph, int n, IntIterator supersets) {
+        if (this.representative.containsKey(n)) {
             return;
         }
-        visited.add(n);
-
-        // now recurse.
-        currentlyVisiting.add(n);
-        currentlyVisitingStack.push(n);
-        IntSet children = this.isUnfilteredSubsetOf.forward(n);
-        if (children == null) {
-            children = EmptyIntSet.instance;
+        if (!subsetGraph.containsNode(n)) {
+            subsetGraph.addNode(n);
         }
-        IntIterator childIterator = children.intIterator();
-        while (childIterator.hasNext()) {
-            int child = childIterator.next();
-            this.findCycles(child,
-                            visited,
-                            currentlyVisiting,
-                            currentlyVisitingStack,
-                            toCollapse);
+        while (supersets.hasNext()) {
+            int m = supersets.next();
+            if (this.representative.containsKey(m)) {
+                continue;
+            }
+            if (!subsetGraph.containsNode(m)) {
+                subsetGraph.addNode(m);
+            }
+            subsetGraph.addEdge(n, m);
         }
-
-        currentlyVisiting.remove(n);
-        currentlyVisitingStack.pop();
-
     }
 
     public void constructionFinished() {
@@ -1392,7 +1500,8 @@ public class PointsToGraph {
     
     public OrdinalSet<InstanceKey> getOrdinalPointsToSet(PointsToGraphNode n) {
       assert graphFinished;
-      IntSet s = pointsToSet(lookupDictionary(n)); 
+      // n may have been collapsed into another node
+      IntSet s = pointsToSet(getRepresentative(lookupDictionary(n)));
       return new OrdinalSet<>(s, getOrdinalSetMapping());
     }
     
@@ -1,6 +1,5 @@
 package com.ibm.wala.ipa.callgraph.multithread.registrar;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 
@@ -18,7 +17,8 @@ import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.types.TypeReference;
 
 /**
- * Factory for creating unique reference variables for locals, static fields, and method summaries.
+ * Factory for creating unique reference variables for locals, static fields, and method summaries. The factory is
+ * thread safe, so that methods can be registered concurrently.
  * <p>
  * If assertions are turned on then duplication of nodes will throw an AssertionError where appropriate.
  */
@@ -28,30 +28,30 @@ public class ReferenceVariableFactory {
      * Points-to graph nodes for local variables representing the contents of the inner dimensions of multi-dimensional
      * arrays
      */
-    private final Map<ArrayContentsKey, ReferenceVariable> arrayContentsTemps =
-            new LinkedHashMap<>();
+    private final ConcurrentMap<ArrayContentsKey, ReferenceVariable> arrayContentsTemps =
+            MultiThreadAnalysisUtil.createConcurrentHashMap();
     /**
      * Points-to graph nodes for implicit exceptions and errors
      */
-    private final Map<ImplicitThrowKey, ReferenceVariable> implicitThrows =
-            new LinkedHashMap<>();
+    private final ConcurrentMap<ImplicitThrowKey, ReferenceVariable> implicitThrows =
+            MultiThreadAnalysisUtil.createConcurrentHashMap();
     /**
      * Points-to graph nodes for static fields
      */
-    private final Map<IField, ReferenceVariable> staticFields =
-            new LinkedHashMap<>();
+    private final ConcurrentMap<IField, ReferenceVariable> staticFields =
+            MultiThreadAnalysisUtil.createConcurrentHashMap();
     /**
      * Nodes for local variables
      */
-    private final Map<OrderedPair<Integer, IMethod>, ReferenceVariable> locals =
-            new LinkedHashMap<>();
+    private final ConcurrentMap<OrderedPair<Integer, IMethod>, ReferenceVariable> locals =
+            MultiThreadAnalysisUtil.createConcurrentHashMap();
     /**
      * Nodes for singleton exceptions if they are created, there can be only one per type. The points-to analysis will
      * be less precise, but the points-to graph will be smaller and the points-to analysis faster. The creation is
      * governed by a flag in {@link StatementRegistrar}
      */
-    private final Map<TypeReference, ReferenceVariable> singletons =
-            new LinkedHashMap<>();
+    private final ConcurrentMap<TypeReference, ReferenceVariable> singletons =
+            MultiThreadAnalysisUtil.createConcurrentHashMap();
 
     /**
      * Get the reference variable for the given local in the given method. The local should not have a primitive type or
@@ -85,7 +85,10 @@ public class ReferenceVariableFactory {
                                 + method.getName());
             }
             rv = new ReferenceVariable(name, type, false);
-            locals.put(key, rv);
+            ReferenceVariable existing = locals.putIfAbsent(key, rv);
+            if (existing != null) {
+                rv = existing;
+            }
         }
         return rv;
     }
@@ -236,7 +239,11 @@ public class ReferenceVariableFactory {
                                                   + f.getName().toString(),
                                           f.getFieldTypeReference(),
                                           true);
-            staticFields.put(f, node);
+            ReferenceVariable existing = staticFields.putIfAbsent(f, node);
+            if (existing != null) {
+                // another thread created the node first
+                node = existing;
+            }
         }
         return node;
     }
@@ -4,7 +4,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -140,7 +139,13 @@ public class StatementRegistrar {
     /**
      * Map from method to index mapping replaced variables to their replacements
      */
-    private final Map<IMethod, VariableIndex> replacedVariableMap = new LinkedHashMap<>();
+    private final Map<IMethod, VariableIndex> replacedVariableMap = MultiThreadAnalysisUtil.createConcurrentHashMap();
+    /**
+     * Locks striped by method. The lock for a method must be held to add a statement to the method's statement set or
+     * to replace that set, so that no statement is lost when duplicates are removed from a method registered
+     * concurrently.
+     */
+    private final Object[] methodLocks;
 
     /**
      * Class that manages the registration of points-to statements. These describe how certain expressions modify the
@@ -172,6 +177,14 @@ public class StatementRegistrar {
         this.handledStringLit = MultiThreadAnalysisUtil.createConcurrentSet();
         this.entryPoint = MultiThreadAnalysisUtil.getFakeRoot();
         this.stmtFactory = factory;
+        int stripes = 1;
+        while (stripes < 4 * MultiThreadAnalysisUtil.numThreads) {
+            stripes <<= 1;
+        }
+        this.methodLocks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.methodLocks[i] = new Object();
+        }
         this.useSingleAllocForGenEx = useSingleAllocForGenEx || useSingleAllocPerThrowableType;
         System.err.println("Singleton allocation site per generated exception type: " + this.useSingleAllocForGenEx);
         this.useSingleAllocForPrimitiveArrays = useSingleAllocForPrimitiveArrays;
@@ -189,11 +202,13 @@ public class StatementRegistrar {
     }
 
     /**
-     * Handle all the instructions for a given method
+     * Handle all the instructions for a given method. This may be called concurrently for different methods, if it is
+     * called concurrently for the same method then exactly one of the calls registers the statements and returns true.
      *
      * @param m method to register points-to statements for
+     * @return true if this call registered the statements for m
      */
-    public synchronized boolean registerMethod(IMethod m) {
+    public boolean registerMethod(IMethod m) {
         if (m.isAbstract()) {
             // Don't need to register abstract methods
             return false;
@@ -228,16 +243,18 @@ public class StatementRegistrar {
             }
 
             // now try to remove duplicates
-            Set<PointsToStatement> oldStatements = this.getStatementsForMethod(m);
-            int oldSize = oldStatements.size();
-            OrderedPair<Set<PointsToStatement>, VariableIndex> duplicateResults = RemoveDuplicateStatements.removeDuplicates(oldStatements);
-            Set<PointsToStatement> newStatements = duplicateResults.fst();
-            replacedVariableMap.put(m, duplicateResults.snd());
-            int newSize = newStatements.size();
-
-            this.removed += (oldSize - newSize);
-            this.statementsForMethod.put(m, newStatements);
-            this.size.addAndGet(newSize - oldSize);
+            synchronized (this.lockFor(m)) {
+                Set<PointsToStatement> oldStatements = this.getStatementsForMethod(m);
+                int oldSize = oldStatements.size();
+                OrderedPair<Set<PointsToStatement>, VariableIndex> duplicateResults = RemoveDuplicateStatements.removeDuplicates(oldStatements);
+                Set<PointsToStatement> newStatements = duplicateResults.fst();
+                replacedVariableMap.put(m, duplicateResults.snd());
+                int newSize = newStatements.size();
+
+                StatementRegistrar.removed.addAndGet(oldSize - newSize);
+                this.statementsForMethod.put(m, newStatements);
+                this.size.addAndGet(newSize - oldSize);
+            }
 
             if (PointsToAnalysis.outputLevel >= 1) {
                 System.err.println("HANDLED: " + PrettyPrinter.methodString(m));
@@ -253,9 +270,18 @@ public class StatementRegistrar {
      * A listener that will get notified of newly created statements.
      */
     private StatementListener stmtListener = null;
-    int swingClasses = 0;
+    final AtomicInteger swingClasses = new AtomicInteger(0);
 
-    private static int removed = 0;
+    private static final AtomicInteger removed = new AtomicInteger(0);
+
+    /**
+     * Get the lock guarding the statement set of the given method
+     */
+    private Object lockFor(IMethod m) {
+        int h = m.hashCode();
+        h ^= (h >>> 16);
+        return this.methodLocks[h & (this.methodLocks.length - 1)];
+    }
 
     /**
      * Handle a particular instruction, this dispatches on the type of the instruction
@@ -691,7 +717,7 @@ public class StatementRegistrar {
         else if (useSingleAllocForSwing
                 && (klass.toString().contains("Ljavax/swing/") || klass.toString().contains("Lsun/swing/") || klass.toString()
                                                                                                                    .contains("Lcom/sun/java/swing"))) {
-            swingClasses++;
+            swingClasses.incrementAndGet();
             ReferenceVariable rv = getOrCreateSingleton(allocType);
             this.addStatement(stmtFactory.localToLocal(result, rv, ir.getMethod(), false));
         }
@@ -864,25 +890,24 @@ public class StatementRegistrar {
      */
     protected void addStatement(PointsToStatement s) {
         IMethod m = s.getMethod();
-        Set<PointsToStatement> ss = this.statementsForMethod.get(m);
-        if (ss == null) {
-            ss = MultiThreadAnalysisUtil.createConcurrentSet();
-            Set<PointsToStatement> ex = this.statementsForMethod.putIfAbsent(m, ss);
-            if (ex != null) {
-                ss = ex;
+        synchronized (this.lockFor(m)) {
+            Set<PointsToStatement> ss = this.statementsForMethod.get(m);
+            if (ss == null) {
+                ss = MultiThreadAnalysisUtil.createConcurrentSet();
+                this.statementsForMethod.put(m, ss);
+            }
+            assert !ss.contains(s) : "STATEMENT: " + s + " was already added";
+            if (ss.add(s)) {
+                this.size.incrementAndGet();
             }
-        }
-        assert !ss.contains(s) : "STATEMENT: " + s + " was already added";
-        if (ss.add(s)) {
-            this.size.incrementAndGet();
         }
         if (stmtListener != null) {
             // let the listener now a statement has been added.
             stmtListener.newStatement(s);
         }
 
-        if ((this.size.get() + StatementRegistrar.removed) % 100000 == 0) {
-            System.err.println("REGISTERED: " + (this.size.get() + StatementRegistrar.removed) + ", removed: "
+        if ((this.size.get() + StatementRegistrar.removed.get()) % 100000 == 0) {
+            System.err.println("REGISTERED: " + (this.size.get() + StatementRegistrar.removed.get()) + ", removed: "
                     + StatementRegistrar.removed + " effective: " + this.size);
             // if (StatementRegistrationPass.PROFILE) {
             // System.err.println("PAUSED HIT ENTER TO CONTINUE: ");
@@ -951,11 +976,10 @@ public class StatementRegistrar {
                                                                             TypeReference.JavaLangString,
                                                                             ir.getMethod(),
                                                                             pp);
-                if (this.handledStringLit.contains(newStringLit)) {
+                if (!this.handledStringLit.add(newStringLit)) {
                     // Already handled this allocation
                     return;
                 }
-                this.handledStringLit.add(newStringLit);
 
                 // The fake root method always allocates a String so the clinit has already been called, even if we are
                 // flow sensitive
@@ -1030,12 +1054,17 @@ public class StatementRegistrar {
      */
     private ReferenceVariable getOrCreateSingleton(TypeReference varType) {
         ReferenceVariable rv = this.singletonReferenceVariables.get(varType);
-        if (rv == null) {
-            rv = rvFactory.createSingletonReferenceVariable(varType);
-            ReferenceVariable existing = this.singletonReferenceVariables.putIfAbsent(varType, rv);
-            if (existing != null) {
-                rv = existing;
+        if (rv != null) {
+            return rv;
+        }
+        // Singletons are rare, so create them under a single lock to make sure the allocation is only registered once
+        synchronized (this.singletonReferenceVariables) {
+            rv = this.singletonReferenceVariables.get(varType);
+            if (rv != null) {
+                return rv;
             }
+            rv = rvFactory.createSingletonReferenceVariable(varType);
+            this.singletonReferenceVariables.put(varType, rv);
 
             IClass klass = MultiThreadAnalysisUtil.getClassHierarchy().lookupClass(varType);
             assert klass != null : "No class found for " + PrettyPrinter.typeString(varType);
@@ -1382,11 +1411,11 @@ public class StatementRegistrar {
     /**
      * Exceptions that may be thrown by an array load
      */
-    private static Collection<TypeReference> arrayLoadExeptions;
+    private static volatile Collection<TypeReference> arrayLoadExeptions;
     /**
      * Exceptions that may be thrown by an array store
      */
-    private static Collection<TypeReference> arrayStoreExeptions;
+    private static volatile Collection<TypeReference> arrayStoreExeptions;
     /**
      * Singleton collection containing the null pointer exception type
      */
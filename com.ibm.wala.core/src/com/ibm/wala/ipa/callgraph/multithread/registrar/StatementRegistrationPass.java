@@ -8,6 +8,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
@@ -16,7 +22,6 @@ import com.ibm.wala.ipa.callgraph.multithread.graph.ReferenceVariableCache;
 import com.ibm.wala.ipa.callgraph.multithread.statements.StatementFactory;
 import com.ibm.wala.ipa.callgraph.multithread.util.ClassInitFinder;
 import com.ibm.wala.ipa.callgraph.multithread.util.MultiThreadAnalysisUtil;
-import com.ibm.wala.ipa.callgraph.multithread.util.WorkQueue;
 import com.ibm.wala.ipa.callgraph.multithread.util.print.PrettyPrinter;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.ssa.IR;
@@ -27,7 +32,8 @@ import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.types.TypeReference;
 
 /**
- * Collect pointer analysis constraints with a pass over the code
+ * Collect pointer analysis constraints with a pass over the code. Methods are registered concurrently, a method is
+ * registered as soon as it is discovered to be (possibly) reachable.
  */
 public class StatementRegistrationPass {
 
@@ -67,187 +73,338 @@ public class StatementRegistrationPass {
     }
 
     /**
-     * Initialize the queue using the defined entry points
+     * Run the pass in a new pool with {@link MultiThreadAnalysisUtil#numThreads} threads
      */
-    private static void init(WorkQueue<IMethod> q) {
-        q.add(MultiThreadAnalysisUtil.getFakeRoot());
+    public void run() {
+        ForkJoinPool pool = new ForkJoinPool(MultiThreadAnalysisUtil.numThreads);
+        try {
+            run(pool);
+        }
+        finally {
+            pool.shutdown();
+        }
     }
 
     /**
-     * Add statements given class initializers
+     * Run the pass, registering independent methods concurrently in the given pool. Each method is registered by a
+     * task that forks a new task for each method it discovers. The pool is not shut down.
      *
-     * @param trigger instruction that triggered the clinit
-     * @param containingCode code containing the instruction that triggered the clinit
-     * @param clinits class initialization methods that might need to be called in the order they need to be called
-     *            (i.e. element j is a super class of element j+1)
-     * @return true if any new class initializer was seen
+     * @param pool pool to run the registration tasks in
      */
-    private static boolean addClassInitializers(WorkQueue<IMethod> q, List<IMethod> clinits) {
-        assert !clinits.isEmpty();
-        boolean added = false;
-        for (int j = clinits.size() - 1; j >= 0; j--) {
-            IMethod clinit = clinits.get(j);
-            boolean oneAdded = q.add(clinit);
-            if (oneAdded && PointsToAnalysis.outputLevel >= 2) {
-                System.err.println("Adding: " + PrettyPrinter.typeString(clinit.getDeclaringClass()) + " initializer");
+    public void run(ForkJoinPool pool) {
+        long start = System.currentTimeMillis();
+        Discovery d = new Discovery(pool);
+
+        // Initialize using the defined entry points
+        d.submit(MultiThreadAnalysisUtil.getFakeRoot());
+        d.awaitCompletion();
+
+        System.err.println("Statement registration took " + (System.currentTimeMillis() - start) + "ms using "
+                + pool.getParallelism() + " threads");
+        System.err.println("Saw " + registrar.swingClasses + " allocations from the Swing libraries.");
+        if (PROFILE) {
+            System.err.println("PAUSED HIT ENTER TO CONTINUE: ");
+            try {
+                System.in.read();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
             }
-            added |= oneAdded;
         }
-        return added;
     }
 
     /**
-     * Run the pass
+     * Register the statements for a method and submit any methods it could call (or whose class initializers it could
+     * trigger) for registration.
+     *
+     * @param m method to register
+     * @param d state of this run of the pass
      */
-    public void run() {
-        long start = System.currentTimeMillis();
-        final WorkQueue<IMethod> q = new WorkQueue<>();
-
-        // the classes for which we have registered an instance methods.
-        // These are the classes that might have instances when we execute
-        Set<IClass> seenInstancesOf = new HashSet<>();
-        // Add String to the list of seen instance methods.
-        // There will be a String somewhere and this covers the rare case that the only String objects seen are literals.
-        seenInstancesOf.add(MultiThreadAnalysisUtil.getStringClass());
-        Map<IClass, Collection<IMethod>> waitingForInstances = new HashMap<>();
-
-        Set<MethodReference> alreadyProcessedVirtual = new HashSet<>();
-        Set<MethodReference> alreadyProcessedStaticAndSpecial = new HashSet<>();
+    void registerAndDiscover(IMethod m, Discovery d) {
+        // Register all the instructions in the method.
+        if (!registrar.registerMethod(m)) {
+            return;
+        }
 
-        init(q);
+        if (m.isInit()) {
+            // it is an instance initialization method!
+            d.processInstanceClass(m.getDeclaringClass());
+        }
 
-        while (!q.isEmpty()) {
-            IMethod m = q.poll();
+        // now also go through each instruction, and see if we need to register anything else
+        IR ir = MultiThreadAnalysisUtil.getIR(m);
+        if (ir == null) {
+            // Native method with no signature.
 
-            // Register all the instructions in the method.
-            if (!registrar.registerMethod(m)) {
-                continue;
+            // Assume that the return object was constructed by the method (and thus methods can be called on the return type)
+            if (!m.getReturnType().isPrimitiveType()) {
+                IClass retType = MultiThreadAnalysisUtil.getClassHierarchy().lookupClass(m.getReturnType());
+                d.processInstanceClass(retType);
             }
 
-            if (m.isInit()) {
-                // it is an instance initialization method!
-                processInstanceClass(seenInstancesOf, m.getDeclaringClass(), waitingForInstances, q);
+            // Also assume that the exception object was constructed by the method
+            try {
+                TypeReference[] exceptions = m.getDeclaredExceptions();
+                if (exceptions != null) {
+                    for (TypeReference exType : exceptions) {
+                        // Record the "initialization" of the exception type
+                        IClass exClass = MultiThreadAnalysisUtil.getClassHierarchy().lookupClass(exType);
+                        d.processInstanceClass(exClass);
+                    }
+                }
+            }
+            catch (UnsupportedOperationException | InvalidClassFileException e) {
+                throw new RuntimeException(e);
             }
 
-            // now also go through each instruction, and see if we need to add anything else to the
-            // workqueue
-            IR ir = MultiThreadAnalysisUtil.getIR(m);
-            if (ir == null) {
-                // Native method with no signature.
+            // There are no instructions to process.
+            return;
+        }
 
-                // Assume that the return object was constructed by the method (and thus methods can be called on the return type)
-                if (!m.getReturnType().isPrimitiveType()) {
-                    IClass retType = MultiThreadAnalysisUtil.getClassHierarchy().lookupClass(m.getReturnType());
-                    processInstanceClass(seenInstancesOf, retType, waitingForInstances, q);
+        // Process all instructions looking for methods that have not yet been handled
+        for (ISSABasicBlock bb : ir.getControlFlowGraph()) {
+            for (SSAInstruction i : bb) {
+                List<IMethod> inits = ClassInitFinder.getClassInitializers(i);
+                if (!inits.isEmpty()) {
+                    d.addClassInitializers(inits);
                 }
 
-                // Also assume that the exception object was constructed by the method
-                try {
-                    TypeReference[] exceptions = m.getDeclaredExceptions();
-                    if (exceptions != null) {
-                        for (TypeReference exType : exceptions) {
-                            // Record the "initialization" of the exception type
-                            IClass exClass = MultiThreadAnalysisUtil.getClassHierarchy().lookupClass(exType);
-                            processInstanceClass(seenInstancesOf, exClass, waitingForInstances, q);
-                        }
-                    }
+                if (!(i instanceof SSAInvokeInstruction)) {
+                    // This loop only processes invocations to add statements for new methods.
+                    continue;
                 }
-                catch (UnsupportedOperationException | InvalidClassFileException e) {
-                    throw new RuntimeException(e);
+
+                // This is an invocation, add statements for callee
+                SSAInvokeInstruction inv = (SSAInvokeInstruction) i;
+
+                if ((inv.isSpecial() || inv.isStatic())
+                        && !d.alreadyProcessedStaticAndSpecial.add(inv.getDeclaredTarget())) {
+                    // Already processed this static or special method
+                    continue;
                 }
 
-                // There are no instructions to process.
-                continue;
-            }
+                if (inv.isDispatch() && !d.alreadyProcessedVirtual.add(inv.getDeclaredTarget())) {
+                    // Already processed this virtually dispatched method
+                    continue;
+                }
 
-            // Process all instructions looking for methods that have not yet been handled
-            for (ISSABasicBlock bb : ir.getControlFlowGraph()) {
-                for (SSAInstruction i : bb) {
-                    List<IMethod> inits = ClassInitFinder.getClassInitializers(i);
-                    if (!inits.isEmpty()) {
-                        addClassInitializers(q, inits);
+                Set<IMethod> targets = StatementRegistrar.resolveMethodsForInvocation(inv, bb.getMethod());
+                if (inv.isSpecial() || inv.isStatic()) {
+                    // it is a special or a static method, so register the target(s)
+                    for (IMethod target : targets) {
+                        d.submit(target);
                     }
-
-                    if (!(i instanceof SSAInvokeInstruction)) {
-                        // This loop only processes invocations to add statements for new methods.
-                        continue;
+                }
+                else {
+                    // only register the targets for which we have seen an instance of the declaring class.
+                    for (IMethod target : targets) {
+                        assert !target.isStatic() && !target.isPrivate();
+                        d.addVirtualTarget(target);
                     }
+                }
+            }
+        }
+    }
 
-                    // This is an invocation, add statements for callee to work queue
-                    SSAInvokeInstruction inv = (SSAInvokeInstruction) i;
+    /**
+     * State shared by the tasks of one run of the pass
+     */
+    private final class Discovery {
+        private final ForkJoinPool pool;
+        /**
+         * Methods that have been submitted for registration
+         */
+        private final Set<IMethod> submitted = MultiThreadAnalysisUtil.createConcurrentSet();
+        final Set<MethodReference> alreadyProcessedVirtual = MultiThreadAnalysisUtil.createConcurrentSet();
+        final Set<MethodReference> alreadyProcessedStaticAndSpecial = MultiThreadAnalysisUtil.createConcurrentSet();
+        /**
+         * The classes for which we have registered an instance methods. These are the classes that might have instances
+         * when we execute. Guarded by the lock on this Discovery, together with waitingForInstances.
+         */
+        private final Set<IClass> seenInstancesOf = new HashSet<>();
+        /**
+         * Map from classes to methods that need to be registered if that class is instantiated
+         */
+        private final Map<IClass, Collection<IMethod>> waitingForInstances = new HashMap<>();
+        /**
+         * Number of submitted tasks that have not finished
+         */
+        private final AtomicInteger pending = new AtomicInteger(0);
+        /**
+         * Released when there are no pending tasks
+         */
+        private final CountDownLatch done = new CountDownLatch(1);
+        /**
+         * First exception thrown by a task, if any
+         */
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
 
-                    if ((inv.isSpecial() || inv.isStatic())
-                            && !alreadyProcessedStaticAndSpecial.add(inv.getDeclaredTarget())) {
-                        // Already processed this static or special method
-                        continue;
-                    }
+        Discovery(ForkJoinPool pool) {
+            this.pool = pool;
+            // Add String to the list of seen instance methods.
+            // There will be a String somewhere and this covers the rare case that the only String objects seen are
+            // literals.
+            this.seenInstancesOf.add(MultiThreadAnalysisUtil.getStringClass());
+        }
 
-                    if (inv.isDispatch() && !alreadyProcessedVirtual.add(inv.getDeclaredTarget())) {
-                        // Already processed this virtually dispatched method
-                        continue;
-                    }
+        /**
+         * Submit a method for registration, if it has not been submitted before
+         *
+         * @return true if the method had not been submitted before
+         */
+        boolean submit(IMethod m) {
+            if (!this.submitted.add(m)) {
+                return false;
+            }
+            this.pending.incrementAndGet();
+            RegisterMethodTask task = new RegisterMethodTask(m, this);
+            if (ForkJoinTask.getPool() == this.pool) {
+                task.fork();
+            }
+            else {
+                this.pool.execute(task);
+            }
+            return true;
+        }
 
-                    Set<IMethod> targets = StatementRegistrar.resolveMethodsForInvocation(inv, bb.getMethod());
-                    if (inv.isSpecial() || inv.isStatic()) {
-                        // it is a special or a static method, so add the target(s) to the queue
-                        q.addAll(targets);
-                    }
-                    else {
-                        // only add the targets for which we have seen an instance of the declaring class.
-                        for (IMethod target : targets) {
-                            assert !target.isStatic() && !target.isPrivate();
-                            IClass container = target.getDeclaringClass();
-                            if (seenInstancesOf.contains(container)) {
-                                q.add(target);
-                            }
-                            else {
-                                // haven't seen an instance yet...
-                                Collection<IMethod> c = waitingForInstances.get(container);
-                                if (c == null) {
-                                    c = new HashSet<>();
-                                    waitingForInstances.put(container, c);
-                                }
-                                c.add(target);
-                            }
-                        }
-                    }
+        /**
+         * Called when the task for a method finishes (normally or not)
+         */
+        void finished(Throwable t) {
+            if (t != null) {
+                this.failure.compareAndSet(null, t);
+            }
+            if (this.pending.decrementAndGet() == 0) {
+                this.done.countDown();
+            }
+        }
+
+        boolean hasFailed() {
+            return this.failure.get() != null;
+        }
+
+        /**
+         * Wait until every submitted method (and every method those discover) has been registered
+         */
+        void awaitCompletion() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    this.done.await();
+                    break;
                 }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable t = this.failure.get();
+            if (t instanceof Error) {
+                throw (Error) t;
             }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t != null) {
+                throw new RuntimeException(t);
+            }
+        }
 
+        /**
+         * Add class initializers
+         *
+         * @param clinits class initialization methods that might need to be called in the order they need to be called
+         *            (i.e. element j is a super class of element j+1)
+         */
+        void addClassInitializers(List<IMethod> clinits) {
+            assert !clinits.isEmpty();
+            for (int j = clinits.size() - 1; j >= 0; j--) {
+                IMethod clinit = clinits.get(j);
+                boolean oneAdded = this.submit(clinit);
+                if (oneAdded && PointsToAnalysis.outputLevel >= 2) {
+                    System.err.println("Adding: " + PrettyPrinter.typeString(clinit.getDeclaringClass()) + " initializer");
+                }
+            }
         }
 
-        System.err.println("Statement registration took " + (System.currentTimeMillis() - start) + "ms");
-        System.err.println("Saw " + registrar.swingClasses + " allocations from the Swing libraries.");
-        if (PROFILE) {
-            System.err.println("PAUSED HIT ENTER TO CONTINUE: ");
-            try {
-                System.in.read();
+        /**
+         * When encountering a virtual method call we only want to add statements for the bodies of methods that the type
+         * system allows. We approximate this by assuming that receiver of the method can be any type that is
+         * constructed in the code. This could be made more precise if run together with the pointer analysis (supported
+         * by Accrue as the online statement registration) when we have more precise type information for the receiver.
+         *
+         * @param instanceClass class that may have instances
+         */
+        void processInstanceClass(IClass instanceClass) {
+            Collection<IMethod> waiting;
+            synchronized (this) {
+                if (!this.seenInstancesOf.add(instanceClass)) {
+                    return;
+                }
+                // this is the first instance method we have seen for this class
+                // Add any methods that were waiting on registration.
+                waiting = this.waitingForInstances.remove(instanceClass);
             }
-            catch (IOException e) {
-                e.printStackTrace();
+            if (waiting != null) {
+                for (IMethod m : waiting) {
+                    this.submit(m);
+                }
+            }
+        }
+
+        /**
+         * Register a possible target of a virtual call, now if an instance of its declaring class has been seen,
+         * otherwise once one is seen
+         *
+         * @param target possible target of a virtual call
+         */
+        void addVirtualTarget(IMethod target) {
+            IClass container = target.getDeclaringClass();
+            synchronized (this) {
+                if (!this.seenInstancesOf.contains(container)) {
+                    // haven't seen an instance yet...
+                    Collection<IMethod> c = this.waitingForInstances.get(container);
+                    if (c == null) {
+                        c = new HashSet<>();
+                        this.waitingForInstances.put(container, c);
+                    }
+                    c.add(target);
+                    return;
+                }
             }
+            this.submit(target);
         }
     }
 
     /**
-     * When encountering a virtual method call we only want to add statements for the bodies of methods that the type
-     * system allows. We approximate this by assuming that receiver of the method can be any type that is constructed in
-     * the code. This could be made more precise if run together with the pointer analysis (supported by Accrue as the
-     * online statement registration) when we have more precise type information for the receiver.
-     *
-     * @param seenInstancesOf set of classes that have already been seen in the code
-     * @param instanceClass current class to process
-     * @param waitingForInstances Map from classes to methods that need to be processed if that class is instantiated
-     * @param q work queue of methods to register statements for
+     * Task registering a single method
      */
-    public static void processInstanceClass(Set<IClass> seenInstancesOf, IClass instanceClass,
-                                            Map<IClass, Collection<IMethod>> waitingForInstances, WorkQueue<IMethod> q) {
-        if (seenInstancesOf.add(instanceClass)) {
-            // this is the first instance method we have seen for this class
-            // Add any methods that were waiting on registration.
-            Collection<IMethod> waiting = waitingForInstances.remove(instanceClass);
-            if (waiting != null) {
-                q.addAll(waiting);
+    private final class RegisterMethodTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IMethod m;
+        private final Discovery d;
+
+        RegisterMethodTask(IMethod m, Discovery d) {
+            this.m = m;
+            this.d = d;
+        }
+
+        @Override
+        protected void compute() {
+            Throwable failure = null;
+            try {
+                if (!this.d.hasFailed()) {
+                    registerAndDiscover(this.m, this.d);
+                }
+            }
+            catch (Throwable t) {
+                failure = t;
+            }
+            finally {
+                this.d.finished(failure);
             }
         }
     }
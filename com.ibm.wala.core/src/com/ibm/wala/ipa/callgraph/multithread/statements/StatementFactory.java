@@ -1,6 +1,5 @@
 package com.ibm.wala.ipa.callgraph.multithread.statements;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -31,7 +30,7 @@ public class StatementFactory {
    * whether two identical points-to statements are created that are not the same Object. This is only active when
    * assertions are turned on.
    */
-  private final Map<StatementKey, PointsToStatement> map = new HashMap<>();
+  private final Map<StatementKey, PointsToStatement> map = MultiThreadAnalysisUtil.createConcurrentHashMap();
 
   /**
    * Description used for a string literal value field
@@ -12,6 +12,7 @@ import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCache;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
@@ -148,7 +149,7 @@ public class MultiThreadAnalysisUtil {
                                                                                         ClassHierarchyException {
 
         MultiThreadAnalysisUtil.outputDirectory = outputDirectory;
-        MultiThreadAnalysisUtil.cache = new AnalysisCache();
+        MultiThreadAnalysisUtil.cache = new ConcurrentAnalysisCache();
 
 
         MultiThreadAnalysisUtil.scope = AnalysisScopeReader.readJavaScope(PRIMORDIAL_FILENAME,
@@ -266,7 +267,8 @@ public class MultiThreadAnalysisUtil {
     }
 
     /**
-     * Get the IR for the given method, returns null for native methods without signatures
+     * Get the IR for the given method, returns null for native methods without signatures. This may be called by
+     * several threads concurrently.
      *
      * @param resolvedMethod method to get the IR for
      * @return the code for the given method, null for native methods
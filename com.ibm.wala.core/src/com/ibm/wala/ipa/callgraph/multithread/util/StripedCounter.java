@@ -0,0 +1,65 @@
+package com.ibm.wala.ipa.callgraph.multithread.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monotonically increasing counter that spreads increments over several padded stripes so that threads updating the
+ * counter concurrently do not contend on a single memory location. Reading the total is more expensive than
+ * incrementing, and is not atomic with respect to concurrent increments.
+ */
+public class StripedCounter {
+
+    /**
+     * Number of longs between two stripes, keeps each stripe on its own cache line
+     */
+    private static final int PADDING = 8;
+    /**
+     * Number of stripes, always a power of two
+     */
+    private final int numStripes;
+    /**
+     * Counts for each stripe, stored at multiples of {@link #PADDING}
+     */
+    private final AtomicLongArray stripes;
+
+    /**
+     * Create a counter with enough stripes for the given number of concurrently updating threads
+     *
+     * @param concurrencyLevel expected number of threads updating the counter
+     */
+    public StripedCounter(int concurrencyLevel) {
+        int n = 1;
+        while (n < concurrencyLevel) {
+            n <<= 1;
+        }
+        this.numStripes = n;
+        this.stripes = new AtomicLongArray(n * PADDING);
+    }
+
+    /**
+     * Increment the counter by one
+     */
+    public void increment() {
+        this.stripes.getAndIncrement(stripeIndex());
+    }
+
+    /**
+     * Sum of all stripes. Increments that happen concurrently with this call may or may not be included.
+     *
+     * @return total number of increments
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < this.numStripes; i++) {
+            sum += this.stripes.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32));
+        h ^= (h >>> 16);
+        return (h & (this.numStripes - 1)) * PADDING;
+    }
+}
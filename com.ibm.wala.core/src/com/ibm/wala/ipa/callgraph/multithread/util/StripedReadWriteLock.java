@@ -0,0 +1,64 @@
+package com.ibm.wala.ipa.callgraph.multithread.util;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read/write lock for data that is read (or updated in a way that tolerates concurrent updates) by many threads, and
+ * only occasionally needs exclusive access. Each thread takes the shared lock on one of several stripes, so threads
+ * acquiring the shared lock rarely contend with each other. Exclusive access requires acquiring the write lock of
+ * every stripe.
+ */
+public class StripedReadWriteLock {
+
+    /**
+     * One lock per stripe, the number of stripes is always a power of two
+     */
+    private final ReentrantReadWriteLock[] stripes;
+
+    /**
+     * Create a lock with enough stripes for the given number of threads
+     *
+     * @param concurrencyLevel expected number of threads acquiring the shared lock
+     */
+    public StripedReadWriteLock(int concurrencyLevel) {
+        int n = 1;
+        while (n < concurrencyLevel) {
+            n <<= 1;
+        }
+        this.stripes = new ReentrantReadWriteLock[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Get the shared lock for the current thread. The lock must be released by the same thread.
+     *
+     * @return shared lock for the current thread's stripe
+     */
+    public Lock sharedLock() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32));
+        h ^= (h >>> 16);
+        return this.stripes[h & (this.stripes.length - 1)].readLock();
+    }
+
+    /**
+     * Acquire exclusive access, waiting for all threads holding the shared lock to release it
+     */
+    public void lockExclusive() {
+        for (ReentrantReadWriteLock l : this.stripes) {
+            l.writeLock().lock();
+        }
+    }
+
+    /**
+     * Release exclusive access
+     */
+    public void unlockExclusive() {
+        for (int i = this.stripes.length - 1; i >= 0; i--) {
+            this.stripes[i].writeLock().unlock();
+        }
+    }
+}
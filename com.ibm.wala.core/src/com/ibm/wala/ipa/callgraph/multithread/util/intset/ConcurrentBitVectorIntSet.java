@@ -0,0 +1,439 @@
+package com.ibm.wala.ipa.callgraph.multithread.util.intset;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetAction;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * A concurrent int set backed by a compressed bit vector. This set does not support removal of elements.
+ * <p>
+ * The bit vector is split into fixed size pages, and only pages containing at least one element are allocated. The
+ * allocated pages are kept in a directory sorted by page index. The directory is immutable and is replaced
+ * (copy-on-write) under the lock of the set whenever a new page is needed, which happens at most once per page. Bits
+ * are set in an existing page with a compare-and-swap, so adding an element to an allocated page never blocks, and
+ * readers never block.
+ * <p>
+ * Bulk operations where both arguments are ConcurrentBitVectorIntSets (addAll, isSubset, containsAny, intersection and
+ * difference) work on 64 elements at a time. This makes the set a good fit for densely numbered elements, such as
+ * the instance keys of a points-to graph.
+ */
+@SuppressWarnings("serial")
+public final class ConcurrentBitVectorIntSet implements MutableIntSet {
+
+    private static final int LOG_BITS_PER_WORD = 6;
+    private static final int LOG_WORDS_PER_PAGE = 4;
+    private static final int LOG_BITS_PER_PAGE = LOG_BITS_PER_WORD + LOG_WORDS_PER_PAGE;
+    private static final int WORDS_PER_PAGE = 1 << LOG_WORDS_PER_PAGE;
+
+    /**
+     * Immutable, sorted map from page index to page.
+     */
+    private static final class Directory {
+        final int[] keys;
+        final AtomicLongArray[] pages;
+
+        Directory(int[] keys, AtomicLongArray[] pages) {
+            this.keys = keys;
+            this.pages = pages;
+        }
+
+        AtomicLongArray page(int key) {
+            int index = Arrays.binarySearch(this.keys, key);
+            return index < 0 ? null : this.pages[index];
+        }
+    }
+
+    private static final Directory EMPTY = new Directory(new int[0], new AtomicLongArray[0]);
+
+    /**
+     * Current directory of allocated pages, only replaced while holding the lock on this set.
+     */
+    private volatile Directory directory = EMPTY;
+
+    /**
+     * Number of elements in the set
+     */
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    private static int pageIndex(int i) {
+        return i >>> LOG_BITS_PER_PAGE;
+    }
+
+    private static int wordIndex(int i) {
+        return (i >>> LOG_BITS_PER_WORD) & (WORDS_PER_PAGE - 1);
+    }
+
+    private static int element(int key, int word, int bit) {
+        return (key << LOG_BITS_PER_PAGE) | (word << LOG_BITS_PER_WORD) | bit;
+    }
+
+    /**
+     * Get the page with the given index, allocating it if necessary.
+     */
+    private AtomicLongArray getOrCreatePage(int key) {
+        AtomicLongArray page = this.directory.page(key);
+        if (page != null) {
+            return page;
+        }
+        synchronized (this) {
+            Directory d = this.directory;
+            int index = Arrays.binarySearch(d.keys, key);
+            if (index >= 0) {
+                // someone beat us to it
+                return d.pages[index];
+            }
+            int insertAt = -index - 1;
+            int length = d.keys.length;
+            int[] keys = new int[length + 1];
+            AtomicLongArray[] pages = new AtomicLongArray[length + 1];
+            System.arraycopy(d.keys, 0, keys, 0, insertAt);
+            System.arraycopy(d.pages, 0, pages, 0, insertAt);
+            System.arraycopy(d.keys, insertAt, keys, insertAt + 1, length - insertAt);
+            System.arraycopy(d.pages, insertAt, pages, insertAt + 1, length - insertAt);
+            page = new AtomicLongArray(WORDS_PER_PAGE);
+            keys[insertAt] = key;
+            pages[insertAt] = page;
+            this.directory = new Directory(keys, pages);
+            return page;
+        }
+    }
+
+    /**
+     * Set the given bits in a word of a page
+     *
+     * @return the bits that were not already set
+     */
+    private long orWord(AtomicLongArray page, int word, long bits) {
+        long old;
+        do {
+            old = page.get(word);
+            if ((old | bits) == old) {
+                return 0L;
+            }
+        } while (!page.compareAndSet(word, old, old | bits));
+        long added = bits & ~old;
+        this.size.addAndGet(Long.bitCount(added));
+        return added;
+    }
+
+    @Override
+    public boolean add(int i) {
+        assert i >= 0 : "Negative element " + i;
+        AtomicLongArray page = this.getOrCreatePage(pageIndex(i));
+        return this.orWord(page, wordIndex(i), 1L << i) != 0;
+    }
+
+    @Override
+    public boolean contains(int i) {
+        if (i < 0) {
+            return false;
+        }
+        AtomicLongArray page = this.directory.page(pageIndex(i));
+        return page != null && (page.get(wordIndex(i)) & (1L << i)) != 0;
+    }
+
+    @Override
+    public boolean addAll(IntSet set) {
+        if (set == this) {
+            return false;
+        }
+        boolean changed = false;
+        if (set instanceof ConcurrentBitVectorIntSet) {
+            Directory other = ((ConcurrentBitVectorIntSet) set).directory;
+            for (int i = 0; i < other.keys.length; i++) {
+                AtomicLongArray theirs = other.pages[i];
+                AtomicLongArray mine = null;
+                for (int w = 0; w < WORDS_PER_PAGE; w++) {
+                    long bits = theirs.get(w);
+                    if (bits != 0) {
+                        if (mine == null) {
+                            mine = this.getOrCreatePage(other.keys[i]);
+                        }
+                        changed |= this.orWord(mine, w, bits) != 0;
+                    }
+                }
+            }
+            return changed;
+        }
+        IntIterator iter = set.intIterator();
+        while (iter.hasNext()) {
+            changed |= this.add(iter.next());
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean addAllInIntersection(IntSet other, IntSet filter) {
+        if (other instanceof ConcurrentBitVectorIntSet && filter instanceof ConcurrentBitVectorIntSet) {
+            Directory a = ((ConcurrentBitVectorIntSet) other).directory;
+            Directory b = ((ConcurrentBitVectorIntSet) filter).directory;
+            boolean changed = false;
+            for (int i = 0; i < a.keys.length; i++) {
+                AtomicLongArray pageB = b.page(a.keys[i]);
+                if (pageB == null) {
+                    continue;
+                }
+                AtomicLongArray pageA = a.pages[i];
+                AtomicLongArray mine = null;
+                for (int w = 0; w < WORDS_PER_PAGE; w++) {
+                    long bits = pageA.get(w) & pageB.get(w);
+                    if (bits != 0) {
+                        if (mine == null) {
+                            mine = this.getOrCreatePage(a.keys[i]);
+                        }
+                        changed |= this.orWord(mine, w, bits) != 0;
+                    }
+                }
+            }
+            return changed;
+        }
+        boolean changed = false;
+        IntIterator iter = other.intIterator();
+        while (iter.hasNext()) {
+            int i = iter.next();
+            if (filter.contains(i)) {
+                changed |= this.add(i);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Return the elements of this set that are not in <code>that</code>. The difference is computed 64 elements at a
+     * time.
+     *
+     * @param that set to subtract
+     * @return new (not thread-safe) set containing the elements of this set that are not in that
+     */
+    public MutableIntSet difference(ConcurrentBitVectorIntSet that) {
+        Directory mine = this.directory;
+        Directory theirs = that.directory;
+        MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+        for (int i = 0; i < mine.keys.length; i++) {
+            int key = mine.keys[i];
+            AtomicLongArray page = mine.pages[i];
+            AtomicLongArray other = theirs.page(key);
+            for (int w = 0; w < WORDS_PER_PAGE; w++) {
+                long bits = page.get(w);
+                if (other != null) {
+                    bits &= ~other.get(w);
+                }
+                while (bits != 0) {
+                    // elements are found in increasing order, so these are cheap appends
+                    result.add(element(key, w, Long.numberOfTrailingZeros(bits)));
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isSubset(IntSet that) {
+        if (that instanceof ConcurrentBitVectorIntSet) {
+            Directory mine = this.directory;
+            Directory theirs = ((ConcurrentBitVectorIntSet) that).directory;
+            for (int i = 0; i < mine.keys.length; i++) {
+                AtomicLongArray page = mine.pages[i];
+                AtomicLongArray other = theirs.page(mine.keys[i]);
+                for (int w = 0; w < WORDS_PER_PAGE; w++) {
+                    long bits = page.get(w);
+                    if (bits != 0 && (other == null || (bits & ~other.get(w)) != 0)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        IntIterator iter = this.intIterator();
+        while (iter.hasNext()) {
+            if (!that.contains(iter.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean containsAny(IntSet set) {
+        if (set instanceof ConcurrentBitVectorIntSet) {
+            Directory mine = this.directory;
+            Directory theirs = ((ConcurrentBitVectorIntSet) set).directory;
+            for (int i = 0; i < mine.keys.length; i++) {
+                AtomicLongArray other = theirs.page(mine.keys[i]);
+                if (other == null) {
+                    continue;
+                }
+                AtomicLongArray page = mine.pages[i];
+                for (int w = 0; w < WORDS_PER_PAGE; w++) {
+                    if ((page.get(w) & other.get(w)) != 0) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        IntIterator iter = set.intIterator();
+        while (iter.hasNext()) {
+            if (this.contains(iter.next())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean sameValue(IntSet that) {
+        return this.size() == that.size() && this.isSubset(that);
+    }
+
+    @Override
+    public IntSet intersection(IntSet that) {
+        ConcurrentBitVectorIntSet result = new ConcurrentBitVectorIntSet();
+        result.addAllInIntersection(this, that);
+        return result;
+    }
+
+    @Override
+    public IntSet union(IntSet that) {
+        ConcurrentBitVectorIntSet result = new ConcurrentBitVectorIntSet();
+        result.addAll(this);
+        result.addAll(that);
+        return result;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size.get() == 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size.get();
+    }
+
+    @Override
+    public int max() {
+        Directory d = this.directory;
+        for (int i = d.keys.length - 1; i >= 0; i--) {
+            AtomicLongArray page = d.pages[i];
+            for (int w = WORDS_PER_PAGE - 1; w >= 0; w--) {
+                long bits = page.get(w);
+                if (bits != 0) {
+                    return element(d.keys[i], w, 63 - Long.numberOfLeadingZeros(bits));
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The iterator is weakly consistent: it returns the elements in increasing order, and elements added concurrently
+     * with the iteration may or may not be returned.
+     */
+    @Override
+    public IntIterator intIterator() {
+        return new BitIterator(this.directory);
+    }
+
+    private static final class BitIterator implements IntIterator {
+        private final Directory dir;
+        private int page = 0;
+        private int word = -1;
+        private long bits = 0L;
+
+        BitIterator(Directory dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (this.bits == 0) {
+                if (this.page >= this.dir.keys.length) {
+                    return false;
+                }
+                if (++this.word == WORDS_PER_PAGE) {
+                    this.word = 0;
+                    if (++this.page >= this.dir.keys.length) {
+                        return false;
+                    }
+                }
+                this.bits = this.dir.pages[this.page].get(this.word);
+            }
+            return true;
+        }
+
+        @Override
+        public int next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int bit = Long.numberOfTrailingZeros(this.bits);
+            this.bits &= this.bits - 1;
+            return element(this.dir.keys[this.page], this.word, bit);
+        }
+    }
+
+    @Override
+    public void foreach(IntSetAction action) {
+        IntIterator iter = this.intIterator();
+        while (iter.hasNext()) {
+            action.act(iter.next());
+        }
+    }
+
+    @Override
+    public void foreachExcluding(IntSet X, IntSetAction action) {
+        IntIterator iter = this.intIterator();
+        while (iter.hasNext()) {
+            int i = iter.next();
+            if (!X.contains(i)) {
+                action.act(i);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        IntIterator iter = this.intIterator();
+        while (iter.hasNext()) {
+            sb.append(iter.next());
+            if (iter.hasNext()) {
+                sb.append(", ");
+            }
+        }
+        return sb.append("}").toString();
+    }
+
+    /*
+     * Unsupported methods, this set only grows.
+     */
+
+    @Override
+    public void copySet(IntSet set) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(int i) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void intersectWith(IntSet set) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,49 @@
+package com.ibm.wala.ipa.callgraph.multithread.util.intset;
+
+import com.ibm.wala.ipa.callgraph.multithread.util.MultiThreadAnalysisUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+
+/**
+ * Factory for the thread-safe int sets used by the multithreaded points-to analysis. Sets created by a factory must
+ * support concurrent calls to <code>add</code>, <code>addAll</code>, <code>contains</code> and iteration, but need not
+ * support removal.
+ */
+public interface ConcurrentIntSetFactory {
+
+    /**
+     * Sets backed by a {@link ConcurrentMonotonicIntHashSet}
+     */
+    public static final ConcurrentIntSetFactory HASH_SET = new ConcurrentIntSetFactory() {
+        @Override
+        public MutableIntSet makeSet() {
+            return new ConcurrentMonotonicIntHashSet(16, MultiThreadAnalysisUtil.numThreads);
+        }
+
+        @Override
+        public String toString() {
+            return "hash";
+        }
+    };
+
+    /**
+     * Sets backed by a {@link ConcurrentBitVectorIntSet}
+     */
+    public static final ConcurrentIntSetFactory BIT_VECTOR = new ConcurrentIntSetFactory() {
+        @Override
+        public MutableIntSet makeSet() {
+            return new ConcurrentBitVectorIntSet();
+        }
+
+        @Override
+        public String toString() {
+            return "bit vector";
+        }
+    };
+
+    /**
+     * Create a new, empty, thread-safe set
+     *
+     * @return empty set
+     */
+    MutableIntSet makeSet();
+}
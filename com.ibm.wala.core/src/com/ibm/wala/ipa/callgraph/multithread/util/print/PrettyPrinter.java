@@ -6,6 +6,8 @@ import java.io.Writer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.ibm.wala.classLoader.IBytecodeMethod;
 import com.ibm.wala.classLoader.IClass;
@@ -60,15 +62,15 @@ public class PrettyPrinter {
     /**
      * canonical copies of strings
      */
-    private static final Map<String, String> stringMemo = new HashMap<>();
+    private static final ConcurrentMap<String, String> stringMemo = new ConcurrentHashMap<>();
     /**
      * Map from type to pretty printed name
      */
-    private static final Map<TypeReference, String> typeMemo = new HashMap<>();
+    private static final Map<TypeReference, String> typeMemo = new ConcurrentHashMap<>();
     /**
      * Map from method to pretty printed name
      */
-    private static final Map<MethodReference, String> methodMemo = new HashMap<>();
+    private static final Map<MethodReference, String> methodMemo = new ConcurrentHashMap<>();
 
     /**
      * Map from local variable IDs to names
@@ -907,8 +909,10 @@ public class PrettyPrinter {
     public static String getCanonical(String s) {
         String canonical = stringMemo.get(s);
         if (canonical == null) {
-            canonical = s;
-            stringMemo.put(canonical, canonical);
+            canonical = stringMemo.putIfAbsent(s, s);
+            if (canonical == null) {
+                canonical = s;
+            }
         }
         return canonical;
     }
@@ -0,0 +1,875 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.ibm.wala.analysis.reflection.GetMethodContext;
+import com.ibm.wala.analysis.reflection.JavaTypeContext;
+import com.ibm.wala.analysis.typeInference.PointType;
+import com.ibm.wala.analysis.typeInference.TypeAbstraction;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.SyntheticMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallString;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContextSelector;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContextSelector.CallStringContextPair;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallerContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallerSiteContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ExceptionReturnValueKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+
+/**
+ * Saves a call graph, and the pointer analysis computed with it, to a file that a {@link StoredCallGraph} reads back in another
+ * run without building either again.
+ *
+ * The file is a sequence of sections of 32-bit integers, each of which is mapped on its own when read back, so a section holds at
+ * most {@link #MAX_SECTION_INTS} integers, but the file as a whole may be larger than 2GB. Methods, types and fields are kept
+ * once, as indices into a table of strings; nodes keep their numbers, and are saved with their context, their call sites with the
+ * numbers of the targets of each, and their allocation sites with the instance key of each, so a call graph read back can answer
+ * everything but {@link CGNode#getIR()} without building IRs.
+ * Points-to sets are saved once for all the pointer keys that share them, as sorted instance key numbers or as bitmaps, whichever
+ * is smaller.
+ *
+ * Contexts and instance keys of the kinds made by the standard Java context selectors and instance key factories are saved so that
+ * they read back as equal objects; any other kind reads back as an opaque stand-in that keeps its concrete type and description.
+ * Only local, return value, static field, instance field and array contents pointer keys are saved.
+ */
+public final class CallGraphStore {
+
+  static final int MAGIC = 0x57434753;
+
+  static final int VERSION = 1;
+
+  /**
+   * The most integers in one section, so that it fits in one mapping
+   */
+  static final int MAX_SECTION_INTS = Integer.MAX_VALUE / 4;
+
+  /**
+   * The sections of a file, in order
+   */
+  static final int STRINGS = 0, TYPES = 1, METHODS = 2, FIELDS = 3, CONTEXTS = 4, INSTANCE_KEYS = 5, NODES = 6, EDGES = 7,
+      ROOTS = 8, LOCALS = 9, HEAP = 10, STATICS = 11, SETS = 12, SECTIONS = 13;
+
+  static final int EVERYWHERE = 0, CALL_STRING = 1, CALL_STRING_PAIR = 2, RECEIVER_INSTANCE = 3, CALLER = 4, CALLER_SITE = 5,
+      JAVA_TYPE = 6, GET_METHOD = 7, OTHER_CONTEXT = 8;
+
+  static final int NORMAL_ALLOCATION = 0, ZERO_LENGTH_ARRAY = 1, MULTI_NEW_ARRAY = 2, SMUSHED_ALLOCATION = 3, CONCRETE_TYPE = 4,
+      CONSTANT = 5, STRING_CONSTANT_CHAR_ARRAY = 6, ALLOCATION_SITE = 7, OTHER_INSTANCE = 8;
+
+  static final int NULL = 0, STRING = 1, INTEGER = 2, LONG = 3, FLOAT = 4, DOUBLE = 5, CLASS = 6, METHOD = 7, FIELD = 8;
+
+  /**
+   * flags of a saved method: static, and synthetic, so not to be found in the class hierarchy
+   */
+  static final int STATIC = 1, SYNTHETIC = 2;
+
+  /**
+   * value numbers under which the return value and exceptional return value of a node are saved with its locals
+   */
+  static final int RETURN_VALUE = -1, EXCEPTIONAL_RETURN_VALUE = -2;
+
+  /**
+   * field number under which the contents of an array are saved with its instance fields
+   */
+  static final int ARRAY_CONTENTS = -1;
+
+  private CallGraphStore() {
+  }
+
+  /**
+   * Save cg, and the results of pa for the nodes of cg, to file. The file is written under a temporary name in the same directory,
+   * and then renamed, so that a reader never sees a partial file.
+   *
+   * @throws IllegalArgumentException if cg has a call site that is not a Java invoke
+   * @throws IOException if a section of the file would hold more than {@link #MAX_SECTION_INTS} integers
+   */
+  public static void write(CallGraph cg, PointerAnalysis<InstanceKey> pa, File file) throws IOException {
+    if (cg == null) {
+      throw new IllegalArgumentException("null cg");
+    }
+    if (pa == null) {
+      throw new IllegalArgumentException("null pa");
+    }
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    new Writer(cg, pa).write(file);
+  }
+
+  /**
+   * Read back a call graph and pointer analysis saved with {@link #write}, with stand-ins for the synthetic methods of its nodes.
+   *
+   * @see #read(File, IClassHierarchy, SSAContextInterpreter, AnalysisOptions)
+   */
+  public static StoredCallGraph read(File file, IClassHierarchy cha, SSAContextInterpreter interpreter) throws IOException {
+    return read(file, cha, interpreter, null);
+  }
+
+  /**
+   * Read back a call graph and pointer analysis saved with {@link #write}. The file is memory-mapped, and the nodes, instance keys
+   * and points-to sets in it are decoded as they are asked for.
+   *
+   * To get the same methods and IRs as the saved call graph, pass the context interpreter and options of a builder set up as the one
+   * that built it; the builder need not be run.
+   *
+   * @param cha the class hierarchy to resolve the saved methods, types and fields in
+   * @param interpreter gives the IRs of the nodes read back
+   * @param options their method and class target selectors find the synthetic methods and classes, such as those of summaries, of
+   *          the nodes and instance keys read back; if null, or for a method they do not find, the node has a stand-in method
+   */
+  public static StoredCallGraph read(File file, IClassHierarchy cha, SSAContextInterpreter interpreter, AnalysisOptions options)
+      throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    if (cha == null) {
+      throw new IllegalArgumentException("null cha");
+    }
+    if (interpreter == null) {
+      throw new IllegalArgumentException("null interpreter");
+    }
+    return new StoredCallGraph(file, cha, interpreter, options);
+  }
+
+  /**
+   * A growable array of ints
+   */
+  private static final class Ints {
+    private int[] data = new int[16];
+
+    private int size = 0;
+
+    void add(int x) {
+      if (size == data.length) {
+        data = Arrays.copyOf(data, (int) Math.min(2L * size, Integer.MAX_VALUE - 8));
+      }
+      data[size++] = x;
+    }
+
+    void addAll(Ints other) {
+      for (int i = 0; i < other.size; i++) {
+        add(other.data[i]);
+      }
+    }
+
+    int size() {
+      return size;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.writeInt(data[i]);
+      }
+    }
+  }
+
+  /**
+   * @return length, the number of integers in a section
+   * @throws IOException if that is too many for one mapping
+   */
+  private static int sectionLength(long length) throws IOException {
+    if (length > MAX_SECTION_INTS) {
+      throw new IOException("cannot save a section of " + length + " integers; at most " + MAX_SECTION_INTS
+          + " fit in one mapping");
+    }
+    return (int) length;
+  }
+
+  /**
+   * A sorted array of instance key numbers, compared by contents
+   */
+  private static final class SetKey {
+    private final int[] elements;
+
+    SetKey(int[] elements) {
+      this.elements = elements;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof SetKey && Arrays.equals(elements, ((SetKey) obj).elements);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(elements);
+    }
+  }
+
+  /**
+   * A table of entries of varying length, saved as their number, the offset of each and then their contents
+   */
+  private static final class Table {
+    private final Ints offsets = new Ints();
+
+    private final Ints data = new Ints();
+
+    Table() {
+      offsets.add(0);
+    }
+
+    /**
+     * @return the index of the new entry
+     */
+    int add(Ints entry) {
+      data.addAll(entry);
+      offsets.add(data.size());
+      return offsets.size() - 2;
+    }
+
+    int size() {
+      return offsets.size() - 1;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      out.writeInt(sectionLength(1L + offsets.size() + data.size()));
+      out.writeInt(size());
+      offsets.write(out);
+      data.write(out);
+    }
+  }
+
+  private static final class Writer {
+    private final CallGraph cg;
+
+    private final PointerAnalysis<InstanceKey> pa;
+
+    private final Map<String, Integer> strings = HashMapFactory.make();
+
+    private final List<String> stringList = new ArrayList<String>();
+
+    private final Map<TypeReference, Integer> types = HashMapFactory.make();
+
+    private final Ints typeData = new Ints();
+
+    private final Map<MethodReference, Integer> methods = HashMapFactory.make();
+
+    private final Ints methodData = new Ints();
+
+    private final Map<FieldReference, Integer> fields = HashMapFactory.make();
+
+    private final Ints fieldData = new Ints();
+
+    private final Map<Context, Integer> contexts = HashMapFactory.make();
+
+    private final Table contextTable = new Table();
+
+    private final Map<InstanceKey, Integer> instanceKeys = HashMapFactory.make();
+
+    private final Table instanceKeyTable = new Table();
+
+    private final Map<SetKey, Integer> sets = HashMapFactory.make();
+
+    private final Table setTable = new Table();
+
+    /**
+     * for each node number, mapping from value number to saved set
+     */
+    private final List<TreeMap<Integer, Integer>> locals = new ArrayList<TreeMap<Integer, Integer>>();
+
+    /**
+     * for each instance key number, mapping from field number to saved set
+     */
+    private final List<TreeMap<Integer, Integer>> heap = new ArrayList<TreeMap<Integer, Integer>>();
+
+    private final TreeMap<Integer, Integer> statics = new TreeMap<Integer, Integer>();
+
+    Writer(CallGraph cg, PointerAnalysis<InstanceKey> pa) {
+      this.cg = cg;
+      this.pa = pa;
+    }
+
+    void write(File file) throws IOException {
+      Table nodeTable = new Table();
+      for (int x = 0; x <= cg.getMaxNumber(); x++) {
+        CGNode n = cg.getNode(x);
+        nodeTable.add(n == null ? new Ints() : encodeNode(n));
+      }
+      Ints edges = encodeEdges();
+      Ints roots = new Ints();
+      roots.add(cg.getNumber(cg.getFakeRootNode()));
+      CGNode clinit = cg.getFakeWorldClinitNode();
+      roots.add(clinit == null ? -1 : cg.getNumber(clinit));
+      roots.add(cg.getEntrypointNodes().size());
+      for (CGNode n : cg.getEntrypointNodes()) {
+        roots.add(cg.getNumber(n));
+      }
+      collectPointerKeys();
+      Table localTable = new Table();
+      for (int x = 0; x <= cg.getMaxNumber(); x++) {
+        localTable.add(encodeEntries(x < locals.size() ? locals.get(x) : null));
+      }
+      // all the instance keys are known once the points-to sets are
+      Table heapTable = new Table();
+      for (int i = 0; i < instanceKeyTable.size(); i++) {
+        heapTable.add(encodeEntries(i < heap.size() ? heap.get(i) : null));
+      }
+      Ints staticData = encodeEntries(statics);
+
+      File directory = file.getAbsoluteFile().getParentFile();
+      File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      boolean written = false;
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeStrings(out);
+        writeSection(out, typeData);
+        writeSection(out, methodData);
+        writeSection(out, fieldData);
+        contextTable.write(out);
+        instanceKeyTable.write(out);
+        nodeTable.write(out);
+        writeSection(out, edges);
+        writeSection(out, roots);
+        localTable.write(out);
+        heapTable.write(out);
+        writeSection(out, staticData);
+        setTable.write(out);
+        written = true;
+      } finally {
+        out.close();
+        if (!written) {
+          tmp.delete();
+        }
+      }
+      try {
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        tmp.delete();
+        throw e;
+      }
+    }
+
+    private static void writeSection(DataOutputStream out, Ints data) throws IOException {
+      out.writeInt(sectionLength(data.size()));
+      data.write(out);
+    }
+
+    private void writeStrings(DataOutputStream out) throws IOException {
+      byte[][] bytes = new byte[stringList.size()][];
+      long total = 0;
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = utf8(stringList.get(i));
+        total += bytes[i].length;
+      }
+      int padding = (int) ((4 - total % 4) % 4);
+      out.writeInt(sectionLength(1L + bytes.length + 1 + (total + padding) / 4));
+      out.writeInt(bytes.length);
+      int offset = 0;
+      out.writeInt(offset);
+      for (byte[] b : bytes) {
+        offset += b.length;
+        out.writeInt(offset);
+      }
+      for (byte[] b : bytes) {
+        out.write(b);
+      }
+      for (int i = 0; i < padding; i++) {
+        out.write(0);
+      }
+    }
+
+    private static byte[] utf8(String s) {
+      try {
+        return s.getBytes("UTF-8");
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private int string(String s) {
+      Integer i = strings.get(s);
+      if (i == null) {
+        i = stringList.size();
+        strings.put(s, i);
+        stringList.add(s);
+      }
+      return i;
+    }
+
+    private int type(TypeReference t) {
+      Integer i = types.get(t);
+      if (i == null) {
+        i = types.size();
+        types.put(t, i);
+        typeData.add(string(t.getClassLoader().getName().toString()));
+        typeData.add(string(t.getName().toString()));
+      }
+      return i;
+    }
+
+    private int method(MethodReference m) {
+      Integer i = methods.get(m);
+      if (i == null) {
+        int declaringClass = type(m.getDeclaringClass());
+        int name = string(m.getName().toString());
+        int descriptor = string(m.getDescriptor().toString());
+        i = methods.size();
+        methods.put(m, i);
+        methodData.add(declaringClass);
+        methodData.add(name);
+        methodData.add(descriptor);
+      }
+      return i;
+    }
+
+    private int field(FieldReference f) {
+      Integer i = fields.get(f);
+      if (i == null) {
+        int declaringClass = type(f.getDeclaringClass());
+        int name = string(f.getName().toString());
+        int fieldType = type(f.getFieldType());
+        i = fields.size();
+        fields.put(f, i);
+        fieldData.add(declaringClass);
+        fieldData.add(name);
+        fieldData.add(fieldType);
+      }
+      return i;
+    }
+
+    private void encodeMethod(IMethod m, Ints out) {
+      out.add(method(m.getReference()));
+      out.add((m.isStatic() ? STATIC : 0) | (m instanceof SyntheticMethod ? SYNTHETIC : 0));
+    }
+
+    private void encodeSite(CallSiteReference site, Ints out) {
+      IInvokeInstruction.IDispatch code = site.getInvocationCode();
+      if (!(code instanceof IInvokeInstruction.Dispatch)) {
+        throw new IllegalArgumentException("unsupported call site " + site);
+      }
+      out.add(site.getProgramCounter());
+      out.add(((IInvokeInstruction.Dispatch) code).ordinal());
+      out.add(method(site.getDeclaredTarget()));
+    }
+
+    private int node(CGNode n) {
+      int x = cg.getNumber(n);
+      if (x == -1) {
+        throw new IllegalArgumentException("node not in call graph " + n);
+      }
+      return x;
+    }
+
+    private Ints encodeNode(CGNode n) {
+      Ints result = new Ints();
+      encodeMethod(n.getMethod(), result);
+      result.add(context(n.getContext()));
+      TreeMap<Integer, CallSiteReference> sites = new TreeMap<Integer, CallSiteReference>();
+      for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext();) {
+        CallSiteReference site = it.next();
+        if (!sites.containsKey(site.getProgramCounter())) {
+          sites.put(site.getProgramCounter(), site);
+        }
+      }
+      result.add(sites.size());
+      for (CallSiteReference site : sites.values()) {
+        encodeSite(site, result);
+        int[] targets = new int[cg.getNumberOfTargets(n, site)];
+        int i = 0;
+        for (CGNode target : cg.getPossibleTargets(n, site)) {
+          targets[i++] = node(target);
+        }
+        Arrays.sort(targets);
+        result.add(targets.length);
+        for (int t : targets) {
+          result.add(t);
+        }
+      }
+      TreeMap<Integer, NewSiteReference> news = new TreeMap<Integer, NewSiteReference>();
+      for (Iterator<NewSiteReference> it = n.iterateNewSites(); it.hasNext();) {
+        NewSiteReference site = it.next();
+        news.put(site.getProgramCounter(), site);
+      }
+      result.add(news.size());
+      for (NewSiteReference site : news.values()) {
+        result.add(site.getProgramCounter());
+        result.add(type(site.getDeclaredType()));
+        // the instance key factory may not make the key in the node of the site
+        InstanceKey ik = pa.getHeapModel().getInstanceKeyForAllocation(n, site);
+        result.add(ik != null && pa.getInstanceKeyMapping().hasMappedIndex(ik) ? instanceKey(ik) : -1);
+      }
+      return result;
+    }
+
+    /**
+     * successors and predecessors of each node, as the start of the numbers of each in an array of them
+     */
+    private Ints encodeEdges() {
+      int max = cg.getMaxNumber();
+      int[] succStart = new int[max + 2];
+      int[] predStart = new int[max + 2];
+      List<int[]> succs = new ArrayList<int[]>();
+      for (int x = 0; x <= max; x++) {
+        CGNode n = cg.getNode(x);
+        int[] s = n == null ? new int[0] : toArray(cg.getSuccNodeNumbers(n));
+        Arrays.sort(s);
+        succs.add(s);
+        succStart[x + 1] = succStart[x] + s.length;
+        for (int y : s) {
+          predStart[y + 1]++;
+        }
+      }
+      for (int y = 0; y <= max; y++) {
+        predStart[y + 1] += predStart[y];
+      }
+      int[] preds = new int[predStart[max + 1]];
+      int[] nextPred = Arrays.copyOf(predStart, max + 1);
+      for (int x = 0; x <= max; x++) {
+        for (int y : succs.get(x)) {
+          preds[nextPred[y]++] = x;
+        }
+      }
+      Ints result = new Ints();
+      result.add(max + 1);
+      for (int s : succStart) {
+        result.add(s);
+      }
+      for (int[] s : succs) {
+        for (int y : s) {
+          result.add(y);
+        }
+      }
+      for (int p : predStart) {
+        result.add(p);
+      }
+      for (int x : preds) {
+        result.add(x);
+      }
+      return result;
+    }
+
+    private static int[] toArray(IntSet s) {
+      if (s == null) {
+        return new int[0];
+      }
+      int[] result = new int[s.size()];
+      int i = 0;
+      for (IntIterator it = s.intIterator(); it.hasNext();) {
+        result[i++] = it.next();
+      }
+      return result;
+    }
+
+    private int context(Context c) {
+      Integer i = contexts.get(c);
+      if (i == null) {
+        Ints entry = new Ints();
+        if (c.equals(Everywhere.EVERYWHERE)) {
+          entry.add(EVERYWHERE);
+        } else if (c instanceof CallStringContext) {
+          entry.add(CALL_STRING);
+          encodeCallString((CallString) c.get(CallStringContextSelector.CALL_STRING), entry);
+        } else if (c instanceof CallStringContextPair) {
+          entry.add(CALL_STRING_PAIR);
+          encodeCallString(((CallStringContextPair) c).getCallString(), entry);
+          entry.add(context(((CallStringContextPair) c).getBaseContext()));
+        } else if (c instanceof ReceiverInstanceContext) {
+          entry.add(RECEIVER_INSTANCE);
+          entry.add(instanceKey(((ReceiverInstanceContext) c).getReceiver()));
+        } else if (c.getClass() == CallerSiteContext.class) {
+          entry.add(CALLER_SITE);
+          entry.add(node(((CallerSiteContext) c).getCaller()));
+          encodeSite(((CallerSiteContext) c).getCallSite(), entry);
+        } else if (c.getClass() == CallerContext.class) {
+          entry.add(CALLER);
+          entry.add(node(((CallerContext) c).getCaller()));
+        } else if (c.getClass() == JavaTypeContext.class) {
+          TypeAbstraction t = ((JavaTypeContext) c).getType();
+          entry.add(JAVA_TYPE);
+          entry.add(t instanceof PointType ? 1 : 0);
+          entry.add(type(t.getType().getReference()));
+        } else if (c.getClass() == GetMethodContext.class) {
+          TypeAbstraction t = ((GetMethodContext) c).getType();
+          entry.add(GET_METHOD);
+          entry.add(t instanceof PointType ? 1 : 0);
+          entry.add(type(t.getType().getReference()));
+          entry.add(string(((GetMethodContext) c).getName()));
+        } else {
+          entry.add(OTHER_CONTEXT);
+          entry.add(string(c.toString()));
+        }
+        i = contextTable.add(entry);
+        contexts.put(c, i);
+      }
+      return i;
+    }
+
+    private void encodeCallString(CallString cs, Ints out) {
+      CallSiteReference[] sites = cs.getCallSiteRefs();
+      IMethod[] methods = cs.getMethods();
+      out.add(sites.length);
+      for (int i = 0; i < sites.length; i++) {
+        encodeSite(sites[i], out);
+        encodeMethod(methods[i], out);
+      }
+    }
+
+    private int instanceKey(InstanceKey ik) {
+      Integer i = instanceKeys.get(ik);
+      if (i == null) {
+        Ints entry = new Ints();
+        Ints value;
+        if (ik instanceof NormalAllocationInNode || ik instanceof ZeroLengthArrayInNode || ik instanceof MultiNewArrayInNode) {
+          AllocationSiteInNode a = (AllocationSiteInNode) ik;
+          entry.add(ik instanceof NormalAllocationInNode ? NORMAL_ALLOCATION : ik instanceof ZeroLengthArrayInNode ? ZERO_LENGTH_ARRAY
+              : MULTI_NEW_ARRAY);
+          entry.add(node(a.getNode()));
+          entry.add(a.getSite().getProgramCounter());
+          entry.add(type(a.getSite().getDeclaredType()));
+          entry.add(type(a.getConcreteType().getReference()));
+          if (ik instanceof MultiNewArrayInNode) {
+            entry.add(((MultiNewArrayInNode) ik).getDim());
+          }
+        } else if (ik.getClass() == SmushedAllocationSiteInNode.class) {
+          entry.add(SMUSHED_ALLOCATION);
+          entry.add(node(((SmushedAllocationSiteInNode) ik).getNode()));
+          entry.add(type(ik.getConcreteType().getReference()));
+        } else if (ik instanceof ConcreteTypeKey) {
+          entry.add(CONCRETE_TYPE);
+          entry.add(type(ik.getConcreteType().getReference()));
+        } else if (ik instanceof ConstantKey && (value = encodeConstant(((ConstantKey<?>) ik).getValue())) != null) {
+          entry.add(CONSTANT);
+          entry.add(type(ik.getConcreteType().getReference()));
+          entry.addAll(value);
+        } else if (ik.getClass() == StringConstantCharArray.class) {
+          entry.add(STRING_CONSTANT_CHAR_ARRAY);
+          entry.add(instanceKey(((StringConstantCharArray) ik).getConstant()));
+        } else if (ik.getClass() == AllocationSite.class) {
+          AllocationSite a = (AllocationSite) ik;
+          entry.add(ALLOCATION_SITE);
+          encodeMethod(a.getMethod(), entry);
+          entry.add(a.getSite().getProgramCounter());
+          entry.add(type(a.getSite().getDeclaredType()));
+          entry.add(type(a.getConcreteType().getReference()));
+        } else {
+          entry.add(OTHER_INSTANCE);
+          IClass type = ik.getConcreteType();
+          entry.add(type == null ? -1 : type(type.getReference()));
+          entry.add(string(ik.toString()));
+        }
+        i = instanceKeyTable.add(entry);
+        instanceKeys.put(ik, i);
+      }
+      return i;
+    }
+
+    /**
+     * @return the encoding of the value of a constant key, or null if it is not of a kind that can be saved
+     */
+    private Ints encodeConstant(Object value) {
+      Ints result = new Ints();
+      if (value == null) {
+        result.add(NULL);
+      } else if (value instanceof String) {
+        result.add(STRING);
+        result.add(string((String) value));
+      } else if (value instanceof Integer) {
+        result.add(INTEGER);
+        result.add((Integer) value);
+      } else if (value instanceof Long) {
+        result.add(LONG);
+        addLong((Long) value, result);
+      } else if (value instanceof Float) {
+        result.add(FLOAT);
+        result.add(Float.floatToIntBits((Float) value));
+      } else if (value instanceof Double) {
+        result.add(DOUBLE);
+        addLong(Double.doubleToLongBits((Double) value), result);
+      } else if (value instanceof IClass) {
+        result.add(CLASS);
+        result.add(type(((IClass) value).getReference()));
+      } else if (value instanceof IMethod) {
+        result.add(METHOD);
+        encodeMethod((IMethod) value, result);
+      } else if (value instanceof IField) {
+        result.add(FIELD);
+        result.add(field(((IField) value).getReference()));
+      } else {
+        return null;
+      }
+      return result;
+    }
+
+    private static void addLong(long v, Ints out) {
+      out.add((int) (v >>> 32));
+      out.add((int) v);
+    }
+
+    /**
+     * Find the non-empty points-to sets of the locals of the nodes, and of the other pointer keys pa knows of.
+     */
+    private void collectPointerKeys() {
+      HeapModel heapModel = pa.getHeapModel();
+      for (CGNode n : cg) {
+        // locals with an implicit points-to set are not among the pointer keys of pa
+        IR ir = n.getIR();
+        if (ir != null) {
+          for (int vn = 1; vn <= ir.getSymbolTable().getMaxValueNumber(); vn++) {
+            add(heapModel.getPointerKeyForLocal(n, vn));
+          }
+        }
+        add(heapModel.getPointerKeyForReturnValue(n));
+        add(heapModel.getPointerKeyForExceptionalReturnValue(n));
+      }
+      for (PointerKey pk : pa.getPointerKeys()) {
+        add(pk);
+      }
+      // the contents of a string constant are made up when they are asked for
+      for (InstanceKey ik : new ArrayList<InstanceKey>(instanceKeys.keySet())) {
+        if (ik instanceof ConstantKey && ((ConstantKey<?>) ik).getValue() instanceof String) {
+          for (IField f : ik.getConcreteType().getAllInstanceFields()) {
+            add(heapModel.getPointerKeyForInstanceField(ik, f));
+          }
+        }
+      }
+    }
+
+    private void add(PointerKey pk) {
+      if (pk instanceof LocalPointerKey) {
+        LocalPointerKey lpk = (LocalPointerKey) pk;
+        add(locals, cg.getNumber(lpk.getNode()), lpk.getValueNumber(), pk);
+      } else if (pk instanceof ReturnValueKey) {
+        ReturnValueKey rvk = (ReturnValueKey) pk;
+        add(locals, cg.getNumber(rvk.getNode()), pk instanceof ExceptionReturnValueKey ? EXCEPTIONAL_RETURN_VALUE : RETURN_VALUE,
+            pk);
+      } else if (pk instanceof StaticFieldKey) {
+        int f = field(((StaticFieldKey) pk).getField().getReference());
+        if (!statics.containsKey(f)) {
+          int set = set(pk);
+          if (set != -1) {
+            statics.put(f, set);
+          }
+        }
+      } else if (pk instanceof InstanceFieldKey) {
+        InstanceFieldKey ifk = (InstanceFieldKey) pk;
+        add(heap, instanceKey(ifk.getInstanceKey()), field(ifk.getField().getReference()), pk);
+      } else if (pk instanceof ArrayContentsKey) {
+        add(heap, instanceKey(((ArrayContentsKey) pk).getInstanceKey()), ARRAY_CONTENTS, pk);
+      }
+    }
+
+    private void add(List<TreeMap<Integer, Integer>> entries, int x, int key, PointerKey pk) {
+      if (x == -1) {
+        return;
+      }
+      while (entries.size() <= x) {
+        entries.add(null);
+      }
+      TreeMap<Integer, Integer> map = entries.get(x);
+      if (map != null && map.containsKey(key)) {
+        return;
+      }
+      int set = set(pk);
+      if (set != -1) {
+        if (map == null) {
+          map = new TreeMap<Integer, Integer>();
+          entries.set(x, map);
+        }
+        map.put(key, set);
+      }
+    }
+
+    /**
+     * Save the points-to set of pk.
+     *
+     * @return the number of the saved set, shifted left by one and or-ed with 1 if pk is filtered; -1 if the set is empty
+     */
+    private int set(PointerKey pk) {
+      OrdinalSet<InstanceKey> pts = pa.getPointsToSet(pk);
+      if (pts == null || pts.isEmpty()) {
+        return -1;
+      }
+      int[] elements = new int[pts.size()];
+      int i = 0;
+      for (InstanceKey ik : pts) {
+        elements[i++] = instanceKey(ik);
+      }
+      Arrays.sort(elements);
+      SetKey key = new SetKey(elements);
+      Integer s = sets.get(key);
+      if (s == null) {
+        s = setTable.add(encodeSet(elements));
+        sets.put(key, s);
+      }
+      return (s << 1) | (pa.isFiltered(pk) ? 1 : 0);
+    }
+
+    /**
+     * @return elements as themselves, or as a bitmap if that is smaller: the negated number of 32-bit words, the first element,
+     *         then the words
+     */
+    private static Ints encodeSet(int[] elements) {
+      Ints result = new Ints();
+      int base = elements[0];
+      int words = (elements[elements.length - 1] - base) / 32 + 1;
+      if (words + 2 < elements.length + 1) {
+        int[] bits = new int[words];
+        for (int e : elements) {
+          bits[(e - base) / 32] |= 1 << ((e - base) % 32);
+        }
+        result.add(-words);
+        result.add(base);
+        for (int w : bits) {
+          result.add(w);
+        }
+      } else {
+        result.add(elements.length);
+        for (int e : elements) {
+          result.add(e);
+        }
+      }
+      return result;
+    }
+
+    private static Ints encodeEntries(TreeMap<Integer, Integer> entries) {
+      Ints result = new Ints();
+      if (entries != null) {
+        for (Map.Entry<Integer, Integer> e : entries.entrySet()) {
+          result.add(e.getKey());
+          result.add(e.getValue());
+        }
+      }
+      return result;
+    }
+  }
+}
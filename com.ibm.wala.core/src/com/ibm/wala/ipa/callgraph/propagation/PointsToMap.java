@@ -134,6 +134,20 @@ public class PointsToMap {
     return result;
   }
 
+  /**
+   * forget how the points-to-set for a particular key is represented, so that it may be created afresh
+   */
+  public void forget(PointerKey key) {
+    if (key == null) {
+      throw new IllegalArgumentException("null key");
+    }
+    int i = pointerKeys.getMappedIndex(key);
+    if (i != -1) {
+      assert pointsToSets.get(i) != UNIFIED;
+      pointsToSets.set(i, null);
+    }
+  }
+
   /**
    * record that a particular points-to-set has been unioned with another
    */
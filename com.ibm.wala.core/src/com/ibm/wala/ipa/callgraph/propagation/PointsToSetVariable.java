@@ -20,6 +20,8 @@ import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 
@@ -45,6 +47,17 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
 
   private PointerKey pointerKey;
 
+  /**
+   * Elements added by {@link #addDelta(IntSet)} since the last call to {@link #takeDelta()}
+   */
+  private MutableIntSet delta;
+
+  /**
+   * Is every element added since the last call to {@link #takeDelta()} in {@link #delta}? This is cleared by any other update to
+   * the variable.
+   */
+  private boolean deltaComplete = true;
+
   public PointsToSetVariable(PointerKey key) {
     super();
     if (key == null) {
@@ -83,6 +96,7 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
       checkTypes(m);
     }
     super.add(b);
+    deltaComplete = false;
     cryIfTooBig();
   }
 
@@ -92,6 +106,9 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
       checkTypes(B);
     }
     boolean v = super.addAll(B);
+    if (v) {
+      deltaComplete = false;
+    }
     cryIfTooBig();
     return v;
   }
@@ -145,10 +162,85 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     }
     // TODO Auto-generated method stub
     boolean v = super.addAll(other);
+    if (v) {
+      deltaComplete = false;
+    }
     cryIfTooBig();
     return v;
   }
 
+  @Override
+  public boolean addAllInIntersection(PointsToSetVariable other, IntSet filter) {
+    boolean v = super.addAllInIntersection(other, filter);
+    if (v) {
+      deltaComplete = false;
+    }
+    return v;
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    boolean v = super.addAllInIntersection(other, filter);
+    if (v) {
+      deltaComplete = false;
+    }
+    return v;
+  }
+
+  @Override
+  public void copyState(PointsToSetVariable other) {
+    super.copyState(other);
+    deltaComplete = false;
+  }
+
+  @Override
+  public void remove(int i) {
+    super.remove(i);
+    deltaComplete = false;
+  }
+
+  @Override
+  public void removeAll() {
+    super.removeAll();
+    deltaComplete = false;
+  }
+
+  /**
+   * Add the elements of s, remembering which of them are new so that they can be propagated without re-propagating the whole set.
+   * 
+   * @return true iff the set changed
+   */
+  boolean addDelta(IntSet s) {
+    if (PARANOID) {
+      checkTypes(s);
+    }
+    IntSet current = getValue();
+    IntSet fresh = (current == null) ? s : IntSetUtil.diff(s, current);
+    if (fresh.isEmpty()) {
+      return false;
+    }
+    super.addAll(fresh);
+    if (delta == null) {
+      delta = IntSetUtil.getDefaultIntSetFactory().makeCopy(fresh);
+    } else {
+      delta.addAll(fresh);
+    }
+    cryIfTooBig();
+    return true;
+  }
+
+  /**
+   * Get the elements added since the last call, and start recording afresh.
+   * 
+   * @return the elements added since the last call, or null if they are not known, in which case the whole set must be propagated
+   */
+  IntSet takeDelta() {
+    IntSet result = deltaComplete ? delta : null;
+    delta = null;
+    deltaComplete = true;
+    return result;
+  }
+
   /**
    * Use this with extreme care, to add filters to this variable..
    * 
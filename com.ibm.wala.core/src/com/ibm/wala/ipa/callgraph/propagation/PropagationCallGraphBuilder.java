@@ -170,6 +170,11 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
    */
   final private boolean rememberGetPutHistory = true;
 
+  /**
+   * Should the constraint system keep what is needed to update the call graph after classes change, rather than build it again?
+   */
+  private boolean incremental = false;
+
   /**
    * @param cha governing class hierarchy
    * @param options governing call graph construction options
@@ -239,6 +244,9 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
     system.setMinEquationsForTopSort(options.getMinEquationsForTopSort());
     system.setTopologicalGrowthFactor(options.getTopologicalGrowthFactor());
     system.setMaxEvalBetweenTopo(options.getMaxEvalBetweenTopo());
+    system.setNumberOfThreads(options.getNumberOfSolverThreads());
+    system.setUseDifferencePropagation(options.getUseDifferencePropagation());
+    system.setRecordDirectValues(incremental);
 
     discoveredNodes = HashSetFactory.make();
     discoveredNodes.add(callGraph.getFakeRootNode());
@@ -266,6 +274,15 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
     customInit();
 
     solver = makeSolver();
+    solve(monitor);
+
+    return callGraph;
+  }
+
+  /**
+   * Run the solver until the constraints, and the call graph they discover, reach a fixed point
+   */
+  protected void solve(IProgressMonitor monitor) throws CallGraphBuilderCancelException {
     try {
       solver.solve(monitor);
     } catch (CancelException e) {
@@ -277,8 +294,18 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
           system.extractPointerAnalysis(this));
       throw c;
     }
+  }
 
-    return callGraph;
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  /**
+   * @param incremental should the constraint system keep what is needed to update the call graph after classes change? This
+   *          costs some memory, and must be set before {@link #makeCallGraph(AnalysisOptions, IProgressMonitor)} is called.
+   */
+  public void setIncremental(boolean incremental) {
+    this.incremental = incremental;
   }
 
   protected PropagationSystem makeSystem(AnalysisOptions options) {
@@ -798,6 +825,14 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
     discoveredNodes.add(node);
   }
 
+  /**
+   * forget a node that has been removed from the call graph, so that it is visited afresh should it be created again
+   */
+  protected void markRemoved(CGNode node) {
+    alreadyVisited.remove(node);
+    discoveredNodes.remove(node);
+  }
+
   protected boolean wasChanged(CGNode node) {
     return discoveredNodes.contains(node) && !alreadyVisited.contains(node);
   }
@@ -19,6 +19,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.ibm.wala.classLoader.ArrayClass;
 import com.ibm.wala.classLoader.IClass;
@@ -26,18 +28,22 @@ import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSolver;
 import com.ibm.wala.fixedpoint.impl.Worklist;
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.fixpoint.IFixedPointStatement;
 import com.ibm.wala.fixpoint.IFixedPointSystem;
 import com.ibm.wala.fixpoint.IVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.InverseFilterOperator;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyWarning;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.VerboseAction;
@@ -114,6 +120,24 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
    */
   protected final CallGraph cg;
 
+  /**
+   * Should assignments and filters propagate only what was added to their right-hand side since they last ran?
+   */
+  private boolean useDifferencePropagation = true;
+
+  /**
+   * For assignments and filters on the work list that need only propagate part of their right-hand side, the elements to
+   * propagate. Statements on the work list without an entry propagate their whole right-hand side.
+   */
+  private final ConcurrentMap<AbstractStatement<?, ?>, IntSet> pendingDeltas = new ConcurrentHashMap<AbstractStatement<?, ?>, IntSet>();
+
+  /**
+   * If non-null, a mapping from each pointer key to the instance keys added to its points-to set directly by
+   * {@link #newConstraint(PointerKey, InstanceKey)}, rather than by propagation. {@link #retract(Set, IntSet)} needs these to
+   * restore the points-to sets it clears.
+   */
+  private Map<PointerKey, MutableIntSet> directValues = null;
+
   private int verboseInterval = DEFAULT_VERBOSE_INTERVAL;
 
   private int periodicMaintainInterval = DEFAULT_PERIODIC_MAINTENANCE_INTERVAL;
@@ -414,6 +438,15 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
     pointsToMap.recordTransitiveRoot(lhs);
 
+    if (directValues != null) {
+      MutableIntSet s = directValues.get(lhs);
+      if (s == null) {
+        s = IntSetUtil.make();
+        directValues.put(lhs, s);
+      }
+      s.add(findOrCreateIndexForInstanceKey(value));
+    }
+
     // we don't actually add a constraint.
     // instead, we immediately add the value to the points-to set.
     // This works since the solver is monotonic with TOP = {}
@@ -605,6 +638,330 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     addAllStatementsToWorkList();
   }
 
+  /**
+   * Assignments, and casts to a fixed set of classes, only read their right-hand side and {@link #class2InstanceKey} (which only
+   * changes when new instance keys are added, not while such statements are evaluated), and only write their left-hand side.
+   * Other operators may add statements, instance keys, or call graph edges, and so must run on the solving thread.
+   */
+  @Override
+  @SuppressWarnings("rawtypes")
+  protected boolean isParallelSafe(AbstractStatement s) {
+    return isAssignOrClassFilter(s);
+  }
+
+  /**
+   * Is s an assignment, or a cast to a fixed set of classes? These statements add (part of) their right-hand side to their
+   * left-hand side, and nothing else, so they can be evaluated by {@link #evaluateStatement(AbstractStatement)} using just what
+   * has been added to their right-hand side.
+   */
+  private static boolean isAssignOrClassFilter(AbstractStatement<?, ?> s) {
+    if (!(s instanceof UnaryStatement)) {
+      return false;
+    }
+    AbstractOperator<?> op = s.getOperator();
+    if (op instanceof AssignOperator) {
+      return true;
+    }
+    if (op.getClass() == FilterOperator.class || op.getClass() == InverseFilterOperator.class) {
+      PointsToSetVariable lhs = (PointsToSetVariable) s.getLHS();
+      FilteredPointerKey.TypeFilter filter = ((FilteredPointerKey) lhs.getPointerKey()).getTypeFilter();
+      return filter instanceof FilteredPointerKey.SingleClassFilter || filter instanceof FilteredPointerKey.MultipleClassesFilter;
+    }
+    return false;
+  }
+
+  /**
+   * Assignments and filters propagate only the elements recorded for them in {@link #pendingDeltas}, or their whole right-hand
+   * side if there are none, and record what they add to their left-hand side so that {@link #changedVariable(PointsToSetVariable)}
+   * can pass it on.
+   */
+  @Override
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  protected byte evaluateStatement(AbstractStatement s) {
+    if (!useDifferencePropagation || !isAssignOrClassFilter(s)) {
+      return super.evaluateStatement(s);
+    }
+    UnaryStatement<PointsToSetVariable> u = (UnaryStatement<PointsToSetVariable>) s;
+    PointsToSetVariable lhs = u.getLHS();
+    IntSet input = pendingDeltas.remove(s);
+    if (input == null) {
+      input = u.getRightHandSide().getValue();
+    }
+    if (input == null || input.isEmpty()) {
+      return NOT_CHANGED;
+    }
+    AbstractOperator<PointsToSetVariable> op = u.getOperator();
+    if (op instanceof FilterOperator) {
+      FilteredPointerKey.TypeFilter filter = ((FilteredPointerKey) lhs.getPointerKey()).getTypeFilter();
+      input = filter(filter, input, op instanceof InverseFilterOperator);
+      if (input == null || input.isEmpty()) {
+        return NOT_CHANGED;
+      }
+    }
+    return lhs.addDelta(input) ? CHANGED : NOT_CHANGED;
+  }
+
+  /**
+   * @return the elements of s that pass a {@link FilteredPointerKey.SingleClassFilter} or
+   *         {@link FilteredPointerKey.MultipleClassesFilter} (or, if inverse, that do not pass it), or null if there are none
+   */
+  private IntSet filter(FilteredPointerKey.TypeFilter filter, IntSet s, boolean inverse) {
+    IntSet f = null;
+    if (filter instanceof FilteredPointerKey.SingleClassFilter) {
+      f = getInstanceKeysForClass(((FilteredPointerKey.SingleClassFilter) filter).getConcreteType());
+    } else {
+      for (IClass klass : ((FilteredPointerKey.MultipleClassesFilter) filter).getConcreteTypes()) {
+        IntSet g = getInstanceKeysForClass(klass);
+        if (g != null) {
+          f = (f == null) ? g : f.union(g);
+        }
+      }
+    }
+    if (inverse) {
+      return (f == null) ? s : IntSetUtil.diff(s, f);
+    } else {
+      return (f == null) ? null : s.intersection(f);
+    }
+  }
+
+  /**
+   * If we know exactly what was added to v, then assignments and filters using v need only propagate that.
+   */
+  @Override
+  public void changedVariable(PointsToSetVariable v) {
+    IntSet delta = v.takeDelta();
+    if (!useDifferencePropagation || delta == null) {
+      super.changedVariable(v);
+      return;
+    }
+    for (AbstractStatement<?, ?> s : Iterator2Iterable.make(getStatementsThatUse(v))) {
+      if (!isAssignOrClassFilter(s)) {
+        addToWorkList(s);
+        continue;
+      }
+      IntSet pending = pendingDeltas.get(s);
+      if (pending != null) {
+        // s has yet to propagate an earlier delta. deltas are shared between statements, so build a new set.
+        MutableIntSet both = IntSetUtil.getDefaultIntSetFactory().makeCopy(pending);
+        both.addAll(delta);
+        pendingDeltas.put(s, both);
+      } else if (!workList.containsStatement(s)) {
+        pendingDeltas.put(s, delta);
+        workList.insertStatement(s);
+      }
+      // else s is already on the work list to propagate all of v
+    }
+  }
+
+  /**
+   * A statement added to the work list this way must propagate its whole right-hand side.
+   */
+  @Override
+  @SuppressWarnings("rawtypes")
+  public void addToWorkList(AbstractStatement s) {
+    pendingDeltas.remove(s);
+    super.addToWorkList(s);
+  }
+
+  public boolean getUseDifferencePropagation() {
+    return useDifferencePropagation;
+  }
+
+  /**
+   * @param useDifferencePropagation should assignments and filters propagate only what was added to their right-hand side since
+   *          they last ran, rather than their whole right-hand side? This is on by default.
+   */
+  public void setUseDifferencePropagation(boolean useDifferencePropagation) {
+    this.useDifferencePropagation = useDifferencePropagation;
+    if (!useDifferencePropagation) {
+      pendingDeltas.clear();
+    }
+  }
+
+  public boolean getRecordDirectValues() {
+    return directValues != null;
+  }
+
+  /**
+   * @param record should the system remember the instance keys added directly to each points-to set, so that constraints can later
+   *          be {@link #retract(Set, IntSet) retracted}? This must be set before any constraints are added; it is off by default.
+   */
+  public void setRecordDirectValues(boolean record) {
+    directValues = record ? HashMapFactory.<PointerKey, MutableIntSet> make() : null;
+  }
+
+  /**
+   * Retract the constraints on the local variables, return values and exceptional return values of some nodes, together with
+   * every points-to fact that may have flowed from them or from some instance keys. The local points-to sets of the nodes are
+   * discarded, along with the statements that use or define them. Then every points-to set that may have received something from
+   * those statements or that holds one of the retracted instance keys is cleared, as is everything that may have received
+   * something from a cleared set; the cleared sets get back the instance keys added to them directly, and the statements that
+   * define them are put back on the work list, so that the next {@link #solve} derives again what still holds. The fields of the
+   * retracted instance keys are cleared too, and the keys themselves are forgotten, so that an equal key added later gets a new
+   * number.
+   *
+   * Statements that other operators added on behalf of the retracted ones, such as those for field accesses, are kept; this is
+   * imprecise but safe.
+   *
+   * @param nodes the nodes whose constraints are to be retracted; clients add them again afterwards if they are still needed
+   * @param instances numbers of instance keys that no longer exist, or that will be added again by the new constraints
+   * @return the points-to sets cleared
+   */
+  @SuppressWarnings("unchecked")
+  public Set<PointsToSetVariable> retract(Set<CGNode> nodes, IntSet instances) {
+    if (nodes == null) {
+      throw new IllegalArgumentException("null nodes");
+    }
+    if (instances == null) {
+      throw new IllegalArgumentException("null instances");
+    }
+    if (directValues == null) {
+      throw new IllegalStateException("direct values were not recorded");
+    }
+    // find the pointer keys local to the nodes, and the statements on them
+    Set<PointerKey> locals = HashSetFactory.make();
+    Set<AbstractStatement<?, ?>> statements = HashSetFactory.make();
+    for (Iterator<PointerKey> it = pointsToMap.iterateKeys(); it.hasNext();) {
+      PointerKey key = it.next();
+      if (key instanceof AbstractLocalPointerKey && nodes.contains(((AbstractLocalPointerKey) key).getNode())) {
+        locals.add(key);
+        if (!pointsToMap.isImplicit(key)) {
+          PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+          if (v != null) {
+            for (AbstractStatement<?, ?> s : Iterator2Iterable.make(getStatementsThatDef(v))) {
+              statements.add(s);
+            }
+            for (AbstractStatement<?, ?> s : Iterator2Iterable.make(getStatementsThatUse(v))) {
+              statements.add(s);
+            }
+          }
+        }
+      }
+    }
+
+    // remove the statements; whatever they defined outside the nodes must be cleared
+    Set<PointsToSetVariable> cleared = HashSetFactory.make();
+    for (AbstractStatement<?, ?> s : statements) {
+      // every statement of the flow graph is on points-to sets
+      @SuppressWarnings("unchecked")
+      IFixedPointStatement<PointsToSetVariable> eq = (IFixedPointStatement<PointsToSetVariable>) s;
+      flowGraph.removeStatement(eq);
+      pendingDeltas.remove(s);
+      PointsToSetVariable lhs = (PointsToSetVariable) s.getLHS();
+      if (lhs != null && !locals.contains(lhs.getPointerKey())) {
+        cleared.add(lhs);
+      }
+    }
+
+    // forget the local points-to sets, so that they are created afresh
+    for (PointerKey key : locals) {
+      if (!pointsToMap.isImplicit(key)) {
+        PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+        if (v != null) {
+          if (v.getGraphNodeId() > -1) {
+            flowGraph.removeVariable(v);
+          }
+          fixedSetMap.remove(v);
+        }
+      }
+      pointsToMap.forget(key);
+      directValues.remove(key);
+    }
+
+    // clear the points-to sets that hold retracted instance keys
+    if (!instances.isEmpty()) {
+      for (Iterator<PointerKey> it = pointsToMap.iterateKeys(); it.hasNext();) {
+        PointerKey key = it.next();
+        if (!pointsToMap.isImplicit(key) && !pointsToMap.isUnified(key)) {
+          PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+          if (v == null) {
+            continue;
+          }
+          if (v.getValue() != null && v.getValue().containsAny(instances)) {
+            cleared.add(v);
+          } else if (key instanceof AbstractFieldPointerKey) {
+            int base = getInstanceIndex(((AbstractFieldPointerKey) key).getInstanceKey());
+            if (base != -1 && instances.contains(base)) {
+              cleared.add(v);
+            }
+          }
+        }
+      }
+    }
+
+    // and everything that may have received something from a cleared set
+    LinkedList<PointsToSetVariable> worklist = new LinkedList<PointsToSetVariable>(cleared);
+    while (!worklist.isEmpty()) {
+      PointsToSetVariable v = worklist.removeFirst();
+      for (AbstractStatement<?, ?> s : Iterator2Iterable.make(getStatementsThatUse(v))) {
+        PointsToSetVariable lhs = (PointsToSetVariable) s.getLHS();
+        if (lhs != null && cleared.add(lhs)) {
+          worklist.add(lhs);
+        }
+      }
+    }
+
+    // start the cleared sets over from what was added to them directly, and derive the rest again
+    for (PointsToSetVariable v : cleared) {
+      v.removeAll();
+      MutableIntSet direct = directValues.get(v.getPointerKey());
+      if (direct != null) {
+        if (direct.containsAny(instances)) {
+          direct = IntSetUtil.makeMutableCopy(IntSetUtil.diff(direct, instances));
+          directValues.put(v.getPointerKey(), direct);
+        }
+        if (!direct.isEmpty()) {
+          v.addAll(direct);
+        }
+      }
+    }
+    for (PointsToSetVariable v : cleared) {
+      for (AbstractStatement<?, ?> s : Iterator2Iterable.make(getStatementsThatDef(v))) {
+        addToWorkList(s);
+      }
+    }
+
+    // forget the retracted instance keys
+    if (!instances.isEmpty()) {
+      for (MutableIntSet s : class2InstanceKey.values()) {
+        if (s.containsAny(instances)) {
+          for (IntIterator it = instances.intIterator(); it.hasNext();) {
+            s.remove(it.next());
+          }
+        }
+      }
+      for (IntIterator it = instances.intIterator(); it.hasNext();) {
+        InstanceKey ik = instanceKeys.getMappedObject(it.next());
+        if (ik != null) {
+          instanceKeys.deleteMappedObject(ik);
+        }
+      }
+    }
+    pointerAnalysis = null;
+    return cleared;
+  }
+
+  /**
+   * @param instances numbers of instance keys
+   * @return the nodes that have one of the instance keys {@link #newConstraint(PointerKey, InstanceKey) added directly} to one of
+   *         their local variables; these are the nodes that allocate them
+   */
+  public Set<CGNode> getNodesWithDirectValues(IntSet instances) {
+    if (instances == null) {
+      throw new IllegalArgumentException("null instances");
+    }
+    if (directValues == null) {
+      throw new IllegalStateException("direct values were not recorded");
+    }
+    Set<CGNode> result = HashSetFactory.make();
+    for (Map.Entry<PointerKey, MutableIntSet> e : directValues.entrySet()) {
+      if (e.getKey() instanceof AbstractLocalPointerKey && e.getValue().containsAny(instances)) {
+        result.add(((AbstractLocalPointerKey) e.getKey()).getNode());
+      }
+    }
+    return result;
+  }
+
   /**
    * @return an object that encapsulates the pointer analysis results
    */
@@ -784,6 +1141,10 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
       cache.add(pointsToMap.getPointsToSet(i));
     }
 
+    // unification rewrites statements without evaluating them, so they may not have seen their whole right-hand side; from now
+    // on always propagate whole sets.
+    setUseDifferencePropagation(false);
+
     // unify the variables
     pointsToMap.unify(s);
     int rep = pointsToMap.getRepresentative(s.intIterator().next());
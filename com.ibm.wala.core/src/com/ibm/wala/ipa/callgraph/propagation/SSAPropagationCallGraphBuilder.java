@@ -17,9 +17,11 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.ibm.wala.analysis.reflection.CloneInterpreter;
+import com.ibm.wala.analysis.reflection.InstanceKeyWithNode;
 import com.ibm.wala.cfg.ControlFlowGraph;
 import com.ibm.wala.cfg.IBasicBlock;
 import com.ibm.wala.classLoader.ArrayClass;
@@ -30,14 +32,18 @@ import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.classLoader.NewSiteReference;
 import com.ibm.wala.classLoader.ProgramCounter;
 import com.ibm.wala.fixpoint.AbstractOperator;
+import com.ibm.wala.fixpoint.AbstractStatement;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
 import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
 import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.impl.FakeRootMethod;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
@@ -75,10 +81,13 @@ import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
 import com.ibm.wala.util.functions.VoidFunction;
+import com.ibm.wala.util.graph.traverse.DFS;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
@@ -156,6 +165,13 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
 
   private final Set<IClass> finalizeVisited = HashSetFactory.make();
 
+  /**
+   * Mapping from a node to the pointer keys its dispatch statements read, kept in {@link #setIncremental(boolean) incremental} mode
+   * so that {@link #updateCallGraph(Collection, IProgressMonitor)} finds the dispatch statements of a node without going over every
+   * statement of the system
+   */
+  private final Map<CGNode, Set<PointerKey>> dispatchKeys = HashMapFactory.make();
+
   public IProgressMonitor monitor;
 
   protected SSAPropagationCallGraphBuilder(IClassHierarchy cha, AnalysisOptions options, AnalysisCache cache,
@@ -240,6 +256,172 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     return true;
   }
 
+  /**
+   * Bring the call graph and pointer analysis up to date after some classes have changed, without building them again from
+   * scratch. The nodes for methods of the changed classes are removed from the call graph along with their cached IRs, and their
+   * constraints are {@link PropagationSystem#retract(Set, IntSet) retracted} along with the instance keys they allocated, the
+   * instance keys of the changed classes, and the points-to facts that flowed from them. The nodes that called them, that
+   * allocated instances of the changed classes, or that dispatched on a retracted points-to set add their constraints again and
+   * resolve their calls again, and the system is solved again; nodes that are then no longer reachable from the fake root are
+   * removed in the same way. Only the part of the program that the change may affect is revisited.
+   * 
+   * The class hierarchy must already hold the new versions of the classes; replace them with
+   * {@link com.ibm.wala.ipa.cha.ClassHierarchy#replaceClass(IClass)} first. The call graph must have been built in
+   * {@link #setIncremental(boolean) incremental} mode, and not {@link ExplicitCallGraph#compact() compacted} since.
+   * 
+   * @param classes the classes that have changed, as they are now in the class hierarchy
+   * @return the updated call graph
+   * @throws IllegalArgumentException if one of the classes is not the one the class hierarchy holds
+   */
+  public CallGraph updateCallGraph(Collection<IClass> classes, IProgressMonitor monitor) throws CallGraphBuilderCancelException {
+    if (classes == null) {
+      throw new IllegalArgumentException("classes is null");
+    }
+    if (system == null || !system.getRecordDirectValues()) {
+      throw new IllegalStateException("call graph was not built in incremental mode");
+    }
+    this.monitor = monitor;
+    Set<TypeReference> changed = HashSetFactory.make();
+    for (IClass klass : classes) {
+      if (cha.lookupClass(klass.getReference()) != klass) {
+        throw new IllegalArgumentException(klass + " is not in the class hierarchy; call ClassHierarchy.replaceClass first");
+      }
+      changed.add(klass.getReference());
+    }
+
+    // the nodes for methods of the changed classes, and the instances they allocated or that are of the changed classes
+    Set<CGNode> removed = HashSetFactory.make();
+    for (CGNode n : callGraph) {
+      if (changed.contains(n.getMethod().getDeclaringClass().getReference()) && !n.equals(callGraph.getFakeRootNode())
+          && !n.equals(callGraph.getFakeWorldClinitNode())) {
+        removed.add(n);
+      }
+    }
+    MutableIntSet retracted = IntSetUtil.make();
+    for (Iterator<InstanceKey> it = system.instanceKeys.iterator(); it.hasNext();) {
+      InstanceKey ik = it.next();
+      if (ik.getConcreteType() != null && changed.contains(ik.getConcreteType().getReference())) {
+        retracted.add(system.getInstanceIndex(ik));
+      }
+    }
+
+    while (!removed.isEmpty()) {
+      for (Iterator<InstanceKey> it = system.instanceKeys.iterator(); it.hasNext();) {
+        InstanceKey ik = it.next();
+        if (ik instanceof InstanceKeyWithNode && removed.contains(((InstanceKeyWithNode) ik).getNode())) {
+          retracted.add(system.getInstanceIndex(ik));
+        }
+      }
+
+      // the nodes to visit again
+      Set<CGNode> redo = HashSetFactory.make();
+      for (CGNode n : removed) {
+        for (Iterator<CGNode> ps = callGraph.getPredNodes(n); ps.hasNext();) {
+          redo.add(ps.next());
+        }
+      }
+      redo.addAll(system.getNodesWithDirectValues(retracted));
+      redo.removeAll(removed);
+
+      for (CGNode n : removed) {
+        getAnalysisCache().getSSACache().invalidate(n.getMethod(), n.getContext());
+        getAnalysisCache().getSSACache().invalidate(n.getMethod(), Everywhere.EVERYWHERE);
+        callGraph.removeNodeAndEdges(n);
+        markRemoved(n);
+        dispatchKeys.remove(n);
+      }
+      Set<PointsToSetVariable> cleared = system.retract(removed, retracted);
+      redo.addAll(getDispatchingNodes(cleared));
+      redo.removeAll(removed);
+
+      for (CGNode n : redo) {
+        ExplicitCallGraph.ExplicitNode node = (ExplicitCallGraph.ExplicitNode) n;
+        for (CGNode t : Iterator2Collection.toSet(callGraph.getSuccNodes(n))) {
+          node.removeTarget(t);
+        }
+        markChanged(n);
+      }
+      for (AbstractStatement<PointsToSetVariable, ?> s : getDispatches(redo)) {
+        ((DispatchOperator) s.getOperator()).forgetPrevious();
+        system.addToWorkList(s);
+      }
+      solve(monitor);
+
+      // whatever the fake root no longer reaches goes too
+      Set<CGNode> reachable = DFS.getReachableNodes(callGraph, Collections.singleton(callGraph.getFakeRootNode()));
+      removed = HashSetFactory.make();
+      for (CGNode n : callGraph) {
+        if (!reachable.contains(n)) {
+          removed.add(n);
+        }
+      }
+      retracted = IntSetUtil.make();
+    }
+    return callGraph;
+  }
+
+  /**
+   * remember the pointer keys that a dispatch statement of node reads, if building incrementally
+   */
+  private void recordDispatch(CGNode node, List<PointerKey> keys) {
+    if (isIncremental()) {
+      Set<PointerKey> s = dispatchKeys.get(node);
+      if (s == null) {
+        s = HashSetFactory.make();
+        dispatchKeys.put(node, s);
+      }
+      s.addAll(keys);
+    }
+  }
+
+  /**
+   * @return the dispatch statements of the given nodes
+   */
+  private Set<AbstractStatement<PointsToSetVariable, ?>> getDispatches(Set<CGNode> nodes) {
+    Set<AbstractStatement<PointsToSetVariable, ?>> result = HashSetFactory.make();
+    for (CGNode n : nodes) {
+      Set<PointerKey> keys = dispatchKeys.get(n);
+      if (keys != null) {
+        for (PointerKey key : keys) {
+          for (AbstractStatement<PointsToSetVariable, ?> s : getDispatchesReading(system.findOrCreatePointsToSet(key))) {
+            if (((DispatchOperator) s.getOperator()).node.equals(n)) {
+              result.add(s);
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the nodes with a dispatch statement that reads one of the given points-to sets
+   */
+  private Set<CGNode> getDispatchingNodes(Set<PointsToSetVariable> vars) {
+    Set<CGNode> result = HashSetFactory.make();
+    for (PointsToSetVariable v : vars) {
+      for (AbstractStatement<PointsToSetVariable, ?> s : getDispatchesReading(v)) {
+        result.add(((DispatchOperator) s.getOperator()).node);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the dispatch statements that read v
+   */
+  @SuppressWarnings("unchecked")
+  private List<AbstractStatement<PointsToSetVariable, ?>> getDispatchesReading(PointsToSetVariable v) {
+    List<AbstractStatement<PointsToSetVariable, ?>> result = new ArrayList<AbstractStatement<PointsToSetVariable, ?>>();
+    for (Iterator<?> it = system.getStatementsThatUse(v); it.hasNext();) {
+      AbstractStatement<PointsToSetVariable, ?> s = (AbstractStatement<PointsToSetVariable, ?>) it.next();
+      if (s.getOperator() instanceof DispatchOperator) {
+        result.add(s);
+      }
+    }
+    return result;
+  }
+
   /**
    * @return a visitor to examine instructions in the ir
    */
@@ -1184,6 +1366,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
           DispatchOperator dispatchOperator = getBuilder().new DispatchOperator(instruction, node,
               invariantParameters, uniqueCatch, params);
           system.newSideEffect(dispatchOperator, pks.toArray(new PointerKey[pks.size()]));
+          getBuilder().recordDispatch(node, pks);
         }
       }
     }
@@ -1938,6 +2121,16 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       keys[0] = null;
     }
 
+    /**
+     * Forget which parameter values have been processed, so that the next evaluation resolves the targets of the call for all of
+     * them again
+     */
+    void forgetPrevious() {
+      for (MutableIntSet s : previousPtrs) {
+        s.clear();
+      }
+    }
+
     private boolean noConstParams() {
       if (constParams != null) {
         for (int i = 0; i < constParams.length; i++) {
@@ -0,0 +1,1722 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import static com.ibm.wala.ipa.callgraph.propagation.CallGraphStore.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.ibm.wala.analysis.pointers.BasicHeapGraph;
+import com.ibm.wala.analysis.pointers.HeapGraph;
+import com.ibm.wala.analysis.reflection.GetMethodContext;
+import com.ibm.wala.analysis.reflection.JavaTypeContext;
+import com.ibm.wala.analysis.typeInference.ConeType;
+import com.ibm.wala.analysis.typeInference.PointType;
+import com.ibm.wala.classLoader.ArrayClass;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ProgramCounter;
+import com.ibm.wala.classLoader.SyntheticMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextItem;
+import com.ibm.wala.ipa.callgraph.ContextKey;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.FakeRootClass;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallString;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContextSelector.CallStringContextPair;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallerContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallerSiteContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ExceptionReturnValueKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.summaries.SyntheticIR;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAInstructionFactory;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.graph.impl.NodeWithNumber;
+import com.ibm.wala.util.graph.impl.NumberedNodeIterator;
+import com.ibm.wala.util.intset.EmptyIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+import com.ibm.wala.util.intset.SparseIntSet;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * A call graph and pointer analysis read back from a file written by {@link CallGraphStore#write}.
+ *
+ * Each section of the file is memory-mapped, and its nodes, contexts, instance keys and points-to sets are decoded the first time
+ * they are asked for. Nodes keep the numbers they had when saved. The IR of a node is given by the {@link SSAContextInterpreter}
+ * the graph is read with. Synthetic methods, such as summaries, are found again with the method target selector of the options the
+ * graph is read with; a node whose method cannot be found, such as the fake root, has a stand-in method whose IR has just the saved
+ * allocation and call sites of the node.
+ *
+ * The {@link #getHeapModel() heap model} makes the standard pointer keys, and gives the instance key saved for each allocation
+ * site; it returns null for an instance key that was not saved.
+ */
+public class StoredCallGraph extends AbstractNumberedGraph<CGNode> implements CallGraph, PointerAnalysis<InstanceKey> {
+
+  private final IClassHierarchy cha;
+
+  private final SSAContextInterpreter interpreter;
+
+  /**
+   * gives the selectors that find synthetic methods and classes; may be null
+   */
+  private final AnalysisOptions options;
+
+  private final Map<String, ClassLoaderReference> loaders = HashMapFactory.make();
+
+  private final ByteBuffer stringBytes;
+
+  private final IntBuffer stringOffsets;
+
+  private final IntBuffer typeData;
+
+  private final IntBuffer methodData;
+
+  private final IntBuffer fieldData;
+
+  private final Table contextTable;
+
+  private final Table instanceKeyTable;
+
+  private final Table nodeTable;
+
+  private final IntBuffer edges;
+
+  private final IntBuffer roots;
+
+  private final Table localTable;
+
+  private final Table heapTable;
+
+  private final IntBuffer statics;
+
+  private final Table setTable;
+
+  private final String[] strings;
+
+  private final TypeReference[] types;
+
+  private final MethodReference[] methods;
+
+  private final IMethod[] resolvedMethods;
+
+  private final IMethod[] syntheticMethods;
+
+  /**
+   * the synthetic methods being found, to avoid going around a cycle of callers
+   */
+  private final boolean[] findingSynthetic;
+
+  private final FieldReference[] fields;
+
+  private final Context[] contexts;
+
+  private final InstanceKey[] instanceKeys;
+
+  private final StoredNode[] nodes;
+
+  private final int numberOfNodes;
+
+  /**
+   * Mapping from a method to the numbers of its nodes; built when first needed
+   */
+  private Map<MethodReference, int[]> mr2Nodes;
+
+  /**
+   * Mapping from a field to its number in the file; built when first needed
+   */
+  private Map<FieldReference, Integer> fieldNumbers;
+
+  /**
+   * Mapping from an instance key to its number in the file; built when first needed
+   */
+  private Map<InstanceKey, Integer> instanceKeyNumbers;
+
+  private HeapGraph<InstanceKey> heapGraph;
+
+  private final NumberedNodeManager<CGNode> nodeManager = new StoredNodeManager();
+
+  private final StoredEdgeManager edgeManager = new StoredEdgeManager();
+
+  private final HeapModel heapModel = new StoredHeapModel();
+
+  private final OrdinalSetMapping<InstanceKey> instanceKeyMapping = new InstanceKeyMapping();
+
+  /**
+   * A table of entries of varying length: their number, the offset of each, then their contents
+   */
+  private static final class Table {
+    private final IntBuffer data;
+
+    private final int size;
+
+    Table(IntBuffer data) {
+      this.data = data;
+      this.size = data.get(0);
+    }
+
+    int size() {
+      return size;
+    }
+
+    /**
+     * @return the position in data of the start of entry i
+     */
+    int start(int i) {
+      return size + 2 + data.get(1 + i);
+    }
+
+    /**
+     * @return the position in data after the end of entry i
+     */
+    int end(int i) {
+      return size + 2 + data.get(2 + i);
+    }
+
+    int get(int position) {
+      return data.get(position);
+    }
+  }
+
+  StoredCallGraph(File file, IClassHierarchy cha, SSAContextInterpreter interpreter, AnalysisOptions options) throws IOException {
+    this.cha = cha;
+    this.interpreter = interpreter;
+    this.options = options;
+    for (IClassLoader l : cha.getLoaders()) {
+      loaders.put(l.getName().toString(), l.getReference());
+    }
+    // each section is mapped on its own, so the file may be larger than one mapping
+    ByteBuffer stringSection;
+    IntBuffer[] sections = new IntBuffer[SECTIONS];
+    RandomAccessFile f = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = f.getChannel();
+      long size = channel.size();
+      if (size < 8 || readInt(channel, 0) != MAGIC) {
+        throw new IOException("not a saved call graph: " + file);
+      }
+      if (readInt(channel, 4) != VERSION) {
+        throw new IOException("unsupported version " + readInt(channel, 4) + " of saved call graph " + file);
+      }
+      long position = 8;
+      stringSection = null;
+      for (int i = 0; i < SECTIONS; i++) {
+        int length = position + 4 <= size ? readInt(channel, position) : -1;
+        if (length < 0 || length > MAX_SECTION_INTS || position + 4 + 4L * length > size) {
+          throw new IOException("corrupt saved call graph " + file + ": bad section at offset " + position);
+        }
+        MappedByteBuffer b = channel.map(MapMode.READ_ONLY, position + 4, 4L * length);
+        if (i == STRINGS) {
+          stringSection = b;
+        }
+        sections[i] = b.asIntBuffer();
+        position += 4 + 4L * length;
+      }
+    } finally {
+      f.close();
+    }
+
+    int nStrings = sections[STRINGS].get(0);
+    stringOffsets = sections[STRINGS];
+    stringSection.position(4 * (nStrings + 2));
+    stringBytes = stringSection.slice();
+    typeData = sections[TYPES];
+    methodData = sections[METHODS];
+    fieldData = sections[FIELDS];
+    contextTable = new Table(sections[CONTEXTS]);
+    instanceKeyTable = new Table(sections[INSTANCE_KEYS]);
+    nodeTable = new Table(sections[NODES]);
+    edges = sections[EDGES];
+    roots = sections[ROOTS];
+    localTable = new Table(sections[LOCALS]);
+    heapTable = new Table(sections[HEAP]);
+    statics = sections[STATICS];
+    setTable = new Table(sections[SETS]);
+
+    strings = new String[nStrings];
+    types = new TypeReference[typeData.limit() / 2];
+    methods = new MethodReference[methodData.limit() / 3];
+    resolvedMethods = new IMethod[methods.length];
+    syntheticMethods = new IMethod[methods.length];
+    findingSynthetic = new boolean[methods.length];
+    fields = new FieldReference[fieldData.limit() / 3];
+    contexts = new Context[contextTable.size()];
+    instanceKeys = new InstanceKey[instanceKeyTable.size()];
+    nodes = new StoredNode[nodeTable.size()];
+    int count = 0;
+    for (int x = 0; x < nodes.length; x++) {
+      if (nodeTable.start(x) != nodeTable.end(x)) {
+        count++;
+      }
+    }
+    numberOfNodes = count;
+  }
+
+  private static int readInt(FileChannel channel, long position) throws IOException {
+    ByteBuffer b = ByteBuffer.allocate(4);
+    while (b.hasRemaining()) {
+      if (channel.read(b, position + b.position()) < 0) {
+        throw new IOException("unexpected end of file");
+      }
+    }
+    return b.getInt(0);
+  }
+
+  /*
+   * decoding of the saved references, each of which is decoded once
+   */
+
+  private synchronized String string(int i) {
+    if (strings[i] == null) {
+      int from = stringOffsets.get(1 + i);
+      byte[] bytes = new byte[stringOffsets.get(2 + i) - from];
+      for (int j = 0; j < bytes.length; j++) {
+        bytes[j] = stringBytes.get(from + j);
+      }
+      try {
+        strings[i] = new String(bytes, "UTF-8");
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return strings[i];
+  }
+
+  private synchronized TypeReference type(int i) {
+    if (types[i] == null) {
+      String loader = string(typeData.get(2 * i));
+      ClassLoaderReference ref = loaders.get(loader);
+      if (ref == null) {
+        throw new IllegalStateException("unknown loader " + loader);
+      }
+      types[i] = TypeReference.findOrCreate(ref, string(typeData.get(2 * i + 1)));
+    }
+    return types[i];
+  }
+
+  private synchronized MethodReference methodReference(int i) {
+    if (methods[i] == null) {
+      TypeReference declaringClass = type(methodData.get(3 * i));
+      methods[i] = MethodReference.findOrCreate(declaringClass, string(methodData.get(3 * i + 1)), string(methodData
+          .get(3 * i + 2)));
+    }
+    return methods[i];
+  }
+
+  /**
+   * @return the method saved as number i, or a stand-in for it if it cannot be found
+   */
+  private synchronized IMethod method(int i, int flags) {
+    if ((flags & SYNTHETIC) != 0) {
+      if (syntheticMethods[i] == null) {
+        IMethod m = findSynthetic(i);
+        syntheticMethods[i] = m != null ? m : new MissingMethod(methodReference(i), declaringClass(methodReference(i)),
+            (flags & STATIC) != 0);
+      }
+      return syntheticMethods[i];
+    }
+    if (resolvedMethods[i] == null) {
+      MethodReference ref = methodReference(i);
+      IMethod m = cha.resolveMethod(ref);
+      if (m == null) {
+        m = new MissingMethod(ref, declaringClass(ref), (flags & STATIC) != 0);
+      }
+      resolvedMethods[i] = m;
+    }
+    return resolvedMethods[i];
+  }
+
+  private IClass declaringClass(MethodReference ref) {
+    IClass declaringClass = cha.lookupClass(ref.getDeclaringClass());
+    return declaringClass != null ? declaringClass : new FakeRootClass(ref.getDeclaringClass(), cha);
+  }
+
+  /**
+   * A synthetic method, such as a summary, is not in the class hierarchy; ask the method target selector for it again at a call
+   * site saved with one of its nodes as a target.
+   *
+   * @return the synthetic method saved as number i, or null if it cannot be found
+   */
+  private IMethod findSynthetic(int i) {
+    if (options == null || options.getMethodTargetSelector() == null || findingSynthetic[i]) {
+      return null;
+    }
+    findingSynthetic[i] = true;
+    try {
+      MethodReference ref = methodReference(i);
+      int[] ns = getNodeNumbers(ref);
+      if (ns == null) {
+        return null;
+      }
+      IClass receiver = cha.lookupClass(ref.getDeclaringClass());
+      // callers with synthetic methods last, since finding those may come back here
+      for (int pass = 0; pass < 2; pass++) {
+        for (int x : ns) {
+          for (int y : edgeManager.preds(x)) {
+            int method = nodeTable.get(nodeTable.start(y));
+            boolean synthetic = (nodeTable.get(nodeTable.start(y) + 1) & SYNTHETIC) != 0;
+            if (synthetic != (pass == 1) || synthetic && findingSynthetic[method]) {
+              continue;
+            }
+            IMethod m = findSynthetic(ref, receiver, x, y);
+            if (m != null) {
+              return m;
+            }
+          }
+        }
+      }
+      return null;
+    } finally {
+      findingSynthetic[i] = false;
+    }
+  }
+
+  /**
+   * @return the method the selector finds for ref at a call site from node y to node x, or null if there is none
+   */
+  private IMethod findSynthetic(MethodReference ref, IClass receiver, int x, int y) {
+    int p = firstSite(y);
+    int count = nodeTable.get(p - 1);
+    for (int j = 0; j < count; j++) {
+      if (Arrays.binarySearch(targets(p), x) >= 0) {
+        IMethod m = options.getMethodTargetSelector().getCalleeTarget(getNode(y), site(nodeTable, p), receiver);
+        if (m != null && m.getReference().equals(ref)) {
+          return m;
+        }
+      }
+      p += 4 + nodeTable.get(p + 3);
+    }
+    return null;
+  }
+
+  private synchronized FieldReference field(int i) {
+    if (fields[i] == null) {
+      TypeReference declaringClass = type(fieldData.get(3 * i));
+      Atom name = Atom.findOrCreateUnicodeAtom(string(fieldData.get(3 * i + 1)));
+      fields[i] = FieldReference.findOrCreate(declaringClass, name, type(fieldData.get(3 * i + 2)));
+    }
+    return fields[i];
+  }
+
+  private synchronized int fieldNumber(FieldReference f) {
+    if (fieldNumbers == null) {
+      fieldNumbers = HashMapFactory.make(fields.length);
+      for (int i = 0; i < fields.length; i++) {
+        fieldNumbers.put(field(i), i);
+      }
+    }
+    Integer i = fieldNumbers.get(f);
+    return i == null ? -1 : i;
+  }
+
+  /**
+   * @return the call site saved at position p of table
+   */
+  private CallSiteReference site(Table table, int p) {
+    IInvokeInstruction.Dispatch code = IInvokeInstruction.Dispatch.values()[table.get(p + 1)];
+    return CallSiteReference.make(table.get(p), methodReference(table.get(p + 2)), code);
+  }
+
+  private synchronized Context context(int i) {
+    if (contexts[i] == null) {
+      int p = contextTable.start(i);
+      switch (contextTable.get(p)) {
+      case EVERYWHERE:
+        contexts[i] = Everywhere.EVERYWHERE;
+        break;
+      case CALL_STRING:
+        contexts[i] = new CallStringContext(callString(p + 1));
+        break;
+      case CALL_STRING_PAIR:
+        int length = contextTable.get(p + 1);
+        contexts[i] = new CallStringContextPair(callString(p + 1), context(contextTable.get(p + 2 + 5 * length)));
+        break;
+      case RECEIVER_INSTANCE:
+        contexts[i] = new ReceiverInstanceContext(instanceKey(contextTable.get(p + 1)));
+        break;
+      case CALLER:
+        contexts[i] = new CallerContext(getNode(contextTable.get(p + 1)));
+        break;
+      case CALLER_SITE:
+        contexts[i] = new CallerSiteContext(getNode(contextTable.get(p + 1)), site(contextTable, p + 2));
+        break;
+      case JAVA_TYPE:
+        IClass klass = cha.lookupClass(type(contextTable.get(p + 2)));
+        if (klass != null) {
+          contexts[i] = new JavaTypeContext(contextTable.get(p + 1) == 1 ? new PointType(klass) : new ConeType(klass));
+        } else {
+          contexts[i] = new MissingContext("JavaTypeContext<" + type(contextTable.get(p + 2)) + ">");
+        }
+        break;
+      case GET_METHOD:
+        IClass type = cha.lookupClass(type(contextTable.get(p + 2)));
+        IClass string = cha.lookupClass(TypeReference.JavaLangString);
+        String name = string(contextTable.get(p + 3));
+        if (type != null && string != null) {
+          contexts[i] = new GetMethodContext(contextTable.get(p + 1) == 1 ? new PointType(type) : new ConeType(type),
+              new ConstantKey<String>(name, string));
+        } else {
+          contexts[i] = new MissingContext("GetMethodContext<" + type(contextTable.get(p + 2)) + ", " + name + ">");
+        }
+        break;
+      case OTHER_CONTEXT:
+        contexts[i] = new MissingContext(string(contextTable.get(p + 1)));
+        break;
+      default:
+        throw new IllegalStateException("unexpected context kind " + contextTable.get(p));
+      }
+    }
+    return contexts[i];
+  }
+
+  private CallString callString(int p) {
+    int length = contextTable.get(p);
+    CallSiteReference[] sites = new CallSiteReference[length];
+    IMethod[] methods = new IMethod[length];
+    for (int i = 0; i < length; i++) {
+      sites[i] = site(contextTable, p + 1 + 5 * i);
+      methods[i] = method(contextTable.get(p + 4 + 5 * i), contextTable.get(p + 5 + 5 * i));
+    }
+    return new CallString(sites, methods);
+  }
+
+  private synchronized InstanceKey instanceKey(int i) {
+    if (instanceKeys[i] == null) {
+      instanceKeys[i] = decodeInstanceKey(i);
+    }
+    return instanceKeys[i];
+  }
+
+  private InstanceKey decodeInstanceKey(int i) {
+    int p = instanceKeyTable.start(i);
+    int kind = instanceKeyTable.get(p);
+    switch (kind) {
+    case NORMAL_ALLOCATION:
+    case ZERO_LENGTH_ARRAY:
+    case MULTI_NEW_ARRAY: {
+      CGNode node = getNode(instanceKeyTable.get(p + 1));
+      NewSiteReference site = NewSiteReference.make(instanceKeyTable.get(p + 2), type(instanceKeyTable.get(p + 3)));
+      IClass klass = allocatedClass(type(instanceKeyTable.get(p + 4)), node, site);
+      if (klass == null) {
+        break;
+      } else if (kind == NORMAL_ALLOCATION) {
+        return new NormalAllocationInNode(node, site, klass);
+      } else if (kind == ZERO_LENGTH_ARRAY) {
+        return new ZeroLengthArrayInNode(node, site, klass);
+      } else {
+        // saved with the class of its elements, but made with the class allocated at the site
+        IClass allocated = allocatedClass(site.getDeclaredType(), node, site);
+        if (!(allocated instanceof ArrayClass)) {
+          break;
+        }
+        return new MultiNewArrayInNode(node, site, (ArrayClass) allocated, instanceKeyTable.get(p + 5));
+      }
+    }
+    case SMUSHED_ALLOCATION: {
+      IClass klass = cha.lookupClass(type(instanceKeyTable.get(p + 2)));
+      if (klass == null) {
+        break;
+      }
+      return new SmushedAllocationSiteInNode(getNode(instanceKeyTable.get(p + 1)), klass);
+    }
+    case CONCRETE_TYPE: {
+      IClass klass = cha.lookupClass(type(instanceKeyTable.get(p + 1)));
+      if (klass == null) {
+        break;
+      }
+      return new ConcreteTypeKey(klass);
+    }
+    case CONSTANT: {
+      IClass klass = cha.lookupClass(type(instanceKeyTable.get(p + 1)));
+      if (klass == null) {
+        break;
+      }
+      return new ConstantKey<Object>(constant(p + 2), klass);
+    }
+    case STRING_CONSTANT_CHAR_ARRAY: {
+      InstanceKey constant = instanceKey(instanceKeyTable.get(p + 1));
+      if (!(constant instanceof ConstantKey)) {
+        break;
+      }
+      @SuppressWarnings("unchecked")
+      ConstantKey<String> c = (ConstantKey<String>) constant;
+      return StringConstantCharArray.make(c);
+    }
+    case ALLOCATION_SITE: {
+      IMethod method = method(instanceKeyTable.get(p + 1), instanceKeyTable.get(p + 2));
+      NewSiteReference site = NewSiteReference.make(instanceKeyTable.get(p + 3), type(instanceKeyTable.get(p + 4)));
+      IClass klass = cha.lookupClass(type(instanceKeyTable.get(p + 5)));
+      if (klass == null) {
+        break;
+      }
+      return new AllocationSite(method, site, klass);
+    }
+    case OTHER_INSTANCE: {
+      int t = instanceKeyTable.get(p + 1);
+      return new MissingInstanceKey(t == -1 ? null : cha.lookupClass(type(t)), string(instanceKeyTable.get(p + 2)));
+    }
+    default:
+      throw new IllegalStateException("unexpected instance key kind " + kind);
+    }
+    // the class of the instance key is not in the class hierarchy
+    return new MissingInstanceKey(null, "instance key " + i);
+  }
+
+  /**
+   * @return the class t allocated at site in node
+   */
+  private IClass allocatedClass(TypeReference t, CGNode node, NewSiteReference site) {
+    IClass klass = cha.lookupClass(t);
+    if (klass == null && options != null && options.getClassTargetSelector() != null) {
+      // a synthetic class, such as one allocated by a summary, is made when first allocated
+      klass = options.getClassTargetSelector().getAllocatedTarget(node, site);
+      if (klass != null && !klass.getReference().equals(t)) {
+        klass = null;
+      }
+    }
+    return klass;
+  }
+
+  private Object constant(int p) {
+    switch (instanceKeyTable.get(p)) {
+    case NULL:
+      return null;
+    case STRING:
+      return string(instanceKeyTable.get(p + 1));
+    case INTEGER:
+      return instanceKeyTable.get(p + 1);
+    case LONG:
+      return getLong(p + 1);
+    case FLOAT:
+      return Float.intBitsToFloat(instanceKeyTable.get(p + 1));
+    case DOUBLE:
+      return Double.longBitsToDouble(getLong(p + 1));
+    case CLASS:
+      return cha.lookupClass(type(instanceKeyTable.get(p + 1)));
+    case METHOD:
+      return method(instanceKeyTable.get(p + 1), instanceKeyTable.get(p + 2));
+    case FIELD:
+      return cha.resolveField(field(instanceKeyTable.get(p + 1)));
+    default:
+      throw new IllegalStateException("unexpected constant kind " + instanceKeyTable.get(p));
+    }
+  }
+
+  private long getLong(int p) {
+    return ((long) instanceKeyTable.get(p) << 32) | (instanceKeyTable.get(p + 1) & 0xffffffffL);
+  }
+
+  /**
+   * @return the number of the saved instance key equal to ik, or -1 if there is none
+   */
+  private synchronized int instanceKeyNumber(InstanceKey ik) {
+    if (instanceKeyNumbers == null) {
+      instanceKeyNumbers = HashMapFactory.make(instanceKeys.length);
+      for (int i = 0; i < instanceKeys.length; i++) {
+        instanceKeyNumbers.put(instanceKey(i), i);
+      }
+    }
+    Integer i = instanceKeyNumbers.get(ik);
+    return i == null ? -1 : i;
+  }
+
+  /**
+   * @return the saved instance key equal to one of candidates, in order, or null if there is none
+   */
+  private InstanceKey findInstanceKey(InstanceKey... candidates) {
+    for (InstanceKey ik : candidates) {
+      if (ik != null) {
+        int i = instanceKeyNumber(ik);
+        if (i != -1) {
+          return instanceKey(i);
+        }
+      }
+    }
+    return null;
+  }
+
+  /*
+   * nodes and call graph
+   */
+
+  private int numberOf(CGNode node) {
+    if (!(node instanceof StoredNode) || ((StoredNode) node).getGraph() != this) {
+      return -1;
+    }
+    return node.getGraphNodeId();
+  }
+
+  private int checkedNumberOf(CGNode node) {
+    if (node == null) {
+      throw new IllegalArgumentException("node is null");
+    }
+    int x = numberOf(node);
+    if (x == -1) {
+      throw new IllegalArgumentException("node not in callgraph " + node);
+    }
+    return x;
+  }
+
+  @Override
+  public synchronized CGNode getNode(int number) {
+    if (number < 0 || number >= nodes.length || nodeTable.start(number) == nodeTable.end(number)) {
+      return null;
+    }
+    if (nodes[number] == null) {
+      int p = nodeTable.start(number);
+      nodes[number] = new StoredNode(number, method(nodeTable.get(p), nodeTable.get(p + 1)), nodeTable.get(p + 2));
+    }
+    return nodes[number];
+  }
+
+  /**
+   * @return the position in the node table of the first call site of node x
+   */
+  private int firstSite(int x) {
+    return nodeTable.start(x) + 4;
+  }
+
+  /**
+   * @return the position in the node table of the first allocation site of node x
+   */
+  private int firstNewSite(int x) {
+    int p = firstSite(x);
+    int count = nodeTable.get(p - 1);
+    for (int i = 0; i < count; i++) {
+      p += 4 + nodeTable.get(p + 3);
+    }
+    return p + 1;
+  }
+
+  /**
+   * @return the instance key saved for the allocation site of node x with program counter pc, or null if there is none
+   */
+  private InstanceKey allocatedKey(int x, int pc) {
+    int p = firstNewSite(x);
+    for (int i = 0; i < nodeTable.get(p - 1); i++) {
+      if (nodeTable.get(p + 3 * i) == pc) {
+        int ik = nodeTable.get(p + 2 + 3 * i);
+        return ik == -1 ? null : instanceKey(ik);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the position in the node table of the call site of node x with program counter pc, or -1 if there is none
+   */
+  private int findSite(int x, int pc) {
+    int p = firstSite(x);
+    int count = nodeTable.get(p - 1);
+    for (int i = 0; i < count; i++) {
+      if (nodeTable.get(p) == pc) {
+        return p;
+      }
+      p += 4 + nodeTable.get(p + 3);
+    }
+    return -1;
+  }
+
+  private int[] targets(int site) {
+    int[] result = new int[nodeTable.get(site + 3)];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = nodeTable.get(site + 4 + i);
+    }
+    return result;
+  }
+
+  @Override
+  protected NumberedNodeManager<CGNode> getNodeManager() {
+    return nodeManager;
+  }
+
+  @Override
+  protected NumberedEdgeManager<CGNode> getEdgeManager() {
+    return edgeManager;
+  }
+
+  @Override
+  public CGNode getFakeRootNode() {
+    return getNode(roots.get(0));
+  }
+
+  @Override
+  public CGNode getFakeWorldClinitNode() {
+    return roots.get(1) == -1 ? null : getNode(roots.get(1));
+  }
+
+  @Override
+  public Collection<CGNode> getEntrypointNodes() {
+    List<CGNode> result = new ArrayList<CGNode>();
+    for (int i = 0; i < roots.get(2); i++) {
+      result.add(getNode(roots.get(3 + i)));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  private synchronized int[] getNodeNumbers(MethodReference m) {
+    if (mr2Nodes == null) {
+      mr2Nodes = HashMapFactory.make();
+      for (int x = 0; x < nodes.length; x++) {
+        if (nodeTable.start(x) != nodeTable.end(x)) {
+          MethodReference ref = methodReference(nodeTable.get(nodeTable.start(x)));
+          int[] ns = mr2Nodes.get(ref);
+          if (ns == null) {
+            ns = new int[] { x };
+          } else {
+            ns = Arrays.copyOf(ns, ns.length + 1);
+            ns[ns.length - 1] = x;
+          }
+          mr2Nodes.put(ref, ns);
+        }
+      }
+    }
+    return mr2Nodes.get(m);
+  }
+
+  /**
+   * @return the node, or null if none found
+   */
+  @Override
+  public CGNode getNode(IMethod method, Context C) {
+    if (method == null) {
+      throw new IllegalArgumentException("method is null");
+    }
+    int[] ns = getNodeNumbers(method.getReference());
+    if (ns != null) {
+      for (int x : ns) {
+        CGNode n = getNode(x);
+        if (n.getMethod().equals(method) && n.getContext().equals(C)) {
+          return n;
+        }
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Set<CGNode> getNodes(MethodReference m) {
+    IMethod im = cha.resolveMethod(m);
+    int[] ns = getNodeNumbers(im == null ? m : im.getReference());
+    if (ns == null) {
+      return Collections.emptySet();
+    }
+    return new NodeSet(ns);
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  @Override
+  public Set<CGNode> getPossibleTargets(CGNode node, CallSiteReference site) {
+    if (site == null) {
+      throw new IllegalArgumentException("site is null");
+    }
+    int p = findSite(checkedNumberOf(node), site.getProgramCounter());
+    if (p == -1) {
+      return Collections.emptySet();
+    }
+    return new NodeSet(targets(p));
+  }
+
+  @Override
+  public int getNumberOfTargets(CGNode node, CallSiteReference site) {
+    if (site == null) {
+      throw new IllegalArgumentException("site is null");
+    }
+    int p = findSite(checkedNumberOf(node), site.getProgramCounter());
+    return p == -1 ? 0 : nodeTable.get(p + 3);
+  }
+
+  @Override
+  public Iterator<CallSiteReference> getPossibleSites(CGNode src, CGNode target) {
+    int x = checkedNumberOf(src);
+    int y = checkedNumberOf(target);
+    List<CallSiteReference> result = new ArrayList<CallSiteReference>();
+    int p = firstSite(x);
+    int count = nodeTable.get(p - 1);
+    for (int i = 0; i < count; i++) {
+      if (Arrays.binarySearch(targets(p), y) >= 0) {
+        result.add(site(nodeTable, p));
+      }
+      p += 4 + nodeTable.get(p + 3);
+    }
+    return result.iterator();
+  }
+
+  @Override
+  public void removeNodeAndEdges(CGNode N) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException();
+  }
+
+  /*
+   * pointer analysis
+   */
+
+  /**
+   * @return the saved set of the entry for key in the entries from position from to position to of data, which are pairs sorted by
+   *         key; or -1 if there is none
+   */
+  private static int findEntry(Table data, int from, int to, int key) {
+    int low = 0;
+    int high = (to - from) / 2 - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int k = data.get(from + 2 * mid);
+      if (k < key) {
+        low = mid + 1;
+      } else if (k > key) {
+        high = mid - 1;
+      } else {
+        return data.get(from + 2 * mid + 1);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the saved set of key, as in the file, or -1 if there is none
+   */
+  private int findSet(PointerKey key) {
+    if (key instanceof LocalPointerKey) {
+      int x = numberOf(((LocalPointerKey) key).getNode());
+      return x == -1 ? -1 : findEntry(localTable, localTable.start(x), localTable.end(x), ((LocalPointerKey) key).getValueNumber());
+    } else if (key instanceof ReturnValueKey) {
+      int x = numberOf(((ReturnValueKey) key).getNode());
+      int vn = key instanceof ExceptionReturnValueKey ? EXCEPTIONAL_RETURN_VALUE : RETURN_VALUE;
+      return x == -1 ? -1 : findEntry(localTable, localTable.start(x), localTable.end(x), vn);
+    } else if (key instanceof StaticFieldKey) {
+      int f = fieldNumber(((StaticFieldKey) key).getField().getReference());
+      if (f == -1) {
+        return -1;
+      }
+      // the statics are not a table, but are searched the same way
+      int low = 0;
+      int high = statics.limit() / 2 - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int k = statics.get(2 * mid);
+        if (k < f) {
+          low = mid + 1;
+        } else if (k > f) {
+          high = mid - 1;
+        } else {
+          return statics.get(2 * mid + 1);
+        }
+      }
+      return -1;
+    } else if (key instanceof InstanceFieldKey) {
+      int i = instanceKeyNumber(((InstanceFieldKey) key).getInstanceKey());
+      int f = fieldNumber(((InstanceFieldKey) key).getField().getReference());
+      return i == -1 || f == -1 ? -1 : findEntry(heapTable, heapTable.start(i), heapTable.end(i), f);
+    } else if (key instanceof ArrayContentsKey) {
+      int i = instanceKeyNumber(((ArrayContentsKey) key).getInstanceKey());
+      return i == -1 ? -1 : findEntry(heapTable, heapTable.start(i), heapTable.end(i), ARRAY_CONTENTS);
+    } else {
+      return -1;
+    }
+  }
+
+  private OrdinalSet<InstanceKey> decodeSet(int set) {
+    int p = setTable.start(set);
+    int header = setTable.get(p);
+    int[] elements;
+    if (header >= 0) {
+      elements = new int[header];
+      for (int i = 0; i < header; i++) {
+        elements[i] = setTable.get(p + 1 + i);
+      }
+    } else {
+      int base = setTable.get(p + 1);
+      int count = 0;
+      for (int w = 0; w < -header; w++) {
+        count += Integer.bitCount(setTable.get(p + 2 + w));
+      }
+      elements = new int[count];
+      int i = 0;
+      for (int w = 0; w < -header; w++) {
+        int bits = setTable.get(p + 2 + w);
+        while (bits != 0) {
+          int b = Integer.numberOfTrailingZeros(bits);
+          elements[i++] = base + 32 * w + b;
+          bits &= bits - 1;
+        }
+      }
+    }
+    return new OrdinalSet<InstanceKey>(new Numbers(elements), instanceKeyMapping);
+  }
+
+  @Override
+  public OrdinalSet<InstanceKey> getPointsToSet(PointerKey key) {
+    if (key == null) {
+      throw new IllegalArgumentException("null key");
+    }
+    int set = findSet(key);
+    if (set == -1) {
+      return OrdinalSet.empty();
+    }
+    return decodeSet(set >> 1);
+  }
+
+  @Override
+  public boolean isFiltered(PointerKey pk) {
+    int set = findSet(pk);
+    return set != -1 && (set & 1) != 0;
+  }
+
+  @Override
+  public HeapModel getHeapModel() {
+    return heapModel;
+  }
+
+  @Override
+  public synchronized HeapGraph<InstanceKey> getHeapGraph() {
+    if (heapGraph == null) {
+      heapGraph = new BasicHeapGraph<InstanceKey>(this, this);
+    }
+    return heapGraph;
+  }
+
+  @Override
+  public OrdinalSetMapping<InstanceKey> getInstanceKeyMapping() {
+    return instanceKeyMapping;
+  }
+
+  /**
+   * @return the saved pointer keys whose nodes, instance keys and fields can be found
+   */
+  @Override
+  public Iterable<PointerKey> getPointerKeys() {
+    List<PointerKey> result = new ArrayList<PointerKey>();
+    for (int x = 0; x < nodes.length; x++) {
+      for (int p = localTable.start(x); p < localTable.end(x); p += 2) {
+        int vn = localTable.get(p);
+        CGNode n = getNode(x);
+        result.add(vn == RETURN_VALUE ? heapModel.getPointerKeyForReturnValue(n)
+            : vn == EXCEPTIONAL_RETURN_VALUE ? heapModel.getPointerKeyForExceptionalReturnValue(n) : heapModel
+                .getPointerKeyForLocal(n, vn));
+      }
+    }
+    for (int i = 0; i < instanceKeys.length; i++) {
+      for (int p = heapTable.start(i); p < heapTable.end(i); p += 2) {
+        int f = heapTable.get(p);
+        if (f == ARRAY_CONTENTS) {
+          result.add(heapModel.getPointerKeyForArrayContents(instanceKey(i)));
+        } else {
+          IField field = cha.resolveField(field(f));
+          if (field != null) {
+            result.add(heapModel.getPointerKeyForInstanceField(instanceKey(i), field));
+          }
+        }
+      }
+    }
+    for (int p = 0; p < statics.limit(); p += 2) {
+      IField field = cha.resolveField(field(statics.get(p)));
+      if (field != null) {
+        result.add(heapModel.getPointerKeyForStaticField(field));
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Collection<InstanceKey> getInstanceKeys() {
+    return new AbstractCollection<InstanceKey>() {
+      @Override
+      public Iterator<InstanceKey> iterator() {
+        return instanceKeyMapping.iterator();
+      }
+
+      @Override
+      public int size() {
+        return instanceKeys.length;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer();
+    for (CGNode n : this) {
+      result.append(n).append("\n");
+      for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext();) {
+        CallSiteReference site = it.next();
+        result.append(" - ").append(site).append("\n");
+        for (CGNode target : getPossibleTargets(n, site)) {
+          result.append("     -> ").append(target).append("\n");
+        }
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * A node read back from the file
+   */
+  private final class StoredNode extends NodeWithNumber implements CGNode {
+    private final IMethod method;
+
+    /**
+     * number of the saved context
+     */
+    private final int context;
+
+    StoredNode(int number, IMethod method, int context) {
+      this.method = method;
+      this.context = context;
+      setGraphNodeId(number);
+    }
+
+    StoredCallGraph getGraph() {
+      return StoredCallGraph.this;
+    }
+
+    @Override
+    public IMethod getMethod() {
+      return method;
+    }
+
+    @Override
+    public Context getContext() {
+      // decoded only now, since a context may refer to other nodes
+      return context(context);
+    }
+
+    @Deprecated
+    @Override
+    public boolean addTarget(CallSiteReference site, CGNode target) {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * IR of a node with a stand-in method; built when first needed
+     */
+    private IR standInIR;
+
+    private DefUse standInDU;
+
+    @Override
+    public IR getIR() {
+      if (method instanceof MissingMethod) {
+        synchronized (this) {
+          if (standInIR == null) {
+            standInIR = makeStandInIR();
+          }
+          return standInIR;
+        }
+      }
+      return interpreter.getIR(this);
+    }
+
+    @Override
+    public DefUse getDU() {
+      if (method instanceof MissingMethod) {
+        synchronized (this) {
+          if (standInDU == null) {
+            standInDU = new DefUse(getIR());
+          }
+          return standInDU;
+        }
+      }
+      return interpreter.getDU(this);
+    }
+
+    /**
+     * The stand-in IR holds an instruction for each saved allocation and call site, so that callers can be found by their call
+     * sites. Its values are fresh, and have no points-to sets.
+     */
+    private IR makeStandInIR() {
+      SSAInstructionFactory insts = Language.JAVA.instructionFactory();
+      List<SSAInstruction> instructions = new ArrayList<SSAInstruction>();
+      int nextLocal = method.getNumberOfParameters() + 1;
+      for (Iterator<NewSiteReference> it = iterateNewSites(); it.hasNext();) {
+        NewSiteReference site = it.next();
+        TypeReference t = site.getDeclaredType();
+        if (t.isArrayType()) {
+          int[] sizes = new int[t.getDimensionality()];
+          for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = nextLocal++;
+          }
+          instructions.add(insts.NewInstruction(instructions.size(), nextLocal++, site, sizes));
+        } else {
+          instructions.add(insts.NewInstruction(instructions.size(), nextLocal++, site));
+        }
+      }
+      for (Iterator<CallSiteReference> it = iterateCallSites(); it.hasNext();) {
+        CallSiteReference site = it.next();
+        MethodReference target = site.getDeclaredTarget();
+        int[] params = new int[target.getNumberOfParameters() + (site.isStatic() ? 0 : 1)];
+        for (int i = 0; i < params.length; i++) {
+          params[i] = nextLocal++;
+        }
+        if (target.getReturnType().equals(TypeReference.Void)) {
+          instructions.add(insts.InvokeInstruction(instructions.size(), params, nextLocal++, site, null));
+        } else {
+          int result = nextLocal++;
+          instructions.add(insts.InvokeInstruction(instructions.size(), result, params, nextLocal++, site, null));
+        }
+      }
+      SSAInstruction[] instrs = instructions.toArray(new SSAInstruction[instructions.size()]);
+      SyntheticMethod m = (SyntheticMethod) method;
+      return new SyntheticIR(m, Everywhere.EVERYWHERE, m.makeControlFlowGraph(instrs), instrs, SSAOptions.defaultOptions(), null);
+    }
+
+    @Override
+    public Iterator<NewSiteReference> iterateNewSites() {
+      int p = firstNewSite(getGraphNodeId());
+      List<NewSiteReference> result = new ArrayList<NewSiteReference>();
+      for (int i = 0; i < nodeTable.get(p - 1); i++) {
+        result.add(NewSiteReference.make(nodeTable.get(p + 3 * i), type(nodeTable.get(p + 1 + 3 * i))));
+      }
+      return result.iterator();
+    }
+
+    @Override
+    public Iterator<CallSiteReference> iterateCallSites() {
+      int x = getGraphNodeId();
+      int p = firstSite(x);
+      int count = nodeTable.get(p - 1);
+      List<CallSiteReference> result = new ArrayList<CallSiteReference>();
+      for (int i = 0; i < count; i++) {
+        result.add(site(nodeTable, p));
+        p += 4 + nodeTable.get(p + 3);
+      }
+      return result.iterator();
+    }
+
+    @Override
+    public IClassHierarchy getClassHierarchy() {
+      return cha;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      // nodes are canonical
+      return this == obj;
+    }
+
+    @Override
+    public int hashCode() {
+      return method.hashCode() * 8681 + getGraphNodeId();
+    }
+
+    @Override
+    public String toString() {
+      return "Node: " + method.toString() + " Context: " + getContext().toString();
+    }
+  }
+
+  /**
+   * Stand-in for a saved method that is not in the class hierarchy
+   */
+  private static final class MissingMethod extends SyntheticMethod {
+    MissingMethod(MethodReference method, IClass declaringClass, boolean isStatic) {
+      super(method, declaringClass, isStatic, false);
+    }
+  }
+
+  /**
+   * Stand-in for a saved context of a kind that is not saved in full
+   */
+  private static final class MissingContext implements Context {
+    private final String description;
+
+    MissingContext(String description) {
+      this.description = description;
+    }
+
+    @Override
+    public ContextItem get(ContextKey name) {
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+
+  /**
+   * Stand-in for a saved instance key of a kind that is not saved in full, or whose class is not in the class hierarchy
+   */
+  private static final class MissingInstanceKey implements InstanceKey {
+    private final IClass type;
+
+    private final String description;
+
+    MissingInstanceKey(IClass type, String description) {
+      this.type = type;
+      this.description = description;
+    }
+
+    @Override
+    public IClass getConcreteType() {
+      return type;
+    }
+
+    @Override
+    public Iterator<Pair<CGNode, NewSiteReference>> getCreationSites(CallGraph CG) {
+      return EmptyIterator.instance();
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+
+  private final class StoredNodeManager implements NumberedNodeManager<CGNode> {
+
+    @Override
+    public Iterator<CGNode> iterator() {
+      return new Iterator<CGNode>() {
+        private int next = advance(0);
+
+        private int advance(int x) {
+          while (x < nodes.length && nodeTable.start(x) == nodeTable.end(x)) {
+            x++;
+          }
+          return x;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next < nodes.length;
+        }
+
+        @Override
+        public CGNode next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          CGNode result = getNode(next);
+          next = advance(next + 1);
+          return result;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      return numberOfNodes;
+    }
+
+    @Override
+    public void addNode(CGNode n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeNode(CGNode n) throws UnsupportedOperationException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsNode(CGNode n) {
+      if (n == null) {
+        throw new IllegalArgumentException("n is null");
+      }
+      return numberOf(n) != -1;
+    }
+
+    @Override
+    public int getNumber(CGNode N) {
+      return numberOf(N);
+    }
+
+    @Override
+    public CGNode getNode(int number) {
+      return StoredCallGraph.this.getNode(number);
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return nodes.length - 1;
+    }
+
+    @Override
+    public Iterator<CGNode> iterateNodes(IntSet s) {
+      return new NumberedNodeIterator<CGNode>(s, this);
+    }
+  }
+
+  /**
+   * The edges are saved as the start of the successors of each node in an array of them, then the same for the predecessors
+   */
+  private final class StoredEdgeManager implements NumberedEdgeManager<CGNode> {
+
+    private int succStart(int x) {
+      return edges.get(1 + x);
+    }
+
+    private int succ(int i) {
+      return edges.get(1 + nodes.length + 1 + i);
+    }
+
+    private int predStart(int y) {
+      return edges.get(1 + nodes.length + 1 + succStart(nodes.length) + y);
+    }
+
+    private int pred(int i) {
+      return edges.get(1 + nodes.length + 1 + succStart(nodes.length) + nodes.length + 1 + i);
+    }
+
+    private int[] succs(int x) {
+      int[] result = new int[succStart(x + 1) - succStart(x)];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = succ(succStart(x) + i);
+      }
+      return result;
+    }
+
+    private int[] preds(int y) {
+      int[] result = new int[predStart(y + 1) - predStart(y)];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = pred(predStart(y) + i);
+      }
+      return result;
+    }
+
+    @Override
+    public Iterator<CGNode> getPredNodes(CGNode n) {
+      return new NodeSet(preds(checkedNumberOf(n))).iterator();
+    }
+
+    @Override
+    public int getPredNodeCount(CGNode n) {
+      int y = checkedNumberOf(n);
+      return predStart(y + 1) - predStart(y);
+    }
+
+    @Override
+    public Iterator<CGNode> getSuccNodes(CGNode n) {
+      return new NodeSet(succs(checkedNumberOf(n))).iterator();
+    }
+
+    @Override
+    public int getSuccNodeCount(CGNode N) {
+      int x = checkedNumberOf(N);
+      return succStart(x + 1) - succStart(x);
+    }
+
+    @Override
+    public IntSet getSuccNodeNumbers(CGNode node) {
+      int[] s = succs(checkedNumberOf(node));
+      return s.length == 0 ? EmptyIntSet.instance : new Numbers(s);
+    }
+
+    @Override
+    public IntSet getPredNodeNumbers(CGNode node) {
+      int[] p = preds(checkedNumberOf(node));
+      return p.length == 0 ? EmptyIntSet.instance : new Numbers(p);
+    }
+
+    @Override
+    public boolean hasEdge(CGNode src, CGNode dst) {
+      int x = numberOf(src);
+      int y = numberOf(dst);
+      return x != -1 && y != -1 && Arrays.binarySearch(succs(x), y) >= 0;
+    }
+
+    @Override
+    public void addEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeEdge(CGNode src, CGNode dst) throws UnsupportedOperationException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAllIncidentEdges(CGNode node) throws UnsupportedOperationException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeIncomingEdges(CGNode node) throws UnsupportedOperationException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeOutgoingEdges(CGNode node) throws UnsupportedOperationException {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Makes the standard pointer keys, and finds the saved instance keys
+   */
+  private final class StoredHeapModel implements HeapModel {
+
+    @Override
+    public InstanceKey getInstanceKeyForAllocation(CGNode node, NewSiteReference allocation) {
+      int x = numberOf(node);
+      return x == -1 ? null : allocatedKey(x, allocation.getProgramCounter());
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForMultiNewArray(CGNode node, NewSiteReference allocation, int dim) {
+      IClass type = cha.lookupClass(allocation.getDeclaredType());
+      if (!(type instanceof ArrayClass) || numberOf(node) == -1) {
+        return null;
+      }
+      MultiNewArrayInNode key = new MultiNewArrayInNode(node, allocation, (ArrayClass) type, dim);
+      return findInstanceKey(key, key.getConcreteType() == null ? null : new ConcreteTypeKey(key.getConcreteType()));
+    }
+
+    @Override
+    public <T> InstanceKey getInstanceKeyForConstant(TypeReference type, T S) {
+      IClass klass = cha.lookupClass(type);
+      if (klass == null) {
+        return null;
+      }
+      return findInstanceKey(new ConstantKey<T>(S, klass), new ConcreteTypeKey(klass));
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForPEI(CGNode node, ProgramCounter instr, TypeReference type) {
+      IClass klass = cha.lookupClass(type);
+      return klass == null ? null : findInstanceKey(new ConcreteTypeKey(klass));
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForMetadataObject(Object obj, TypeReference objType) {
+      IClass klass = cha.lookupClass(objType);
+      if (klass == null) {
+        return null;
+      }
+      Object value = obj;
+      if (obj instanceof TypeReference) {
+        value = cha.lookupClass((TypeReference) obj);
+      } else if (obj instanceof MethodReference) {
+        value = cha.resolveMethod((MethodReference) obj);
+      }
+      return findInstanceKey(value == null ? null : new ConstantKey<Object>(value, klass), new ConcreteTypeKey(klass));
+    }
+
+    @Override
+    public PointerKey getPointerKeyForLocal(CGNode node, int valueNumber) {
+      return new LocalPointerKey(node, valueNumber);
+    }
+
+    @Override
+    public FilteredPointerKey getFilteredPointerKeyForLocal(CGNode node, int valueNumber, FilteredPointerKey.TypeFilter filter) {
+      return new LocalPointerKeyWithFilter(node, valueNumber, filter);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForReturnValue(CGNode node) {
+      return new ReturnValueKey(node);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForExceptionalReturnValue(CGNode node) {
+      return new ExceptionReturnValueKey(node);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForStaticField(IField f) {
+      return new StaticFieldKey(f);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForInstanceField(InstanceKey I, IField field) {
+      return new InstanceFieldKey(I, field);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForArrayContents(InstanceKey I) {
+      return new ArrayContentsKey(I);
+    }
+
+    @Override
+    public Iterator<PointerKey> iteratePointerKeys() {
+      return getPointerKeys().iterator();
+    }
+
+    @Override
+    public IClassHierarchy getClassHierarchy() {
+      return cha;
+    }
+  }
+
+  /**
+   * Numbers the instance keys as in the file
+   */
+  private final class InstanceKeyMapping implements OrdinalSetMapping<InstanceKey> {
+
+    @Override
+    public Iterator<InstanceKey> iterator() {
+      return new Iterator<InstanceKey>() {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return next < instanceKeys.length;
+        }
+
+        @Override
+        public InstanceKey next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return instanceKey(next++);
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public InstanceKey getMappedObject(int n) throws NoSuchElementException {
+      if (n < 0 || n >= instanceKeys.length) {
+        throw new NoSuchElementException("no instance key " + n);
+      }
+      return instanceKey(n);
+    }
+
+    @Override
+    public int getMappedIndex(Object o) {
+      return o instanceof InstanceKey ? instanceKeyNumber((InstanceKey) o) : -1;
+    }
+
+    @Override
+    public boolean hasMappedIndex(InstanceKey o) {
+      return getMappedIndex(o) != -1;
+    }
+
+    @Override
+    public int getMaximumIndex() {
+      return instanceKeys.length - 1;
+    }
+
+    @Override
+    public int getSize() {
+      return instanceKeys.length;
+    }
+
+    @Override
+    public int add(InstanceKey o) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * the nodes with the given numbers, which are in increasing order
+   */
+  private final class NodeSet extends AbstractSet<CGNode> {
+    private final int[] numbers;
+
+    NodeSet(int[] numbers) {
+      this.numbers = numbers;
+    }
+
+    @Override
+    public Iterator<CGNode> iterator() {
+      return new Iterator<CGNode>() {
+        private int i = 0;
+
+        @Override
+        public boolean hasNext() {
+          return i < numbers.length;
+        }
+
+        @Override
+        public CGNode next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return getNode(numbers[i++]);
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return numbers.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof CGNode)) {
+        return false;
+      }
+      int x = numberOf((CGNode) o);
+      return x != -1 && Arrays.binarySearch(numbers, x) >= 0;
+    }
+  }
+
+  /**
+   * numbers, in increasing order
+   */
+  @SuppressWarnings("serial")
+  private static final class Numbers extends SparseIntSet {
+    Numbers(int[] elements) {
+      super(elements);
+    }
+  }
+}
@@ -27,6 +27,21 @@ public class CallString implements ContextItem {
     this.methods = new IMethod[] { method };
   }
 
+  /**
+   * @param sites the call sites, innermost first
+   * @param methods the method containing each call site
+   */
+  public CallString(CallSiteReference[] sites, IMethod[] methods) {
+    if (sites == null) {
+      throw new IllegalArgumentException("null sites");
+    }
+    if (methods == null || methods.length != sites.length) {
+      throw new IllegalArgumentException("need one method per call site");
+    }
+    this.sites = sites.clone();
+    this.methods = methods.clone();
+  }
+
   CallString(CallSiteReference site, IMethod method, int length, CallString base) {
     int sitesLength = Math.min(length, base.sites.length + 1);
     int methodsLength = Math.min(length, base.methods.length + 1);
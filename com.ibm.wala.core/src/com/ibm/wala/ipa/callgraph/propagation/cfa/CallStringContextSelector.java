@@ -35,7 +35,7 @@ public abstract class CallStringContextSelector implements ContextSelector {
 
     private final Context base;
 
-    private CallStringContextPair(CallString cs, Context base) {
+    public CallStringContextPair(CallString cs, Context base) {
       this.cs = cs;
       this.base = base;
     }
@@ -11,17 +11,22 @@
 package com.ibm.wala.ipa.cha;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.ibm.wala.classLoader.ArrayClass;
+import com.ibm.wala.classLoader.BytecodeClass;
 import com.ibm.wala.classLoader.ClassLoaderFactory;
 import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
 import com.ibm.wala.classLoader.IClass;
@@ -35,6 +40,7 @@ import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeName;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashMapFactory;
@@ -61,6 +67,11 @@ public class ClassHierarchy implements IClassHierarchy {
 
   private static final boolean DEBUG = false;
 
+  /**
+   * When building with several threads, the number of classes resolved by a single task
+   */
+  private static final int CLASSES_PER_TASK = 64;
+
   /**
    * Languages that contribute classes to the set represented in this hierarchy. The languages may for example be related by
    * inheritance (e.g. X10 derives from Java, and shares a common type hierarchy rooted at java.lang.Object).
@@ -177,6 +188,10 @@ public class ClassHierarchy implements IClassHierarchy {
     this(scope, factory, scope.getLanguages(), progressMonitor);
   }
 
+  /**
+   * Classes are loaded, and their superclasses and interfaces resolved, by {@link AnalysisScope#getNumberOfLoaderThreads()}
+   * threads, but they are still added to the tree one at a time, in loader order, so the result does not depend on that number.
+   */
   private ClassHierarchy(AnalysisScope scope, ClassLoaderFactory factory, Collection<Language> languages,
       IProgressMonitor progressMonitor) throws ClassHierarchyException, IllegalArgumentException {
     // now is a good time to clear the warnings globally.
@@ -237,14 +252,22 @@ public class ClassHierarchy implements IClassHierarchy {
         }
       }
 
-      for (IClassLoader icl : loaders) {
-        if (progressMonitor != null) {
-          progressMonitor.subTask("From " + icl.getName().toString());
-        }
-        addAllClasses(icl, progressMonitor);
+      int numberOfThreads = scope.getNumberOfLoaderThreads();
+      ForkJoinPool pool = (numberOfThreads > 1) ? new ForkJoinPool(numberOfThreads) : null;
+      try {
+        for (IClassLoader icl : loaders) {
+          if (progressMonitor != null) {
+            progressMonitor.subTask("From " + icl.getName().toString());
+          }
+          addAllClasses(icl, progressMonitor, pool);
 
-        if (progressMonitor != null) {
-          progressMonitor.worked(idx++);
+          if (progressMonitor != null) {
+            progressMonitor.worked(idx++);
+          }
+        }
+      } finally {
+        if (pool != null) {
+          pool.shutdown();
         }
       }
 
@@ -267,11 +290,24 @@ public class ClassHierarchy implements IClassHierarchy {
 
   /**
    * Add all classes in a class loader to the hierarchy.
+   * 
+   * @param pool if not null, resolve the superclasses and interfaces of the loader's classes on this pool before adding them
    */
-  private void addAllClasses(IClassLoader loader, IProgressMonitor progressMonitor) throws CancelCHAConstructionException {
+  private void addAllClasses(IClassLoader loader, IProgressMonitor progressMonitor, ForkJoinPool pool)
+      throws CancelCHAConstructionException {
     if (DEBUG) {
       System.err.println(("Add all classes from loader " + loader));
     }
+    if (pool != null) {
+      List<IClass> classes = new ArrayList<IClass>(loader.getNumberOfClasses());
+      for (Iterator<IClass> it = loader.iterateAllClasses(); it.hasNext();) {
+        IClass klass = it.next();
+        if (klass instanceof BytecodeClass) {
+          classes.add(klass);
+        }
+      }
+      pool.invoke(new ResolveAction(classes, 0, classes.size()));
+    }
     Collection<IClass> toRemove = HashSetFactory.make();
     for (Iterator<IClass> it = loader.iterateAllClasses(); it.hasNext();) {
       if (progressMonitor != null) {
@@ -289,6 +325,46 @@ public class ClassHierarchy implements IClassHierarchy {
 
   }
 
+  /**
+   * Resolves the superclasses and implemented interfaces of a range of classes, so that {@link #addClass(IClass)} finds them
+   * already cached in each {@link BytecodeClass}. A missing superclass or a cycle in the extends relation is ignored here;
+   * addClass will see it again and report it.
+   */
+  @SuppressWarnings("serial")
+  private final class ResolveAction extends RecursiveAction {
+    private final List<IClass> classes;
+
+    private final int start;
+
+    private final int end;
+
+    ResolveAction(List<IClass> classes, int start, int end) {
+      this.classes = classes;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= CLASSES_PER_TASK) {
+        for (int i = start; i < end; i++) {
+          IClass klass = classes.get(i);
+          try {
+            computeSuperclasses(klass);
+            for (IClass iface : klass.getAllImplementedInterfaces()) {
+              computeSuperclasses(iface);
+            }
+          } catch (IllegalStateException e) {
+            // reported by addClass
+          }
+        }
+      } else {
+        int mid = (start + end) >>> 1;
+        invokeAll(new ResolveAction(classes, start, mid), new ResolveAction(classes, mid, end));
+      }
+    }
+  }
+
   /**
    * @return true if the add succeeded; false if it failed for some reason
    * @throws IllegalArgumentException if klass is null
@@ -377,6 +453,98 @@ public class ClassHierarchy implements IClassHierarchy {
     return true;
   }
 
+  /**
+   * Put a new version of a class in place of the one this class hierarchy has for the same type, for a class that has been edited
+   * since the class hierarchy was built. The new version must have the same superclass and the same directly implemented
+   * interfaces as the old one, and its class loader must already return it; see
+   * {@link com.ibm.wala.classLoader.ClassLoaderImpl#reloadClass(com.ibm.wala.classLoader.ModuleEntry)}. The subclasses of the
+   * class, and the classes that implement it if it is an interface, forget the methods and fields they inherited from the old
+   * version.
+   * 
+   * @return the old version of the class
+   * @throws IllegalArgumentException if there is no class to replace, or the supertypes of the class have changed
+   */
+  public IClass replaceClass(IClass klass) {
+    if (klass == null) {
+      throw new IllegalArgumentException("klass is null");
+    }
+    Node node = findNode(klass);
+    if (node == null) {
+      throw new IllegalArgumentException("no class " + klass.getReference() + " to replace");
+    }
+    IClass old = node.klass;
+    if (old == klass) {
+      return old;
+    }
+    if (klass.getClassLoader().lookupClass(klass.getName()) != klass) {
+      throw new IllegalArgumentException("the class loader of " + klass + " does not have that version of it");
+    }
+    if (!supertypeNames(old).equals(supertypeNames(klass))) {
+      throw new IllegalArgumentException("the supertypes of " + klass + " have changed");
+    }
+
+    // the hash code of a node is that of its class, so take it out of its parent while the class changes
+    Node parent = old.getSuperclass() == null ? null : findNode(old.getSuperclass());
+    if (parent != null) {
+      parent.children.remove(node);
+    }
+    node.klass = klass;
+    if (parent != null) {
+      parent.children.add(node);
+    }
+
+    for (Set<IClass> impls : implementors.values()) {
+      if (impls.remove(old)) {
+        impls.add(klass);
+      }
+    }
+    if (old.isInterface()) {
+      Set<IClass> impls = implementors.remove(old);
+      if (impls != null) {
+        implementors.put(klass, impls);
+        for (IClass c : impls) {
+          if (c instanceof BytecodeClass) {
+            ((BytecodeClass<?>) c).clearSupertypeCaches();
+          }
+        }
+      }
+    }
+    clearSupertypeCaches(node);
+    synchronized (targetCache) {
+      targetCache.clear();
+    }
+    subclassesOfError = null;
+    runtimeExceptionClasses = null;
+    return old;
+  }
+
+  /**
+   * @return the names of the superclass and the directly implemented interfaces of klass
+   */
+  private static Set<TypeName> supertypeNames(IClass klass) {
+    Set<TypeName> result = HashSetFactory.make();
+    if (klass.getSuperclass() != null) {
+      result.add(klass.getSuperclass().getName());
+    }
+    for (IClass i : klass.getDirectInterfaces()) {
+      result.add(i.getName());
+    }
+    return result;
+  }
+
+  /**
+   * Make the classes below node in the tree forget what they inherited
+   */
+  private static void clearSupertypeCaches(Node node) {
+    for (Iterator<Node> it = node.getChildren(); it.hasNext();) {
+      Node child = it.next();
+      if (child.klass instanceof BytecodeClass) {
+        ((BytecodeClass<?>) child.klass).clearSupertypeCaches();
+      }
+      clearSupertypeCaches(child);
+    }
+  }
+
   /**
    * Record that a klass implements a particular interface
    */
@@ -422,16 +590,22 @@ public class ClassHierarchy implements IClassHierarchy {
    */
   @SuppressWarnings("unchecked")
   private Set<IMethod> findOrCreateTargetSet(IClass declaredClass, MethodReference ref) {
-    Map<MethodReference, Set<IMethod>> classCache = (Map<MethodReference, Set<IMethod>>) CacheReference.get(targetCache
-        .get(declaredClass));
-    if (classCache == null) {
-      classCache = HashMapFactory.make(3);
-      targetCache.put(declaredClass, CacheReference.make(classCache));
+    // the cache may be used by several threads, but the targets are computed outside the lock
+    Map<MethodReference, Set<IMethod>> classCache;
+    Set<IMethod> result;
+    synchronized (targetCache) {
+      classCache = (Map<MethodReference, Set<IMethod>>) CacheReference.get(targetCache.get(declaredClass));
+      if (classCache == null) {
+        classCache = HashMapFactory.make(3);
+        targetCache.put(declaredClass, CacheReference.make(classCache));
+      }
+      result = classCache.get(ref);
     }
-    Set<IMethod> result = classCache.get(ref);
     if (result == null) {
       result = getPossibleTargets(declaredClass, ref);
-      classCache.put(ref, result);
+      synchronized (targetCache) {
+        classCache.put(ref, result);
+      }
     }
     return result;
   }
@@ -675,7 +849,7 @@ public class ClassHierarchy implements IClassHierarchy {
    */
   private static final class Node {
 
-    private final IClass klass;
+    private IClass klass;
 
     final private Set<Node> children = HashSetFactory.make(3);
 
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.ipa.slicer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.dataflow.IFDS.IPartiallyBalancedFlowFunctions;
+import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
+import com.ibm.wala.dataflow.IFDS.LocalPathEdges;
+import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationSolver;
+import com.ibm.wala.dataflow.IFDS.PathEdge;
+import com.ibm.wala.ipa.slicer.Slicer.SliceProblem;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * A slicer for answering many queries against one SDG.
+ *
+ * Where {@link Slicer} tabulates each query from scratch, this slicer keeps one tabulation going across queries, so the summary
+ * edges and path edges found for earlier queries are reused and only the parts of the SDG that a query reaches for the first time
+ * are tabulated. Many statements may be sliced from at once, in one tabulation, and the slice of each is returned separately.
+ *
+ * To tell the slices of different statements apart, tabulation from a statement uses the statement itself as the entry of its
+ * path edges, and flow that leaves a procedure without a matching call uses the return site as the entry in the caller. The path
+ * edges from such an entry do not depend on which statement led to it, so the slice of a statement is the set of statements
+ * reached from the entries that can be reached from it by calls and by such returns.
+ */
+public class IncrementalSlicer {
+
+  private final ISDG sdg;
+
+  private final boolean backward;
+
+  /**
+   * the statements sliced from so far
+   */
+  private final Set<Statement> roots = HashSetFactory.make();
+
+  private final Problem problem;
+
+  @SuppressWarnings("rawtypes")
+  private final PartiallyBalancedTabulationSolver<Statement, PDG, Object> solver;
+
+  /**
+   * Mapping from an entry of path edges to the entries of the callees that flow reaches from it
+   */
+  private final Map<Statement, Collection<Statement>> calleeEntries = HashMapFactory.make();
+
+  /**
+   * Mapping from an entry of path edges to the return sites that flow reaches from it by leaving its procedure without a matching
+   * call
+   */
+  private final Map<Statement, Collection<Statement>> returnSites = HashMapFactory.make();
+
+  /**
+   * @param backward compute backward slices? otherwise forward ones
+   */
+  public IncrementalSlicer(ISDG sdg, boolean backward) {
+    if (sdg == null) {
+      throw new IllegalArgumentException("sdg cannot be null");
+    }
+    this.sdg = sdg;
+    this.backward = backward;
+    this.problem = new Problem(roots, sdg, backward);
+    this.solver = PartiallyBalancedTabulationSolver.createPartiallyBalancedTabulationSolver(problem, null);
+  }
+
+  public ISDG getSDG() {
+    return sdg;
+  }
+
+  public boolean isBackward() {
+    return backward;
+  }
+
+  /**
+   * @param s a statement of interest
+   * @return the slice of s
+   * @throws CancelException
+   */
+  public synchronized Collection<Statement> slice(Statement s) throws CancelException {
+    if (s == null) {
+      throw new IllegalArgumentException("s cannot be null");
+    }
+    return slice(Collections.singleton(s)).get(s);
+  }
+
+  /**
+   * Compute the slices of several statements in one tabulation.
+   *
+   * @param ss statements of interest
+   * @return a mapping from each statement in ss to its slice
+   * @throws CancelException
+   */
+  public synchronized Map<Statement, Collection<Statement>> slice(Collection<Statement> ss) throws CancelException {
+    if (ss == null) {
+      throw new IllegalArgumentException("ss cannot be null");
+    }
+    if (roots.addAll(ss)) {
+      // tabulate from the new statements; the path edges and summary edges found before are kept
+      solver.solve();
+    }
+    Map<Statement, Collection<Statement>> result = HashMapFactory.make();
+    for (Statement s : ss) {
+      result.put(s, collectSlice(s));
+    }
+    return result;
+  }
+
+  /**
+   * @return the statements reached from the entries that can be reached from root
+   */
+  private Collection<Statement> collectSlice(Statement root) {
+    Collection<Statement> result = HashSetFactory.make();
+    // entries whose path edges were collected
+    Set<Statement> visited = HashSetFactory.make();
+    // entries reached by leaving a procedure without a matching call, or the root, from which flow may do so again
+    Set<Statement> unbalanced = HashSetFactory.make();
+    ArrayList<Statement> todo = new ArrayList<Statement>();
+    unbalanced.add(root);
+    todo.add(root);
+    while (!todo.isEmpty()) {
+      Statement entry = todo.remove(todo.size() - 1);
+      if (visited.add(entry)) {
+        Collection<Statement> reached = getReached(entry);
+        result.addAll(reached);
+        for (Statement callee : getCalleeEntries(entry, reached)) {
+          if (!visited.contains(callee)) {
+            todo.add(callee);
+          }
+        }
+      }
+      if (unbalanced.contains(entry)) {
+        for (Statement returnSite : getReturnSites(entry)) {
+          if (unbalanced.add(returnSite)) {
+            todo.add(returnSite);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the statements n s.t. there is a path edge from entry to n
+   */
+  @SuppressWarnings("rawtypes")
+  private Collection<Statement> getReached(Statement entry) {
+    LocalPathEdges pathEdges = solver.getLocalPathEdges(entry);
+    if (pathEdges == null) {
+      return Collections.emptySet();
+    }
+    ISupergraph<Statement, PDG> supergraph = problem.getSupergraph();
+    PDG proc = supergraph.getProcOf(entry);
+    Collection<Statement> result = new ArrayList<Statement>();
+    for (IntIterator it = pathEdges.getReachedNodeNumbers().intIterator(); it.hasNext();) {
+      result.add(supergraph.getLocalBlock(proc, it.next()));
+    }
+    return result;
+  }
+
+  /**
+   * @param reached the statements reached from entry
+   * @return the entries of callees that flow reaches from the calls reached from entry
+   */
+  @SuppressWarnings("rawtypes")
+  private Collection<Statement> getCalleeEntries(Statement entry, Collection<Statement> reached) {
+    Collection<Statement> result = calleeEntries.get(entry);
+    if (result == null) {
+      result = HashSetFactory.make();
+      ISupergraph<Statement, PDG> supergraph = problem.getSupergraph();
+      for (Statement call : reached) {
+        if (supergraph.isCall(call)) {
+          for (Iterator<? extends Statement> it = supergraph.getCalledNodes(call); it.hasNext();) {
+            Statement callee = it.next();
+            if (flowsIntoCallee(call, callee)) {
+              result.add(callee);
+            }
+          }
+        }
+      }
+      calleeEntries.put(entry, result);
+    }
+    return result;
+  }
+
+  /**
+   * @return true iff the reachability fact flows from call into the callee entry calleeEntry, following
+   *         {@link com.ibm.wala.dataflow.IFDS.TabulationSolver}
+   */
+  @SuppressWarnings("rawtypes")
+  private boolean flowsIntoCallee(Statement call, Statement calleeEntry) {
+    ISupergraph<Statement, PDG> supergraph = problem.getSupergraph();
+    IPartiallyBalancedFlowFunctions<Statement> functions = problem.getFunctionMap();
+    for (Iterator<? extends Statement> it = supergraph.getReturnSites(call, supergraph.getProcOf(calleeEntry)); it.hasNext();) {
+      if (reachesFact(functions.getCallFlowFunction(call, calleeEntry, it.next()))) {
+        return true;
+      }
+    }
+    return reachesFact(functions.getCallFlowFunction(call, calleeEntry, null));
+  }
+
+  /**
+   * @return the return sites that flow reaches from the exits reached from entry, without a matching call
+   */
+  @SuppressWarnings("rawtypes")
+  private Collection<Statement> getReturnSites(Statement entry) {
+    Collection<Statement> result = returnSites.get(entry);
+    if (result == null) {
+      result = HashSetFactory.make();
+      ISupergraph<Statement, PDG> supergraph = problem.getSupergraph();
+      for (Statement exit : getReached(entry)) {
+        if (supergraph.isExit(exit)) {
+          for (Iterator<? extends Statement> it = supergraph.getSuccNodes(exit); it.hasNext();) {
+            Statement returnSite = it.next();
+            if (reachesFact(problem.getFunctionMap().getUnbalancedReturnFlowFunction(exit, returnSite))) {
+              result.add(problem.getFakeEntry(returnSite));
+            }
+          }
+        }
+      }
+      returnSites.put(entry, result);
+    }
+    return result;
+  }
+
+  /**
+   * @return true iff f maps the reachability fact to anything
+   */
+  private static boolean reachesFact(Object f) {
+    if (f instanceof IUnaryFlowFunction) {
+      IntSet targets = ((IUnaryFlowFunction) f).getTargets(0);
+      return targets != null && !targets.isEmpty();
+    }
+    return false;
+  }
+
+  /**
+   * The slice problem for all the statements sliced from so far, where each statement is its own entry
+   */
+  private static final class Problem extends SliceProblem {
+
+    private final Collection<Statement> roots;
+
+    Problem(Collection<Statement> roots, ISDG sdg, boolean backward) {
+      super(roots, sdg, backward);
+      this.roots = roots;
+    }
+
+    @Override
+    public Collection<PathEdge<Statement>> initialSeeds() {
+      Collection<PathEdge<Statement>> result = HashSetFactory.make();
+      for (Statement st : roots) {
+        result.add(PathEdge.createPathEdge(st, 0, st, 0));
+      }
+      return result;
+    }
+
+    @Override
+    public Statement getFakeEntry(Statement node) {
+      return node;
+    }
+  }
+}
@@ -11,14 +11,12 @@
 package com.ibm.wala.ssa;
 
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
 import com.ibm.wala.util.collections.HashMapFactory;
-import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.ref.CacheReference;
@@ -26,62 +24,176 @@ import com.ibm.wala.util.ref.CacheReference;
 /**
  * A cache for auxiliary information based on an SSA representation
  * 
- * A mapping from (IMethod,Context) -> SSAOptions -> SoftReference -> something
+ * A mapping from (IMethod,Context) -> SSAOptions -> something, governed by an {@link SSACachePolicy}. All cached values are also
+ * kept on a list in order of use, so that the least recently used values can be evicted when their total weight exceeds the
+ * capacity of the policy.
  * 
- * This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp it.
+ * Several caches may share one capacity by sharing a weight counter. Each cache then evicts its own least recently used values
+ * while the shared total is over the capacity, so eviction order is only least recently used within each cache.
  */
 class AuxiliaryCache {
 
   /**
-   * A mapping from IMethod -> SSAOptions -> SoftReference -> IR
+   * A cached value
    */
-  private HashMap<Pair<IMethod, Context>, Map<SSAOptions, Object>> dictionary = HashMapFactory.make();
+  private static final class Entry {
+    final Pair<IMethod, Context> key;
+
+    final SSAOptions options;
+
+    /**
+     * the value, or a {@link CacheReference} to it
+     */
+    final Object value;
+
+    final int weight;
+
+    /**
+     * neighbors in the list in order of use
+     */
+    Entry prev, next;
+
+    Entry(Pair<IMethod, Context> key, SSAOptions options, Object value, int weight) {
+      this.key = key;
+      this.options = options;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  private final SSACachePolicy policy;
+
+  /**
+   * A mapping from (IMethod, Context) -> SSAOptions -> Entry
+   */
+  private HashMap<Pair<IMethod, Context>, Map<SSAOptions, Entry>> dictionary = HashMapFactory.make();
 
   /**
-   * Help out the garbage collector: clear this cache when the number of items is > RESET_THRESHOLD
+   * sentinel of the list of entries in order of use, from least to most recently used
+   */
+  private final Entry lru = new Entry(null, null, null, 0);
+
+  /**
+   * Help out the garbage collector: with soft references, drop the entries of cleared values when the number of items cached
+   * since the last time is > RESET_THRESHOLD
    */
   final private static int RESET_THRESHOLD = 2000;
 
   /**
-   * number of items cached here.
+   * number of items cached since the entries of cleared values were last dropped
    */
   private int nItems = 0;
 
+  /**
+   * number of items cached here.
+   */
+  private int size = 0;
+
+  /**
+   * total weight of the items cached here.
+   */
+  private long weight = 0;
+
+  /**
+   * total weight of the items cached here and in the caches sharing the capacity with this one, or null if the capacity is not
+   * shared
+   */
+  private final AtomicLong sharedWeight;
+
+  private long hits = 0;
+
+  private long misses = 0;
+
+  private long evictions = 0;
+
+  AuxiliaryCache(SSACachePolicy policy) {
+    this(policy, null);
+  }
+
+  /**
+   * @param sharedWeight total weight of the values in all the caches sharing the capacity of the policy, or null if this cache has
+   *          the capacity to itself
+   */
+  AuxiliaryCache(SSACachePolicy policy, AtomicLong sharedWeight) {
+    this.policy = policy;
+    this.sharedWeight = sharedWeight;
+    lru.prev = lru.next = lru;
+  }
+
   /**
    * The existence of this is unfortunate.
    */
   public synchronized void wipe() {
+    if (sharedWeight != null) {
+      sharedWeight.addAndGet(-weight);
+    }
     dictionary = HashMapFactory.make();
+    lru.prev = lru.next = lru;
     nItems = 0;
+    size = 0;
+    weight = 0;
+  }
+
+  private Object get(Entry e) {
+    return policy.useSoftReferences() ? CacheReference.get(e.value) : e.value;
+  }
+
+  private void unlink(Entry e) {
+    e.prev.next = e.next;
+    e.next.prev = e.prev;
+    size--;
+    weight -= e.weight;
+    if (sharedWeight != null) {
+      sharedWeight.addAndGet(-e.weight);
+    }
+  }
+
+  private void linkLast(Entry e) {
+    e.prev = lru.prev;
+    e.next = lru;
+    lru.prev.next = e;
+    lru.prev = e;
+    size++;
+    weight += e.weight;
+    if (sharedWeight != null) {
+      sharedWeight.addAndGet(e.weight);
+    }
   }
 
   /**
-   * clear out things from which no IR is reachable
+   * @return is the total weight of the values, in this cache and any sharing its capacity, over the capacity? Unless the capacity
+   *         is shared, the caller must hold the lock on this cache.
    */
-  private void reset() {
-    Map<Pair<IMethod, Context>, Map<SSAOptions, Object>> oldDictionary = dictionary;
-    dictionary = HashMapFactory.make();
-    nItems = 0;
+  boolean isOverCapacity() {
+    return policy.isBounded() && (sharedWeight == null ? weight : sharedWeight.get()) > policy.getCapacity();
+  }
 
-    for (Iterator<Map.Entry<Pair<IMethod, Context>, Map<SSAOptions, Object>>> it = oldDictionary.entrySet().iterator(); it
-        .hasNext();) {
-      Map.Entry<Pair<IMethod, Context>, Map<SSAOptions, Object>> e = it.next();
-      Map<SSAOptions, Object> m = e.getValue();
-      HashSet<Object> toRemove = HashSetFactory.make();
-      for (Iterator it2 = m.entrySet().iterator(); it2.hasNext();) {
-        Map.Entry e2 = (Map.Entry) it2.next();
-        Object key = e2.getKey();
-        Object val = e2.getValue();
-        if (CacheReference.get(val) == null) {
-          toRemove.add(key);
-        }
-      }
-      for (Iterator<Object> it2 = toRemove.iterator(); it2.hasNext();) {
-        m.remove(it2.next());
+  /**
+   * remove an entry from both the dictionary and the list
+   */
+  private void remove(Entry e) {
+    unlink(e);
+    Map<SSAOptions, Entry> methodMap = dictionary.get(e.key);
+    if (methodMap != null && methodMap.get(e.options) == e) {
+      methodMap.remove(e.options);
+      if (methodMap.isEmpty()) {
+        dictionary.remove(e.key);
       }
-      if (m.size() > 0) {
-        dictionary.put(e.getKey(), m);
+    }
+  }
+
+  /**
+   * clear out the entries of values that have been cleared by the garbage collector
+   */
+  private void reset() {
+    nItems = 0;
+    for (Entry e = lru.next; e != lru;) {
+      Entry next = e.next;
+      if (get(e) == null) {
+        remove(e);
+        evictions++;
       }
+      e = next;
     }
   }
 
@@ -91,15 +203,38 @@ class AuxiliaryCache {
    * @return the object cached for m, or null if none found
    */
   public synchronized Object find(IMethod m, Context c, SSAOptions options) {
-    // methodMap: SSAOptions -> SoftReference
-    Pair<IMethod, Context> p = Pair.make(m, c);
-    Map methodMap = MapUtil.findOrCreateMap(dictionary, p);
-    Object ref = methodMap.get(options);
-    if (ref == null || CacheReference.get(ref) == null) {
-      return null;
+    Object result = lookup(m, c, options);
+    if (result == null) {
+      misses++;
     } else {
-      return CacheReference.get(ref);
+      hits++;
     }
+    return result;
+  }
+
+  /**
+   * Like {@link #find(IMethod, Context, SSAOptions)}, but without counting a hit or a miss; for a second look by a caller that has
+   * already counted a miss
+   */
+  synchronized Object recheck(IMethod m, Context c, SSAOptions options) {
+    return lookup(m, c, options);
+  }
+
+  private Object lookup(IMethod m, Context c, SSAOptions options) {
+    Map<SSAOptions, Entry> methodMap = dictionary.get(Pair.make(m, c));
+    Entry e = methodMap == null ? null : methodMap.get(options);
+    if (e == null) {
+      return null;
+    }
+    Object result = get(e);
+    if (result == null) {
+      remove(e);
+      evictions++;
+      return null;
+    }
+    unlink(e);
+    linkLast(e);
+    return result;
   }
 
   /**
@@ -109,22 +244,64 @@ class AuxiliaryCache {
    * @param options options governing ssa construction
    */
   public synchronized void cache(IMethod m, Context c, SSAOptions options, Object aux) {
-    nItems++;
-
-    if (nItems > RESET_THRESHOLD) {
+    if (policy.useSoftReferences() && ++nItems > RESET_THRESHOLD) {
       reset();
     }
+    int w = policy.weigh(aux);
     Pair<IMethod, Context> p = Pair.make(m, c);
-    // methodMap: SSAOptions -> SoftReference
-    Map<SSAOptions, Object> methodMap = MapUtil.findOrCreateMap(dictionary, p);
-    Object ref = CacheReference.make(aux);
-    methodMap.put(options, ref);
+    Map<SSAOptions, Entry> methodMap = MapUtil.findOrCreateMap(dictionary, p);
+    Entry old = methodMap.remove(options);
+    if (old != null) {
+      unlink(old);
+    }
+    if (policy.isBounded() && w > policy.getCapacity()) {
+      // too big to cache at all
+      evictions++;
+      if (methodMap.isEmpty()) {
+        dictionary.remove(p);
+      }
+      return;
+    }
+    Entry e = new Entry(p, options, policy.useSoftReferences() ? CacheReference.make(aux) : aux, w);
+    methodMap.put(options, e);
+    linkLast(e);
+    // with a shared capacity, the rest of the excess is up to the other caches
+    while (isOverCapacity() && lru.next != e) {
+      remove(lru.next);
+      evictions++;
+    }
+  }
+
+  /**
+   * evict the least recently used value, if any
+   * 
+   * @return true if a value was evicted
+   */
+  synchronized boolean evictOne() {
+    if (lru.next == lru) {
+      return false;
+    }
+    remove(lru.next);
+    evictions++;
+    return true;
   }
 
   /**
    * invalidate all cached information about a method
    */
-  public void invalidate(IMethod method, Context c) {
-    dictionary.remove(Pair.make(method, c));
+  public synchronized void invalidate(IMethod method, Context c) {
+    Map<SSAOptions, Entry> methodMap = dictionary.remove(Pair.make(method, c));
+    if (methodMap != null) {
+      for (Entry e : methodMap.values()) {
+        unlink(e);
+      }
+    }
+  }
+
+  /**
+   * @return a snapshot of the counters of this cache
+   */
+  public synchronized CacheStatistics getStatistics() {
+    return new CacheStatistics(hits, misses, evictions, size, weight);
   }
 }
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+/**
+ * A snapshot of the counters of a cache in an {@link SSACache}
+ */
+public final class CacheStatistics {
+
+  private final long hits;
+
+  private final long misses;
+
+  private final long evictions;
+
+  private final long size;
+
+  private final long weight;
+
+  CacheStatistics(long hits, long misses, long evictions, long size, long weight) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.size = size;
+    this.weight = weight;
+  }
+
+  /**
+   * @return the sum of this and other, for a cache made of several parts
+   */
+  CacheStatistics plus(CacheStatistics other) {
+    return new CacheStatistics(hits + other.hits, misses + other.misses, evictions + other.evictions, size + other.size, weight
+        + other.weight);
+  }
+
+  /**
+   * @return the number of lookups that found a value
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of lookups that found no value
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of values dropped to stay within the capacity, or cleared by the garbage collector
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return the number of values currently cached
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * @return the total weight of the values currently cached
+   */
+  public long getWeight() {
+    return weight;
+  }
+
+  @Override
+  public String toString() {
+    return "hits: " + hits + " misses: " + misses + " evictions: " + evictions + " size: " + size + " weight: " + weight;
+  }
+}
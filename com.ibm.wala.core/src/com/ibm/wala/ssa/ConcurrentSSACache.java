@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+
+/**
+ * An {@link SSACache} that may be used by several threads at once.
+ * 
+ * Unlike {@link SSACache}, which builds IRs while holding the lock on the whole cache, IRs for different (method, context,
+ * options) keys are built in parallel. The cached values are spread over several {@link AuxiliaryCache}s, each with its own
+ * lock, chosen by the (method, context) pair. The stripes share the capacity of the {@link SSACachePolicy}: a stripe that pushes
+ * the total weight over the capacity evicts its own least recently used values, and if that is not enough, values are evicted
+ * from the other stripes in turn. A thread that asks for a value that another thread is currently building waits for that build
+ * rather than starting its own.
+ */
+public class ConcurrentSSACache extends SSACache {
+
+  /**
+   * The factory that actually creates new IR objects
+   */
+  private final IRFactory<IMethod> factory;
+
+  /**
+   * Caches of SSA IRs, striped by (method, context)
+   */
+  private final AuxiliaryCache[] irCaches;
+
+  /**
+   * Caches of DefUse information, striped by (method, context)
+   */
+  private final AuxiliaryCache[] duCaches;
+
+  /**
+   * next stripe to evict from when a stripe cannot bring the total weight within the capacity by itself
+   */
+  private final AtomicInteger evictionCursor = new AtomicInteger();
+
+  /**
+   * IRs currently being built
+   */
+  private final ConcurrentMap<Key, FutureTask<Object>> irInFlight = new ConcurrentHashMap<Key, FutureTask<Object>>();
+
+  /**
+   * DefUse information currently being built
+   */
+  private final ConcurrentMap<Key, FutureTask<Object>> duInFlight = new ConcurrentHashMap<Key, FutureTask<Object>>();
+
+  /**
+   * @param factory a factory for creating IRs
+   */
+  public ConcurrentSSACache(IRFactory<IMethod> factory) {
+    this(factory, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param factory a factory for creating IRs
+   * @param concurrencyLevel the expected number of threads using the cache at once
+   */
+  public ConcurrentSSACache(IRFactory<IMethod> factory, int concurrencyLevel) {
+    this(factory, concurrencyLevel, SSACachePolicy.SOFT_REFERENCES);
+  }
+
+  /**
+   * @param factory a factory for creating IRs
+   * @param policy governs how IRs and DefUse information are held
+   */
+  public ConcurrentSSACache(IRFactory<IMethod> factory, SSACachePolicy policy) {
+    this(factory, Runtime.getRuntime().availableProcessors(), policy);
+  }
+
+  /**
+   * @param factory a factory for creating IRs
+   * @param concurrencyLevel the expected number of threads using the cache at once
+   * @param policy governs how IRs and DefUse information are held
+   */
+  public ConcurrentSSACache(IRFactory<IMethod> factory, int concurrencyLevel, SSACachePolicy policy) {
+    super(factory, policy, false);
+    if (concurrencyLevel <= 0) {
+      throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+    }
+    this.factory = factory;
+    int stripes = 1;
+    while (stripes < 4 * concurrencyLevel) {
+      stripes <<= 1;
+    }
+    irCaches = new AuxiliaryCache[stripes];
+    duCaches = new AuxiliaryCache[stripes];
+    // the IR and DefUse caches each get the full capacity, as in SSACache
+    AtomicLong irWeight = new AtomicLong();
+    AtomicLong duWeight = new AtomicLong();
+    for (int i = 0; i < stripes; i++) {
+      irCaches[i] = new AuxiliaryCache(policy, irWeight);
+      duCaches[i] = new AuxiliaryCache(policy, duWeight);
+    }
+  }
+
+  private static CacheStatistics getStatistics(AuxiliaryCache[] caches) {
+    CacheStatistics result = caches[0].getStatistics();
+    for (int i = 1; i < caches.length; i++) {
+      result = result.plus(caches[i].getStatistics());
+    }
+    return result;
+  }
+
+  @Override
+  public CacheStatistics getIRStatistics() {
+    return getStatistics(irCaches);
+  }
+
+  @Override
+  public CacheStatistics getDUStatistics() {
+    return getStatistics(duCaches);
+  }
+
+  private static AuxiliaryCache stripe(AuxiliaryCache[] caches, IMethod m, Context c) {
+    int h = m.hashCode() * 31 + c.hashCode();
+    h ^= (h >>> 16);
+    return caches[h & (caches.length - 1)];
+  }
+
+  @Override
+  public IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
+    if (m == null) {
+      throw new IllegalArgumentException("m is null");
+    }
+    if (m.isAbstract() || m.isNative()) {
+      return null;
+    }
+
+    if (factory.contextIsIrrelevant(m)) {
+      c = Everywhere.EVERYWHERE;
+    }
+
+    final Context context = c;
+    return (IR) findOrCreate(irCaches, irInFlight, m, context, options, new Callable<Object>() {
+      @Override
+      public Object call() {
+        return makeIR(m, context, options);
+      }
+    });
+  }
+
+  @Override
+  public DefUse findOrCreateDU(final IMethod m, Context c, final SSAOptions options) {
+    if (m == null) {
+      throw new IllegalArgumentException("m is null");
+    }
+    if (m.isAbstract() || m.isNative()) {
+      return null;
+    }
+    if (factory.contextIsIrrelevant(m)) {
+      c = Everywhere.EVERYWHERE;
+    }
+
+    final Context context = c;
+    return (DefUse) findOrCreate(duCaches, duInFlight, m, context, options, new Callable<Object>() {
+      @Override
+      public Object call() {
+        return new DefUse(findOrCreateIR(m, context, options));
+      }
+    });
+  }
+
+  @Override
+  public DefUse findOrCreateDU(final IR ir, Context C) {
+    if (ir == null) {
+      throw new IllegalArgumentException("ir is null");
+    }
+    return (DefUse) findOrCreate(duCaches, duInFlight, ir.getMethod(), C, ir.getOptions(), new Callable<Object>() {
+      @Override
+      public Object call() {
+        return new DefUse(ir);
+      }
+    });
+  }
+
+  /**
+   * Find the value cached for a key, or build and cache it. If another thread is already building the value for the key then
+   * wait for it rather than building it again.
+   */
+  private Object findOrCreate(final AuxiliaryCache[] caches, ConcurrentMap<Key, FutureTask<Object>> inFlight, IMethod m,
+      Context c, SSAOptions options, final Callable<Object> maker) {
+    final AuxiliaryCache cache = stripe(caches, m, c);
+    Object result = cache.find(m, c, options);
+    if (result != null) {
+      return result;
+    }
+
+    final Key key = new Key(m, c, options);
+    FutureTask<Object> task = inFlight.get(key);
+    if (task == null) {
+      FutureTask<Object> newTask = new FutureTask<Object>(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          // another thread may have finished building the value since we looked
+          Object value = cache.recheck(key.method, key.context, key.options);
+          if (value == null) {
+            value = maker.call();
+            cache.cache(key.method, key.context, key.options, value);
+            evictFromOtherStripes(caches);
+          }
+          return value;
+        }
+      });
+      task = inFlight.putIfAbsent(key, newTask);
+      if (task == null) {
+        task = newTask;
+        try {
+          newTask.run();
+        } finally {
+          inFlight.remove(key, newTask);
+        }
+      }
+    }
+    return getUninterruptibly(task);
+  }
+
+  /**
+   * Evict values from the stripes in turn, one at a time, while their total weight is over the capacity. Each stripe is locked on
+   * its own, so this never holds two stripe locks at once.
+   */
+  private void evictFromOtherStripes(AuxiliaryCache[] caches) {
+    int emptyInARow = 0;
+    while (caches[0].isOverCapacity() && emptyInARow < caches.length) {
+      int i = evictionCursor.getAndIncrement() & (caches.length - 1);
+      if (caches[i].evictOne()) {
+        emptyInARow = 0;
+      } else {
+        emptyInARow++;
+      }
+    }
+  }
+
+  private static Object getUninterruptibly(FutureTask<Object> task) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return task.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new RuntimeException(cause);
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public void wipe() {
+    for (int i = 0; i < irCaches.length; i++) {
+      irCaches[i].wipe();
+      duCaches[i].wipe();
+    }
+  }
+
+  @Override
+  public void invalidateIR(IMethod method, Context c) {
+    stripe(irCaches, method, c).invalidate(method, c);
+  }
+
+  @Override
+  public void invalidateDU(IMethod method, Context c) {
+    stripe(duCaches, method, c).invalidate(method, c);
+  }
+
+  /**
+   * A (method, context, options) triple
+   */
+  private static final class Key {
+    final IMethod method;
+
+    final Context context;
+
+    final SSAOptions options;
+
+    Key(IMethod method, Context context, SSAOptions options) {
+      this.method = method;
+      this.context = context;
+      this.options = options;
+    }
+
+    @Override
+    public int hashCode() {
+      return (method.hashCode() * 31 + context.hashCode()) * 31 + (options == null ? 0 : options.hashCode());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return method.equals(other.method) && context.equals(other.context)
+          && (options == null ? other.options == null : options.equals(other.options));
+    }
+  }
+}
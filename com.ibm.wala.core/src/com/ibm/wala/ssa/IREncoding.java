@@ -0,0 +1,973 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.cfg.ShrikeCFG;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.shrikeBT.IBinaryOpInstruction;
+import com.ibm.wala.shrikeBT.IComparisonInstruction;
+import com.ibm.wala.shrikeBT.IConditionalBranchInstruction;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeBT.IShiftInstruction;
+import com.ibm.wala.shrikeBT.IUnaryOpInstruction;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.ssa.SSACFG.BasicBlock;
+import com.ibm.wala.ssa.SSACFG.ExceptionHandlerBasicBlock;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.IntPair;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * The compact binary encoding of an {@link IR} built from bytecode, used by {@link IRStore}.
+ *
+ * An encoded IR starts with a table of the strings it refers to, followed by the symbol table, the instructions, the phis, pis and
+ * catch instructions of each basic block, and the local variable map. Integers are written in a variable-length format, so that
+ * the small value numbers that make up most of an IR take a byte each.
+ */
+class IREncoding {
+
+  /**
+   * bump this whenever the encoding changes
+   */
+  static final int VERSION = 1;
+
+  private static final int ARRAY_LENGTH = 1, ARRAY_LOAD = 2, ARRAY_STORE = 3, BINARY_OP = 4, CHECK_CAST = 5, COMPARISON = 6,
+      CONDITIONAL_BRANCH = 7, CONVERSION = 8, GET = 9, GOTO = 10, INSTANCEOF = 11, INVOKE = 12, LOAD_METADATA = 13, MONITOR = 14,
+      NEW = 15, PUT = 16, RETURN = 17, SWITCH = 18, THROW = 19, UNARY_OP = 20;
+
+  private static final int NO_VALUE = 0, CONSTANT = 1, PHI = 2;
+
+  private static final int NULL = 0, BOOLEAN = 1, INTEGER = 2, LONG = 3, FLOAT = 4, DOUBLE = 5, STRING = 6;
+
+  private static final int BINARY_OPERATOR = 0, SHIFT_OPERATOR = 1;
+
+  /**
+   * Thrown while encoding an IR that holds something the encoding does not cover
+   */
+  private static final class UnsupportedException extends Exception {
+    private static final long serialVersionUID = -4302837478712736424L;
+  }
+
+  /**
+   * A growable byte array with variable-length integers
+   */
+  private static final class Output extends ByteArrayOutputStream {
+    void writeInt(int v) {
+      // zig-zag, so that -1 takes a byte too
+      int z = (v << 1) ^ (v >> 31);
+      while ((z & ~0x7f) != 0) {
+        write((z & 0x7f) | 0x80);
+        z >>>= 7;
+      }
+      write(z);
+    }
+
+    void writeLong(long v) {
+      for (int i = 0; i < 8; i++) {
+        write((int) (v >>> (56 - 8 * i)));
+      }
+    }
+
+    void writeBoolean(boolean b) {
+      write(b ? 1 : 0);
+    }
+
+    void writeInts(int[] a) {
+      if (a == null) {
+        writeInt(-1);
+      } else {
+        writeInt(a.length);
+        for (int x : a) {
+          writeInt(x);
+        }
+      }
+    }
+  }
+
+  private static final class Input {
+    private final byte[] data;
+
+    private int pos = 0;
+
+    Input(byte[] data) {
+      this.data = data;
+    }
+
+    int readInt() {
+      int z = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = data[pos++];
+        z |= (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return (z >>> 1) ^ -(z & 1);
+    }
+
+    long readLong() {
+      long v = 0;
+      for (int i = 0; i < 8; i++) {
+        v = (v << 8) | (data[pos++] & 0xff);
+      }
+      return v;
+    }
+
+    boolean readBoolean() {
+      return data[pos++] != 0;
+    }
+
+    int[] readInts() {
+      int n = readInt();
+      if (n < 0) {
+        return null;
+      }
+      int[] result = new int[n];
+      for (int i = 0; i < n; i++) {
+        result[i] = readInt();
+      }
+      return result;
+    }
+
+    String readString() {
+      int length = readInt();
+      try {
+        String result = new String(data, pos, length, "UTF-8");
+        pos += length;
+        return result;
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * State of encoding one IR
+   */
+  private static final class Encoder {
+    private final Output out = new Output();
+
+    private final Map<String, Integer> strings = HashMapFactory.make();
+
+    private final List<String> stringList = new ArrayList<String>();
+
+    private final IR ir;
+
+    Encoder(IR ir) {
+      this.ir = ir;
+    }
+
+    void writeString(String s) {
+      Integer i = strings.get(s);
+      if (i == null) {
+        i = stringList.size();
+        strings.put(s, i);
+        stringList.add(s);
+      }
+      out.writeInt(i);
+    }
+
+    void writeType(TypeReference t) {
+      if (t == null) {
+        out.writeInt(-1);
+      } else {
+        writeString(t.getClassLoader().getName().toString());
+        writeString(t.getName().toString());
+      }
+    }
+
+    void writeField(FieldReference f) {
+      writeType(f.getDeclaringClass());
+      writeString(f.getName().toString());
+      writeType(f.getFieldType());
+    }
+
+    void writeMethod(MethodReference m) {
+      writeType(m.getDeclaringClass());
+      writeString(m.getName().toString());
+      writeString(m.getDescriptor().toString());
+    }
+
+    byte[] encode() throws UnsupportedException {
+      SSAInstruction[] instructions = ir.getInstructions();
+      out.writeInt(instructions.length);
+      writeSymbolTable(ir.getSymbolTable());
+      int count = 0;
+      for (SSAInstruction s : instructions) {
+        if (s != null) {
+          count++;
+        }
+      }
+      out.writeInt(count);
+      for (int i = 0; i < instructions.length; i++) {
+        if (instructions[i] != null) {
+          out.writeInt(i);
+          writeInstruction(instructions[i]);
+        }
+      }
+      SSACFG cfg = ir.getControlFlowGraph();
+      out.writeInt(cfg.getMaxNumber() + 1);
+      for (int i = 0; i <= cfg.getMaxNumber(); i++) {
+        writeBlock(cfg.getNode(i));
+      }
+      writeLocalMap(ir.getLocalMap());
+
+      Output result = new Output();
+      result.writeInt(stringList.size());
+      for (String s : stringList) {
+        try {
+          byte[] b = s.getBytes("UTF-8");
+          result.writeInt(b.length);
+          result.write(b, 0, b.length);
+        } catch (UnsupportedEncodingException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      result.write(out.toByteArray(), 0, out.size());
+      return result.toByteArray();
+    }
+
+    private void writeSymbolTable(SymbolTable symbolTable) throws UnsupportedException {
+      out.writeInt(symbolTable.getNumberOfParameters());
+      int max = symbolTable.getMaxValueNumber();
+      out.writeInt(max);
+      for (int vn = 1; vn <= max; vn++) {
+        Value v = symbolTable.getValue(vn);
+        if (v == null) {
+          out.writeInt(NO_VALUE);
+        } else if (v instanceof ConstantValue) {
+          out.writeInt(CONSTANT);
+          writeConstant(((ConstantValue) v).getValue());
+        } else if (v instanceof PhiValue) {
+          SSAPhiInstruction phi = ((PhiValue) v).getPhiInstruction();
+          if (phi.getDef() != vn) {
+            throw new UnsupportedException();
+          }
+          out.writeInt(PHI);
+          int[] uses = new int[phi.getNumberOfUses()];
+          for (int i = 0; i < uses.length; i++) {
+            uses[i] = phi.getUse(i);
+          }
+          out.writeInts(uses);
+        } else {
+          throw new UnsupportedException();
+        }
+      }
+    }
+
+    private void writeConstant(Object o) throws UnsupportedException {
+      if (o == null) {
+        out.writeInt(NULL);
+      } else if (o instanceof Boolean) {
+        out.writeInt(BOOLEAN);
+        out.writeBoolean((Boolean) o);
+      } else if (o instanceof Integer) {
+        out.writeInt(INTEGER);
+        out.writeInt((Integer) o);
+      } else if (o instanceof Long) {
+        out.writeInt(LONG);
+        out.writeLong((Long) o);
+      } else if (o instanceof Float) {
+        out.writeInt(FLOAT);
+        out.writeInt(Float.floatToRawIntBits((Float) o));
+      } else if (o instanceof Double) {
+        out.writeInt(DOUBLE);
+        out.writeLong(Double.doubleToRawLongBits((Double) o));
+      } else if (o instanceof String) {
+        out.writeInt(STRING);
+        writeString((String) o);
+      } else {
+        throw new UnsupportedException();
+      }
+    }
+
+    private void writeInstruction(SSAInstruction s) throws UnsupportedException {
+      if (s instanceof SSAArrayLengthInstruction) {
+        SSAArrayLengthInstruction a = (SSAArrayLengthInstruction) s;
+        writeHeader(ARRAY_LENGTH, s);
+        out.writeInt(a.getDef());
+        out.writeInt(a.getArrayRef());
+      } else if (s instanceof SSAArrayLoadInstruction) {
+        SSAArrayLoadInstruction a = (SSAArrayLoadInstruction) s;
+        writeHeader(ARRAY_LOAD, s);
+        out.writeInt(a.getDef());
+        out.writeInt(a.getArrayRef());
+        out.writeInt(a.getIndex());
+        writeType(a.getElementType());
+      } else if (s instanceof SSAArrayStoreInstruction) {
+        SSAArrayStoreInstruction a = (SSAArrayStoreInstruction) s;
+        writeHeader(ARRAY_STORE, s);
+        out.writeInt(a.getArrayRef());
+        out.writeInt(a.getIndex());
+        out.writeInt(a.getValue());
+        writeType(a.getElementType());
+      } else if (s instanceof SSABinaryOpInstruction) {
+        SSABinaryOpInstruction b = (SSABinaryOpInstruction) s;
+        writeHeader(BINARY_OP, s);
+        IBinaryOpInstruction.IOperator op = b.getOperator();
+        if (op instanceof IBinaryOpInstruction.Operator) {
+          out.writeInt(BINARY_OPERATOR);
+          out.writeInt(((IBinaryOpInstruction.Operator) op).ordinal());
+        } else if (op instanceof IShiftInstruction.Operator) {
+          out.writeInt(SHIFT_OPERATOR);
+          out.writeInt(((IShiftInstruction.Operator) op).ordinal());
+        } else {
+          throw new UnsupportedException();
+        }
+        out.writeInt(b.getDef());
+        out.writeInt(b.getUse(0));
+        out.writeInt(b.getUse(1));
+        out.writeBoolean(b.mayBeIntegerOp());
+      } else if (s instanceof SSACheckCastInstruction) {
+        SSACheckCastInstruction c = (SSACheckCastInstruction) s;
+        writeHeader(CHECK_CAST, s);
+        out.writeInt(c.getResult());
+        out.writeInt(c.getVal());
+        TypeReference[] types = c.getDeclaredResultTypes();
+        out.writeInt(types.length);
+        for (TypeReference t : types) {
+          writeType(t);
+        }
+        out.writeBoolean(c.isPEI());
+      } else if (s instanceof SSAComparisonInstruction) {
+        SSAComparisonInstruction c = (SSAComparisonInstruction) s;
+        writeHeader(COMPARISON, s);
+        out.writeInt(c.getOperator().ordinal());
+        out.writeInt(c.getDef());
+        out.writeInt(c.getUse(0));
+        out.writeInt(c.getUse(1));
+      } else if (s instanceof SSAConditionalBranchInstruction) {
+        SSAConditionalBranchInstruction c = (SSAConditionalBranchInstruction) s;
+        if (!(c.getOperator() instanceof IConditionalBranchInstruction.Operator)) {
+          throw new UnsupportedException();
+        }
+        writeHeader(CONDITIONAL_BRANCH, s);
+        out.writeInt(((IConditionalBranchInstruction.Operator) c.getOperator()).ordinal());
+        writeType(c.getType());
+        out.writeInt(c.getUse(0));
+        out.writeInt(c.getUse(1));
+        out.writeInt(c.getTarget());
+      } else if (s instanceof SSAConversionInstruction) {
+        SSAConversionInstruction c = (SSAConversionInstruction) s;
+        writeHeader(CONVERSION, s);
+        out.writeInt(c.getDef());
+        out.writeInt(c.getUse(0));
+        writeType(c.getFromType());
+        writeType(c.getToType());
+      } else if (s instanceof SSAGetInstruction) {
+        SSAGetInstruction g = (SSAGetInstruction) s;
+        writeHeader(GET, s);
+        out.writeInt(g.getDef());
+        out.writeBoolean(g.isStatic());
+        if (!g.isStatic()) {
+          out.writeInt(g.getRef());
+        }
+        writeField(g.getDeclaredField());
+      } else if (s instanceof SSAGotoInstruction) {
+        writeHeader(GOTO, s);
+        out.writeInt(((SSAGotoInstruction) s).getTarget());
+      } else if (s instanceof SSAInstanceofInstruction) {
+        SSAInstanceofInstruction i = (SSAInstanceofInstruction) s;
+        writeHeader(INSTANCEOF, s);
+        out.writeInt(i.getDef());
+        out.writeInt(i.getRef());
+        writeType(i.getCheckedType());
+      } else if (s instanceof SSAInvokeInstruction && !(s instanceof SSAInvokeDynamicInstruction)) {
+        SSAInvokeInstruction call = (SSAInvokeInstruction) s;
+        CallSiteReference site = call.getCallSite();
+        if (!(site.getInvocationCode() instanceof IInvokeInstruction.Dispatch)) {
+          throw new UnsupportedException();
+        }
+        writeHeader(INVOKE, s);
+        out.writeInt(call.getNumberOfReturnValues() == 0 ? -1 : call.getReturnValue(0));
+        out.writeInts(call.params);
+        out.writeInt(call.getException());
+        out.writeInt(site.getProgramCounter());
+        writeMethod(site.getDeclaredTarget());
+        out.writeInt(((IInvokeInstruction.Dispatch) site.getInvocationCode()).ordinal());
+      } else if (s instanceof SSALoadMetadataInstruction) {
+        SSALoadMetadataInstruction l = (SSALoadMetadataInstruction) s;
+        if (!(l.getToken() instanceof TypeReference)) {
+          throw new UnsupportedException();
+        }
+        writeHeader(LOAD_METADATA, s);
+        out.writeInt(l.getDef());
+        writeType(l.getType());
+        writeType((TypeReference) l.getToken());
+      } else if (s instanceof SSAMonitorInstruction) {
+        SSAMonitorInstruction m = (SSAMonitorInstruction) s;
+        writeHeader(MONITOR, s);
+        out.writeInt(m.getRef());
+        out.writeBoolean(m.isMonitorEnter());
+      } else if (s instanceof SSANewInstruction) {
+        SSANewInstruction n = (SSANewInstruction) s;
+        writeHeader(NEW, s);
+        out.writeInt(n.getDef());
+        out.writeInt(n.getNewSite().getProgramCounter());
+        writeType(n.getNewSite().getDeclaredType());
+        int[] params = null;
+        if (n.getNumberOfUses() > 0) {
+          params = new int[n.getNumberOfUses()];
+          for (int i = 0; i < params.length; i++) {
+            params[i] = n.getUse(i);
+          }
+        }
+        out.writeInts(params);
+      } else if (s instanceof SSAPutInstruction) {
+        SSAPutInstruction p = (SSAPutInstruction) s;
+        writeHeader(PUT, s);
+        out.writeBoolean(p.isStatic());
+        if (!p.isStatic()) {
+          out.writeInt(p.getRef());
+        }
+        out.writeInt(p.getVal());
+        writeField(p.getDeclaredField());
+      } else if (s instanceof SSAReturnInstruction) {
+        SSAReturnInstruction r = (SSAReturnInstruction) s;
+        writeHeader(RETURN, s);
+        out.writeInt(r.getResult());
+        out.writeBoolean(r.returnsPrimitiveType());
+      } else if (s instanceof SSASwitchInstruction) {
+        SSASwitchInstruction w = (SSASwitchInstruction) s;
+        writeHeader(SWITCH, s);
+        out.writeInt(w.getUse(0));
+        out.writeInt(w.getDefault());
+        out.writeInts(w.getCasesAndLabels());
+      } else if (s instanceof SSAThrowInstruction) {
+        writeHeader(THROW, s);
+        out.writeInt(((SSAThrowInstruction) s).getException());
+      } else if (s instanceof SSAUnaryOpInstruction) {
+        SSAUnaryOpInstruction u = (SSAUnaryOpInstruction) s;
+        if (!(u.getOpcode() instanceof IUnaryOpInstruction.Operator)) {
+          throw new UnsupportedException();
+        }
+        writeHeader(UNARY_OP, s);
+        out.writeInt(((IUnaryOpInstruction.Operator) u.getOpcode()).ordinal());
+        out.writeInt(u.getDef());
+        out.writeInt(u.getUse(0));
+      } else {
+        throw new UnsupportedException();
+      }
+    }
+
+    private void writeHeader(int kind, SSAInstruction s) {
+      out.writeInt(kind);
+      out.writeInt(s.iindex);
+    }
+
+    private void writeBlock(BasicBlock b) throws UnsupportedException {
+      writePhis(b.getStackSlotPhis());
+      writePhis(b.getLocalPhis());
+
+      List<SSAPiInstruction> pis = new ArrayList<SSAPiInstruction>();
+      for (java.util.Iterator<SSAPiInstruction> it = b.iteratePis(); it.hasNext();) {
+        pis.add(it.next());
+      }
+      out.writeInt(pis.size());
+      for (SSAPiInstruction pi : pis) {
+        out.writeInt(pi.iindex);
+        out.writeInt(pi.getDef());
+        out.writeInt(pi.getVal());
+        out.writeInt(pi.getPiBlock());
+        out.writeInt(pi.getSuccessor());
+        out.writeInt(indexOf(pi.getCause()));
+      }
+
+      if (b instanceof ExceptionHandlerBasicBlock) {
+        SSAGetCaughtExceptionInstruction s = ((ExceptionHandlerBasicBlock) b).getCatchInstruction();
+        out.writeBoolean(s != null);
+        if (s != null) {
+          out.writeInt(s.iindex);
+          out.writeInt(s.getBasicBlockNumber());
+          out.writeInt(s.getException());
+        }
+      }
+    }
+
+    private void writePhis(SSAPhiInstruction[] phis) throws UnsupportedException {
+      int count = 0;
+      if (phis != null) {
+        for (SSAPhiInstruction phi : phis) {
+          if (phi != null) {
+            count++;
+          }
+        }
+      }
+      out.writeInt(count);
+      if (count > 0) {
+        for (int i = 0; i < phis.length; i++) {
+          if (phis[i] != null) {
+            // the phi itself is saved with the symbol table
+            Value v = ir.getSymbolTable().getValue(phis[i].getDef());
+            if (!(v instanceof PhiValue) || ((PhiValue) v).getPhiInstruction() != phis[i]) {
+              throw new UnsupportedException();
+            }
+            out.writeInt(i);
+            out.writeInt(phis[i].getDef());
+          }
+        }
+      }
+    }
+
+    /**
+     * @return index in the instruction array of an instruction that causes a pi, or -1 if cause is null
+     */
+    private int indexOf(SSAInstruction cause) throws UnsupportedException {
+      if (cause == null) {
+        return -1;
+      }
+      SSAInstruction[] instructions = ir.getInstructions();
+      for (int i = 0; i < instructions.length; i++) {
+        if (instructions[i] == cause) {
+          return i;
+        }
+      }
+      throw new UnsupportedException();
+    }
+
+    private void writeLocalMap(IR.SSA2LocalMap map) throws UnsupportedException {
+      if (map == null) {
+        out.writeBoolean(false);
+        return;
+      }
+      if (!(map instanceof SSABuilder.SSA2LocalMap)) {
+        throw new UnsupportedException();
+      }
+      out.writeBoolean(true);
+      IntPair[] stores = ((SSABuilder.SSA2LocalMap) map).getLocalStoreMap();
+      int count = 0;
+      for (IntPair p : stores) {
+        if (p != null) {
+          count++;
+        }
+      }
+      out.writeInt(stores.length);
+      out.writeInt(count);
+      for (int i = 0; i < stores.length; i++) {
+        if (stores[i] != null) {
+          out.writeInt(i);
+          out.writeInt(stores[i].getX());
+          out.writeInt(stores[i].getY());
+        }
+      }
+      int[][] states = ((SSABuilder.SSA2LocalMap) map).getBlock2LocalState();
+      out.writeInt(states.length);
+      for (int[] state : states) {
+        out.writeInts(state);
+      }
+    }
+  }
+
+  /**
+   * @return the encoding of ir, or null if it holds something the encoding does not cover
+   */
+  static byte[] encode(IR ir) {
+    if (ir.getIndirectionData() != null && !ir.getIndirectionData().getNames().isEmpty()) {
+      return null;
+    }
+    try {
+      return new Encoder(ir).encode();
+    } catch (UnsupportedException e) {
+      return null;
+    }
+  }
+
+  /**
+   * State of decoding one IR
+   */
+  private static final class Decoder {
+    private final Input in;
+
+    private final IBytecodeMethod method;
+
+    private final Language language;
+
+    private final SSAInstructionFactory insts;
+
+    private final Map<String, ClassLoaderReference> loaders = HashMapFactory.make();
+
+    private String[] strings;
+
+    Decoder(IBytecodeMethod method, byte[] data) {
+      this.in = new Input(data);
+      this.method = method;
+      IClassLoader loader = method.getDeclaringClass().getClassLoader();
+      this.language = loader.getLanguage();
+      this.insts = loader.getInstructionFactory();
+      for (IClassLoader l : method.getClassHierarchy().getLoaders()) {
+        loaders.put(l.getName().toString(), l.getReference());
+      }
+    }
+
+    private String readString() {
+      return strings[in.readInt()];
+    }
+
+    private TypeReference readType() {
+      int loader = in.readInt();
+      if (loader < 0) {
+        return null;
+      }
+      ClassLoaderReference ref = loaders.get(strings[loader]);
+      if (ref == null) {
+        throw new IllegalStateException("unknown loader " + strings[loader]);
+      }
+      return TypeReference.findOrCreate(ref, readString());
+    }
+
+    private FieldReference readField() {
+      TypeReference declaringClass = readType();
+      Atom name = Atom.findOrCreateUnicodeAtom(readString());
+      return FieldReference.findOrCreate(declaringClass, name, readType());
+    }
+
+    private MethodReference readMethod() {
+      TypeReference declaringClass = readType();
+      String name = readString();
+      return MethodReference.findOrCreate(language, declaringClass, name, readString());
+    }
+
+    IR decode(SSAOptions options) throws InvalidClassFileException {
+      strings = new String[in.readInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = in.readString();
+      }
+
+      int nInstructions = in.readInt();
+      if (method.getInstructions().length != nInstructions) {
+        return null;
+      }
+      final ShrikeCFG shrikeCFG = ShrikeCFG.make(method);
+      SymbolTable symbolTable = readSymbolTable();
+      SSAInstruction[] instructions = new SSAInstruction[nInstructions];
+      SSACFG cfg = new SSACFG(method, shrikeCFG, instructions);
+
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        int index = in.readInt();
+        instructions[index] = readInstruction();
+      }
+
+      int nBlocks = in.readInt();
+      if (nBlocks != cfg.getMaxNumber() + 1) {
+        return null;
+      }
+      for (int i = 0; i < nBlocks; i++) {
+        readBlock(cfg.getNode(i), shrikeCFG, symbolTable, instructions);
+      }
+
+      IR.SSA2LocalMap localMap = null;
+      if (in.readBoolean()) {
+        IntPair[] stores = new IntPair[in.readInt()];
+        int nStores = in.readInt();
+        for (int i = 0; i < nStores; i++) {
+          int pc = in.readInt();
+          int vn = in.readInt();
+          stores[pc] = new IntPair(vn, in.readInt());
+        }
+        int[][] states = new int[in.readInt()][];
+        for (int i = 0; i < states.length; i++) {
+          states[i] = in.readInts();
+        }
+        localMap = new SSABuilder.SSA2LocalMap(shrikeCFG, stores, states);
+      }
+
+      return new StoredIR(method, instructions, symbolTable, cfg, options, localMap);
+    }
+
+    private SymbolTable readSymbolTable() {
+      SymbolTable symbolTable = new SymbolTable(in.readInt());
+      int max = in.readInt();
+      for (int vn = 1; vn <= max; vn++) {
+        switch (in.readInt()) {
+        case NO_VALUE:
+          break;
+        case CONSTANT:
+          symbolTable.restoreConstant(vn, readConstant());
+          break;
+        case PHI:
+          symbolTable.restorePhi(vn, in.readInts());
+          break;
+        default:
+          throw new IllegalStateException("bad value kind");
+        }
+      }
+      symbolTable.ensureSymbol(max);
+      return symbolTable;
+    }
+
+    private Object readConstant() {
+      switch (in.readInt()) {
+      case NULL:
+        return null;
+      case BOOLEAN:
+        return Boolean.valueOf(in.readBoolean());
+      case INTEGER:
+        return Integer.valueOf(in.readInt());
+      case LONG:
+        return Long.valueOf(in.readLong());
+      case FLOAT:
+        return Float.valueOf(Float.intBitsToFloat(in.readInt()));
+      case DOUBLE:
+        return Double.valueOf(Double.longBitsToDouble(in.readLong()));
+      case STRING:
+        return readString();
+      default:
+        throw new IllegalStateException("bad constant kind");
+      }
+    }
+
+    private SSAInstruction readInstruction() {
+      int kind = in.readInt();
+      int iindex = in.readInt();
+      switch (kind) {
+      case ARRAY_LENGTH: {
+        int result = in.readInt();
+        return insts.ArrayLengthInstruction(iindex, result, in.readInt());
+      }
+      case ARRAY_LOAD: {
+        int result = in.readInt();
+        int arrayref = in.readInt();
+        int index = in.readInt();
+        return insts.ArrayLoadInstruction(iindex, result, arrayref, index, readType());
+      }
+      case ARRAY_STORE: {
+        int arrayref = in.readInt();
+        int index = in.readInt();
+        int value = in.readInt();
+        return insts.ArrayStoreInstruction(iindex, arrayref, index, value, readType());
+      }
+      case BINARY_OP: {
+        int operatorKind = in.readInt();
+        int ordinal = in.readInt();
+        IBinaryOpInstruction.IOperator op = operatorKind == BINARY_OPERATOR ? IBinaryOpInstruction.Operator.values()[ordinal]
+            : IShiftInstruction.Operator.values()[ordinal];
+        int result = in.readInt();
+        int val1 = in.readInt();
+        int val2 = in.readInt();
+        return insts.BinaryOpInstruction(iindex, op, false, false, result, val1, val2, in.readBoolean());
+      }
+      case CHECK_CAST: {
+        int result = in.readInt();
+        int val = in.readInt();
+        TypeReference[] types = new TypeReference[in.readInt()];
+        for (int i = 0; i < types.length; i++) {
+          types[i] = readType();
+        }
+        return insts.CheckCastInstruction(iindex, result, val, types, in.readBoolean());
+      }
+      case COMPARISON: {
+        IComparisonInstruction.Operator op = IComparisonInstruction.Operator.values()[in.readInt()];
+        int result = in.readInt();
+        int val1 = in.readInt();
+        return insts.ComparisonInstruction(iindex, op, result, val1, in.readInt());
+      }
+      case CONDITIONAL_BRANCH: {
+        IConditionalBranchInstruction.Operator op = IConditionalBranchInstruction.Operator.values()[in.readInt()];
+        TypeReference type = readType();
+        int val1 = in.readInt();
+        int val2 = in.readInt();
+        return insts.ConditionalBranchInstruction(iindex, op, type, val1, val2, in.readInt());
+      }
+      case CONVERSION: {
+        int result = in.readInt();
+        int val = in.readInt();
+        TypeReference fromType = readType();
+        return insts.ConversionInstruction(iindex, result, val, fromType, readType(), false);
+      }
+      case GET: {
+        int result = in.readInt();
+        if (in.readBoolean()) {
+          return insts.GetInstruction(iindex, result, readField());
+        } else {
+          int ref = in.readInt();
+          return insts.GetInstruction(iindex, result, ref, readField());
+        }
+      }
+      case GOTO:
+        return insts.GotoInstruction(iindex, in.readInt());
+      case INSTANCEOF: {
+        int result = in.readInt();
+        int ref = in.readInt();
+        return insts.InstanceofInstruction(iindex, result, ref, readType());
+      }
+      case INVOKE: {
+        int result = in.readInt();
+        int[] params = in.readInts();
+        int exception = in.readInt();
+        int pc = in.readInt();
+        MethodReference target = readMethod();
+        CallSiteReference site = CallSiteReference.make(pc, target, IInvokeInstruction.Dispatch.values()[in.readInt()]);
+        if (result == -1) {
+          return insts.InvokeInstruction(iindex, params, exception, site, null);
+        } else {
+          return insts.InvokeInstruction(iindex, result, params, exception, site, null);
+        }
+      }
+      case LOAD_METADATA: {
+        int result = in.readInt();
+        TypeReference type = readType();
+        return insts.LoadMetadataInstruction(iindex, result, type, readType());
+      }
+      case MONITOR: {
+        int ref = in.readInt();
+        return insts.MonitorInstruction(iindex, ref, in.readBoolean());
+      }
+      case NEW: {
+        int result = in.readInt();
+        int pc = in.readInt();
+        NewSiteReference site = NewSiteReference.make(pc, readType());
+        int[] params = in.readInts();
+        if (params == null) {
+          return insts.NewInstruction(iindex, result, site);
+        } else {
+          return insts.NewInstruction(iindex, result, site, params);
+        }
+      }
+      case PUT: {
+        if (in.readBoolean()) {
+          int val = in.readInt();
+          return insts.PutInstruction(iindex, val, readField());
+        } else {
+          int ref = in.readInt();
+          int val = in.readInt();
+          return insts.PutInstruction(iindex, ref, val, readField());
+        }
+      }
+      case RETURN: {
+        int result = in.readInt();
+        boolean isPrimitive = in.readBoolean();
+        if (result == -1) {
+          return insts.ReturnInstruction(iindex);
+        } else {
+          return insts.ReturnInstruction(iindex, result, isPrimitive);
+        }
+      }
+      case SWITCH: {
+        int val = in.readInt();
+        int defaultLabel = in.readInt();
+        return insts.SwitchInstruction(iindex, val, defaultLabel, in.readInts());
+      }
+      case THROW:
+        return insts.ThrowInstruction(iindex, in.readInt());
+      case UNARY_OP: {
+        IUnaryOpInstruction.Operator op = IUnaryOpInstruction.Operator.values()[in.readInt()];
+        int result = in.readInt();
+        return insts.UnaryOpInstruction(iindex, op, result, in.readInt());
+      }
+      default:
+        throw new IllegalStateException("bad instruction kind " + kind);
+      }
+    }
+
+    private void readBlock(BasicBlock b, ShrikeCFG shrikeCFG, SymbolTable symbolTable, SSAInstruction[] instructions) {
+      int nStackPhis = in.readInt();
+      for (int i = 0; i < nStackPhis; i++) {
+        int slot = in.readInt();
+        b.addPhiForStackSlot(slot, symbolTable.getPhiValue(in.readInt()).getPhiInstruction());
+      }
+      int nLocalPhis = in.readInt();
+      for (int i = 0; i < nLocalPhis; i++) {
+        int local = in.readInt();
+        b.addPhiForLocal(local, symbolTable.getPhiValue(in.readInt()).getPhiInstruction());
+      }
+
+      int nPis = in.readInt();
+      for (int i = 0; i < nPis; i++) {
+        int iindex = in.readInt();
+        int result = in.readInt();
+        int val = in.readInt();
+        int piBlock = in.readInt();
+        int successor = in.readInt();
+        int cause = in.readInt();
+        SSAPiInstruction pi = insts.PiInstruction(iindex, result, val, piBlock, successor, cause == -1 ? null : instructions[cause]);
+        b.addPiForRefAndPath(val, shrikeCFG.getNode(successor), pi);
+      }
+
+      if (b instanceof ExceptionHandlerBasicBlock && in.readBoolean()) {
+        int iindex = in.readInt();
+        int bbNumber = in.readInt();
+        ((ExceptionHandlerBasicBlock) b).setCatchInstruction(insts.GetCaughtExceptionInstruction(iindex, bbNumber, in.readInt()));
+      }
+    }
+  }
+
+  /**
+   * @return the IR encoded in data, or null if it does not fit the method's bytecode
+   */
+  static IR decode(IBytecodeMethod method, SSAOptions options, byte[] data) {
+    try {
+      return new Decoder(method, data).decode(options);
+    } catch (InvalidClassFileException e) {
+      return null;
+    } catch (RuntimeException e) {
+      // corrupt data
+      return null;
+    }
+  }
+
+  /**
+   * An IR read back from its encoding
+   */
+  private static final class StoredIR extends IR {
+    private final IBytecodeMethod method;
+
+    private final SSA2LocalMap localMap;
+
+    StoredIR(IBytecodeMethod method, SSAInstruction[] instructions, SymbolTable symbolTable, SSACFG cfg, SSAOptions options,
+        SSA2LocalMap localMap) {
+      super(method, instructions, symbolTable, cfg, options);
+      this.method = method;
+      this.localMap = localMap;
+      setupLocationMap();
+    }
+
+    @Override
+    protected String instructionPosition(int instructionIndex) {
+      try {
+        int bcIndex = method.getBytecodeIndex(instructionIndex);
+        int lineNumber = method.getLineNumber(bcIndex);
+
+        if (lineNumber == -1) {
+          return "";
+        } else {
+          return "(line " + lineNumber + ")";
+        }
+      } catch (InvalidClassFileException e) {
+        return "";
+      }
+    }
+
+    @Override
+    public SSA2LocalMap getLocalMap() {
+      return localMap;
+    }
+
+    /**
+     * IRs with indirection data are never encoded, so a stored IR has none
+     */
+    @Override
+    protected <T extends SSAIndirectionData.Name> SSAIndirectionData<T> getIndirectionData() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,461 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Pair;
+
+/**
+ * A second-level, on-disk store of the {@link IR}s built from bytecode by the {@link DefaultIRFactory}, so that later runs can read
+ * an IR back instead of running SSA construction again.
+ *
+ * The IRs of the methods of one class, built with one set of {@link SSAOptions}, are kept together in one file, named by a hash of
+ * the class file and the options, so a changed class file is never matched with IRs built from its old contents. A file is
+ * memory-mapped when the first IR in it is asked for. IRs {@link #add(IR) added} to the store are kept in memory until
+ * {@link #flush()} writes them out, or until their class is one of the oldest when more than the maximum number of classes are
+ * open.
+ *
+ * An IR read back from the store has the same instructions, symbol table, phis, pis and local variable map as one built from the
+ * bytecode; only its control-flow graph is still built from the method's bytecode.
+ */
+public final class IRStore {
+
+  private static final int MAGIC = 0x57495253;
+
+  private static final String SUFFIX = ".ir";
+
+  /**
+   * The saved IRs of the methods of one class. The file is read, and written, under the lock of the entry, so threads working on
+   * different classes never wait for each other's I/O.
+   */
+  private final class ClassEntry {
+    final Pair<IClass, String> key;
+
+    /**
+     * null until the entry is first used
+     */
+    private File file;
+
+    /**
+     * contents of the file, or null if there is no usable file
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Mapping from method selector to the position and length of its IR in buffer
+     */
+    private final Map<String, int[]> index = HashMapFactory.make();
+
+    /**
+     * Encoded IRs added since the file was read
+     */
+    private final Map<String, byte[]> pending = HashMapFactory.make();
+
+    /**
+     * Has this entry been dropped from {@link IRStore#entries}? Its pending IRs have then been written out, and nothing more may
+     * be added to it.
+     */
+    private boolean evicted = false;
+
+    ClassEntry(Pair<IClass, String> key) {
+      this.key = key;
+    }
+
+    private void readIfNeeded() {
+      if (file == null) {
+        file = new File(directory, hash((ShrikeClass) key.fst, key.snd) + SUFFIX);
+        read();
+      }
+    }
+
+    /**
+     * @return the encoded IR for selector, or null if none is saved
+     */
+    synchronized byte[] get(String selector) {
+      if (evicted) {
+        return null;
+      }
+      readIfNeeded();
+      byte[] data = pending.get(selector);
+      if (data == null) {
+        int[] pos = index.get(selector);
+        if (pos != null) {
+          data = new byte[pos[1]];
+          ByteBuffer b = buffer.duplicate();
+          b.position(pos[0]);
+          b.get(data);
+        }
+      }
+      return data;
+    }
+
+    synchronized boolean contains(String selector) {
+      readIfNeeded();
+      return pending.containsKey(selector) || index.containsKey(selector);
+    }
+
+    /**
+     * @return false if this entry has been evicted, so the IR must be added to a fresh entry
+     */
+    synchronized boolean add(String selector, byte[] data) {
+      if (evicted) {
+        return false;
+      }
+      readIfNeeded();
+      if (!index.containsKey(selector) && !pending.containsKey(selector)) {
+        pending.put(selector, data);
+      }
+      return true;
+    }
+
+    synchronized void flush() throws IOException {
+      if (!pending.isEmpty()) {
+        write();
+      }
+    }
+
+    synchronized void evict() {
+      evicted = true;
+      try {
+        flush();
+      } catch (IOException e) {
+        // the IRs that could not be written are built again the next time they are needed
+      }
+      index.clear();
+      pending.clear();
+      buffer = null;
+    }
+
+    /**
+     * memory-map the file and read its index, if the file exists and is usable
+     */
+    private void read() {
+      if (!file.isFile()) {
+        return;
+      }
+      RandomAccessFile f = null;
+      try {
+        f = new RandomAccessFile(file, "r");
+        MappedByteBuffer buf = f.getChannel().map(MapMode.READ_ONLY, 0, f.length());
+        if (buf.getInt() != MAGIC || buf.getInt() != IREncoding.VERSION) {
+          return;
+        }
+        int count = buf.getInt();
+        Map<String, int[]> result = HashMapFactory.make(count);
+        for (int i = 0; i < count; i++) {
+          byte[] name = new byte[buf.getInt()];
+          buf.get(name);
+          int length = buf.getInt();
+          result.put(new String(name, "UTF-8"), new int[] { buf.position(), length });
+          buf.position(buf.position() + length);
+        }
+        index.putAll(result);
+        buffer = buf;
+      } catch (IOException e) {
+        // treat as missing
+      } catch (RuntimeException e) {
+        // truncated or corrupt file
+      } finally {
+        if (f != null) {
+          try {
+            f.close();
+          } catch (IOException e) {
+            // ignore
+          }
+        }
+      }
+    }
+
+    private void write() throws IOException {
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("could not create " + directory);
+      }
+      // write to a temporary file first, so that a concurrent reader never sees a partial file; the IRs already in the old file
+      // are copied over, and the new file is then read back in its place
+      File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(IREncoding.VERSION);
+        out.writeInt(index.size() + pending.size());
+        for (Map.Entry<String, int[]> e : index.entrySet()) {
+          byte[] data = new byte[e.getValue()[1]];
+          ByteBuffer b = buffer.duplicate();
+          b.position(e.getValue()[0]);
+          b.get(data);
+          writeEntry(out, e.getKey(), data);
+        }
+        for (Map.Entry<String, byte[]> e : pending.entrySet()) {
+          writeEntry(out, e.getKey(), e.getValue());
+        }
+      } finally {
+        out.close();
+      }
+      try {
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        tmp.delete();
+        throw e;
+      }
+      index.clear();
+      pending.clear();
+      buffer = null;
+      read();
+    }
+  }
+
+  /**
+   * Default for the number of classes whose entries are kept at once
+   */
+  public static final int DEFAULT_MAX_CLASSES = 1024;
+
+  private final File directory;
+
+  /**
+   * The most classes whose entries, each with a mapped file, are kept in {@link #entries}
+   */
+  private final int maxClasses;
+
+  /**
+   * Mapping from (class, options fingerprint) to the saved IRs of its methods
+   */
+  private final ConcurrentMap<Pair<IClass, String>, ClassEntry> entries = new ConcurrentHashMap<Pair<IClass, String>, ClassEntry>();
+
+  /**
+   * The entries in the order they were created, oldest first; when there are too many, the oldest is written out and dropped
+   */
+  private final Queue<ClassEntry> age = new ConcurrentLinkedQueue<ClassEntry>();
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param directory where the files of the store live; created when the store is first flushed
+   */
+  public IRStore(File directory) {
+    this(directory, DEFAULT_MAX_CLASSES);
+  }
+
+  /**
+   * @param directory where the files of the store live; created when the store is first flushed
+   * @param maxClasses the most classes whose saved IRs are kept open at once; IRs added for a class that is dropped are written
+   *          out first
+   */
+  public IRStore(File directory, int maxClasses) {
+    if (directory == null) {
+      throw new IllegalArgumentException("null directory");
+    }
+    if (maxClasses < 1) {
+      throw new IllegalArgumentException("maxClasses must be positive: " + maxClasses);
+    }
+    this.directory = directory;
+    this.maxClasses = maxClasses;
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return true iff the IR built for m by factory with options may be saved in and read from this store
+   */
+  static boolean canStore(IRFactory<IMethod> factory, IMethod m, SSAOptions options) {
+    return factory.getClass() == DefaultIRFactory.class && m instanceof ShrikeCTMethod
+        && m.getDeclaringClass() instanceof ShrikeClass && fingerprint(options) != null;
+  }
+
+  /**
+   * @return a string that identifies the effect of options on SSA construction, or null if that effect cannot be identified
+   */
+  static String fingerprint(SSAOptions options) {
+    if (options.getDefaultValues() != null) {
+      return null;
+    }
+    return fingerprint(options.getPiNodePolicy());
+  }
+
+  private static String fingerprint(SSAPiNodePolicy policy) {
+    if (policy == null) {
+      return "none";
+    } else if (policy instanceof CompoundPiPolicy) {
+      String first = fingerprint(((CompoundPiPolicy) policy).getFirst());
+      String second = fingerprint(((CompoundPiPolicy) policy).getSecond());
+      return first == null || second == null ? null : "(" + first + "," + second + ")";
+    } else if (policy.getClass() == InstanceOfPiPolicy.class || policy.getClass() == NullTestPiPolicy.class
+        || policy.getClass() == AllIntegerDueToBranchePiPolicy.class) {
+      // these policies have no state
+      return policy.getClass().getSimpleName();
+    } else {
+      return null;
+    }
+  }
+
+  private ClassEntry findOrCreateEntry(IClass klass, SSAOptions options) {
+    Pair<IClass, String> key = Pair.make(klass, fingerprint(options));
+    ClassEntry entry = entries.get(key);
+    if (entry == null) {
+      ClassEntry fresh = new ClassEntry(key);
+      entry = entries.putIfAbsent(key, fresh);
+      if (entry == null) {
+        entry = fresh;
+        age.add(fresh);
+        evictIfNeeded();
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * Drop the oldest entries until there are at most {@link #maxClasses}
+   */
+  private void evictIfNeeded() {
+    while (entries.size() > maxClasses) {
+      ClassEntry oldest = age.poll();
+      if (oldest == null) {
+        return;
+      }
+      if (entries.remove(oldest.key, oldest)) {
+        oldest.evict();
+      }
+    }
+  }
+
+  private static String hash(ShrikeClass klass, String fingerprint) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    ClassReader reader = klass.getReader();
+    digest.update(reader.getBytes());
+    try {
+      digest.update(klass.getClassLoader().getName().toString().getBytes("UTF-8"));
+      digest.update(fingerprint.getBytes("UTF-8"));
+    } catch (java.io.UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update((byte) IREncoding.VERSION);
+    StringBuilder result = new StringBuilder();
+    for (byte b : digest.digest()) {
+      result.append(Character.forDigit((b >> 4) & 0xf, 16));
+      result.append(Character.forDigit(b & 0xf, 16));
+    }
+    return result.toString();
+  }
+
+  /**
+   * @return the IR saved for m built with options, or null if none is saved
+   */
+  public IR find(IMethod m, SSAOptions options) {
+    if (m == null) {
+      throw new IllegalArgumentException("m is null");
+    }
+    if (fingerprint(options) == null || !(m instanceof ShrikeCTMethod) || !(m.getDeclaringClass() instanceof ShrikeClass)) {
+      return null;
+    }
+    byte[] data = findOrCreateEntry(m.getDeclaringClass(), options).get(m.getSelector().toString());
+    IR result = data == null ? null : IREncoding.decode((ShrikeCTMethod) m, options, data);
+    if (result == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return result;
+  }
+
+  /**
+   * Save an IR built by the {@link DefaultIRFactory}; it is written to disk on the next {@link #flush()}.
+   *
+   * @return true iff the IR could be encoded
+   */
+  public boolean add(IR ir) {
+    if (ir == null) {
+      throw new IllegalArgumentException("ir is null");
+    }
+    IMethod m = ir.getMethod();
+    if (fingerprint(ir.getOptions()) == null || !(m instanceof ShrikeCTMethod) || !(m.getDeclaringClass() instanceof ShrikeClass)) {
+      return false;
+    }
+    String selector = m.getSelector().toString();
+    if (findOrCreateEntry(m.getDeclaringClass(), ir.getOptions()).contains(selector)) {
+      return true;
+    }
+    // encode outside the lock of the entry
+    byte[] data = IREncoding.encode(ir);
+    if (data == null) {
+      return false;
+    }
+    while (!findOrCreateEntry(m.getDeclaringClass(), ir.getOptions()).add(selector, data)) {
+      // the entry was evicted in the meantime; add to a fresh one
+    }
+    return true;
+  }
+
+  /**
+   * Write the IRs added since the last flush to disk
+   */
+  public void flush() throws IOException {
+    for (ClassEntry entry : entries.values()) {
+      entry.flush();
+    }
+  }
+
+  private static void writeEntry(DataOutputStream out, String selector, byte[] data) throws IOException {
+    byte[] name = selector.getBytes("UTF-8");
+    out.writeInt(name.length);
+    out.write(name);
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  /**
+   * @return the number of IRs read back from the store
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of IRs asked for but not found in the store
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  @Override
+  public String toString() {
+    return "IRStore " + directory;
+  }
+}
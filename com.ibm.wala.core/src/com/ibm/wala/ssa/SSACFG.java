@@ -371,6 +371,20 @@ public class SSACFG implements ControlFlowGraph<SSAInstruction, ISSABasicBlock>
       }
     }
 
+    /**
+     * @return the phis for stack slots, indexed by position, possibly with null entries; null if none
+     */
+    SSAPhiInstruction[] getStackSlotPhis() {
+      return stackSlotPhis;
+    }
+
+    /**
+     * @return the phis for locals, indexed by position, possibly with null entries; null if none
+     */
+    SSAPhiInstruction[] getLocalPhis() {
+      return localPhis;
+    }
+
     public void addPhiForStackSlot(int slot, SSAPhiInstruction phi) {
       if (stackSlotPhis == null) {
         stackSlotPhis = new SSAPhiInstruction[initialCapacity];
@@ -15,9 +15,10 @@ import com.ibm.wala.ipa.callgraph.Context;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 
 /**
- * A mapping from IMethod -> SSAOptions -> SoftReference -> Something
+ * A mapping from IMethod -> SSAOptions -> Something
  * 
- * This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp it.
+ * How values are held, and when they are evicted, is governed by an {@link SSACachePolicy}. By default values are held through
+ * soft references, which GCs don't always clear in time; a bounded policy keeps the cache within a fixed weight instead.
  */
 public class SSACache {
 
@@ -31,21 +32,99 @@ public class SSACache {
    */
   private final IRFactory<IMethod> factory;
 
+  /**
+   * Governs how IRs and DefUse information are held
+   */
+  private final SSACachePolicy policy;
+
   /**
    * A cache of SSA IRs
    */
-  final private AuxiliaryCache irCache = new AuxiliaryCache();
+  final private AuxiliaryCache irCache;
 
   /**
    * A cache of DefUse information
    */
-  final private AuxiliaryCache duCache = new AuxiliaryCache();
+  final private AuxiliaryCache duCache;
+
+  /**
+   * A second-level store of IRs on disk, or null
+   */
+  private volatile IRStore store;
 
   /**
    * @param factory a factory for creating IRs
    */
   public SSACache(IRFactory<IMethod> factory) {
+    this(factory, SSACachePolicy.SOFT_REFERENCES);
+  }
+
+  /**
+   * @param factory a factory for creating IRs
+   * @param policy governs how IRs and DefUse information are held; the IR and DefUse caches each get the full capacity
+   */
+  public SSACache(IRFactory<IMethod> factory, SSACachePolicy policy) {
+    this(factory, policy, true);
+  }
+
+  /**
+   * @param makeCaches if false, no IR and DefUse caches are created; for subclasses that keep their own and override every
+   *          method that uses them
+   */
+  SSACache(IRFactory<IMethod> factory, SSACachePolicy policy, boolean makeCaches) {
+    if (policy == null) {
+      throw new IllegalArgumentException("null policy");
+    }
     this.factory = factory;
+    this.policy = policy;
+    this.irCache = makeCaches ? new AuxiliaryCache(policy) : null;
+    this.duCache = makeCaches ? new AuxiliaryCache(policy) : null;
+  }
+
+  public SSACachePolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * @param store a second-level store consulted before building an IR from bytecode, and to which newly built IRs are added; null
+   *          for none
+   */
+  public void setIRStore(IRStore store) {
+    this.store = store;
+  }
+
+  public IRStore getIRStore() {
+    return store;
+  }
+
+  /**
+   * Build the IR for m, or read it back from the {@link IRStore}, if any
+   */
+  protected IR makeIR(IMethod m, Context c, SSAOptions options) {
+    IRStore store = this.store;
+    if (store == null || !IRStore.canStore(factory, m, options)) {
+      return factory.makeIR(m, c, options);
+    }
+    IR ir = store.find(m, options);
+    if (ir == null) {
+      ir = factory.makeIR(m, c, options);
+      store.add(ir);
+    }
+    return ir;
+  }
+
+  /**
+   * @return a snapshot of the hit, miss and eviction counters of the IR cache
+   */
+  public CacheStatistics getIRStatistics() {
+    return irCache.getStatistics();
+  }
+
+  /**
+   * @return a snapshot of the hit, miss and eviction counters of the DefUse cache
+   */
+  public CacheStatistics getDUStatistics() {
+    return duCache.getStatistics();
   }
 
   /**
@@ -68,12 +147,12 @@ public class SSACache {
     }
 
     if (DISABLE) {
-      return factory.makeIR(m, c, options);
+      return makeIR(m, c, options);
     }
 
     IR ir = (IR) irCache.find(m, c, options);
     if (ir == null) {
-      ir = factory.makeIR(m, c, options);
+      ir = makeIR(m, c, options);
       irCache.cache(m, c, options, ir);
     }
     return ir;
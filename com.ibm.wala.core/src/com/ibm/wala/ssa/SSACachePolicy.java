@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+/**
+ * Governs how an {@link SSACache} holds on to the IRs and {@link DefUse} information it has built.
+ *
+ * Each cached value has a weight, by default an estimate of its size in instructions. When the total weight of the values in a
+ * cache exceeds the capacity, the least recently used values are evicted. Values may additionally be held through soft
+ * references, so that the garbage collector may clear them before the capacity is reached. Subclasses may override
+ * {@link #weigh(Object)} to estimate sizes differently.
+ */
+public class SSACachePolicy {
+
+  /**
+   * no limit on the total weight
+   */
+  public static final long UNBOUNDED = -1;
+
+  /**
+   * The traditional policy: any number of values, held through soft references
+   */
+  public static final SSACachePolicy SOFT_REFERENCES = new SSACachePolicy(UNBOUNDED, true);
+
+  /**
+   * maximum total weight of the values in a cache, or {@link #UNBOUNDED}
+   */
+  private final long capacity;
+
+  /**
+   * hold values through soft references?
+   */
+  private final boolean softReferences;
+
+  /**
+   * A policy holding values strongly, evicting the least recently used values when their total weight exceeds capacity
+   *
+   * @param capacity maximum total weight of the values in a cache
+   */
+  public SSACachePolicy(long capacity) {
+    this(capacity, false);
+  }
+
+  /**
+   * @param capacity maximum total weight of the values in a cache, or {@link #UNBOUNDED}
+   * @param softReferences hold values through soft references?
+   */
+  public SSACachePolicy(long capacity, boolean softReferences) {
+    if (capacity < 0 && capacity != UNBOUNDED) {
+      throw new IllegalArgumentException("bad capacity " + capacity);
+    }
+    this.capacity = capacity;
+    this.softReferences = softReferences;
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public boolean isBounded() {
+    return capacity != UNBOUNDED;
+  }
+
+  public boolean useSoftReferences() {
+    return softReferences;
+  }
+
+  /**
+   * @return the weight of a value to be cached; by default the number of instructions of an IR or {@link DefUse}, plus one
+   */
+  public int weigh(Object value) {
+    if (value instanceof IR) {
+      return ((IR) value).getInstructions().length + 1;
+    } else if (value instanceof DefUse) {
+      return ((DefUse) value).allInstructions.size() + 1;
+    } else {
+      return 1;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "SSACachePolicy [capacity=" + (isBounded() ? String.valueOf(capacity) : "unbounded") + ", softReferences="
+        + softReferences + "]";
+  }
+}
@@ -348,6 +348,26 @@ public class SymbolTable implements Cloneable {
     return result;
   }
 
+  /**
+   * Give a value number a constant value, when restoring a symbol table saved by {@link IRStore}
+   */
+  void restoreConstant(int vn, Object o) {
+    ensureSymbol(vn);
+    ConstantValue v = new ConstantValue(o);
+    values[vn] = v;
+    if (!constants.containsKey(v)) {
+      constants.put(v, Integer.valueOf(vn));
+    }
+  }
+
+  /**
+   * Make a value number the result of a phi, when restoring a symbol table saved by {@link IRStore}
+   */
+  void restorePhi(int vn, int[] rhs) {
+    ensureSymbol(vn);
+    values[vn] = new PhiValue(new SSAPhiInstruction(SSAInstruction.NO_INDEX, vn, rhs));
+  }
+
   /**
    * Return the PhiValue that is associated with a given value number
    */
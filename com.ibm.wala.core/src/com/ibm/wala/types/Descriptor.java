@@ -10,10 +10,9 @@
  *******************************************************************************/
 package com.ibm.wala.types;
 
-import java.util.Map;
-
 import com.ibm.wala.classLoader.Language;
-import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Interner;
+import com.ibm.wala.util.functions.Function;
 import com.ibm.wala.util.strings.ImmutableByteArray;
 import com.ibm.wala.util.strings.StringStuff;
 import com.ibm.wala.util.strings.UTF8Convert;
@@ -28,7 +27,12 @@ public final class Descriptor {
   /**
    * A mapping from Key -> Descriptor
    */
-  private static final Map<Key, Descriptor> map = HashMapFactory.make();
+  private static final Interner<Key, Descriptor> map = new Interner<Key, Descriptor>(new Function<Key, Descriptor>() {
+    @Override
+    public Descriptor apply(Key key) {
+      return new Descriptor(key);
+    }
+  });
 
   /**
    * key holds the logical value of this descriptor
@@ -47,13 +51,7 @@ public final class Descriptor {
     if (parameters != null && parameters.length == 0) {
       parameters = null;
     }
-    Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return map.findOrCreate(new Key(returnType, parameters));
   }
 
   /**
@@ -63,13 +61,7 @@ public final class Descriptor {
   public static Descriptor findOrCreate(Language l, ImmutableByteArray b) throws IllegalArgumentException {
     TypeName returnType = StringStuff.parseForReturnTypeName(l, b);
     TypeName[] parameters = StringStuff.parseForParameterNames(l, b);
-    Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return map.findOrCreate(new Key(returnType, parameters));
   }
 
   public static Descriptor findOrCreate(ImmutableByteArray b) throws IllegalArgumentException {
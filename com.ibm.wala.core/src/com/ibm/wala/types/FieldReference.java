@@ -10,11 +10,11 @@
  *******************************************************************************/
 package com.ibm.wala.types;
 
-import java.util.HashMap;
 
-import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Interner;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
+import com.ibm.wala.util.functions.Function;
 import com.ibm.wala.util.shrike.ShrikeUtil;
 import com.ibm.wala.util.strings.Atom;
 
@@ -27,7 +27,13 @@ public final class FieldReference extends MemberReference {
   /**
    * Used to canonicalize MemberReferences a mapping from Key -> MemberReference
    */
-  final private static HashMap<Key, FieldReference> dictionary = HashMapFactory.make();
+  final private static Interner<Key, FieldReference> dictionary = new Interner<Key, FieldReference>(
+      new Function<Key, FieldReference>() {
+        @Override
+        public FieldReference apply(Key key) {
+          return new FieldReference(key, key.fieldType);
+        }
+      });
 
   private final TypeReference fieldType;
 
@@ -41,21 +47,11 @@ public final class FieldReference extends MemberReference {
    * 
    * @param mn the name of the member
    */
-  public static synchronized FieldReference findOrCreate(TypeReference tref, Atom mn, TypeReference fieldType) {
+  public static FieldReference findOrCreate(TypeReference tref, Atom mn, TypeReference fieldType) {
     if (tref == null) {
       throw new IllegalArgumentException("null tref");
     }
-    Key key = new Key(tref, mn, fieldType);
-
-    FieldReference val = dictionary.get(key);
-    if (val != null) {
-      return val;
-    }
-
-    val = new FieldReference(key, fieldType);
-
-    dictionary.put(key, val);
-    return val;
+    return dictionary.findOrCreate(new Key(tref, mn, fieldType));
   }
 
   /**
@@ -16,8 +16,10 @@ import static com.ibm.wala.types.TypeName.PrimitiveMask;
 
 import java.io.Serializable;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Interner;
+import com.ibm.wala.util.functions.Function;
 
 /**
  * A class to represent the reference in a class file to some type (class, primitive or array). A type reference is
@@ -43,12 +45,18 @@ public final class TypeReference implements Serializable {
   /**
    * Used for fast access to primitives. Primitives appear in the main dictionary also.
    */
-  private final static Map<TypeName, TypeReference> primitiveMap = HashMapFactory.make();
+  private final static Map<TypeName, TypeReference> primitiveMap = new ConcurrentHashMap<TypeName, TypeReference>();
 
   /**
    * Used to canonicalize TypeReferences.
    */
-  private final static Map<Key, TypeReference> dictionary = HashMapFactory.make();
+  private final static Interner<Key, TypeReference> dictionary = new Interner<Key, TypeReference>(
+      new Function<Key, TypeReference>() {
+        @Override
+        public TypeReference apply(Key key) {
+          return new TypeReference(key.classloader, key.name);
+        }
+      });
 
   /*********************************************************************************************************************
    * Primitive Dispatch *
@@ -378,7 +386,7 @@ public final class TypeReference implements Serializable {
    * 
    * @param cl the classloader (defining/initiating depending on usage)
    */
-  public static synchronized TypeReference findOrCreate(ClassLoaderReference cl, TypeName typeName) {
+  public static TypeReference findOrCreate(ClassLoaderReference cl, TypeName typeName) {
 
     if (cl == null) {
       throw new IllegalArgumentException("null cl");
@@ -397,15 +405,7 @@ public final class TypeReference implements Serializable {
       }
     }
 
-    Key key = new Key(cl, typeName);
-    TypeReference val = dictionary.get(key);
-    if (val != null) {
-      return val;
-    } else {
-      val = new TypeReference(cl, typeName);
-      dictionary.put(key, val);
-      return val;
-    }
+    return dictionary.findOrCreate(new Key(cl, typeName));
   }
 
   /**
@@ -414,11 +414,11 @@ public final class TypeReference implements Serializable {
    * @param cl the classloader (defining/initiating depending on usage)
    * @param typeName something like "Ljava/util/Arrays"
    */
-  public static synchronized TypeReference findOrCreate(ClassLoaderReference cl, String typeName) {
+  public static TypeReference findOrCreate(ClassLoaderReference cl, String typeName) {
     return findOrCreate(cl, TypeName.string2TypeName(typeName));
   }
 
-  public static synchronized TypeReference find(ClassLoaderReference cl, String typeName) {
+  public static TypeReference find(ClassLoaderReference cl, String typeName) {
     return find(cl, TypeName.string2TypeName(typeName));
   }
 
@@ -427,7 +427,7 @@ public final class TypeReference implements Serializable {
    * 
    * @param cl the classloader (defining/initiating depending on usage)
    */
-  public static synchronized TypeReference find(ClassLoaderReference cl, TypeName typeName) {
+  public static TypeReference find(ClassLoaderReference cl, TypeName typeName) {
     if (cl == null) {
       throw new IllegalArgumentException("null cl");
     }
@@ -445,10 +445,7 @@ public final class TypeReference implements Serializable {
       }
     }
 
-    Key key = new Key(cl, typeName);
-    TypeReference val = dictionary.get(key);
-
-    return val;
+    return dictionary.find(new Key(cl, typeName));
   }
 
   public static TypeReference findOrCreateArrayOf(TypeReference t) {
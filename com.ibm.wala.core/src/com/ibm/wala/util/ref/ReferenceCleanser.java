@@ -68,7 +68,8 @@ public class ReferenceCleanser {
       return;
     }
     AnalysisCache cache = getAnalysisCache();
-    if (cache != null) {
+    // a bounded cache keeps itself within its capacity, so there is no need to throw it all away
+    if (cache != null && !cache.getSSACache().getPolicy().isBounded()) {
       cache.getSSACache().wipe();
     }
     IClassHierarchy cha = getClassHierarchy();
@@ -98,6 +98,13 @@ public class ShrikeClassReaderHandle {
     }
   }
 
+  /**
+   * @return the number of times the class file has been read
+   */
+  public int getHydrateCount() {
+    return hydrateCount;
+  }
+
   public String getFileName() {
     return entry.getName();
   }
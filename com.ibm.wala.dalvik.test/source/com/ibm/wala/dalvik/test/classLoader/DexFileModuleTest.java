@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.dalvik.test.classLoader;
+
+import static com.ibm.wala.dalvik.test.util.Util.convertJarToDex;
+import static com.ibm.wala.dalvik.test.util.Util.getJavaJar;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jf.dexlib.ClassDefItem;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.dalvik.classLoader.DexFileModule;
+import com.ibm.wala.dalvik.classLoader.DexModuleEntry;
+import com.ibm.wala.dalvik.util.AndroidAnalysisScope;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+
+public class DexFileModuleTest {
+
+	/**
+	 * Make an archive with two dex files: classes.dex defines A and B, and classes2.dex defines B again and DummyHashMap.
+	 */
+	private static File makeMultidexArchive() throws IOException {
+		AnalysisScope javaScope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+				CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+		JarFile testdata = new JarFile(getJavaJar(javaScope), false);
+		try {
+			File first = convertJarToDex(makeJar(testdata, "demandpa/A.class", "demandpa/B.class").getAbsolutePath());
+			File second = convertJarToDex(makeJar(testdata, "demandpa/B.class", "demandpa/DummyHashMap.class").getAbsolutePath());
+			File apk = File.createTempFile("multidex", ".apk");
+			apk.deleteOnExit();
+			ZipOutputStream out = new ZipOutputStream(new FileOutputStream(apk));
+			try {
+				copy(first, "classes.dex", out);
+				copy(second, "classes2.dex", out);
+			} finally {
+				out.close();
+			}
+			return apk;
+		} finally {
+			testdata.close();
+		}
+	}
+
+	private static File makeJar(JarFile from, String... entries) throws IOException {
+		File jar = File.createTempFile("multidex", ".jar");
+		jar.deleteOnExit();
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+		try {
+			for (String name : entries) {
+				out.putNextEntry(new ZipEntry(name));
+				InputStream in = from.getInputStream(from.getEntry(name));
+				try {
+					copy(in, out);
+				} finally {
+					in.close();
+				}
+				out.closeEntry();
+			}
+		} finally {
+			out.close();
+		}
+		return jar;
+	}
+
+	private static void copy(File f, String name, ZipOutputStream out) throws IOException {
+		out.putNextEntry(new ZipEntry(name));
+		InputStream in = new FileInputStream(f);
+		try {
+			copy(in, out);
+		} finally {
+			in.close();
+		}
+		out.closeEntry();
+	}
+
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buffer = new byte[4096];
+		int n;
+		while ((n = in.read(buffer)) != -1) {
+			out.write(buffer, 0, n);
+		}
+	}
+
+	@Test
+	public void testMultidex() throws IOException {
+		DexFileModule module = DexFileModule.make(makeMultidexArchive());
+		Assert.assertEquals(2, module.getDexFiles().size());
+
+		Set<String> names = HashSetFactory.make();
+		for (ModuleEntry e : Iterator2Iterable.make(module.getEntries())) {
+			Assert.assertTrue(e.getClassName(), names.add(e.getClassName()));
+		}
+		Assert.assertTrue(names.contains("Ldemandpa/A"));
+		Assert.assertTrue(names.contains("Ldemandpa/B"));
+		Assert.assertTrue(names.contains("Ldemandpa/DummyHashMap"));
+		Assert.assertEquals(3, names.size());
+
+		// B is defined by both dex files, and is taken from classes.dex
+		ClassDefItem b = ((DexModuleEntry) module.getEntry("Ldemandpa/B")).getClassDefItem();
+		Assert.assertTrue(module.getDexFiles().get(0).ClassDefsSection.getItems().contains(b));
+		Assert.assertFalse(module.getDexFiles().get(1).ClassDefsSection.getItems().contains(b));
+	}
+
+	@Test
+	public void testExclusions() throws IOException, ClassHierarchyException {
+		File exclusions = File.createTempFile("exclusions", ".txt");
+		exclusions.deleteOnExit();
+		FileWriter w = new FileWriter(exclusions);
+		try {
+			w.write("demandpa\\/DummyHashMap\n");
+		} finally {
+			w.close();
+		}
+		AnalysisScope scope = AndroidAnalysisScope.setUpAndroidAnalysisScope(makeMultidexArchive().toURI(),
+				exclusions.getAbsolutePath(), DexFileModuleTest.class.getClassLoader());
+		ClassHierarchy cha = ClassHierarchy.make(scope);
+		Assert.assertNotNull(cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, "Ldemandpa/A")));
+		Assert.assertNotNull(cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, "Ldemandpa/B")));
+		Assert.assertNull(cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, "Ldemandpa/DummyHashMap")));
+	}
+}
@@ -49,10 +49,13 @@ package com.ibm.wala.dalvik.classLoader;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
 
 import org.jf.dexlib.ClassDefItem;
 import org.jf.dexlib.DexFile;
@@ -60,66 +63,120 @@ import org.jf.dexlib.Section;
 
 import com.ibm.wala.classLoader.Module;
 import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.io.TemporaryFile;
 
 /**
  * A module which is a wrapper around .dex and .apk file.
+ * 
+ * An archive may hold several dex files ("multidex"): classes.dex, classes2.dex, ..., classesN.dex. All of them are read, in
+ * that order, and a class defined by more than one of them is taken from the first, as the Dalvik VM does.
  *
  * @author barjo
  */
 public class DexFileModule implements Module {
-    private final DexFile dexfile;
-    private final Collection<ModuleEntry> entries;
+    private final List<DexFile> dexfiles;
+    private final Map<String, ModuleEntry> entries;
 
     public static DexFileModule make(File f) throws IllegalArgumentException, IOException {
-    	if (f.getName().endsWith("jar")) {
-    		return new DexFileModule(new JarFile(f));
+    	if (f.getName().endsWith("jar") || f.getName().endsWith("apk") || f.getName().endsWith("zip")) {
+    		// the archive is only read, so there is no need to verify its signatures
+    		JarFile jar = new JarFile(f, false);
+    		try {
+    			return new DexFileModule(f, jar);
+    		} finally {
+    			jar.close();
+    		}
     	} else {
     		return new DexFileModule(f);
     	}
     }
     
-    private static File tf(JarFile f) {
-    	String name = f.getName();
-    	if (name.indexOf('/') >= 0) {
-    		name = name.substring(name.lastIndexOf('/')+1);
-    	}
-    	File tf = new File(System.getProperty("java.io.tmpdir") + "/" + name + "_classes.dex");
-    	tf.deleteOnExit();
-    	System.err.println("using " + tf);
-    	return tf;
+    /**
+     * @return the name of the i-th dex file of a multidex archive, counting from 1
+     */
+    private static String dexName(int i) {
+    	return i == 1? "classes.dex": "classes" + i + ".dex";
     }
-    
-    private DexFileModule(JarFile f) throws IllegalArgumentException, IOException {    	
-    	this(TemporaryFile.streamToFile(tf(f), f.getInputStream(f.getEntry("classes.dex"))));
+
+    private DexFileModule(File f, JarFile jar) throws IllegalArgumentException, IOException {
+    	dexfiles = new ArrayList<DexFile>();
+    	entries = HashMapFactory.make();
+
+    	if (jar.getEntry(dexName(1)) == null) {
+    		throw new IllegalArgumentException("no " + dexName(1) + " in " + f);
+    	}
+    	// dexlib reads classes.dex straight out of the archive, so there is no need to copy it out first
+    	addDexFile(open(f));
+
+    	// dexlib only looks for classes.dex, so any further dex files go through a temporary copy, which can be dropped as soon
+    	// as it has been read
+    	for (int i = 2; ; i++) {
+    		ZipEntry e = jar.getEntry(dexName(i));
+    		if (e == null) {
+    			break;
+    		}
+    		File tf = File.createTempFile(f.getName() + "_classes" + i, ".dex");
+    		try {
+    			addDexFile(open(TemporaryFile.streamToFile(tf, jar.getInputStream(e))));
+    		} finally {
+    			tf.delete();
+    		}
+    	}
     }
     
     /**
      * @param f
-     *            the .dex or .apk file
+     *            the .dex file
      * @throws IllegalArgumentException
      */
     private DexFileModule(File f) throws IllegalArgumentException {    	
+    	dexfiles = new ArrayList<DexFile>(1);
+    	entries = HashMapFactory.make();
+    	addDexFile(open(f));
+    }
+
+    private static DexFile open(File f) throws IllegalArgumentException {
         try {
-            dexfile = new DexFile(f);
+            return new DexFile(f);
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
         }
+    }
 
-        // create ModuleEntries from ClassDefItem
-        entries = new HashSet<ModuleEntry>();
+    private void addDexFile(DexFile dexfile) {
+        dexfiles.add(dexfile);
 
+        // create ModuleEntries from ClassDefItem
         Section<ClassDefItem> cldeff = dexfile.ClassDefsSection;
         for (ClassDefItem cdefitems : cldeff.getItems()) {
-            entries.add(new DexModuleEntry(cdefitems));
+            DexModuleEntry entry = new DexModuleEntry(cdefitems);
+            if (!entries.containsKey(entry.getClassName())) {
+                entries.put(entry.getClassName(), entry);
+            }
         }
     }
 
     /**
-     * @return The DexFile associated to this module.
+     * @return The DexFile associated to this module; for a multidex archive, the one read from classes.dex.
      */
     public DexFile getDexFile() {
-        return dexfile;
+        return dexfiles.get(0);
+    }
+
+    /**
+     * @return all the DexFiles of this module, in the order they were read
+     */
+    public List<DexFile> getDexFiles() {
+        return Collections.unmodifiableList(dexfiles);
+    }
+
+    /**
+     * @return the entry for the class with the given name (a descriptor without the trailing ';'), or null if this module does
+     *         not define it
+     */
+    public ModuleEntry getEntry(String className) {
+        return entries.get(className);
     }
 
     /*
@@ -128,7 +185,7 @@ public class DexFileModule implements Module {
      * @see com.ibm.wala.classLoader.Module#getEntries()
      */
     public Iterator<ModuleEntry> getEntries() {
-        return entries.iterator();
+        return entries.values().iterator();
     }
 
 }
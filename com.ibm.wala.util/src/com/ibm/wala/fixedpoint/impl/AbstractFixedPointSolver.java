@@ -10,8 +10,15 @@
  *******************************************************************************/
 package com.ibm.wala.fixedpoint.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
@@ -24,6 +31,7 @@ import com.ibm.wala.fixpoint.UnaryStatement;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.debug.VerboseAction;
 
 /**
@@ -50,6 +58,16 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
 
   static public final int DEFAULT_PERIODIC_MAINTENANCE_INTERVAL = 100000;
 
+  /**
+   * When solving with several threads, rounds with fewer parallel-safe statements than this are evaluated on the solving thread
+   */
+  private static final int MIN_PARALLEL_ROUND = 256;
+
+  /**
+   * When solving with several threads, the number of statements evaluated by a single task
+   */
+  private static final int STATEMENTS_PER_TASK = 64;
+
   /**
    * A tuning parameter; how may new IStatementDefinitionss must be added before doing a new topological sort? TODO: Tune this
    * empirically.
@@ -101,6 +119,12 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
    */
   private boolean firstSolve = true;
 
+  /**
+   * How many threads should evaluate statements for which {@link #isParallelSafe(AbstractStatement)} holds? 1 means solve
+   * sequentially.
+   */
+  private int numberOfThreads = 1;
+
   protected abstract T[] makeStmtRHS(int size);
   
   /**
@@ -137,6 +161,10 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
       initForFirstSolve();
     }
 
+    if (numberOfThreads > 1) {
+      return solveInParallel(monitor);
+    }
+
     while (!workList.isEmpty()) {
       MonitorUtil.throwExceptionIfCanceled(monitor);
       orderStatements();
@@ -147,17 +175,8 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
       if (DEBUG) {
         System.err.println(("Before evaluation " + s));
       }
-      byte code = s.evaluate();
-      if (verbose) {
-        nEvaluated++;
-        if (nEvaluated % getVerboseInterval() == 0) {
-          performVerboseAction();
-        }
-        if (nEvaluated % getPeriodicMaintainInterval() == 0) {
-          periodicMaintenance();
-        }
-
-      }
+      byte code = evaluateStatement(s);
+      countEvaluation();
       if (DEBUG) {
         System.err.println(("After evaluation  " + s + " " + isChanged(code)));
       }
@@ -172,6 +191,210 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
     return globalChange;
   }
 
+  /**
+   * Solve in rounds. Each round drains the work list; the statements for which {@link #isParallelSafe(AbstractStatement)} holds
+   * are evaluated concurrently by {@link #getNumberOfThreads()} threads, and then the remaining statements are evaluated in order
+   * on this thread. The work list, and anything else the remaining statements modify, is only touched by this thread.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean solveInParallel(IProgressMonitor monitor) throws CancelException {
+    boolean globalChange = false;
+    List<AbstractStatement> parallel = new ArrayList<AbstractStatement>();
+    List<AbstractStatement> sequential = new ArrayList<AbstractStatement>();
+    Set<IVariable> changed = HashSetFactory.make();
+    ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+    try {
+      while (!workList.isEmpty()) {
+        MonitorUtil.throwExceptionIfCanceled(monitor);
+        orderStatements();
+
+        parallel.clear();
+        sequential.clear();
+        while (!workList.isEmpty()) {
+          AbstractStatement s = workList.takeStatement();
+          if (isParallelSafe(s)) {
+            parallel.add(s);
+          } else {
+            sequential.add(s);
+          }
+        }
+
+        byte[] codes = new byte[parallel.size()];
+        if (parallel.size() < MIN_PARALLEL_ROUND) {
+          for (int i = 0; i < codes.length; i++) {
+            codes[i] = evaluateStatement(parallel.get(i));
+          }
+        } else {
+          pool.invoke(new EvaluateAction(parallel, codes, 0, codes.length));
+        }
+        // several statements may have changed the same variable, so only update the work list once for each
+        changed.clear();
+        for (int i = 0; i < codes.length; i++) {
+          AbstractStatement s = parallel.get(i);
+          countEvaluation();
+          if (isChanged(codes[i])) {
+            globalChange = true;
+            if (s.getLHS() != null && changed.add(s.getLHS())) {
+              updateWorkList(s);
+            }
+          }
+          if (isFixed(codes[i])) {
+            removeStatement(s);
+          }
+        }
+
+        for (AbstractStatement s : sequential) {
+          byte code = evaluateStatement(s);
+          countEvaluation();
+          if (isChanged(code)) {
+            globalChange = true;
+            updateWorkList(s);
+          }
+          if (isFixed(code)) {
+            removeStatement(s);
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+    return globalChange;
+  }
+
+  /**
+   * Evaluates a range of parallel-safe statements, splitting it between tasks
+   */
+  @SuppressWarnings("serial")
+  private final class EvaluateAction extends RecursiveAction {
+    private final List<AbstractStatement> statements;
+
+    private final byte[] codes;
+
+    private final int start;
+
+    private final int end;
+
+    EvaluateAction(List<AbstractStatement> statements, byte[] codes, int start, int end) {
+      this.statements = statements;
+      this.codes = codes;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= STATEMENTS_PER_TASK) {
+        for (int i = start; i < end; i++) {
+          codes[i] = evaluateLocked(statements.get(i));
+        }
+      } else {
+        int mid = (start + end) >>> 1;
+        invokeAll(new EvaluateAction(statements, codes, start, mid), new EvaluateAction(statements, codes, mid, end));
+      }
+    }
+  }
+
+  private static final Comparator<IVariable> LOCK_ORDER = new Comparator<IVariable>() {
+    @Override
+    public int compare(IVariable v1, IVariable v2) {
+      int n1 = v1.getGraphNodeId();
+      int n2 = v2.getGraphNodeId();
+      if (n1 != n2) {
+        return n1 < n2 ? -1 : 1;
+      }
+      int h1 = System.identityHashCode(v1);
+      int h2 = System.identityHashCode(v2);
+      return h1 < h2 ? -1 : (h1 == h2 ? 0 : 1);
+    }
+  };
+
+  /**
+   * Evaluate a statement while holding the monitors of all the variables it uses or defines. The monitors are taken in a global
+   * order so that two statements sharing variables can not deadlock.
+   */
+  private byte evaluateLocked(AbstractStatement s) {
+    IVariable[] vars;
+    if (s instanceof UnaryStatement) {
+      vars = new IVariable[] { s.getLHS(), ((UnaryStatement) s).getRightHandSide() };
+    } else {
+      IVariable[] rhs = s.getRHS();
+      vars = new IVariable[rhs.length + 1];
+      vars[0] = s.getLHS();
+      System.arraycopy(rhs, 0, vars, 1, rhs.length);
+    }
+    int n = 0;
+    for (IVariable v : vars) {
+      if (v != null) {
+        vars[n++] = v;
+      }
+    }
+    Arrays.sort(vars, 0, n, LOCK_ORDER);
+    return evaluateLocked(s, vars, 0, n);
+  }
+
+  private byte evaluateLocked(AbstractStatement s, IVariable[] vars, int i, int n) {
+    if (i == n) {
+      return evaluateStatement(s);
+    }
+    if (i > 0 && vars[i] == vars[i - 1]) {
+      return evaluateLocked(s, vars, i + 1, n);
+    }
+    synchronized (vars[i]) {
+      return evaluateLocked(s, vars, i + 1, n);
+    }
+  }
+
+  /**
+   * Evaluate a statement on behalf of the solver. Subclasses may override this to evaluate some statements more cheaply than
+   * {@link AbstractStatement#evaluate()}, as long as the result is the same.
+   * 
+   * @return the {@link FixedPointConstants} code describing the effect of the evaluation
+   */
+  protected byte evaluateStatement(AbstractStatement s) {
+    return s.evaluate();
+  }
+
+  /**
+   * Can s be evaluated concurrently with other such statements when solving with several threads? This should only hold if
+   * evaluating s reads nothing mutable except its right-hand-side variables and writes nothing except its left-hand-side
+   * variable. Statements for which this does not hold are evaluated on the solving thread. By default, no statement is
+   * parallel-safe. {@link #evaluateStatement(AbstractStatement)} must be safe to call concurrently for parallel-safe
+   * statements.
+   */
+  protected boolean isParallelSafe(AbstractStatement s) {
+    return false;
+  }
+
+  /**
+   * @return how many threads evaluate parallel-safe statements
+   */
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * @param numberOfThreads how many threads evaluate statements for which {@link #isParallelSafe(AbstractStatement)} holds; 1
+   *          (the default) solves sequentially
+   */
+  public void setNumberOfThreads(int numberOfThreads) {
+    if (numberOfThreads < 1) {
+      throw new IllegalArgumentException("numberOfThreads must be positive: " + numberOfThreads);
+    }
+    this.numberOfThreads = numberOfThreads;
+  }
+
+  private void countEvaluation() {
+    if (verbose) {
+      nEvaluated++;
+      if (nEvaluated % getVerboseInterval() == 0) {
+        performVerboseAction();
+      }
+      if (nEvaluated % getPeriodicMaintainInterval() == 0) {
+        periodicMaintenance();
+      }
+    }
+  }
+
   @Override
   public void performVerboseAction() {
     System.err.println("Evaluated " + nEvaluated);
@@ -287,16 +510,8 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
   @SuppressWarnings("unchecked")
   private void incorporateNewStatement(boolean toWorkList, boolean eager, AbstractStatement s) {
     if (eager) {
-      byte code = s.evaluate();
-      if (verbose) {
-        nEvaluated++;
-        if (nEvaluated % getVerboseInterval() == 0) {
-          performVerboseAction();
-        }
-        if (nEvaluated % getPeriodicMaintainInterval() == 0) {
-          periodicMaintenance();
-        }
-      }
+      byte code = evaluateStatement(s);
+      countEvaluation();
       if (isChanged(code)) {
         updateWorkList(s);
       }
@@ -40,6 +40,10 @@ public class Worklist extends Heap<AbstractStatement> {
     return result;
   }
   
+  public boolean containsStatement(AbstractStatement eq) {
+    return contents.contains(eq);
+  }
+
   public void insertStatement(AbstractStatement eq) {
     if (!contents.contains(eq)) {
       contents.add(eq);
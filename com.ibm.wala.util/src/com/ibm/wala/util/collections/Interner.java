@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.ibm.wala.util.collections;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.wala.util.functions.Function;
+
+/**
+ * A thread-safe, non-blocking table of canonical objects, mapping a key that uses value equality to the one object for that value.
+ *
+ * By default the table holds its objects strongly, so a canonical object lives as long as the table. With
+ * {@link #setWeakValues(boolean) weak values}, objects added from then on are held weakly and dropped once nothing else refers to
+ * them, so that a long-running process does not accumulate the names of every scope it has analyzed. Since an object is only
+ * dropped when it is unreachable, no one can observe two different canonical objects for the same key.
+ */
+public class Interner<K, V> {
+
+  /**
+   * Do tables hold the objects added to them weakly?
+   */
+  private static volatile boolean weakValues = false;
+
+  /**
+   * Choose whether all tables hold objects added from now on weakly. Objects already in a table are not affected.
+   */
+  public static void setWeakValues(boolean weak) {
+    weakValues = weak;
+  }
+
+  public static boolean isWeakValues() {
+    return weakValues;
+  }
+
+  /**
+   * A weakly held canonical object, which remembers its key so that its entry can be removed once it has been collected
+   */
+  private static final class WeakValue<K, V> extends WeakReference<V> {
+    private final K key;
+
+    WeakValue(K key, V value, ReferenceQueue<? super V> queue) {
+      super(value, queue);
+      this.key = key;
+    }
+  }
+
+  /**
+   * Mapping from key to either the canonical object or a {@link WeakValue} holding it
+   */
+  private final ConcurrentHashMap<K, Object> map = new ConcurrentHashMap<K, Object>();
+
+  private final ReferenceQueue<V> queue = new ReferenceQueue<V>();
+
+  /**
+   * Makes the canonical object for a key that is not in the table
+   */
+  private final Function<K, V> factory;
+
+  public Interner(Function<K, V> factory) {
+    if (factory == null) {
+      throw new IllegalArgumentException("null factory");
+    }
+    this.factory = factory;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V unwrap(Object o) {
+    if (o instanceof WeakValue) {
+      return ((WeakValue<K, V>) o).get();
+    } else {
+      return (V) o;
+    }
+  }
+
+  /**
+   * @return the canonical object for key, or null if there is none
+   */
+  public V find(K key) {
+    return unwrap(map.get(key));
+  }
+
+  /**
+   * @return the canonical object for key, making it if there is none. If several threads make the object for the same key at the
+   *         same time, all of them get the one that was added first.
+   */
+  public V findOrCreate(K key) {
+    expungeStaleEntries();
+    while (true) {
+      Object old = map.get(key);
+      V result = unwrap(old);
+      if (result != null) {
+        return result;
+      }
+      result = factory.apply(key);
+      Object entry = weakValues ? new WeakValue<K, V>(key, result, queue) : result;
+      // old is either missing or a collected weak value
+      if (old == null ? map.putIfAbsent(key, entry) == null : map.replace(key, old, entry)) {
+        return result;
+      }
+    }
+  }
+
+  /**
+   * Remove the entries of weakly held objects that have been collected
+   */
+  private void expungeStaleEntries() {
+    for (Object o = queue.poll(); o != null; o = queue.poll()) {
+      WeakValue<?, ?> w = (WeakValue<?, ?>) o;
+      map.remove(w.key, w);
+    }
+  }
+
+  /**
+   * @return the number of entries in the table, including those of collected objects that have not been removed yet
+   */
+  public int size() {
+    expungeStaleEntries();
+    return map.size();
+  }
+}